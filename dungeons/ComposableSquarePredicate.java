@@ -0,0 +1,500 @@
+package project.dungeons;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import project.squares.Square;
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of square predicates that can be combined by conjunction, disjunction and negation.
+ * Each composable predicate carries a hint of its evaluation cost and of its selectivity, that is, the fraction
+ * of squares that satisfy it, and counts how many squares it has been tested against and how many of them
+ * satisfied it. Combined predicates short-circuit and test their operands in the order that is expected to be
+ * the cheapest, using the observed selectivities as soon as enough squares have been tested.
+ * Counting is thread safe, so that composable predicates can be used with parallel streams.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The cost of this predicate is positive.
+ * 			| getCost() > 0
+ * @Invar	The selectivity of this predicate lies between zero and one.
+ * 			| (getSelectivity() >= 0) && (getSelectivity() <= 1)
+ */
+public abstract class ComposableSquarePredicate<SquareT extends Square> implements SquarePredicate<SquareT> {
+
+	/**
+	 * Check whether the given square satisfies this predicate, and register the outcome.
+	 *
+	 * @return	...
+	 * 			| result == evaluate(square, parentDungeon)
+	 * @post	...
+	 * 			| new.getNbEvaluations() == getNbEvaluations() + 1
+	 * @post	...
+	 * 			| new.getNbSatisfied() == getNbSatisfied() + (result ? 1 : 0)
+	 */
+	@Override
+	public final boolean satisfies(SquareT square, Dungeon<? extends SquareT> parentDungeon) {
+		boolean result = evaluate(square, parentDungeon);
+		evaluations.incrementAndGet();
+		if (result)
+			satisfied.incrementAndGet();
+		return result;
+	}
+
+	/**
+	 * Check whether the given square with the given parent dungeon satisfies this predicate.
+	 *
+	 * @param 	square
+	 * 				The square to check.
+	 * @param 	parentDungeon
+	 * 				The dungeon to which the square belongs.
+	 */
+	protected abstract boolean evaluate(SquareT square, Dungeon<? extends SquareT> parentDungeon);
+
+	/**
+	 * Return the relative cost of testing a square against this predicate. Testing a cheap attribute of a square
+	 * costs about one.
+	 */
+	public double getCost() {
+		return 1;
+	}
+
+	/**
+	 * Return the estimated fraction of squares that satisfy this predicate before any square has been tested.
+	 */
+	public double getSelectivityHint() {
+		return 0.5;
+	}
+
+	/**
+	 * Return the estimated fraction of squares that satisfy this predicate.
+	 *
+	 * @return	The observed fraction of tested squares that satisfied this predicate, smoothed towards the
+	 * 			selectivity hint of this predicate while few squares have been tested.
+	 * 			| result == (getNbSatisfied() + getSelectivityHint() * PRIOR_WEIGHT) / (getNbEvaluations() + PRIOR_WEIGHT)
+	 */
+	public double getSelectivity() {
+		long nbEvaluations = evaluations.get();
+		long nbSatisfied = satisfied.get();
+		return (Math.min(nbSatisfied, nbEvaluations) + getSelectivityHint() * PRIOR_WEIGHT) / (nbEvaluations + PRIOR_WEIGHT);
+	}
+
+	/**
+	 * The number of tested squares that weigh as much as the selectivity hint when estimating the selectivity.
+	 */
+	public static final double PRIOR_WEIGHT = 32;
+
+	/**
+	 * Return the number of squares that have been tested against this predicate.
+	 */
+	@Basic
+	public long getNbEvaluations() {
+		return evaluations.get();
+	}
+
+	/**
+	 * Return the number of tested squares that satisfied this predicate.
+	 */
+	@Basic
+	public long getNbSatisfied() {
+		return satisfied.get();
+	}
+
+	/**
+	 * Variables registering the number of tested squares and the number of them that satisfied this predicate.
+	 */
+	private final AtomicLong evaluations = new AtomicLong();
+	private final AtomicLong satisfied = new AtomicLong();
+
+	/**
+	 * Return a predicate that is satisfied by the squares that satisfy both this predicate and the given predicate.
+	 *
+	 * @return	...
+	 * 			| result == allOf(this, other)
+	 */
+	@SuppressWarnings("unchecked")
+	public ComposableSquarePredicate<SquareT> and(SquarePredicate<? super SquareT> other) {
+		return allOf(this, other);
+	}
+
+	/**
+	 * Return a predicate that is satisfied by the squares that satisfy this predicate or the given predicate.
+	 *
+	 * @return	...
+	 * 			| result == anyOf(this, other)
+	 */
+	@SuppressWarnings("unchecked")
+	public ComposableSquarePredicate<SquareT> or(SquarePredicate<? super SquareT> other) {
+		return anyOf(this, other);
+	}
+
+	/**
+	 * Return a predicate that is satisfied by the squares that do not satisfy this predicate.
+	 *
+	 * @return	...
+	 * 			| result == not(this)
+	 */
+	public ComposableSquarePredicate<SquareT> negate() {
+		return not(this);
+	}
+
+	/**
+	 * Return a composable predicate that tests the given predicate, with the given cost and selectivity hints.
+	 *
+	 * @param	predicate
+	 * 				The predicate to test.
+	 * @param	cost
+	 * 				The relative cost of testing a square against the given predicate.
+	 * @param	selectivity
+	 * 				The estimated fraction of squares that satisfy the given predicate.
+	 * @throws	NullPointerException
+	 * 				The given predicate is not effective.
+	 * 				| predicate == null
+	 * @throws	IllegalArgumentException
+	 * 				The given cost is not positive or the given selectivity does not lie between zero and one.
+	 * 				| !(cost > 0) || !(selectivity >= 0) || !(selectivity <= 1)
+	 */
+	public static <SquareT extends Square> ComposableSquarePredicate<SquareT> of(
+			SquarePredicate<SquareT> predicate, double cost, double selectivity)
+		throws NullPointerException, IllegalArgumentException
+	{
+		if (predicate == null)
+			throw new NullPointerException();
+		if (!(cost > 0) || !(selectivity >= 0) || !(selectivity <= 1))
+			throw new IllegalArgumentException();
+		return new Wrapper<SquareT>(predicate, cost, selectivity);
+	}
+
+	/**
+	 * Return a predicate that is satisfied by the squares that satisfy each of the given predicates.
+	 *
+	 * @param	predicates
+	 * 				The predicates to combine.
+	 * @throws	NullPointerException
+	 * 				One of the given predicates is not effective.
+	 * 				| for some predicate in predicates
+	 * 				|	predicate == null
+	 */
+	@SafeVarargs
+	public static <SquareT extends Square> ComposableSquarePredicate<SquareT> allOf(
+			SquarePredicate<? super SquareT>... predicates)
+		throws NullPointerException
+	{
+		List<SquarePredicate<? super SquareT>> operands = new ArrayList<SquarePredicate<? super SquareT>>();
+		for (SquarePredicate<? super SquareT> predicate : predicates)
+			operands.add(predicate);
+		return new Conjunction<SquareT>(operands);
+	}
+
+	/**
+	 * Return a predicate that is satisfied by the squares that satisfy at least one of the given predicates.
+	 *
+	 * @param	predicates
+	 * 				The predicates to combine.
+	 * @throws	NullPointerException
+	 * 				One of the given predicates is not effective.
+	 * 				| for some predicate in predicates
+	 * 				|	predicate == null
+	 */
+	@SafeVarargs
+	public static <SquareT extends Square> ComposableSquarePredicate<SquareT> anyOf(
+			SquarePredicate<? super SquareT>... predicates)
+		throws NullPointerException
+	{
+		List<SquarePredicate<? super SquareT>> operands = new ArrayList<SquarePredicate<? super SquareT>>();
+		for (SquarePredicate<? super SquareT> predicate : predicates)
+			operands.add(predicate);
+		return new Disjunction<SquareT>(operands);
+	}
+
+	/**
+	 * Return a predicate that is satisfied by the squares that do not satisfy the given predicate.
+	 *
+	 * @param	predicate
+	 * 				The predicate to negate.
+	 * @throws	NullPointerException
+	 * 				The given predicate is not effective.
+	 * 				| predicate == null
+	 */
+	public static <SquareT extends Square> ComposableSquarePredicate<SquareT> not(
+			SquarePredicate<? super SquareT> predicate)
+		throws NullPointerException
+	{
+		return new Negation<SquareT>(wrap(predicate));
+	}
+
+	/**
+	 * Return the given predicate as a composable predicate, with the default hints if it is not composable.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <SquareT extends Square> ComposableSquarePredicate<? super SquareT> wrap(
+			SquarePredicate<? super SquareT> predicate)
+		throws NullPointerException
+	{
+		if (predicate == null)
+			throw new NullPointerException();
+		if (predicate instanceof ComposableSquarePredicate)
+			return (ComposableSquarePredicate<? super SquareT>)predicate;
+		return new Wrapper<SquareT>((SquarePredicate<SquareT>)predicate, 1, 0.5);
+	}
+
+	/**
+	 * A composable predicate testing another predicate with given hints.
+	 */
+	private static final class Wrapper<SquareT extends Square> extends ComposableSquarePredicate<SquareT> {
+
+		private Wrapper(SquarePredicate<SquareT> predicate, double cost, double selectivity) {
+			this.predicate = predicate;
+			this.cost = cost;
+			this.selectivity = selectivity;
+		}
+
+		@Override
+		protected boolean evaluate(SquareT square, Dungeon<? extends SquareT> parentDungeon) {
+			return predicate.satisfies(square, parentDungeon);
+		}
+
+		@Override
+		public double getCost() {
+			return cost;
+		}
+
+		@Override
+		public double getSelectivityHint() {
+			return selectivity;
+		}
+
+		private final SquarePredicate<SquareT> predicate;
+		private final double cost;
+		private final double selectivity;
+	}
+
+	/**
+	 * A combination of composable predicates that tests its operands in the order that is expected to be the cheapest.
+	 * The order is recomputed from the observed selectivities each time a fixed number of squares has been tested.
+	 */
+	private static abstract class Combination<SquareT extends Square> extends ComposableSquarePredicate<SquareT>
+			implements IndexedSquarePredicate
+	{
+
+		private Combination(List<SquarePredicate<? super SquareT>> predicates) throws NullPointerException {
+			List<ComposableSquarePredicate<? super SquareT>> operands = new ArrayList<ComposableSquarePredicate<? super SquareT>>();
+			for (SquarePredicate<? super SquareT> predicate : predicates)
+				operands.add(ComposableSquarePredicate.<SquareT>wrap(predicate));
+			this.operands = operands;
+			reorder();
+		}
+
+		/**
+		 * Return the probability that testing the given operand ends the evaluation of this combination.
+		 */
+		protected abstract double getStopProbability(ComposableSquarePredicate<? super SquareT> operand);
+
+		/**
+		 * Return the operands of this combination, in the order in which they are tested.
+		 */
+		protected List<ComposableSquarePredicate<? super SquareT>> getOperands() {
+			if (operandEvaluations.incrementAndGet() % REORDER_INTERVAL == 0)
+				reorder();
+			return operands;
+		}
+
+		/**
+		 * Return the operands of this combination in their current order, without counting this as a test, so that
+		 * planning with this combination does not change the order of its operands.
+		 */
+		protected List<ComposableSquarePredicate<? super SquareT>> getCurrentOperands() {
+			return operands;
+		}
+
+		/**
+		 * Sort the operands of this combination by their cost per chance of ending the evaluation.
+		 */
+		private void reorder() {
+			List<ComposableSquarePredicate<? super SquareT>> result =
+				new ArrayList<ComposableSquarePredicate<? super SquareT>>(operands);
+			Collections.sort(result, new Comparator<ComposableSquarePredicate<? super SquareT>>() {
+				@Override
+				public int compare(ComposableSquarePredicate<? super SquareT> first,
+						ComposableSquarePredicate<? super SquareT> second)
+				{
+					return Double.compare(getRank(first), getRank(second));
+				}
+			});
+			operands = Collections.unmodifiableList(result);
+		}
+
+		/**
+		 * Return the rank of the given operand; operands with a lower rank are tested first.
+		 */
+		private double getRank(ComposableSquarePredicate<? super SquareT> operand) {
+			double stopProbability = getStopProbability(operand);
+			if (stopProbability <= 0)
+				return Double.POSITIVE_INFINITY;
+			return operand.getCost() / stopProbability;
+		}
+
+		/**
+		 * Return the expected cost of testing the operands in their current order.
+		 */
+		@Override
+		public double getCost() {
+			double result = 0;
+			double reachProbability = 1;
+			for (ComposableSquarePredicate<? super SquareT> operand : operands) {
+				result += reachProbability * operand.getCost();
+				reachProbability *= 1 - getStopProbability(operand);
+			}
+			return Math.max(result, Double.MIN_VALUE);
+		}
+
+		/**
+		 * The number of squares after which the operands are reordered.
+		 */
+		private static final long REORDER_INTERVAL = 1024;
+
+		private volatile List<ComposableSquarePredicate<? super SquareT>> operands;
+		private final AtomicLong operandEvaluations = new AtomicLong();
+	}
+
+	/**
+	 * A conjunction of composable predicates. If one of its operands can be answered by a square index,
+	 * the most selective of them is answered by the index and the others are tested against its result.
+	 */
+	private static final class Conjunction<SquareT extends Square> extends Combination<SquareT> {
+
+		private Conjunction(List<SquarePredicate<? super SquareT>> predicates) throws NullPointerException {
+			super(predicates);
+		}
+
+		@Override
+		protected double getStopProbability(ComposableSquarePredicate<? super SquareT> operand) {
+			return 1 - operand.getSelectivity();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		protected boolean evaluate(SquareT square, Dungeon<? extends SquareT> parentDungeon) {
+			for (ComposableSquarePredicate<? super SquareT> operand : getOperands())
+				if (!((ComposableSquarePredicate<SquareT>)operand).satisfies(square, parentDungeon))
+					return false;
+			return true;
+		}
+
+		@Override
+		public double getSelectivityHint() {
+			double result = 1;
+			for (ComposableSquarePredicate<? super SquareT> operand : getCurrentOperands())
+				result *= operand.getSelectivity();
+			return result;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <IndexT extends Square> Collection<IndexT> selectFrom(SquareIndex<IndexT> index, Dungeon<IndexT> dungeon) {
+			ComposableSquarePredicate<? super SquareT> indexed = null;
+			for (ComposableSquarePredicate<? super SquareT> operand : getOperands())
+				if ((operand instanceof IndexedSquarePredicate) &&
+						((indexed == null) || (operand.getSelectivity() < indexed.getSelectivity())))
+					indexed = operand;
+			if (indexed == null)
+				return null;
+			Collection<IndexT> candidates = ((IndexedSquarePredicate)indexed).selectFrom(index, dungeon);
+			if (candidates == null)
+				return null;
+			List<IndexT> result = new ArrayList<IndexT>();
+			for (IndexT candidate : candidates) {
+				boolean satisfiesAll = true;
+				for (ComposableSquarePredicate<? super SquareT> operand : getOperands())
+					if ((operand != indexed) &&
+							!((ComposableSquarePredicate<IndexT>)operand).satisfies(candidate, dungeon)) {
+						satisfiesAll = false;
+						break;
+					}
+				if (satisfiesAll)
+					result.add(candidate);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * A disjunction of composable predicates. If each of its operands can be answered by a square index,
+	 * the disjunction is answered by the union of their results.
+	 */
+	private static final class Disjunction<SquareT extends Square> extends Combination<SquareT> {
+
+		private Disjunction(List<SquarePredicate<? super SquareT>> predicates) throws NullPointerException {
+			super(predicates);
+		}
+
+		@Override
+		protected double getStopProbability(ComposableSquarePredicate<? super SquareT> operand) {
+			return operand.getSelectivity();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		protected boolean evaluate(SquareT square, Dungeon<? extends SquareT> parentDungeon) {
+			for (ComposableSquarePredicate<? super SquareT> operand : getOperands())
+				if (((ComposableSquarePredicate<SquareT>)operand).satisfies(square, parentDungeon))
+					return true;
+			return false;
+		}
+
+		@Override
+		public double getSelectivityHint() {
+			double result = 1;
+			for (ComposableSquarePredicate<? super SquareT> operand : getCurrentOperands())
+				result *= 1 - operand.getSelectivity();
+			return 1 - result;
+		}
+
+		@Override
+		public <IndexT extends Square> Collection<IndexT> selectFrom(SquareIndex<IndexT> index, Dungeon<IndexT> dungeon) {
+			Set<IndexT> result = new LinkedHashSet<IndexT>();
+			for (ComposableSquarePredicate<? super SquareT> operand : getOperands()) {
+				if (!(operand instanceof IndexedSquarePredicate))
+					return null;
+				Collection<IndexT> selected = ((IndexedSquarePredicate)operand).selectFrom(index, dungeon);
+				if (selected == null)
+					return null;
+				result.addAll(selected);
+			}
+			return new ArrayList<IndexT>(result);
+		}
+	}
+
+	/**
+	 * A negation of a composable predicate.
+	 */
+	private static final class Negation<SquareT extends Square> extends ComposableSquarePredicate<SquareT> {
+
+		private Negation(ComposableSquarePredicate<? super SquareT> operand) {
+			this.operand = operand;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		protected boolean evaluate(SquareT square, Dungeon<? extends SquareT> parentDungeon) {
+			return !((ComposableSquarePredicate<SquareT>)operand).satisfies(square, parentDungeon);
+		}
+
+		@Override
+		public double getCost() {
+			return operand.getCost();
+		}
+
+		@Override
+		public double getSelectivityHint() {
+			return 1 - operand.getSelectivity();
+		}
+
+		private final ComposableSquarePredicate<? super SquareT> operand;
+	}
+}
@@ -0,0 +1,130 @@
+package project.dungeons;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import project.misc.Direction;
+import project.squares.Square;
+import project.squares.SquareImpl;
+import project.temperature.Temperature;
+/**
+ * A test class for the composable square predicates.
+ *
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class ComposableSquarePredicateTest {
+	private Level<Square> level;
+	private Square wetSquare;
+
+	@Before
+	public void setUpMutableTextFixture() {
+		level = new Level<Square>(20, 20);
+		for (int i = 0; i < 10; i++)
+			level.setSquareAt(new Position(i + 1, 0, 0), new SquareImpl(new Temperature(10 * i),
+					new BigDecimal(10 * i), false, Direction.values()));
+		level.setSquareAt(new Position(1, 2, 0), wetSquare = new SquareImpl(new Temperature(20),
+				new BigDecimal(100), false, Direction.values()));
+	}
+
+	private static ComposableSquarePredicate<Square> constant(final boolean value, double cost, double selectivity) {
+		return ComposableSquarePredicate.of(new SquarePredicate<Square>() {
+			@Override
+			public boolean satisfies(Square square, Dungeon<? extends Square> parentDungeon) {
+				return value;
+			}
+		}, cost, selectivity);
+	}
+
+	@Test
+	public void combinators_LegalCase() {
+		TemperatureAbovePredicate warm = new TemperatureAbovePredicate(new Temperature(45));
+		HumidityBetweenPredicate dry = new HumidityBetweenPredicate(new BigDecimal(0), new BigDecimal(70));
+		assertEquals(3, level.getAllSquaresSatisfying(warm.and(dry)).size());
+		assertEquals(10, level.getAllSquaresSatisfying(warm.or(dry)).size());
+		assertEquals(6, level.getAllSquaresSatisfying(warm.negate()).size());
+		assertEquals(10, level.getAllSquaresSatisfying(ComposableSquarePredicate.allOf(warm.negate(), dry.negate()).negate()).size());
+	}
+
+	@Test
+	public void and_ShortCircuitsOnCheapSelectiveOperand() {
+		ComposableSquarePredicate<Square> expensive = constant(true, 100, 0.9);
+		ComposableSquarePredicate<Square> cheap = constant(false, 1, 0.1);
+		assertEquals(0, level.getAllSquaresSatisfying(expensive.and(cheap)).size());
+		assertEquals(11, cheap.getNbEvaluations());
+		assertEquals(0, expensive.getNbEvaluations());
+	}
+
+	@Test
+	public void or_ShortCircuitsOnCheapLikelyOperand() {
+		ComposableSquarePredicate<Square> expensive = constant(false, 100, 0.1);
+		ComposableSquarePredicate<Square> cheap = constant(true, 1, 0.9);
+		assertEquals(11, level.getAllSquaresSatisfying(expensive.or(cheap)).size());
+		assertEquals(0, expensive.getNbEvaluations());
+	}
+
+	@Test
+	public void and_ReordersOnObservedSelectivity() {
+		ComposableSquarePredicate<Square> first = constant(true, 1, 0.01);
+		ComposableSquarePredicate<Square> second = constant(false, 1, 0.9);
+		ComposableSquarePredicate<Square> conjunction = first.and(second);
+		for (int i = 0; i < 2048; i++)
+			conjunction.satisfies(wetSquare, level);
+		long nbEvaluations = first.getNbEvaluations();
+		assertEquals(1.0, first.getSelectivity(), 0.05);
+		assertEquals(0.0, second.getSelectivity(), 0.05);
+		for (int i = 0; i < 100; i++)
+			conjunction.satisfies(wetSquare, level);
+		assertEquals(nbEvaluations, first.getNbEvaluations());
+		assertEquals(2148, conjunction.getNbEvaluations());
+		assertEquals(0, conjunction.getNbSatisfied());
+	}
+
+	@Test
+	public void getSelectivity_DoesNotReorder() {
+		ComposableSquarePredicate<Square> first = constant(true, 1, 0.01);
+		ComposableSquarePredicate<Square> second = constant(false, 1, 0.9);
+		ComposableSquarePredicate<Square> conjunction = first.and(second);
+		for (int i = 0; i < 1000; i++)
+			conjunction.satisfies(wetSquare, level);
+		for (int i = 0; i < 100; i++)
+			conjunction.getSelectivity();
+		for (int i = 0; i < 10; i++)
+			conjunction.satisfies(wetSquare, level);
+		assertEquals(1010, first.getNbEvaluations());
+	}
+
+	@Test
+	public void and_AnsweredFromIndex() {
+		ComposableSquarePredicate<Square> other = constant(true, 1, 0.5);
+		assertTrue(level.getAllSquaresSatisfying(new SlipperyPredicate().and(other)).contains(wetSquare));
+		assertEquals(1, other.getNbEvaluations());
+	}
+
+	@Test
+	public void or_AnsweredFromIndex() {
+		SlipperyPredicate slippery = new SlipperyPredicate();
+		TemperatureAbovePredicate warm = new TemperatureAbovePredicate(new Temperature(75));
+		assertEquals(3, level.getAllSquaresSatisfying(slippery.or(warm)).size());
+		assertEquals(0, slippery.getNbEvaluations());
+		assertEquals(0, warm.getNbEvaluations());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void of_IllegalSelectivity() {
+		constant(true, 1, 1.5);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void of_IllegalCost() {
+		constant(true, 0, 0.5);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void allOf_NullOperand() {
+		ComposableSquarePredicate.<Square>allOf(new SlipperyPredicate(), null);
+	}
+}
@@ -1,10 +1,17 @@
 package project.dungeons;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Consumer;
 import project.squares.Square;
 import be.kuleuven.cs.som.annotate.Basic;
 import be.kuleuven.cs.som.annotate.Raw;
@@ -107,6 +114,20 @@ public class CompositeDungeon<SquareT extends Square> extends Dungeon<SquareT> {
 		return subDungeon.hasSquareAt(position.subtract(getPositionOfSubDungeon(subDungeon)));
 	}
 	
+	/**
+	 * Check whether the given square is one of the squares of one of the sub dungeons of this dungeon.
+	 */
+	@Override
+	public boolean hasAsSquare(SquareT square) throws IllegalStateException {
+		if (isTerminated())
+			throw new IllegalStateException();
+		for (Dungeon<SquareT> dungeon : subDungeons.values()) {
+			if (dungeon.hasAsSquare(square))
+				return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Return the square at the given position. 
 	 */
@@ -133,6 +154,72 @@ public class CompositeDungeon<SquareT extends Square> extends Dungeon<SquareT> {
 		return result;
 	}
 
+	/**
+	 * Return the aggregate values over the squares of this dungeon, rolled up from its sub dungeons.
+	 * The result is cached until the aggregates of one of the sub dungeons change. The version of the cache is
+	 * read before rolling up, and rolled up aggregates are only used while the version has not changed since, so
+	 * that aggregates rolled up while the squares change concurrently are never used after the change.
+	 * The maximum heat damage is cached along with the other aggregates, so that it is not rolled up again when
+	 * the heat damage settings shared by all squares change, but only after the next change below this dungeon.
+	 */
+	@Override
+	public DungeonAggregates getAggregates() throws IllegalStateException {
+		if (isTerminated())
+			throw new IllegalStateException();
+		long version = aggregatesVersion;
+		CachedAggregates result = cachedAggregates;
+		if ((result != null) && (result.version == version))
+			return result.aggregates;
+		DungeonAggregates aggregates = DungeonAggregates.NONE;
+		for (Dungeon<SquareT> dungeon : subDungeons.values())
+			aggregates = aggregates.combine(dungeon.getAggregates());
+		cachedAggregates = new CachedAggregates(version, aggregates);
+		return aggregates;
+	}
+
+	/**
+	 * Discard the cached aggregates of this dungeon and of its parent dungeons.
+	 */
+	@Override
+	protected void invalidateAggregates() {
+		VERSION_UPDATER.incrementAndGet(this);
+		cachedAggregates = null;
+		super.invalidateAggregates();
+	}
+
+	/**
+	 * A class of cached aggregates of a composite dungeon, registering the version of the cache for which they
+	 * were rolled up.
+	 */
+	private static final class CachedAggregates {
+
+		private CachedAggregates(long version, DungeonAggregates aggregates) {
+			this.version = version;
+			this.aggregates = aggregates;
+		}
+
+		private final long version;
+		private final DungeonAggregates aggregates;
+	}
+
+	/**
+	 * A variable registering the version of the cached aggregates of this dungeon, incremented each time the
+	 * cache is invalidated.
+	 */
+	private volatile long aggregatesVersion;
+
+	/**
+	 * The updater incrementing the version of the cached aggregates of composite dungeons atomically.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final AtomicLongFieldUpdater<CompositeDungeon> VERSION_UPDATER =
+			AtomicLongFieldUpdater.newUpdater(CompositeDungeon.class, "aggregatesVersion");
+
+	/**
+	 * A variable registering the cached aggregates of this dungeon, null if they have to be rolled up again.
+	 */
+	private volatile CachedAggregates cachedAggregates;
+
 	/**
 	 * Return the map of squares that this dungeon has, each square with its position relative to this dungeon.
 	 */
@@ -141,13 +228,94 @@ public class CompositeDungeon<SquareT extends Square> extends Dungeon<SquareT> {
 		if (isTerminated())
 			return null;
 		Map<Position, SquareT> retMap = new HashMap<Position, SquareT>();
-		for (Dungeon<SquareT> subDungeon : getSubDungeons().values()) {
-			for (Position position : subDungeon.getSquares().keySet())
-				retMap.put(getPositionOfSubDungeon(subDungeon).offset(position), subDungeon.getSquareAt(position));
-		}
+		SquareCursor<SquareT> cursor = cursor();
+		while (cursor.next())
+			retMap.put(cursor.getPosition(), cursor.getSquare());
 		return retMap;
 	}
 	
+	/**
+	 * Return the map of squares of this dungeon that lie in the given region, each square with its position
+	 * relative to this dungeon. Sub dungeons whose bounds do not intersect with the given region are skipped.
+	 */
+	@Override
+	public Map<Position, SquareT> getSquaresIn(Position minimum, Position maximum)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if (isTerminated())
+			throw new IllegalStateException();
+		if (!isValidRegion(minimum, maximum))
+			throw new IllegalArgumentException();
+		Map<Position, SquareT> result = new HashMap<Position, SquareT>();
+		for (Map.Entry<Position, Dungeon<SquareT>> entry : subDungeons.entrySet()) {
+			Position[] region = getRegionIn(entry.getKey(), entry.getValue(), minimum, maximum);
+			if (region == null)
+				continue;
+			for (Map.Entry<Position, SquareT> square : entry.getValue().getSquaresIn(region[0], region[1]).entrySet())
+				result.put(entry.getKey().offset(square.getKey()), square.getValue());
+		}
+		return result;
+	}
+
+	/**
+	 * Offer the nearest squares of the sub dungeons of this dungeon, visiting the sub dungeons from nearest to
+	 * farthest and skipping those that lie farther away than the squares found so far.
+	 */
+	@Override
+	protected void collectNearest(final long x, final long y, final long z, SquarePredicate<? super SquareT> predicate,
+			NearestSquares<SquareT> nearest)
+	{
+		final Map<Position, Double> distances = new HashMap<Position, Double>();
+		for (Map.Entry<Position, Dungeon<SquareT>> entry : subDungeons.entrySet()) {
+			Position position = entry.getKey();
+			Position maximum = position.offset(entry.getValue().getMaximumPosition());
+			distances.put(position, NearestSquares.getDistanceSquared(x, y, z, position.getX(), position.getY(),
+					position.getZ(), maximum.getX(), maximum.getY(), maximum.getZ()));
+		}
+		List<Position> positions = new ArrayList<Position>(distances.keySet());
+		Collections.sort(positions, new Comparator<Position>() {
+			@Override
+			public int compare(Position first, Position second) {
+				return Double.compare(distances.get(first), distances.get(second));
+			}
+		});
+		for (Position position : positions) {
+			if (!nearest.canReach(distances.get(position)))
+				break;
+			subDungeons.get(position).collectNearest(x - position.getX(), y - position.getY(), z - position.getZ(),
+					predicate, nearest);
+		}
+	}
+
+	/**
+	 * Return the part of the given region that lies in the given sub dungeon at the given position,
+	 * expressed in the coordinates of that sub dungeon.
+	 *
+	 * @param	position
+	 * 				The position of the sub dungeon.
+	 * @param	subDungeon
+	 * 				The sub dungeon.
+	 * @param	minimum
+	 * 				The minimum position of the region.
+	 * @param	maximum
+	 * 				The maximum position of the region.
+	 * @return	An array with the minimum and maximum position of the clipped region, or null if the region
+	 * 			does not intersect with the sub dungeon.
+	 * 			| ...
+	 */
+	private Position[] getRegionIn(Position position, Dungeon<SquareT> subDungeon, Position minimum, Position maximum) {
+		Position subMaximum = subDungeon.getMaximumPosition();
+		long minX = Math.max(minimum.getX() - position.getX(), 0);
+		long minY = Math.max(minimum.getY() - position.getY(), 0);
+		long minZ = Math.max(minimum.getZ() - position.getZ(), 0);
+		long maxX = Math.min(maximum.getX() - position.getX(), subMaximum.getX());
+		long maxY = Math.min(maximum.getY() - position.getY(), subMaximum.getY());
+		long maxZ = Math.min(maximum.getZ() - position.getZ(), subMaximum.getZ());
+		if ((minX > maxX) || (minY > maxY) || (minZ > maxZ))
+			return null;
+		return new Position[] {new Position(minX, minY, minZ), new Position(maxX, maxY, maxZ)};
+	}
+
 	/**
 	 * Return the number of direct sub dungeons that this dungeon has.
 	 * 
@@ -326,6 +494,9 @@ public class CompositeDungeon<SquareT extends Square> extends Dungeon<SquareT> {
 	 * 				The position at which the given sub dungeon should be set.
 	 * @Post	...
 	 * 			| new.getSubDungeonAt(position) == subDungeon
+	 * @effect	The listeners of this dungeon and of its parent dungeons are notified of each square of the given dungeon.
+	 * 			| for each square in subDungeon
+	 * 			|	notifySquareAdded(square)
 	 * @throws	IllegalArgumentException
 	 * 				The given combination of sub dungeon and position is not valid, or the given dungeon already has a parent or is not empty.
 	 * 				| !canHaveAsSubDungeonAt(subDungeon, position) || 
@@ -346,6 +517,9 @@ public class CompositeDungeon<SquareT extends Square> extends Dungeon<SquareT> {
 			throw new IllegalArgumentException();
 		this.subDungeons.put(position, subDungeon);
 		subDungeon.setParentDungeon(this);
+		invalidateAggregates();
+		for (SquareT square : subDungeon)
+			notifySquareAdded(square);
 	}
 	
 	/**
@@ -444,6 +618,9 @@ public class CompositeDungeon<SquareT extends Square> extends Dungeon<SquareT> {
 	 * 				The position at which the sub dungeon is to be removed.
 	 * @Post 	There is no sub dungeon at the given position.
 	 * 			| !hasSubDungeonAt(position)
+	 * @effect	The listeners of this dungeon and of its parent dungeons are notified of each square of the removed dungeon.
+	 * 			| for each square in getSubDungeonAt(position)
+	 * 			|	notifySquareRemoved(square)
 	 * @throws	NullPointerException
      * 				The given position is not effective.
 	 *				| position == null
@@ -461,8 +638,11 @@ public class CompositeDungeon<SquareT extends Square> extends Dungeon<SquareT> {
 			throw new IllegalArgumentException();
 		Position startPosition = getPositionOfSubDungeon(getSubDungeonAt(position));
 		Dungeon<SquareT> oldDungeon = getSubDungeonAt(startPosition); 
+		for (SquareT square : oldDungeon)
+			notifySquareRemoved(square);
 		subDungeons.remove(startPosition);
 		oldDungeon.setParentDungeon(null);
+		invalidateAggregates();
 	}
 	
 	/**
@@ -579,6 +759,172 @@ public class CompositeDungeon<SquareT extends Square> extends Dungeon<SquareT> {
 		};		
 	}
 
+	/**
+	 * Get a cursor over all the squares of this dungeon, moving through the cursors of the sub dungeons
+	 * and offsetting their coordinates by the position of the sub dungeon.
+	 */
+	@Override
+	public SquareCursor<SquareT> cursor() throws IllegalStateException {
+		if (isTerminated())
+			throw new IllegalStateException();
+		final Iterator<Map.Entry<Position, Dungeon<SquareT>>> subDungeonIterator = subDungeons.entrySet().iterator();
+		return new SquareCursor<SquareT>() {
+
+			@Override
+			public boolean next() {
+				while ((subCursor == null) || !subCursor.next()) {
+					if (!subDungeonIterator.hasNext())
+						return setCurrent(null, 0, 0, 0);
+					Map.Entry<Position, Dungeon<SquareT>> entry = subDungeonIterator.next();
+					offset = entry.getKey();
+					subCursor = entry.getValue().cursor();
+				}
+				return setCurrent(subCursor.getSquare(), offset.getX() + subCursor.getX(),
+						offset.getY() + subCursor.getY(), offset.getZ() + subCursor.getZ());
+			}
+
+			private SquareCursor<SquareT> subCursor = null;
+			private Position offset = null;
+		};
+	}
+
+	/**
+	 * Get a spliterator over all the squares of this dungeon that satisfy a given predicate,
+	 * splitting first along the sub dungeons of this dungeon and then along the storage of a single sub dungeon.
+	 */
+	@Override
+	public Spliterator<SquareT> spliterator(SquarePredicate<? super SquareT> predicate) throws IllegalStateException {
+		if (isTerminated())
+			throw new IllegalStateException();
+		List<Dungeon<SquareT>> dungeons = new ArrayList<Dungeon<SquareT>>(subDungeons.values());
+		return new SubDungeonSpliterator(dungeons, 0, dungeons.size(), predicate);
+	}
+
+	/**
+	 * A spliterator over the squares of a range of sub dungeons of this dungeon.
+	 */
+	private class SubDungeonSpliterator implements Spliterator<SquareT> {
+
+		/**
+		 * Initialise a new spliterator over the sub dungeons in the given list from the given start index
+		 * (inclusive) to the given end index (exclusive).
+		 */
+		private SubDungeonSpliterator(List<Dungeon<SquareT>> dungeons, int start, int end,
+				SquarePredicate<? super SquareT> predicate)
+		{
+			this.dungeons = dungeons;
+			this.next = start;
+			this.end = end;
+			this.predicate = predicate;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super SquareT> action) {
+			while ((current == null) || !current.tryAdvance(action)) {
+				if (next >= end)
+					return false;
+				current = dungeons.get(next++).spliterator(predicate);
+			}
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super SquareT> action) {
+			if (current != null)
+				current.forEachRemaining(action);
+			while (next < end) {
+				current = dungeons.get(next++).spliterator(predicate);
+				current.forEachRemaining(action);
+			}
+		}
+
+		@Override
+		public Spliterator<SquareT> trySplit() {
+			if ((current != null) && (next < end)) {
+				Spliterator<SquareT> result = new SubDungeonSpliterator(dungeons, next, end, predicate);
+				end = next;
+				return result;
+			}
+			if (end - next >= 2) {
+				int middle = (next + end) >>> 1;
+				Spliterator<SquareT> result = new SubDungeonSpliterator(dungeons, next, middle, predicate);
+				next = middle;
+				return result;
+			}
+			if (next < end)
+				current = dungeons.get(next++).spliterator(predicate);
+			return (current == null) ? null : current.trySplit();
+		}
+
+		/**
+		 * Return the number of squares of the remaining sub dungeons, which is exact if there is no predicate.
+		 */
+		@Override
+		public long estimateSize() {
+			long result = (current == null) ? 0 : current.estimateSize();
+			for (int index = next; index < end; index++)
+				result += dungeons.get(index).getNbSquares();
+			return result;
+		}
+
+		@Override
+		public int characteristics() {
+			if ((predicate == null) && ((current == null) || current.hasCharacteristics(SIZED)))
+				return NONNULL | DISTINCT | SIZED;
+			return NONNULL | DISTINCT;
+		}
+
+		private final List<Dungeon<SquareT>> dungeons;
+		private final SquarePredicate<? super SquareT> predicate;
+		private Spliterator<SquareT> current = null;
+		private int next;
+		private int end;
+	}
+
+	/**
+	 * Get an iterator that iterates over all the squares of this dungeon in the given region.
+	 * Sub dungeons whose bounds do not intersect with the given region are skipped.
+	 */
+	@Override
+	public Iterator<SquareT> iterator(final Position minimum, final Position maximum)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if (isTerminated())
+			throw new IllegalStateException();
+		if (!isValidRegion(minimum, maximum))
+			throw new IllegalArgumentException();
+		return new Iterator<SquareT>() {
+
+			@Override
+			public boolean hasNext() {
+				while ((squareIterator == null) || !squareIterator.hasNext()) {
+					if (!subDungeonIterator.hasNext())
+						return false;
+					Map.Entry<Position, Dungeon<SquareT>> entry = subDungeonIterator.next();
+					Position[] region = getRegionIn(entry.getKey(), entry.getValue(), minimum, maximum);
+					squareIterator = (region == null) ? null : entry.getValue().iterator(region[0], region[1]);
+				}
+				return true;
+			}
+
+			@Override
+			public SquareT next() throws NoSuchElementException {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return this.squareIterator.next();
+			}
+
+			@Override
+			public void remove() throws UnsupportedOperationException {
+				throw new UnsupportedOperationException();
+			}
+
+			private Iterator<? extends SquareT> squareIterator = null;
+			private Iterator<Map.Entry<Position, Dungeon<SquareT>>> subDungeonIterator =
+				CompositeDungeon.this.subDungeons.entrySet().iterator();
+		};
+	}
+
 	/**
 	 * Terminate this dungeon.
 	 * 
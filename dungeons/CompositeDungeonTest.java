@@ -3,7 +3,12 @@ import static org.junit.Assert.*;
 
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -93,6 +98,79 @@ public class CompositeDungeonTest {
 		compositeDungeon.iterator(null);
 	}
 	
+	@Test
+	public void getSquaresIn_LegalCase() {
+		Map<Position, Square> squares = compositeDungeon.getSquaresIn(new Position(0, 0, 5), new Position(0, 0, 10));
+		assertEquals(6, squares.size());
+		for (int i = 5; i <= 10; i++)
+			assertSame(compositeDungeon.getSquareAt(new Position(0, 0, i)), squares.get(new Position(0, 0, i)));
+		assertEquals(18, compositeDungeon.getSquaresIn(new Position(3, 0, 0), new Position(50, 0, 50)).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getSquaresIn_IllegalArgument() {
+		compositeDungeon.getSquaresIn(new Position(0, 5, 0), new Position(0, 4, 0));
+	}
+
+	@Test
+	public void iteratorInRegion_LegalCase() {
+		Iterator<Square> iterator = compositeDungeon.iterator(new Position(0, 0, 0), new Position(0, 20, 20));
+		for (int i = 0; i < 40; i++) {
+			assertTrue(iterator.hasNext());
+			assertTrue(squareSet.contains(iterator.next()));
+		}
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void findNearest_LegalCase() {
+		List<Square> nearest = compositeDungeon.findNearest(new Position(0, 0, 12), null, 3);
+		assertEquals(3, nearest.size());
+		assertSame(compositeDungeon.getSquareAt(new Position(0, 0, 12)), nearest.get(0));
+		assertTrue(nearest.contains(compositeDungeon.getSquareAt(new Position(0, 0, 11))));
+		assertTrue(nearest.contains(compositeDungeon.getSquareAt(new Position(0, 0, 13))));
+		nearest = compositeDungeon.findNearest(new Position(15, 15, 0), null, 2);
+		assertTrue(nearest.contains(compositeDungeon.getSquareAt(new Position(15, 0, 0))));
+		assertTrue(nearest.contains(compositeDungeon.getSquareAt(new Position(0, 15, 0))));
+	}
+
+	@Test
+	public void findWithin_LegalCase() {
+		assertEquals(3, compositeDungeon.findWithin(new Position(0, 0, 0), 1.5).size());
+		assertEquals(60, compositeDungeon.findWithin(new Position(0, 0, 0), 20).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void findWithin_IllegalArgument() {
+		compositeDungeon.findWithin(new Position(0, 0, 0), -1);
+	}
+
+	@Test
+	public void spliterator_LegalCase() {
+		Spliterator<Square> spliterator = compositeDungeon.spliterator();
+		assertEquals(60, spliterator.getExactSizeIfKnown());
+		assertEquals(60, compositeDungeon.stream().count());
+		assertEquals(squareSet, compositeDungeon.parallelStream().collect(Collectors.<Square>toSet()));
+	}
+
+	@Test
+	public void cursor_LegalCase() {
+		SquareCursor<Square> cursor = compositeDungeon.cursor();
+		for (int i = 0; i < 60; i++) {
+			assertTrue(cursor.next());
+			assertSame(compositeDungeon.getSquareAt(cursor.getPosition()), cursor.getSquare());
+			assertTrue(squareSet.remove(cursor.getSquare()));
+		}
+		assertFalse(cursor.next());
+		assertFalse(cursor.isAtSquare());
+		assertEquals(0, squareSet.size());
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void cursor_NoSuchElement() {
+		compositeDungeon.cursor().getX();
+	}
+
 	@Test
 	public void getAllSingularDungeons_LegalCase() {
 		Set<SingularDungeon<Square>> singularDungeons = compositeDungeon.getAllSingularDungeons();
@@ -1,9 +1,17 @@
 package project.dungeons;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import project.misc.Direction;
 import project.squares.Square;
 import be.kuleuven.cs.som.annotate.Basic;
@@ -144,7 +152,7 @@ public abstract class Dungeon<SquareT extends Square> implements Iterable<Square
 	 * 			| else if ((position.getX() == position.getY()) && (position.getX() == position.getZ()))
 	 * 			|	then result == false
 	 * @result	...
-	 * 			| else if (getSquares().containsValue(square) || square.hasNeighbours())
+	 * 			| else if (hasAsSquare(square) || square.hasNeighbours())
 	 * 			|	then result == false
 	 * @result	...
 	 * 			| else if (!canSetSquareForSlipperiness(square))
@@ -172,7 +180,7 @@ public abstract class Dungeon<SquareT extends Square> implements Iterable<Square
 			return false;
 		if ((position.getX() == position.getY()) && (position.getY() == position.getZ()))
 			return false;
-		if (getSquares().containsValue(square) || square.hasNeighbours())
+		if (hasAsSquare(square) || square.hasNeighbours())
 			return false; // This square was already added to this or another Dungeon.
 		if (!canSetSquareForSlipperiness(square))//alleen checken voor root dungeon
 			return false;
@@ -271,6 +279,28 @@ public abstract class Dungeon<SquareT extends Square> implements Iterable<Square
 	 *				| isTerminated()
 	 */
 	public abstract int getNbSquares() throws IllegalStateException;
+
+	/**
+	 * Return the aggregate values over the squares of this dungeon. The aggregates are maintained as the squares
+	 * of this dungeon change, so that reading them does not visit the squares.
+	 *
+	 * @return	...
+	 * 			| (result.getNbSquares() == getNbSquares()) &&
+	 * 			| (result.getNbSlipperySquares() == COUNT(square.isSlippery() : square in getSquares().values())) &&
+	 * 			| (result.getMaxHeatDamage() == MAX(square.getHeatDamage() : square in getSquares().values()))
+	 * @throws	IllegalStateException
+	 * 				...
+	 * 				| isTerminated()
+	 */
+	public abstract DungeonAggregates getAggregates() throws IllegalStateException;
+
+	/**
+	 * Notify this dungeon and its parent dungeons that the aggregates of this dungeon have changed.
+	 */
+	protected void invalidateAggregates() {
+		if (getParentDungeon() != null)
+			getParentDungeon().invalidateAggregates();
+	}
 	
 	/**
 	 * Return the map of squares that this dungeon has, each square with his key position.
@@ -307,6 +337,9 @@ public abstract class Dungeon<SquareT extends Square> implements Iterable<Square
 	 * @post	...
 	 * 			| if (hasSquareAt(position))
 	 * 			| 	!(new getSquareAt(position)).hasNeighbours()
+	 * @effect	The removed square is removed from the target squares of the teleportation squares targeting it.
+	 * 			| if (hasSquareAt(position))
+	 * 			|	then getSquareAt(position).detachTeleportationSources()
 	 * @throws	NullPointerException
 	 * 				...
 	 * 				| position == null
@@ -331,9 +364,95 @@ public abstract class Dungeon<SquareT extends Square> implements Iterable<Square
 	 *				...
 	 *				| isTerminated()
 	 */
-	public abstract boolean hasSquareAt(Position position) 
+	public abstract boolean hasSquareAt(Position position)
 		throws NullPointerException, IllegalStateException;
-	
+
+	/**
+	 * Check whether the given square is one of the squares of this dungeon.
+	 *
+	 * @param	square
+	 * 				The square to check.
+	 * @return	...
+	 * 			| result == getSquares().containsValue(square)
+	 * @throws	IllegalStateException
+	 *				...
+	 *				| isTerminated()
+	 */
+	public boolean hasAsSquare(SquareT square) throws IllegalStateException {
+		if (isTerminated())
+			throw new IllegalStateException();
+		return getSquares().containsValue(square);
+	}
+
+	/**
+	 * Return the map of squares of this dungeon that lie between the given minimum position (inclusive) and
+	 * the given maximum position (inclusive), each square with its key position.
+	 *
+	 * @param	minimum
+	 * 				The position with the minimum coordinates of the region.
+	 * @param	maximum
+	 * 				The position with the maximum coordinates of the region.
+	 * @return	...
+	 * 			| for each position in getSquares().keySet()
+	 * 			|	result.containsKey(position) == position.isBetween(minimum, maximum) &&
+	 * 			|	(!result.containsKey(position) || (result.get(position) == getSquareAt(position)))
+	 * @return	...
+	 * 			| getSquares().keySet().containsAll(result.keySet())
+	 * @throws	NullPointerException
+	 * 				One of the given positions is not effective.
+	 * 				| (minimum == null) || (maximum == null)
+	 * @throws	IllegalArgumentException
+	 * 				For some coordinate, the maximum position is less than the minimum position.
+	 * 				| !isValidRegion(minimum, maximum)
+	 * @throws	IllegalStateException
+	 * 				...
+	 * 				| isTerminated()
+	 */
+	public abstract Map<Position, SquareT> getSquaresIn(Position minimum, Position maximum)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException;
+
+	/**
+	 * Get an iterator that iterates over all the squares of this dungeon that lie between the given minimum
+	 * position (inclusive) and the given maximum position (inclusive), without collecting them first.
+	 *
+	 * @param	minimum
+	 * 				The position with the minimum coordinates of the region.
+	 * @param	maximum
+	 * 				The position with the maximum coordinates of the region.
+	 * @throws	NullPointerException
+	 * 				One of the given positions is not effective.
+	 * 				| (minimum == null) || (maximum == null)
+	 * @throws	IllegalArgumentException
+	 * 				For some coordinate, the maximum position is less than the minimum position.
+	 * 				| !isValidRegion(minimum, maximum)
+	 * @throws	IllegalStateException
+	 * 				...
+	 * 				| isTerminated()
+	 */
+	public abstract Iterator<SquareT> iterator(Position minimum, Position maximum)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException;
+
+	/**
+	 * Check whether the given positions bound a valid region.
+	 *
+	 * @param	minimum
+	 * 				The position with the minimum coordinates of the region.
+	 * @param	maximum
+	 * 				The position with the maximum coordinates of the region.
+	 * @return	...
+	 * 			| result == (minimum.getX() <= maximum.getX()) && (minimum.getY() <= maximum.getY()) &&
+	 * 			|	(minimum.getZ() <= maximum.getZ())
+	 * @throws	NullPointerException
+	 * 				One of the given positions is not effective.
+	 * 				| (minimum == null) || (maximum == null)
+	 */
+	public static boolean isValidRegion(Position minimum, Position maximum) throws NullPointerException {
+		if ((minimum == null) || (maximum == null))
+			throw new NullPointerException();
+		return (minimum.getX() <= maximum.getX()) && (minimum.getY() <= maximum.getY()) &&
+			(minimum.getZ() <= maximum.getZ());
+	}
+
 	/**
 	 * Check whether all adjacent squares in this dungeon have their neighbouring borders in common.
 	 * 
@@ -353,8 +472,10 @@ public abstract class Dungeon<SquareT extends Square> implements Iterable<Square
 		if (getRootDungeon() != this)
 			return getRootDungeon().areAdjacentSquaresConnected();
 		
-		for (Position position : getSquares().keySet()) {
-			SquareT square = getSquareAt(position);
+		SquareCursor<SquareT> cursor = cursor();
+		while (cursor.next()) {
+			Position position = cursor.getPosition();
+			SquareT square = cursor.getSquare();
 			for (Direction direction : Direction.values()) {
 				try {
 					Position neighbourPosition = position.getAdjacentPosition(direction);
@@ -640,14 +761,80 @@ public abstract class Dungeon<SquareT extends Square> implements Iterable<Square
 	 *				| isTerminated()
 	 */
 	public abstract Iterator<SquareT> iterator(SquarePredicate<? super SquareT> predicate) throws IllegalStateException;
+
+	/**
+	 * Get a cursor over all the squares of this dungeon, positioned before the first square.
+	 * The coordinates given by the cursor are relative to this dungeon.
+	 *
+	 * @return	...
+	 * 			| for each position in getSquares().keySet()
+	 * 			|	the resulting cursor visits getSquareAt(position) exactly once, at the coordinates of position
+	 * @throws	IllegalStateException
+	 *				...
+	 *				| isTerminated()
+	 */
+	public abstract SquareCursor<SquareT> cursor() throws IllegalStateException;
+
+	/**
+	 * Get a spliterator over all the squares of this dungeon.
+	 *
+	 * @return	...
+	 * 			| result == spliterator(null)
+	 * @throws	IllegalStateException
+	 *				...
+	 *				| isTerminated()
+	 */
+	@Override
+	public Spliterator<SquareT> spliterator() throws IllegalStateException {
+		return spliterator(null);
+	}
+
+	/**
+	 * Get a spliterator over all the squares of this dungeon that satisfy a given predicate.
+	 * The spliterator splits along the sub dungeons and the storage of this dungeon, so that the squares can be
+	 * processed in parallel. Without a predicate, it knows the exact number of squares it covers.
+	 *
+	 * @param 	predicate
+	 * 				A predicate that the squares covered by the spliterator have to satisfy. If the predicate
+	 * 				is not effective, no condition is tested.
+	 * @throws	IllegalStateException
+	 *				...
+	 *				| isTerminated()
+	 */
+	public abstract Spliterator<SquareT> spliterator(SquarePredicate<? super SquareT> predicate) throws IllegalStateException;
+
+	/**
+	 * Return a sequential stream over all the squares of this dungeon.
+	 *
+	 * @throws	IllegalStateException
+	 *				...
+	 *				| isTerminated()
+	 */
+	public Stream<SquareT> stream() throws IllegalStateException {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Return a parallel stream over all the squares of this dungeon.
+	 *
+	 * @throws	IllegalStateException
+	 *				...
+	 *				| isTerminated()
+	 */
+	public Stream<SquareT> parallelStream() throws IllegalStateException {
+		return StreamSupport.stream(spliterator(), true);
+	}
 	
 	/**
-	 * Return a set of all the squares in this dungeon that satisfy a given predicate.
+	 * Return a set of all the squares in this dungeon that satisfy a given predicate. The predicate is tested on
+	 * the squares in parallel, on the common fork/join pool.
 	 * 
 	 * @param 	predicate
 	 * 				A predicate that the squares in the resulting set have to satisfy.
 	 * @Pre		The given predicate is effective.
 	 * 			| predicate != null
+	 * @Pre		The given predicate can be tested from several threads at once, and whether a square satisfies it
+	 * 			does not depend on the other squares it is tested on, nor on the order in which they are tested.
 	 * @return	All the squares in this dungeon that satisfy the given predicate, are member of the resulting set.
 	 * 			| for each square in getSquares()
 	 * 			|	!predicate.satisfies(square, this) || result.contains(square)
@@ -663,13 +850,246 @@ public abstract class Dungeon<SquareT extends Square> implements Iterable<Square
 	public Set<SquareT> getAllSquaresSatisfying(SquarePredicate<? super SquareT> predicate) throws IllegalStateException {
 		if (isTerminated())
 			throw new IllegalStateException();
-		Set<SquareT> result = new HashSet<SquareT>();
-		Iterator<SquareT> iterator = iterator(predicate);
-		while (iterator.hasNext())
-			result.add(iterator.next());
+		return StreamSupport.stream(spliterator(predicate), true).collect(Collectors.<SquareT>toSet());
+	}
+
+	/**
+	 * Return the given number of squares of this dungeon with the highest value for the given key, ordered from
+	 * highest to lowest value. Each part of this dungeon that is visited in parallel keeps its own bounded heap of
+	 * best squares, and the heaps are merged when the parts are joined. Squares of which the key is not a number
+	 * are not returned.
+	 *
+	 * @param	key
+	 * 				The function computing the value of a square, such as its inhabitability.
+	 * @param	k
+	 * 				The maximum number of squares to return.
+	 * @return	The resulting list contains the given number of squares, or all the squares of this dungeon
+	 * 			with a value that is a number if there are fewer.
+	 * 			| ...
+	 * @return	No square of this dungeon that is not in the resulting list has a higher value than a square in the
+	 * 			resulting list, and the resulting list is ordered by decreasing value.
+	 * 			| ...
+	 * @throws	NullPointerException
+	 * 				The given key is not effective.
+	 * 				| key == null
+	 * @throws	IllegalArgumentException
+	 * 				The given number of squares is negative.
+	 * 				| k < 0
+	 * @throws	IllegalStateException
+	 * 				...
+	 * 				| isTerminated()
+	 */
+	public List<SquareT> topSquaresBy(final ToDoubleFunction<? super SquareT> key, final int k)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if (isTerminated())
+			throw new IllegalStateException();
+		if (key == null)
+			throw new NullPointerException();
+		if (k < 0)
+			throw new IllegalArgumentException();
+		return StreamSupport.stream(spliterator(null), true).collect(
+			new Supplier<RankedSquares<SquareT>>() {
+				@Override
+				public RankedSquares<SquareT> get() {
+					return new RankedSquares<SquareT>(k);
+				}
+			},
+			new BiConsumer<RankedSquares<SquareT>, SquareT>() {
+				@Override
+				public void accept(RankedSquares<SquareT> ranked, SquareT square) {
+					ranked.offer(square, key.applyAsDouble(square));
+				}
+			},
+			new BiConsumer<RankedSquares<SquareT>, RankedSquares<SquareT>>() {
+				@Override
+				public void accept(RankedSquares<SquareT> ranked, RankedSquares<SquareT> other) {
+					ranked.addAll(other);
+				}
+			}).getSquares();
+	}
+
+	/**
+	 * Return the given number of squares of this dungeon that satisfy a given predicate and lie nearest to a given
+	 * position, ordered from nearest to farthest. Parts of this dungeon that lie farther away than the squares
+	 * found so far are skipped.
+	 *
+	 * @param	position
+	 * 				The position to search from.
+	 * @param	predicate
+	 * 				A predicate that the resulting squares have to satisfy. If the predicate is not effective,
+	 * 				no condition is tested.
+	 * @param	k
+	 * 				The maximum number of squares to return.
+	 * @return	The resulting list contains the given number of squares satisfying the given predicate, or all of them
+	 * 			if there are fewer.
+	 * 			| result.size() == min(k, getAllSquaresSatisfying(predicate).size())
+	 * @return	No square satisfying the given predicate that is not in the resulting list lies nearer to the
+	 * 			given position than a square in the resulting list, and the resulting list is ordered by increasing
+	 * 			distance to the given position.
+	 * 			| ...
+	 * @throws	NullPointerException
+	 * 				The given position is not effective.
+	 * 				| position == null
+	 * @throws	IllegalArgumentException
+	 * 				The given number of squares is negative.
+	 * 				| k < 0
+	 * @throws	IllegalStateException
+	 * 				...
+	 * 				| isTerminated()
+	 */
+	public List<SquareT> findNearest(Position position, SquarePredicate<? super SquareT> predicate, int k)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if (isTerminated())
+			throw new IllegalStateException();
+		if (position == null)
+			throw new NullPointerException();
+		NearestSquares<SquareT> nearest = new NearestSquares<SquareT>(k);
+		if (k > 0)
+			collectNearest(position.getX(), position.getY(), position.getZ(), predicate, nearest);
+		return nearest.getSquares();
+	}
+
+	/**
+	 * Offer the squares of this dungeon that satisfy a given predicate and can still be part of the given
+	 * collection of nearest squares to that collection.
+	 *
+	 * @param	x, y, z
+	 * 				The coordinates to search from, relative to this dungeon. They may lie outside of this dungeon.
+	 * @param	predicate
+	 * 				A predicate that the squares have to satisfy, or null if all squares are to be offered.
+	 * @param	nearest
+	 * 				The collection of nearest squares found so far.
+	 */
+	protected abstract void collectNearest(long x, long y, long z, SquarePredicate<? super SquareT> predicate,
+			NearestSquares<SquareT> nearest);
+
+	/**
+	 * Return the map of squares of this dungeon that lie within the given radius of the given position,
+	 * each square with its position.
+	 *
+	 * @param	position
+	 * 				The position to search from.
+	 * @param	radius
+	 * 				The maximum Euclidean distance between the given position and the resulting squares.
+	 * @return	...
+	 * 			| for each other in getSquares().keySet()
+	 * 			|	result.containsKey(other) == (distance(position, other) <= radius) &&
+	 * 			|	(!result.containsKey(other) || (result.get(other) == getSquareAt(other)))
+	 * @throws	NullPointerException
+	 * 				The given position is not effective.
+	 * 				| position == null
+	 * @throws	IllegalArgumentException
+	 * 				The given radius is negative or not a number.
+	 * 				| !(radius >= 0)
+	 * @throws	IllegalStateException
+	 * 				...
+	 * 				| isTerminated()
+	 */
+	public Map<Position, SquareT> findWithin(Position position, double radius)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if (isTerminated())
+			throw new IllegalStateException();
+		if (position == null)
+			throw new NullPointerException();
+		if (!(radius >= 0))
+			throw new IllegalArgumentException();
+		long reach = (radius >= Long.MAX_VALUE) ? Long.MAX_VALUE : (long)Math.floor(radius);
+		Position minimum = new Position(Math.max(0, position.getX() - reach), Math.max(0, position.getY() - reach),
+				Math.max(0, position.getZ() - reach));
+		Position maximum = new Position(getReach(position.getX(), reach, getMaximumPosition().getX()),
+				getReach(position.getY(), reach, getMaximumPosition().getY()),
+				getReach(position.getZ(), reach, getMaximumPosition().getZ()));
+		Map<Position, SquareT> result = new HashMap<Position, SquareT>();
+		if (!isValidRegion(minimum, maximum))
+			return result;
+		double radiusSquared = radius * radius;
+		for (Map.Entry<Position, SquareT> entry : getSquaresIn(minimum, maximum).entrySet()) {
+			Position other = entry.getKey();
+			if (NearestSquares.getDistanceSquared(position.getX(), position.getY(), position.getZ(),
+					other.getX(), other.getY(), other.getZ(), other.getX(), other.getY(), other.getZ()) <= radiusSquared)
+				result.put(other, entry.getValue());
+		}
 		return result;
 	}
 
+	/**
+	 * Return the greatest coordinate within the given reach of the given coordinate, bounded by the given maximum.
+	 */
+	private static long getReach(long coordinate, long reach, long maximum) {
+		if (coordinate > maximum - reach)
+			return maximum;
+		return Math.min(maximum, coordinate + reach);
+	}
+
+	/**
+	 * Register the given listener to be notified of the squares added to and removed from this dungeon
+	 * and its sub dungeons.
+	 *
+	 * @param	listener
+	 * 				The listener to register.
+	 * @post	...
+	 * 			| new.hasAsDungeonListener(listener)
+	 * @throws	NullPointerException
+	 * 				The given listener is not effective.
+	 * 				| listener == null
+	 */
+	public void addDungeonListener(DungeonListener listener) throws NullPointerException {
+		if (listener == null)
+			throw new NullPointerException();
+		if (dungeonListeners == null)
+			dungeonListeners = new ArrayList<DungeonListener>(1);
+		if (!dungeonListeners.contains(listener))
+			dungeonListeners.add(listener);
+	}
+
+	/**
+	 * Unregister the given listener.
+	 *
+	 * @post	...
+	 * 			| !new.hasAsDungeonListener(listener)
+	 */
+	public void removeDungeonListener(DungeonListener listener) {
+		if (dungeonListeners != null)
+			dungeonListeners.remove(listener);
+	}
+
+	/**
+	 * Check whether the given listener is registered to be notified of the squares added to and removed from this dungeon.
+	 */
+	public boolean hasAsDungeonListener(DungeonListener listener) {
+		return (dungeonListeners != null) && dungeonListeners.contains(listener);
+	}
+
+	/**
+	 * Notify the listeners of this dungeon and of its parent dungeons that the given square has been added.
+	 */
+	protected void notifySquareAdded(SquareT square) {
+		if (dungeonListeners != null)
+			for (DungeonListener listener : dungeonListeners.toArray(new DungeonListener[dungeonListeners.size()]))
+				listener.squareAdded(square);
+		if (getParentDungeon() != null)
+			getParentDungeon().notifySquareAdded(square);
+	}
+
+	/**
+	 * Notify the listeners of this dungeon and of its parent dungeons that the given square has been removed.
+	 */
+	protected void notifySquareRemoved(SquareT square) {
+		if (dungeonListeners != null)
+			for (DungeonListener listener : dungeonListeners.toArray(new DungeonListener[dungeonListeners.size()]))
+				listener.squareRemoved(square);
+		if (getParentDungeon() != null)
+			getParentDungeon().notifySquareRemoved(square);
+	}
+
+	/**
+	 * A variable registering the listeners of this dungeon, null if it has none.
+	 */
+	private List<DungeonListener> dungeonListeners;
+
 	/**
 	 * Terminate this dungeon.
 	 *
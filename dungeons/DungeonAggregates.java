@@ -0,0 +1,116 @@
+package project.dungeons;
+import project.temperature.Temperature;
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of aggregate values over the squares of a dungeon: the number of squares, their mean temperature,
+ * their maximum heat damage and the number of slippery squares.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The number of squares and the number of slippery squares are not negative, and there are not more
+ * 			slippery squares than squares.
+ * 			| (getNbSlipperySquares() >= 0) && (getNbSlipperySquares() <= getNbSquares())
+ * @Invar	The maximum heat damage is not negative.
+ * 			| getMaxHeatDamage() >= 0
+ */
+public class DungeonAggregates {
+
+	/**
+	 * Initialise new aggregates with the given values.
+	 *
+	 * @param	nbSquares
+	 * 				The number of squares.
+	 * @param	temperatureSum
+	 * 				The sum of the temperatures of the squares, in degrees Celcius.
+	 * @param	maxHeatDamage
+	 * 				The maximum heat damage of the squares.
+	 * @param	nbSlipperySquares
+	 * 				The number of slippery squares.
+	 */
+	DungeonAggregates(int nbSquares, double temperatureSum, int maxHeatDamage, int nbSlipperySquares) {
+		this.nbSquares = nbSquares;
+		this.temperatureSum = temperatureSum;
+		this.maxHeatDamage = maxHeatDamage;
+		this.nbSlipperySquares = nbSlipperySquares;
+	}
+
+	/**
+	 * The aggregates of a dungeon without squares.
+	 */
+	public static final DungeonAggregates NONE = new DungeonAggregates(0, 0, 0, 0);
+
+	/**
+	 * Return the number of squares.
+	 */
+	@Basic
+	public int getNbSquares() {
+		return nbSquares;
+	}
+
+	/**
+	 * Return the sum of the temperatures of the squares, in degrees Celcius.
+	 */
+	@Basic
+	double getTemperatureSum() {
+		return temperatureSum;
+	}
+
+	/**
+	 * Return the mean temperature of the squares.
+	 *
+	 * @return	Null if there are no squares.
+	 * 			| if (getNbSquares() == 0)
+	 * 			|	then result == null
+	 * @return	Otherwise, the sum of the temperatures of the squares divided by their number.
+	 * 			| else result.getValueInCelcius() == getTemperatureSum() / getNbSquares()
+	 */
+	public Temperature getMeanTemperature() {
+		if (nbSquares == 0)
+			return null;
+		return new Temperature(temperatureSum / nbSquares);
+	}
+
+	/**
+	 * Return the maximum heat damage of the squares, zero if there are no squares.
+	 */
+	@Basic
+	public int getMaxHeatDamage() {
+		return maxHeatDamage;
+	}
+
+	/**
+	 * Return the number of slippery squares.
+	 */
+	@Basic
+	public int getNbSlipperySquares() {
+		return nbSlipperySquares;
+	}
+
+	/**
+	 * Return the aggregates of the squares of these aggregates together with the squares of the given aggregates.
+	 *
+	 * @param	other
+	 * 				The aggregates to combine with.
+	 * @return	...
+	 * 			| (result.getNbSquares() == getNbSquares() + other.getNbSquares()) &&
+	 * 			| (result.getTemperatureSum() == getTemperatureSum() + other.getTemperatureSum()) &&
+	 * 			| (result.getMaxHeatDamage() == Math.max(getMaxHeatDamage(), other.getMaxHeatDamage())) &&
+	 * 			| (result.getNbSlipperySquares() == getNbSlipperySquares() + other.getNbSlipperySquares())
+	 * @throws	NullPointerException
+	 * 				The given aggregates are not effective.
+	 * 				| other == null
+	 */
+	public DungeonAggregates combine(DungeonAggregates other) throws NullPointerException {
+		return new DungeonAggregates(nbSquares + other.nbSquares, temperatureSum + other.temperatureSum,
+				Math.max(maxHeatDamage, other.maxHeatDamage), nbSlipperySquares + other.nbSlipperySquares);
+	}
+
+	/**
+	 * Variables registering the aggregate values.
+	 */
+	private final int nbSquares;
+	private final double temperatureSum;
+	private final int maxHeatDamage;
+	private final int nbSlipperySquares;
+}
@@ -0,0 +1,112 @@
+package project.dungeons;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import project.misc.Direction;
+import project.squares.Square;
+import project.squares.SquareImpl;
+import project.temperature.Temperature;
+/**
+ * A test class for the aggregates of dungeons.
+ *
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class DungeonAggregatesTest {
+	private CompositeDungeon<Square> compositeDungeon, subCompositeDungeon;
+	private Level<Square> level;
+	private OctreeDungeon<Square> octreeDungeon;
+
+	@Before
+	public void setUpMutableTextFixture() {
+		compositeDungeon = new CompositeDungeon<Square>();
+		subCompositeDungeon = new CompositeDungeon<Square>(new Position(50, 50, 50));
+		compositeDungeon.setSubDungeonAt(subCompositeDungeon, new Position());
+		subCompositeDungeon.setSubDungeonAt(level = new Level<Square>(10, 10), new Position());
+		compositeDungeon.setSubDungeonAt(octreeDungeon = new OctreeDungeon<Square>(new Position(10, 10, 10)),
+				new Position(0, 0, 60));
+		for (int i = 0; i < 5; i++) {
+			compositeDungeon.setSquareAt(new Position(i + 1, 0, 0), new SquareImpl(new Temperature(10 * i),
+					new BigDecimal(20 * i), false, Direction.values()));
+			compositeDungeon.setSquareAt(new Position(i + 1, 0, 60), new SquareImpl(new Temperature(20 * i),
+					new BigDecimal(20 * i), false, Direction.values()));
+		}
+	}
+
+	@Test
+	public void getAggregates_LegalCase() {
+		DungeonAggregates aggregates = level.getAggregates();
+		assertEquals(5, aggregates.getNbSquares());
+		assertEquals(20, aggregates.getMeanTemperature().getValueInCelcius(), 1e-9);
+		assertEquals(level.getSquareAt(new Position(5, 0, 0)).getHeatDamage(), aggregates.getMaxHeatDamage());
+		aggregates = compositeDungeon.getAggregates();
+		assertEquals(10, aggregates.getNbSquares());
+		assertEquals(30, aggregates.getMeanTemperature().getValueInCelcius(), 1e-9);
+		assertEquals(octreeDungeon.getSquareAt(new Position(5, 0, 0)).getHeatDamage(), aggregates.getMaxHeatDamage());
+		assertEquals(0, aggregates.getNbSlipperySquares());
+	}
+
+	@Test
+	public void getAggregates_Empty() {
+		DungeonAggregates aggregates = new Level<Square>(10, 10).getAggregates();
+		assertEquals(0, aggregates.getNbSquares());
+		assertNull(aggregates.getMeanTemperature());
+		assertEquals(0, aggregates.getMaxHeatDamage());
+	}
+
+	@Test
+	public void getAggregates_AfterSquareChanges() {
+		assertEquals(10, compositeDungeon.getAggregates().getNbSquares());
+		level.getSquareAt(new Position(1, 0, 0)).changeTemperature(new Temperature(200));
+		assertEquals(level.getSquareAt(new Position(1, 0, 0)).getHeatDamage(), compositeDungeon.getAggregates().getMaxHeatDamage());
+		assertEquals(50, compositeDungeon.getAggregates().getMeanTemperature().getValueInCelcius(), 1e-9);
+		octreeDungeon.getSquareAt(new Position(2, 0, 0)).changeHumidity(new BigDecimal(100));
+		assertEquals(1, compositeDungeon.getAggregates().getNbSlipperySquares());
+		assertEquals(1, octreeDungeon.getAggregates().getNbSlipperySquares());
+		assertEquals(0, subCompositeDungeon.getAggregates().getNbSlipperySquares());
+	}
+
+	@Test
+	public void getAggregates_NoDriftAfterManyChanges() {
+		Square square = level.getSquareAt(new Position(1, 0, 0));
+		for (int i = 0; i < 20000; i++) {
+			square.changeTemperature(new Temperature(1000.1 + (i % 7) * 0.37));
+			if (i % 3 == 0)
+				level.getAggregates();
+		}
+		double sum = 0;
+		for (int i = 1; i <= 5; i++)
+			sum += level.getSquareAt(new Position(i, 0, 0)).getTemperatureInCelcius();
+		assertEquals(sum / 5, level.getAggregates().getMeanTemperature().getValueInCelcius(), 1e-12);
+	}
+
+	@Test
+	public void getAggregates_AfterEdits() {
+		assertEquals(10, compositeDungeon.getAggregates().getNbSquares());
+		compositeDungeon.removeSquareAt(new Position(5, 0, 60));
+		assertEquals(9, compositeDungeon.getAggregates().getNbSquares());
+		assertEquals(octreeDungeon.getSquareAt(new Position(4, 0, 0)).getHeatDamage(), compositeDungeon.getAggregates().getMaxHeatDamage());
+		compositeDungeon.setSquareAt(new Position(3, 3, 0), new SquareImpl(new Temperature(25),
+				new BigDecimal(20), false, Direction.values()));
+		assertEquals(10, compositeDungeon.getAggregates().getNbSquares());
+		assertEquals(6, subCompositeDungeon.getAggregates().getNbSquares());
+	}
+
+	@Test
+	public void getAggregates_Cached() {
+		DungeonAggregates aggregates = compositeDungeon.getAggregates();
+		assertSame(aggregates, compositeDungeon.getAggregates());
+		level.getSquareAt(new Position(1, 0, 0)).changeTemperature(new Temperature(30));
+		assertNotSame(aggregates, compositeDungeon.getAggregates());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void getAggregates_Terminated() {
+		level.terminate();
+		level.getAggregates();
+	}
+}
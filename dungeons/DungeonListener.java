@@ -0,0 +1,28 @@
+package project.dungeons;
+import project.squares.Square;
+
+/**
+ * An interface for listeners that are notified of squares being added to or removed from a dungeon.
+ * A listener of a composite dungeon is notified of the changes to each of its sub dungeons.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ */
+public interface DungeonListener {
+
+	/**
+	 * Notify this listener that the given square has been added to the dungeon.
+	 *
+	 * @param	square
+	 * 				The square that has been added.
+	 */
+	public void squareAdded(Square square);
+
+	/**
+	 * Notify this listener that the given square has been removed from the dungeon.
+	 *
+	 * @param	square
+	 * 				The square that has been removed.
+	 */
+	public void squareRemoved(Square square);
+}
@@ -0,0 +1,676 @@
+package project.dungeons;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import project.misc.Direction;
+import project.squares.Square;
+import project.squares.SquareListener;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of engines computing the squares of a root dungeon that can be seen from a viewpoint within a radius.
+ * A field of view is restricted to the level of its viewpoint, and is computed by symmetric shadowcasting in each
+ * of the eight octants around the viewpoint. Light enters a square through one of its borders facing the
+ * viewpoint, from a neighbouring square that passes light, and only if that border can be seen through by the same
+ * rules as for a line of sight: it is not isolating, or it is a closed door of a transparent square. A square passes
+ * light if light entered it and it can be entered. Squares that do not pass light, and positions without a square,
+ * cast shadows on the squares behind them.
+ * Fields of view are cached by viewpoint and radius, octant by octant. When a border of a square scanned for an
+ * octant is replaced, opened or closed, only that octant is computed again, the next time the field of view is
+ * asked for. All fields of view are discarded when a square is added to or removed from the dungeon.
+ * At most a maximum number of fields of view are cached; once more are computed, the fields of view that were
+ * asked for least recently are discarded, and the engine stops listening to the squares only they scanned.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The dungeon of this engine is effective and is not part of another dungeon.
+ * 			| (getDungeon() != null) && (getDungeon().getParentDungeon() == null)
+ * @Invar	The number of cached views does not exceed the maximum number of cached views.
+ * 			| getNbCachedViews() <= getMaxNbCachedViews()
+ */
+public class FieldOfView implements DungeonListener, SquareListener {
+
+	/**
+	 * Initialise a new field of view engine over the given root dungeon, caching the default maximum number of
+	 * views.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon in which to look.
+	 * @effect	...
+	 * 			| this(dungeon, DEFAULT_MAX_NB_CACHED_VIEWS)
+	 */
+	public FieldOfView(Dungeon<? extends Square> dungeon)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		this(dungeon, DEFAULT_MAX_NB_CACHED_VIEWS);
+	}
+
+	/**
+	 * Initialise a new field of view engine over the given root dungeon, caching at most the given number of views.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon in which to look.
+	 * @param	maxNbCachedViews
+	 * 				The maximum number of views of which the field of view is cached.
+	 * @post	...
+	 * 			| (new.getDungeon() == dungeon) && (new.getNbCachedViews() == 0) && (new.getNbOctantScans() == 0)
+	 * @post	...
+	 * 			| new.getMaxNbCachedViews() == maxNbCachedViews
+	 * @post	...
+	 * 			| dungeon.hasAsDungeonListener(new)
+	 * @throws	NullPointerException
+	 * 				The given dungeon is not effective.
+	 * 				| dungeon == null
+	 * @throws	IllegalArgumentException
+	 * 				The given dungeon is part of another dungeon.
+	 * 				| dungeon.getParentDungeon() != null
+	 * @throws	IllegalArgumentException
+	 * 				...
+	 * 				| !isValidMaxNbCachedViews(maxNbCachedViews)
+	 * @throws	IllegalStateException
+	 * 				The given dungeon is terminated.
+	 * 				| dungeon.isTerminated()
+	 */
+	public FieldOfView(Dungeon<? extends Square> dungeon, int maxNbCachedViews)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if (dungeon.getParentDungeon() != null)
+			throw new IllegalArgumentException();
+		if (!isValidMaxNbCachedViews(maxNbCachedViews))
+			throw new IllegalArgumentException();
+		if (dungeon.isTerminated())
+			throw new IllegalStateException();
+		this.dungeon = dungeon;
+		this.maxNbCachedViews = maxNbCachedViews;
+		dungeon.addDungeonListener(this);
+	}
+
+	/**
+	 * Return the dungeon of this engine.
+	 */
+	@Basic @Immutable
+	public Dungeon<? extends Square> getDungeon() {
+		return dungeon;
+	}
+
+	/**
+	 * A variable referencing the dungeon of this engine.
+	 */
+	private final Dungeon<? extends Square> dungeon;
+
+	/**
+	 * Check whether the given radius is a valid radius for a field of view.
+	 *
+	 * @return	...
+	 * 			| result == (radius >= 0)
+	 */
+	public static boolean isValidRadius(long radius) {
+		return radius >= 0;
+	}
+
+	/**
+	 * Return the squares that can be seen from the given viewpoint within the given radius.
+	 *
+	 * @param	viewpoint
+	 * 				The position to look from.
+	 * @param	radius
+	 * 				The distance up to which to look.
+	 * @return	An empty set if there is no square at the given viewpoint.
+	 * 			| if (!getDungeon().hasSquareAt(viewpoint))
+	 * 			|	then result.isEmpty()
+	 * @return	Otherwise, a set containing the square at the given viewpoint and only squares on the same level,
+	 * 			within the given radius.
+	 * 			| if (getDungeon().hasSquareAt(viewpoint))
+	 * 			|	then result.contains(getDungeon().getSquareAt(viewpoint)) &&
+	 * 			|		for each square in result :
+	 * 			|			for some position in Position
+	 * 			|				(getDungeon().getSquareAt(position) == square) &&
+	 * 			|				(position.getZ() == viewpoint.getZ()) &&
+	 * 			|				((position.getX() - viewpoint.getX()) * (position.getX() - viewpoint.getX()) +
+	 * 			|				 (position.getY() - viewpoint.getY()) * (position.getY() - viewpoint.getY()) <=
+	 * 			|				 radius * radius)
+	 * @throws	NullPointerException
+	 * 				...
+	 * 				| viewpoint == null
+	 * @throws	IllegalArgumentException
+	 * 				...
+	 * 				| !isValidRadius(radius)
+	 * @throws	IllegalStateException
+	 * 				The dungeon of this engine is terminated.
+	 * 				| getDungeon().isTerminated()
+	 */
+	public Set<Square> getVisibleSquares(Position viewpoint, long radius)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		return getVisibleSquares(new Position[] {viewpoint}, radius).get(0);
+	}
+
+	/**
+	 * Return the squares that can be seen from each of the given viewpoints within the given radius. The octants
+	 * that are not cached are computed concurrently on the common fork/join pool.
+	 *
+	 * @param	viewpoints
+	 * 				The positions to look from.
+	 * @param	radius
+	 * 				The distance up to which to look.
+	 * @return	...
+	 * 			| (result.size() == viewpoints.length) &&
+	 * 			| for each i in 0..viewpoints.length-1
+	 * 			|	result.get(i).equals(getVisibleSquares(viewpoints[i], radius))
+	 * @throws	NullPointerException
+	 * 				...
+	 * 				| (viewpoints == null) ||
+	 * 				| (for some i in 0..viewpoints.length-1 : viewpoints[i] == null)
+	 * @throws	IllegalArgumentException
+	 * 				...
+	 * 				| !isValidRadius(radius)
+	 * @throws	IllegalStateException
+	 * 				The dungeon of this engine is terminated.
+	 * 				| getDungeon().isTerminated()
+	 */
+	public List<Set<Square>> getVisibleSquares(Position[] viewpoints, long radius)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if (!isValidRadius(radius))
+			throw new IllegalArgumentException();
+		if (getDungeon().isTerminated())
+			throw new IllegalStateException();
+		View[] views = new View[viewpoints.length];
+		List<View> staleViews = new ArrayList<View>();
+		List<Integer> staleOctants = new ArrayList<Integer>();
+		Set<View> queued = new HashSet<View>();
+		for (int i = 0; i < viewpoints.length; i++) {
+			View key = new View(viewpoints[i], radius);
+			View view = cache.get(key);
+			if (view == null)
+				cache.put(key, view = key);
+			views[i] = view;
+			if (queued.add(view)) {
+				for (int octant = 0; octant < NB_OCTANTS; octant++) {
+					if ((view.octants[octant] == null) || view.octants[octant].stale) {
+						staleViews.add(view);
+						staleOctants.add(octant);
+					}
+				}
+			}
+		}
+		Octant[] scans = new Octant[staleViews.size()];
+		if (scans.length > 0)
+			ForkJoinPool.commonPool().invoke(new ScanTask(this, staleViews, staleOctants, scans, 0, scans.length));
+		for (int i = 0; i < scans.length; i++) {
+			View view = staleViews.get(i);
+			int octant = staleOctants.get(i);
+			unregister(view, octant);
+			view.octants[octant] = scans[i];
+			register(view, octant);
+		}
+		nbOctantScans += scans.length;
+		List<Set<Square>> result = new ArrayList<Set<Square>>(views.length);
+		for (View view : views) {
+			Set<Square> visible = new HashSet<Square>();
+			for (Octant octant : view.octants)
+				visible.addAll(octant.visible);
+			result.add(visible);
+		}
+		evictViews();
+		return result;
+	}
+
+	/**
+	 * Discard the views that were asked for least recently, as long as more views are cached than allowed.
+	 */
+	private void evictViews() {
+		Iterator<View> views = cache.keySet().iterator();
+		while (cache.size() > getMaxNbCachedViews()) {
+			View view = views.next();
+			views.remove();
+			for (int octant = 0; octant < NB_OCTANTS; octant++)
+				unregister(view, octant);
+		}
+	}
+
+	/**
+	 * A class of tasks scanning a range of octants.
+	 */
+	private static final class ScanTask extends RecursiveAction {
+
+		/**
+		 * Initialise a new task scanning the octants in the given range.
+		 */
+		ScanTask(FieldOfView engine, List<View> views, List<Integer> octants, Octant[] scans, int from, int to) {
+			this.engine = engine;
+			this.views = views;
+			this.octants = octants;
+			this.scans = scans;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > GRAIN) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ScanTask(engine, views, octants, scans, from, middle),
+						new ScanTask(engine, views, octants, scans, middle, to));
+			}
+			else {
+				for (int i = from; i < to; i++)
+					scans[i] = engine.scan(views.get(i), octants.get(i));
+			}
+		}
+
+		/**
+		 * The number of octants below which a task is not split any further.
+		 */
+		private static final int GRAIN = 8;
+
+		/**
+		 * The engine scanning the octants.
+		 */
+		private final FieldOfView engine;
+
+		/**
+		 * The views of the octants to scan.
+		 */
+		private final List<View> views;
+
+		/**
+		 * The indexes of the octants to scan, in the order of their views.
+		 */
+		private final List<Integer> octants;
+
+		/**
+		 * The results of scanning the octants.
+		 */
+		private final Octant[] scans;
+
+		/**
+		 * The range of octants of this task.
+		 */
+		private final int from, to;
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * The number of octants around a viewpoint.
+	 */
+	private static final int NB_OCTANTS = 8;
+
+	/**
+	 * The directions in which the rows of each octant lie further from the viewpoint.
+	 */
+	private static final Direction[] DEPTH_DIRECTIONS = {Direction.EAST, Direction.EAST, Direction.WEST,
+		Direction.WEST, Direction.NORTH, Direction.NORTH, Direction.SOUTH, Direction.SOUTH};
+
+	/**
+	 * The directions in which the columns of each octant lie further from the axis of its rows.
+	 */
+	private static final Direction[] COLUMN_DIRECTIONS = {Direction.NORTH, Direction.SOUTH, Direction.NORTH,
+		Direction.SOUTH, Direction.EAST, Direction.WEST, Direction.EAST, Direction.WEST};
+
+	/**
+	 * Scan the given octant of the given view by symmetric shadowcasting, row by row.
+	 */
+	private Octant scan(View view, int octant) {
+		Set<Square> visible = new HashSet<Square>();
+		List<Square> scanned = new ArrayList<Square>();
+		Square origin = getSquareAt(view.viewpoint, octant, 0, 0);
+		if (origin == null)
+			return new Octant(visible, scanned);
+		visible.add(origin);
+		scanned.add(origin);
+		Direction towardsRow = DEPTH_DIRECTIONS[octant].getOppositeDirection();
+		Direction towardsAxis = COLUMN_DIRECTIONS[octant].getOppositeDirection();
+		// The squares passing light in the previous and the current row, indexed by column.
+		Square[] previous = null, current = new Square[] {origin};
+		LinkedList<Row> rows = new LinkedList<Row>();
+		if (view.radius > 0)
+			rows.add(new Row(1, 0, 1, 1, 1));
+		while (!rows.isEmpty()) {
+			Row row = rows.removeFirst();
+			if (row.depth != current.length - 1) {
+				previous = current;
+				current = new Square[(int)row.depth + 1];
+			}
+			Boolean wasBlocking = null;
+			long minColumn = Math.floorDiv(2 * row.depth * row.startNumerator + row.startDenominator,
+					2 * row.startDenominator);
+			long maxColumn = -Math.floorDiv(row.endDenominator - 2 * row.depth * row.endNumerator,
+					2 * row.endDenominator);
+			for (long column = minColumn; column <= maxColumn; column++) {
+				Square square = getSquareAt(view.viewpoint, octant, row.depth, column);
+				boolean entered = false;
+				if (square != null) {
+					scanned.add(square);
+					Square behind = (column < previous.length) ? previous[(int)column] : null;
+					Square aside = (column > 0) ? current[(int)column - 1] : null;
+					entered = ((behind != null) &&
+							LineOfSight.canSeeThrough(square.getBorderAt(towardsRow), square, behind)) ||
+						((aside != null) && LineOfSight.canSeeThrough(square.getBorderAt(towardsAxis), square, aside));
+				}
+				boolean blocking = !entered || !square.canEnter();
+				if (!blocking)
+					current[(int)column] = square;
+				boolean symmetric = (column * row.startDenominator >= row.depth * row.startNumerator) &&
+						(column * row.endDenominator <= row.depth * row.endNumerator);
+				if (entered && (blocking || symmetric) &&
+						(column * column + row.depth * row.depth <= view.radius * view.radius))
+					visible.add(square);
+				if ((wasBlocking != null) && wasBlocking && !blocking) {
+					row.startNumerator = 2 * column - 1;
+					row.startDenominator = 2 * row.depth;
+				}
+				if ((wasBlocking != null) && !wasBlocking && blocking && (row.depth < view.radius))
+					rows.add(new Row(row.depth + 1, row.startNumerator, row.startDenominator, 2 * column - 1,
+							2 * row.depth));
+				wasBlocking = blocking;
+			}
+			if ((wasBlocking != null) && !wasBlocking && (row.depth < view.radius))
+				rows.add(new Row(row.depth + 1, row.startNumerator, row.startDenominator, row.endNumerator,
+						row.endDenominator));
+		}
+		return new Octant(visible, scanned);
+	}
+
+	/**
+	 * Return the square at the given depth and column of the given octant around the given viewpoint, or null if
+	 * there is no square at that position.
+	 */
+	private Square getSquareAt(Position viewpoint, int octant, long depth, long column) {
+		Direction depthDirection = DEPTH_DIRECTIONS[octant], columnDirection = COLUMN_DIRECTIONS[octant];
+		long x = viewpoint.getX() +
+				depth * Position.getAxis(depthDirection).getX() * Position.getSign(depthDirection) +
+				column * Position.getAxis(columnDirection).getX() * Position.getSign(columnDirection);
+		long y = viewpoint.getY() +
+				depth * Position.getAxis(depthDirection).getY() * Position.getSign(depthDirection) +
+				column * Position.getAxis(columnDirection).getY() * Position.getSign(columnDirection);
+		if ((x < 0) || (y < 0))
+			return null;
+		Position position = new Position(x, y, viewpoint.getZ());
+		if (!getDungeon().hasSquareAt(position))
+			return null;
+		return getDungeon().getSquareAt(position);
+	}
+
+	/**
+	 * A class of rows of an octant, lit between a start and an end slope. A slope is the number of columns per row
+	 * away from the axis of the rows.
+	 */
+	private static final class Row {
+
+		/**
+		 * Initialise a new row at the given depth, lit between the given slopes.
+		 */
+		Row(long depth, long startNumerator, long startDenominator, long endNumerator, long endDenominator) {
+			this.depth = depth;
+			this.startNumerator = startNumerator;
+			this.startDenominator = startDenominator;
+			this.endNumerator = endNumerator;
+			this.endDenominator = endDenominator;
+		}
+
+		/**
+		 * The distance of this row from the viewpoint.
+		 */
+		private final long depth;
+
+		/**
+		 * The slope at which the light of this row starts.
+		 */
+		private long startNumerator, startDenominator;
+
+		/**
+		 * The slope at which the light of this row ends.
+		 */
+		private final long endNumerator, endDenominator;
+	}
+
+	/**
+	 * A class of results of scanning an octant, registering the squares seen and the squares scanned.
+	 */
+	private static final class Octant {
+
+		/**
+		 * Initialise a new result with the given squares.
+		 */
+		Octant(Set<Square> visible, List<Square> scanned) {
+			this.visible = visible;
+			this.scanned = scanned;
+		}
+
+		/**
+		 * The squares seen in the octant.
+		 */
+		private final Set<Square> visible;
+
+		/**
+		 * The squares scanned in the octant, of which the borders determine what is seen.
+		 */
+		private final List<Square> scanned;
+
+		/**
+		 * Whether a border of one of the scanned squares has changed since the octant was scanned.
+		 */
+		private boolean stale;
+	}
+
+	/**
+	 * A class of views from a viewpoint within a radius, registering the results of their octants.
+	 */
+	private static final class View {
+
+		/**
+		 * Initialise a new view from the given viewpoint within the given radius.
+		 */
+		View(Position viewpoint, long radius) throws NullPointerException {
+			if (viewpoint == null)
+				throw new NullPointerException();
+			this.viewpoint = viewpoint;
+			this.radius = radius;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof View))
+				return false;
+			View view = (View)other;
+			return viewpoint.equals(view.viewpoint) && (radius == view.radius);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * viewpoint.hashCode() + (int)(radius ^ (radius >>> 32));
+		}
+
+		/**
+		 * The position to look from.
+		 */
+		private final Position viewpoint;
+
+		/**
+		 * The distance up to which to look.
+		 */
+		private final long radius;
+
+		/**
+		 * The results of the octants of this view.
+		 */
+		private final Octant[] octants = new Octant[NB_OCTANTS];
+	}
+
+	/**
+	 * Listen to the squares scanned for the given octant of the given view.
+	 */
+	private void register(View view, int octant) {
+		for (Square square : view.octants[octant].scanned) {
+			Map<View, Integer> masks = octantsThrough.get(square);
+			if (masks == null) {
+				octantsThrough.put(square, masks = new HashMap<View, Integer>());
+				square.addSquareListener(this);
+			}
+			Integer mask = masks.get(view);
+			masks.put(view, ((mask == null) ? 0 : mask) | (1 << octant));
+		}
+	}
+
+	/**
+	 * Stop listening to the squares scanned for the given octant of the given view, if it has been scanned.
+	 */
+	private void unregister(View view, int octant) {
+		if (view.octants[octant] == null)
+			return;
+		for (Square square : view.octants[octant].scanned) {
+			Map<View, Integer> masks = octantsThrough.get(square);
+			if (masks == null)
+				continue;
+			Integer mask = masks.get(view);
+			if (mask == null)
+				continue;
+			if ((mask & ~(1 << octant)) != 0)
+				masks.put(view, mask & ~(1 << octant));
+			else {
+				masks.remove(view);
+				if (masks.isEmpty()) {
+					octantsThrough.remove(square);
+					square.removeSquareListener(this);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the number of views of which the field of view is cached.
+	 */
+	public int getNbCachedViews() {
+		return cache.size();
+	}
+
+	/**
+	 * Return the maximum number of views of which the field of view is cached.
+	 */
+	@Basic @Immutable
+	public int getMaxNbCachedViews() {
+		return maxNbCachedViews;
+	}
+
+	/**
+	 * Check whether the given number is a valid maximum number of cached views.
+	 *
+	 * @return	...
+	 * 			| result == (maxNbCachedViews > 0)
+	 */
+	public static boolean isValidMaxNbCachedViews(int maxNbCachedViews) {
+		return maxNbCachedViews > 0;
+	}
+
+	/**
+	 * The maximum number of cached views of an engine for which no maximum is given.
+	 */
+	public static final int DEFAULT_MAX_NB_CACHED_VIEWS = 1024;
+
+	/**
+	 * A variable registering the maximum number of views of which the field of view is cached.
+	 */
+	private final int maxNbCachedViews;
+
+	/**
+	 * Return the number of octants this engine has scanned.
+	 */
+	@Basic
+	public long getNbOctantScans() {
+		return nbOctantScans;
+	}
+
+	/**
+	 * A variable registering the number of octants this engine has scanned.
+	 */
+	private long nbOctantScans;
+
+	/**
+	 * Discard all cached fields of view.
+	 *
+	 * @post	...
+	 * 			| new.getNbCachedViews() == 0
+	 */
+	public void clearCache() {
+		for (Square square : octantsThrough.keySet())
+			square.removeSquareListener(this);
+		octantsThrough.clear();
+		cache.clear();
+	}
+
+	/**
+	 * Stop this engine from listening to its dungeon and its squares, discarding all cached fields of view.
+	 *
+	 * @post	...
+	 * 			| !getDungeon().hasAsDungeonListener(this)
+	 */
+	public void detach() {
+		clearCache();
+		getDungeon().removeDungeonListener(this);
+	}
+
+	/**
+	 * A variable registering the cached views, from the view asked for least recently to the view asked for most
+	 * recently.
+	 */
+	private final Map<View, View> cache = new LinkedHashMap<View, View>(16, 0.75f, true);
+
+	/**
+	 * A variable registering for each scanned square the octants of the views for which it was scanned, as a bit
+	 * mask per view.
+	 */
+	private final Map<Square, Map<View, Integer>> octantsThrough = new IdentityHashMap<Square, Map<View, Integer>>();
+
+	/**
+	 * Do nothing, as changes to the temperature or humidity of a square do not change what can be seen.
+	 */
+	@Override
+	public void squareChanged(Square square) {
+	}
+
+	/**
+	 * Mark the octants for which the given square was scanned as stale, as one of its borders has been replaced,
+	 * opened or closed.
+	 */
+	@Override
+	public void bordersChanged(Square square) {
+		Map<View, Integer> masks = octantsThrough.get(square);
+		if (masks == null)
+			return;
+		for (Map.Entry<View, Integer> entry : masks.entrySet()) {
+			for (int octant = 0; octant < NB_OCTANTS; octant++) {
+				if ((entry.getValue() & (1 << octant)) != 0)
+					entry.getKey().octants[octant].stale = true;
+			}
+		}
+	}
+
+	/**
+	 * Discard all cached fields of view, as a square has been added to the dungeon.
+	 */
+	@Override
+	public void squareAdded(Square square) {
+		clearCache();
+	}
+
+	/**
+	 * Discard all cached fields of view, as a square has been removed from the dungeon.
+	 */
+	@Override
+	public void squareRemoved(Square square) {
+		clearCache();
+	}
+}
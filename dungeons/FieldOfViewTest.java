@@ -0,0 +1,182 @@
+package project.dungeons;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import project.misc.Direction;
+import project.squares.RockSquare;
+import project.squares.Square;
+import project.squares.SquareImpl;
+import project.squares.borders.Wall;
+/**
+ * A test class for the field of view engine.
+ *
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class FieldOfViewTest {
+	private Level<Square> level;
+	private Square doorSquare;
+	private Wall door;
+	private FieldOfView fieldOfView;
+
+	@Before
+	public void setUpMutableTextFixture() {
+		level = new Level<Square>(20, 20);
+		doorSquare = new SquareImpl(Direction.FLOOR, Direction.CEILING);
+		new Wall(true, false).build(doorSquare, Direction.WEST);
+		level.setSquareAt(new Position(5, 2, 0), doorSquare);
+		level.setSquareAt(new Position(5, 1, 0), new RockSquare());
+		level.setSquareAt(new Position(5, 3, 0), new RockSquare());
+		for (int x = 1; x <= 9; x++) {
+			for (int y = 1; y <= 3; y++) {
+				if (x != 5)
+					level.setSquareAt(new Position(x, y, 0), new SquareImpl(Direction.FLOOR, Direction.CEILING));
+			}
+		}
+		door = (Wall)doorSquare.getBorderAt(Direction.WEST);
+		fieldOfView = new FieldOfView(level);
+	}
+
+	@Test
+	public void constructor_LegalCase() {
+		assertSame(level, fieldOfView.getDungeon());
+		assertEquals(0, fieldOfView.getNbCachedViews());
+		assertEquals(0, fieldOfView.getNbOctantScans());
+		assertTrue(level.hasAsDungeonListener(fieldOfView));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_SubDungeon() {
+		CompositeDungeon<Square> compositeDungeon = new CompositeDungeon<Square>();
+		Level<Square> subLevel = new Level<Square>(10, 10);
+		compositeDungeon.setSubDungeonAt(subLevel, new Position());
+		new FieldOfView(subLevel);
+	}
+
+	@Test
+	public void getVisibleSquares_ClosedRoom() {
+		Set<Square> visible = fieldOfView.getVisibleSquares(new Position(2, 2, 0), 10);
+		assertEquals(12, visible.size());
+		for (int x = 1; x <= 4; x++) {
+			for (int y = 1; y <= 3; y++)
+				assertTrue(visible.contains(level.getSquareAt(new Position(x, y, 0))));
+		}
+		assertFalse(visible.contains(doorSquare));
+	}
+
+	@Test
+	public void getVisibleSquares_Radius() {
+		Set<Square> visible = fieldOfView.getVisibleSquares(new Position(2, 2, 0), 1);
+		assertEquals(5, visible.size());
+		assertFalse(visible.contains(level.getSquareAt(new Position(3, 3, 0))));
+		assertEquals(1, fieldOfView.getVisibleSquares(new Position(2, 2, 0), 0).size());
+	}
+
+	@Test
+	public void getVisibleSquares_NoSquare() {
+		assertTrue(fieldOfView.getVisibleSquares(new Position(15, 15, 0), 10).isEmpty());
+	}
+
+	@Test
+	public void getVisibleSquares_Cached() {
+		fieldOfView.getVisibleSquares(new Position(2, 2, 0), 10);
+		assertEquals(8, fieldOfView.getNbOctantScans());
+		fieldOfView.getVisibleSquares(new Position(2, 2, 0), 10);
+		assertEquals(8, fieldOfView.getNbOctantScans());
+		assertEquals(1, fieldOfView.getNbCachedViews());
+	}
+
+	@Test
+	public void getVisibleSquares_Doors() {
+		fieldOfView.getVisibleSquares(new Position(2, 2, 0), 10);
+		door.openDoor();
+		Set<Square> visible = fieldOfView.getVisibleSquares(new Position(2, 2, 0), 10);
+		// Only the octants looking east scanned the squares next to the door.
+		assertEquals(10, fieldOfView.getNbOctantScans());
+		assertTrue(visible.contains(doorSquare));
+		for (int x = 6; x <= 9; x++)
+			assertTrue(visible.contains(level.getSquareAt(new Position(x, 2, 0))));
+		assertFalse(visible.contains(level.getSquareAt(new Position(5, 1, 0))));
+		assertFalse(visible.contains(level.getSquareAt(new Position(6, 1, 0))));
+		door.closeDoor();
+		assertEquals(12, fieldOfView.getVisibleSquares(new Position(2, 2, 0), 10).size());
+	}
+
+	@Test
+	public void getVisibleSquares_Symmetric() {
+		door.openDoor();
+		for (int x = 1; x <= 9; x++) {
+			for (int y = 1; y <= 3; y++) {
+				Square square = level.getSquareAt(new Position(x, y, 0));
+				if (square.canEnter())
+					assertEquals(fieldOfView.getVisibleSquares(new Position(2, 2, 0), 10).contains(square),
+							fieldOfView.getVisibleSquares(new Position(x, y, 0), 10).contains(
+									level.getSquareAt(new Position(2, 2, 0))));
+			}
+		}
+	}
+
+	@Test
+	public void getVisibleSquares_Batch() {
+		door.openDoor();
+		Position[] viewpoints = {new Position(2, 2, 0), new Position(7, 2, 0), new Position(2, 2, 0),
+				new Position(8, 3, 0)};
+		List<Set<Square>> result = fieldOfView.getVisibleSquares(viewpoints, 6);
+		assertEquals(3, fieldOfView.getNbCachedViews());
+		assertEquals(24, fieldOfView.getNbOctantScans());
+		FieldOfView other = new FieldOfView(level);
+		for (int i = 0; i < viewpoints.length; i++)
+			assertEquals(other.getVisibleSquares(viewpoints[i], 6), result.get(i));
+	}
+
+	@Test
+	public void getVisibleSquares_EvictsLeastRecentlyUsed() {
+		fieldOfView = new FieldOfView(level, 2);
+		Square corner = level.getSquareAt(new Position(1, 1, 0));
+		fieldOfView.getVisibleSquares(new Position(2, 2, 0), 6);
+		fieldOfView.getVisibleSquares(new Position(7, 2, 0), 6);
+		assertTrue(corner.hasAsSquareListener(fieldOfView));
+		fieldOfView.getVisibleSquares(new Position(2, 2, 0), 6);
+		fieldOfView.getVisibleSquares(new Position(8, 3, 0), 6);
+		assertEquals(2, fieldOfView.getNbCachedViews());
+		fieldOfView.getVisibleSquares(new Position(2, 2, 0), 6);
+		assertEquals(24, fieldOfView.getNbOctantScans());
+		fieldOfView.getVisibleSquares(new Position(7, 2, 0), 6);
+		fieldOfView.getVisibleSquares(new Position(8, 3, 0), 6);
+		assertEquals(2, fieldOfView.getNbCachedViews());
+		assertEquals(40, fieldOfView.getNbOctantScans());
+		assertFalse(corner.hasAsSquareListener(fieldOfView));
+		assertTrue(doorSquare.hasAsSquareListener(fieldOfView));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_IllegalMaxNbCachedViews() {
+		new FieldOfView(level, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getVisibleSquares_IllegalRadius() {
+		fieldOfView.getVisibleSquares(new Position(2, 2, 0), -1);
+	}
+
+	@Test
+	public void squareAdded_ClearsCache() {
+		fieldOfView.getVisibleSquares(new Position(2, 2, 0), 10);
+		level.setSquareAt(new Position(2, 4, 0), new SquareImpl(Direction.FLOOR, Direction.CEILING));
+		assertEquals(0, fieldOfView.getNbCachedViews());
+		assertEquals(13, fieldOfView.getVisibleSquares(new Position(2, 2, 0), 10).size());
+	}
+
+	@Test
+	public void detach_LegalCase() {
+		fieldOfView.getVisibleSquares(new Position(2, 2, 0), 10);
+		fieldOfView.detach();
+		assertFalse(level.hasAsDungeonListener(fieldOfView));
+		assertEquals(0, fieldOfView.getNbCachedViews());
+	}
+}
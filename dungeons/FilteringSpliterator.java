@@ -0,0 +1,77 @@
+package project.dungeons;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import project.squares.Square;
+
+/**
+ * A class of spliterators over the squares of a dungeon, passing on only those squares of another spliterator
+ * that satisfy a given predicate. Splitting this spliterator splits the underlying spliterator.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ */
+class FilteringSpliterator<SquareT extends Square> implements Spliterator<SquareT>, Consumer<SquareT> {
+
+	/**
+	 * Initialise a new filtering spliterator.
+	 *
+	 * @param	source
+	 * 				The spliterator to take the squares from.
+	 * @param	predicate
+	 * 				The predicate the squares have to satisfy.
+	 * @param	dungeon
+	 * 				The dungeon the squares belong to, passed on to the predicate.
+	 */
+	FilteringSpliterator(Spliterator<SquareT> source, SquarePredicate<? super SquareT> predicate,
+			Dungeon<SquareT> dungeon)
+	{
+		this.source = source;
+		this.predicate = predicate;
+		this.dungeon = dungeon;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super SquareT> action) {
+		while (source.tryAdvance(this)) {
+			SquareT square = current;
+			current = null;
+			if (predicate.satisfies(square, dungeon)) {
+				action.accept(square);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Register the given square as the square the underlying spliterator advanced to.
+	 */
+	@Override
+	public void accept(SquareT square) {
+		current = square;
+	}
+
+	@Override
+	public Spliterator<SquareT> trySplit() {
+		Spliterator<SquareT> prefix = source.trySplit();
+		return (prefix == null) ? null : new FilteringSpliterator<SquareT>(prefix, predicate, dungeon);
+	}
+
+	/**
+	 * Return the size of the underlying spliterator, as an upper bound of the number of remaining squares.
+	 */
+	@Override
+	public long estimateSize() {
+		return source.estimateSize();
+	}
+
+	@Override
+	public int characteristics() {
+		return source.characteristics() & (NONNULL | DISTINCT | ORDERED | IMMUTABLE | CONCURRENT);
+	}
+
+	private final Spliterator<SquareT> source;
+	private final SquarePredicate<? super SquareT> predicate;
+	private final Dungeon<SquareT> dungeon;
+	private SquareT current;
+}
@@ -0,0 +1,87 @@
+package project.dungeons;
+import java.math.BigDecimal;
+import java.util.Collection;
+import project.squares.Square;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A predicate that is satisfied by squares with a humidity between a given minimum and maximum humidity (inclusive).
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The minimum and maximum humidity of this predicate are effective.
+ * 			| (getMinimumHumidity() != null) && (getMaximumHumidity() != null)
+ */
+public class HumidityBetweenPredicate extends ComposableSquarePredicate<Square> implements IndexedSquarePredicate {
+
+	/**
+	 * Initialise a new predicate with a given minimum and maximum humidity.
+	 *
+	 * @param	minimum
+	 * 				The minimum humidity, expressed as a percentage.
+	 * @param	maximum
+	 * 				The maximum humidity, expressed as a percentage.
+	 * @post	...
+	 * 			| (new.getMinimumHumidity() == minimum) && (new.getMaximumHumidity() == maximum)
+	 * @throws	NullPointerException
+	 * 				One of the given humidities is not effective.
+	 * 				| (minimum == null) || (maximum == null)
+	 */
+	public HumidityBetweenPredicate(BigDecimal minimum, BigDecimal maximum) throws NullPointerException {
+		if ((minimum == null) || (maximum == null))
+			throw new NullPointerException();
+		this.minimum = minimum;
+		this.maximum = maximum;
+	}
+
+	/**
+	 * Return the minimum humidity of this predicate.
+	 */
+	@Basic @Immutable
+	public BigDecimal getMinimumHumidity() {
+		return minimum;
+	}
+
+	/**
+	 * Return the maximum humidity of this predicate.
+	 */
+	@Basic @Immutable
+	public BigDecimal getMaximumHumidity() {
+		return maximum;
+	}
+
+	/**
+	 * Check whether the humidity of the given square lies between the minimum and maximum humidity of this predicate.
+	 *
+	 * @return	...
+	 * 			| result == (square.getHumidity().compareTo(getMinimumHumidity()) >= 0) &&
+	 * 			|	(square.getHumidity().compareTo(getMaximumHumidity()) <= 0)
+	 */
+	@Override
+	protected boolean evaluate(Square square, Dungeon<? extends Square> parentDungeon) {
+		return (square.getHumidity().compareTo(minimum) >= 0) && (square.getHumidity().compareTo(maximum) <= 0);
+	}
+
+	/**
+	 * Return the relative cost of testing a square against this predicate. Comparing humidities is more expensive than comparing temperatures.
+	 */
+	@Override
+	public double getCost() {
+		return 2;
+	}
+
+	/**
+	 * Return the squares of the given index with a humidity between the minimum and maximum humidity of this predicate.
+	 */
+	@Override
+	public <SquareT extends Square> Collection<SquareT> selectFrom(SquareIndex<SquareT> index, Dungeon<SquareT> dungeon) {
+		return index.getSquaresWithHumidityBetween(minimum, maximum);
+	}
+
+	/**
+	 * Variables registering the minimum and maximum humidity of this predicate.
+	 */
+	private final BigDecimal minimum;
+	private final BigDecimal maximum;
+}
@@ -0,0 +1,28 @@
+package project.dungeons;
+import java.util.Collection;
+import project.squares.Square;
+
+/**
+ * An interface for square predicates that a dungeon can answer from the square index of its singular dungeons,
+ * instead of testing the predicate against each of its squares.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ */
+public interface IndexedSquarePredicate {
+
+	/**
+	 * Return the squares of the given index that satisfy this predicate.
+	 *
+	 * @param	index
+	 * 				The index to select the squares from.
+	 * @param	dungeon
+	 * 				The dungeon to which the squares of the given index belong.
+	 * @return	Null if this predicate cannot be answered by the given index.
+	 * 			| ...
+	 * @return	Otherwise, a new collection containing exactly the squares of the given index that satisfy this predicate.
+	 * 			| for each square in Square
+	 * 			|	result.contains(square) == index.contains(square) && satisfies(square, dungeon)
+	 */
+	public <SquareT extends Square> Collection<SquareT> selectFrom(SquareIndex<SquareT> index, Dungeon<SquareT> dungeon);
+}
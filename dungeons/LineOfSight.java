@@ -0,0 +1,560 @@
+package project.dungeons;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import project.misc.Direction;
+import project.squares.Square;
+import project.squares.SquareListener;
+import project.squares.TransparentSquare;
+import project.squares.borders.Border;
+import project.squares.borders.Wall;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of engines answering whether the square at one position of a root dungeon can be seen from the square
+ * at another position.
+ * A sightline runs from the centre of the one position to the centre of the other, and is traced with a
+ * three-dimensional digital differential analyser through the squares it crosses, one border at a time. When the
+ * sightline crosses an edge or a corner of squares, it passes the borders in the order of the x, y and z axes.
+ * A sightline is blocked by a border that is isolating, that is, a wall or a closed door, except for a closed
+ * door of a transparent square, which can be seen through. It is also blocked by a position without a square and
+ * by a square that can not be entered, such as rock, but not by the square at its far end. Sightlines are
+ * traced from the lowest of both positions, so that seeing is symmetric.
+ * Answers are cached by pair of positions. An answer is discarded when a border of one of the squares along its
+ * sightline is replaced, opened or closed, and all answers are discarded when a square is added to or removed
+ * from the dungeon. At most a maximum number of answers are cached; once more are computed, the answers that were
+ * asked for least recently are discarded, and the engine stops listening to the squares only their sightlines
+ * reached.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The dungeon of this engine is effective and is not part of another dungeon.
+ * 			| (getDungeon() != null) && (getDungeon().getParentDungeon() == null)
+ * @Invar	The number of cached sightlines does not exceed the maximum number of cached sightlines.
+ * 			| getNbCachedSightlines() <= getMaxNbCachedSightlines()
+ */
+public class LineOfSight implements DungeonListener, SquareListener {
+
+	/**
+	 * Initialise a new line of sight engine over the given root dungeon, caching the default maximum number of
+	 * sightlines.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon in which to look.
+	 * @effect	...
+	 * 			| this(dungeon, DEFAULT_MAX_NB_CACHED_SIGHTLINES)
+	 */
+	public LineOfSight(Dungeon<? extends Square> dungeon)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		this(dungeon, DEFAULT_MAX_NB_CACHED_SIGHTLINES);
+	}
+
+	/**
+	 * Initialise a new line of sight engine over the given root dungeon, caching at most the given number of
+	 * sightlines.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon in which to look.
+	 * @param	maxNbCachedSightlines
+	 * 				The maximum number of sightlines of which the answer is cached.
+	 * @post	...
+	 * 			| (new.getDungeon() == dungeon) && (new.getNbCachedSightlines() == 0)
+	 * @post	...
+	 * 			| new.getMaxNbCachedSightlines() == maxNbCachedSightlines
+	 * @post	...
+	 * 			| dungeon.hasAsDungeonListener(new)
+	 * @throws	NullPointerException
+	 * 				The given dungeon is not effective.
+	 * 				| dungeon == null
+	 * @throws	IllegalArgumentException
+	 * 				The given dungeon is part of another dungeon.
+	 * 				| dungeon.getParentDungeon() != null
+	 * @throws	IllegalArgumentException
+	 * 				...
+	 * 				| !isValidMaxNbCachedSightlines(maxNbCachedSightlines)
+	 * @throws	IllegalStateException
+	 * 				The given dungeon is terminated.
+	 * 				| dungeon.isTerminated()
+	 */
+	public LineOfSight(Dungeon<? extends Square> dungeon, int maxNbCachedSightlines)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if (dungeon.getParentDungeon() != null)
+			throw new IllegalArgumentException();
+		if (!isValidMaxNbCachedSightlines(maxNbCachedSightlines))
+			throw new IllegalArgumentException();
+		if (dungeon.isTerminated())
+			throw new IllegalStateException();
+		this.dungeon = dungeon;
+		this.maxNbCachedSightlines = maxNbCachedSightlines;
+		dungeon.addDungeonListener(this);
+	}
+
+	/**
+	 * Return the dungeon of this engine.
+	 */
+	@Basic @Immutable
+	public Dungeon<? extends Square> getDungeon() {
+		return dungeon;
+	}
+
+	/**
+	 * A variable referencing the dungeon of this engine.
+	 */
+	private final Dungeon<? extends Square> dungeon;
+
+	/**
+	 * Check whether the square at the given target position can be seen from the square at the given source
+	 * position.
+	 *
+	 * @param	source
+	 * 				The position to look from.
+	 * @param	target
+	 * 				The position to look at.
+	 * @return	False if there is no square at the source or at the target position.
+	 * 			| if (!getDungeon().hasSquareAt(source) || !getDungeon().hasSquareAt(target))
+	 * 			|	then result == false
+	 * @return	The result is symmetric.
+	 * 			| result == isVisible(target, source)
+	 * @throws	NullPointerException
+	 * 				...
+	 * 				| (source == null) || (target == null)
+	 * @throws	IllegalStateException
+	 * 				The dungeon of this engine is terminated.
+	 * 				| getDungeon().isTerminated()
+	 */
+	public boolean isVisible(Position source, Position target) throws NullPointerException, IllegalStateException {
+		if (getDungeon().isTerminated())
+			throw new IllegalStateException();
+		Sightline sightline = new Sightline(source, target);
+		Trace trace = cache.get(sightline);
+		if (trace == null) {
+			trace = trace(sightline);
+			register(sightline, trace);
+			evictSightlines();
+		}
+		return trace.visible;
+	}
+
+	/**
+	 * Check for each pair of the given source and target positions whether the square at the target position can
+	 * be seen from the square at the source position. The sightlines that are not cached are traced concurrently
+	 * on the common fork/join pool.
+	 *
+	 * @param	sources
+	 * 				The positions to look from.
+	 * @param	targets
+	 * 				The positions to look at, in the order of the positions to look from.
+	 * @return	...
+	 * 			| (result.length == sources.length) &&
+	 * 			| for each i in 0..sources.length-1
+	 * 			|	result[i] == isVisible(sources[i], targets[i])
+	 * @throws	NullPointerException
+	 * 				...
+	 * 				| (sources == null) || (targets == null) ||
+	 * 				| (for some i in 0..sources.length-1 : (sources[i] == null) || (targets[i] == null))
+	 * @throws	IllegalArgumentException
+	 * 				...
+	 * 				| sources.length != targets.length
+	 * @throws	IllegalStateException
+	 * 				The dungeon of this engine is terminated.
+	 * 				| getDungeon().isTerminated()
+	 */
+	public boolean[] areVisible(Position[] sources, Position[] targets)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if (sources.length != targets.length)
+			throw new IllegalArgumentException();
+		if (getDungeon().isTerminated())
+			throw new IllegalStateException();
+		boolean[] result = new boolean[sources.length];
+		List<Sightline> missing = new ArrayList<Sightline>();
+		List<Integer> missingIndexes = new ArrayList<Integer>();
+		for (int i = 0; i < sources.length; i++) {
+			Sightline sightline = new Sightline(sources[i], targets[i]);
+			Trace trace = cache.get(sightline);
+			if (trace != null)
+				result[i] = trace.visible;
+			else {
+				missing.add(sightline);
+				missingIndexes.add(i);
+			}
+		}
+		Sightline[] sightlines = missing.toArray(new Sightline[missing.size()]);
+		Trace[] traces = new Trace[sightlines.length];
+		if (sightlines.length > 0)
+			ForkJoinPool.commonPool().invoke(new TraceTask(this, sightlines, traces, 0, sightlines.length));
+		for (int i = 0; i < sightlines.length; i++) {
+			register(sightlines[i], traces[i]);
+			result[missingIndexes.get(i)] = traces[i].visible;
+		}
+		evictSightlines();
+		return result;
+	}
+
+	/**
+	 * A class of tasks tracing a range of sightlines.
+	 */
+	private static final class TraceTask extends RecursiveAction {
+
+		/**
+		 * Initialise a new task tracing the sightlines in the given range.
+		 */
+		TraceTask(LineOfSight engine, Sightline[] sightlines, Trace[] traces, int from, int to) {
+			this.engine = engine;
+			this.sightlines = sightlines;
+			this.traces = traces;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > GRAIN) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new TraceTask(engine, sightlines, traces, from, middle),
+						new TraceTask(engine, sightlines, traces, middle, to));
+			}
+			else {
+				for (int i = from; i < to; i++)
+					traces[i] = engine.trace(sightlines[i]);
+			}
+		}
+
+		/**
+		 * The number of sightlines below which a task is not split any further.
+		 */
+		private static final int GRAIN = 64;
+
+		/**
+		 * The engine tracing the sightlines.
+		 */
+		private final LineOfSight engine;
+
+		/**
+		 * The sightlines to trace.
+		 */
+		private final Sightline[] sightlines;
+
+		/**
+		 * The traces of the sightlines.
+		 */
+		private final Trace[] traces;
+
+		/**
+		 * The range of sightlines of this task.
+		 */
+		private final int from, to;
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Trace the given sightline through the dungeon of this engine.
+	 */
+	private Trace trace(Sightline sightline) {
+		Position from = sightline.from, to = sightline.to;
+		List<Square> squares = new ArrayList<Square>();
+		if (!getDungeon().hasSquareAt(from))
+			return new Trace(false, squares);
+		Square current = getDungeon().getSquareAt(from);
+		squares.add(current);
+		long lengthX = Math.abs(to.getX() - from.getX());
+		long lengthY = Math.abs(to.getY() - from.getY());
+		long lengthZ = Math.abs(to.getZ() - from.getZ());
+		Direction directionX = (to.getX() >= from.getX()) ? Direction.EAST : Direction.WEST;
+		Direction directionY = (to.getY() >= from.getY()) ? Direction.NORTH : Direction.SOUTH;
+		Direction directionZ = (to.getZ() >= from.getZ()) ? Direction.CEILING : Direction.FLOOR;
+		long stepsX = 0, stepsY = 0, stepsZ = 0;
+		while ((stepsX < lengthX) || (stepsY < lengthY) || (stepsZ < lengthZ)) {
+			// The sightline crosses its next border along an axis after (2 * steps + 1) / (2 * length) of its length.
+			Direction direction = null;
+			long numerator = 0, denominator = 1;
+			if (stepsX < lengthX) {
+				direction = directionX;
+				numerator = 2 * stepsX + 1;
+				denominator = lengthX;
+			}
+			if ((stepsY < lengthY) && ((direction == null) || ((2 * stepsY + 1) * denominator < numerator * lengthY))) {
+				direction = directionY;
+				numerator = 2 * stepsY + 1;
+				denominator = lengthY;
+			}
+			if ((stepsZ < lengthZ) && ((direction == null) || ((2 * stepsZ + 1) * denominator < numerator * lengthZ)))
+				direction = directionZ;
+			if (direction == directionX)
+				stepsX++;
+			else if (direction == directionY)
+				stepsY++;
+			else
+				stepsZ++;
+			Square next = current.getNeighbour(direction);
+			if ((next == null) || !canSeeThrough(current.getBorderAt(direction), current, next))
+				return new Trace(false, squares);
+			squares.add(next);
+			if ((stepsX == lengthX) && (stepsY == lengthY) && (stepsZ == lengthZ))
+				return new Trace(true, squares);
+			if (!next.canEnter())
+				return new Trace(false, squares);
+			current = next;
+		}
+		return new Trace(getDungeon().hasSquareAt(to), squares);
+	}
+
+	/**
+	 * Check whether the given border between the given squares can be seen through.
+	 *
+	 * @return	...
+	 * 			| result == !border.isIsolating() ||
+	 * 			|	((border instanceof Wall) && ((Wall)border).hasDoor() &&
+	 * 			|	 ((square1 instanceof TransparentSquare) || (square2 instanceof TransparentSquare)))
+	 */
+	static boolean canSeeThrough(Border border, Square square1, Square square2) {
+		if (!border.isIsolating())
+			return true;
+		return (border instanceof Wall) && ((Wall)border).hasDoor() &&
+				((square1 instanceof TransparentSquare) || (square2 instanceof TransparentSquare));
+	}
+
+	/**
+	 * A class of results of tracing a sightline, registering whether its far end can be seen and the squares it
+	 * reached.
+	 */
+	private static final class Trace {
+
+		/**
+		 * Initialise a new result with the given visibility and squares.
+		 */
+		Trace(boolean visible, List<Square> squares) {
+			this.visible = visible;
+			this.squares = squares;
+		}
+
+		/**
+		 * Whether the far end of the sightline can be seen.
+		 */
+		private final boolean visible;
+
+		/**
+		 * The squares the sightline reached, in order.
+		 */
+		private final List<Square> squares;
+	}
+
+	/**
+	 * A class of sightlines between two positions, the lowest position first.
+	 */
+	private static final class Sightline {
+
+		/**
+		 * Initialise a new sightline between the given positions.
+		 */
+		Sightline(Position position1, Position position2) throws NullPointerException {
+			if (compare(position1, position2) <= 0) {
+				this.from = position1;
+				this.to = position2;
+			}
+			else {
+				this.from = position2;
+				this.to = position1;
+			}
+		}
+
+		/**
+		 * Compare the given positions by their z, y and x coordinates.
+		 */
+		private static int compare(Position position1, Position position2) {
+			if (position1.getZ() != position2.getZ())
+				return Long.compare(position1.getZ(), position2.getZ());
+			if (position1.getY() != position2.getY())
+				return Long.compare(position1.getY(), position2.getY());
+			return Long.compare(position1.getX(), position2.getX());
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Sightline))
+				return false;
+			Sightline sightline = (Sightline)other;
+			return from.equals(sightline.from) && to.equals(sightline.to);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * from.hashCode() + to.hashCode();
+		}
+
+		/**
+		 * The lowest position of this sightline.
+		 */
+		private final Position from;
+
+		/**
+		 * The highest position of this sightline.
+		 */
+		private final Position to;
+	}
+
+	/**
+	 * Cache the answer for the given sightline and listen to the squares it reached.
+	 */
+	private void register(Sightline sightline, Trace trace) {
+		cache.put(sightline, trace);
+		for (Square square : trace.squares) {
+			Set<Sightline> sightlines = sightlinesThrough.get(square);
+			if (sightlines == null) {
+				sightlinesThrough.put(square, sightlines = new HashSet<Sightline>());
+				square.addSquareListener(this);
+			}
+			sightlines.add(sightline);
+		}
+	}
+
+	/**
+	 * Stop listening to the squares the given sightline reached, unless other cached sightlines reached them.
+	 */
+	private void unregister(Sightline sightline, Trace trace) {
+		for (Square square : trace.squares) {
+			Set<Sightline> sightlines = sightlinesThrough.get(square);
+			if (sightlines == null)
+				continue;
+			sightlines.remove(sightline);
+			if (sightlines.isEmpty()) {
+				sightlinesThrough.remove(square);
+				square.removeSquareListener(this);
+			}
+		}
+	}
+
+	/**
+	 * Discard the answers that were asked for least recently, as long as more answers are cached than allowed.
+	 */
+	private void evictSightlines() {
+		Iterator<Map.Entry<Sightline, Trace>> entries = cache.entrySet().iterator();
+		while (cache.size() > getMaxNbCachedSightlines()) {
+			Map.Entry<Sightline, Trace> entry = entries.next();
+			entries.remove();
+			unregister(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Return the number of sightlines of which the answer is cached.
+	 */
+	public int getNbCachedSightlines() {
+		return cache.size();
+	}
+
+	/**
+	 * Return the maximum number of sightlines of which the answer is cached.
+	 */
+	@Basic @Immutable
+	public int getMaxNbCachedSightlines() {
+		return maxNbCachedSightlines;
+	}
+
+	/**
+	 * Check whether the given number is a valid maximum number of cached sightlines.
+	 *
+	 * @return	...
+	 * 			| result == (maxNbCachedSightlines > 0)
+	 */
+	public static boolean isValidMaxNbCachedSightlines(int maxNbCachedSightlines) {
+		return maxNbCachedSightlines > 0;
+	}
+
+	/**
+	 * The maximum number of cached sightlines of an engine for which no maximum is given.
+	 */
+	public static final int DEFAULT_MAX_NB_CACHED_SIGHTLINES = 65536;
+
+	/**
+	 * A variable registering the maximum number of sightlines of which the answer is cached.
+	 */
+	private final int maxNbCachedSightlines;
+
+	/**
+	 * Discard all cached answers.
+	 *
+	 * @post	...
+	 * 			| new.getNbCachedSightlines() == 0
+	 */
+	public void clearCache() {
+		for (Square square : sightlinesThrough.keySet())
+			square.removeSquareListener(this);
+		sightlinesThrough.clear();
+		cache.clear();
+	}
+
+	/**
+	 * Stop this engine from listening to its dungeon and its squares, discarding all cached answers.
+	 *
+	 * @post	...
+	 * 			| !getDungeon().hasAsDungeonListener(this)
+	 */
+	public void detach() {
+		clearCache();
+		getDungeon().removeDungeonListener(this);
+	}
+
+	/**
+	 * A variable registering the trace of each cached sightline, from the sightline asked for least recently to
+	 * the sightline asked for most recently.
+	 */
+	private final Map<Sightline, Trace> cache = new LinkedHashMap<Sightline, Trace>(16, 0.75f, true);
+
+	/**
+	 * A variable registering the cached sightlines that reached each square.
+	 */
+	private final Map<Square, Set<Sightline>> sightlinesThrough = new IdentityHashMap<Square, Set<Sightline>>();
+
+	/**
+	 * Do nothing, as changes to the temperature or humidity of a square do not change what can be seen.
+	 */
+	@Override
+	public void squareChanged(Square square) {
+	}
+
+	/**
+	 * Discard the answers of the sightlines that reached the given square, as one of its borders has been
+	 * replaced, opened or closed.
+	 */
+	@Override
+	public void bordersChanged(Square square) {
+		Set<Sightline> sightlines = sightlinesThrough.remove(square);
+		if (sightlines == null)
+			return;
+		square.removeSquareListener(this);
+		for (Sightline sightline : sightlines) {
+			Trace trace = cache.remove(sightline);
+			if (trace != null)
+				unregister(sightline, trace);
+		}
+	}
+
+	/**
+	 * Discard all cached answers, as a square has been added to the dungeon.
+	 */
+	@Override
+	public void squareAdded(Square square) {
+		clearCache();
+	}
+
+	/**
+	 * Discard all cached answers, as a square has been removed from the dungeon.
+	 */
+	@Override
+	public void squareRemoved(Square square) {
+		clearCache();
+	}
+}
@@ -0,0 +1,160 @@
+package project.dungeons;
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import project.misc.Direction;
+import project.squares.RockSquare;
+import project.squares.Square;
+import project.squares.SquareImpl;
+import project.squares.TransparentSquareImpl;
+import project.squares.borders.Wall;
+/**
+ * A test class for the line of sight engine.
+ *
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class LineOfSightTest {
+	private Level<Square> level;
+	private Wall door;
+	private LineOfSight lineOfSight;
+
+	@Before
+	public void setUpMutableTextFixture() {
+		level = new Level<Square>(20, 20);
+		Square beforeDoor = new SquareImpl(Direction.FLOOR, Direction.CEILING);
+		new Wall(true, false).build(beforeDoor, Direction.EAST);
+		level.setSquareAt(new Position(5, 0, 0), beforeDoor);
+		for (int x = 1; x <= 9; x++) {
+			for (int y = 0; y <= 4; y++) {
+				if (x != 5)
+					level.setSquareAt(new Position(x, y, 0), new SquareImpl(Direction.FLOOR, Direction.CEILING));
+			}
+		}
+		door = (Wall)beforeDoor.getBorderAt(Direction.EAST);
+		level.setSquareAt(new Position(5, 1, 0), new TransparentSquareImpl(Direction.WEST, Direction.EAST));
+		level.setSquareAt(new Position(5, 3, 0), new RockSquare());
+		level.setSquareAt(new Position(5, 4, 0), new SquareImpl(Direction.FLOOR, Direction.CEILING, Direction.EAST));
+		lineOfSight = new LineOfSight(level);
+	}
+
+	@Test
+	public void constructor_LegalCase() {
+		assertSame(level, lineOfSight.getDungeon());
+		assertEquals(0, lineOfSight.getNbCachedSightlines());
+		assertTrue(level.hasAsDungeonListener(lineOfSight));
+	}
+
+	@Test
+	public void isVisible_OpenRoom() {
+		assertTrue(lineOfSight.isVisible(new Position(1, 0, 0), new Position(4, 3, 0)));
+		assertTrue(lineOfSight.isVisible(new Position(2, 2, 0), new Position(2, 2, 0)));
+		assertEquals(2, lineOfSight.getNbCachedSightlines());
+	}
+
+	@Test
+	public void isVisible_BlockedByRockAndWalls() {
+		assertFalse(lineOfSight.isVisible(new Position(1, 3, 0), new Position(9, 3, 0)));
+		assertFalse(lineOfSight.isVisible(new Position(1, 4, 0), new Position(9, 4, 0)));
+		assertFalse(lineOfSight.isVisible(new Position(1, 3, 0), new Position(5, 3, 0)));
+		assertTrue(lineOfSight.isVisible(new Position(1, 3, 0), new Position(4, 3, 0)));
+	}
+
+	@Test
+	public void isVisible_BlockedByVoid() {
+		assertFalse(lineOfSight.isVisible(new Position(1, 2, 0), new Position(9, 2, 0)));
+		assertFalse(lineOfSight.isVisible(new Position(1, 2, 0), new Position(12, 2, 0)));
+	}
+
+	@Test
+	public void isVisible_ThroughTransparentSquare() {
+		assertTrue(lineOfSight.isVisible(new Position(1, 1, 0), new Position(9, 1, 0)));
+	}
+
+	@Test
+	public void isVisible_Doors() {
+		assertFalse(lineOfSight.isVisible(new Position(1, 0, 0), new Position(9, 0, 0)));
+		door.openDoor();
+		assertTrue(lineOfSight.isVisible(new Position(1, 0, 0), new Position(9, 0, 0)));
+		door.closeDoor();
+		assertFalse(lineOfSight.isVisible(new Position(1, 0, 0), new Position(9, 0, 0)));
+	}
+
+	@Test
+	public void isVisible_Symmetric() {
+		for (int x = 1; x <= 9; x++) {
+			for (int y = 0; y <= 4; y++)
+				assertEquals(lineOfSight.isVisible(new Position(1, 3, 0), new Position(x, y, 0)),
+						lineOfSight.isVisible(new Position(x, y, 0), new Position(1, 3, 0)));
+		}
+	}
+
+	@Test
+	public void isVisible_DoorsUnregisterSightline() {
+		Square start = level.getSquareAt(new Position(1, 0, 0));
+		lineOfSight.isVisible(new Position(1, 0, 0), new Position(9, 0, 0));
+		assertTrue(start.hasAsSquareListener(lineOfSight));
+		door.openDoor();
+		assertEquals(0, lineOfSight.getNbCachedSightlines());
+		assertFalse(start.hasAsSquareListener(lineOfSight));
+	}
+
+	@Test
+	public void isVisible_EvictsLeastRecentlyUsed() {
+		lineOfSight = new LineOfSight(level, 2);
+		Square south = level.getSquareAt(new Position(2, 0, 0));
+		Square north = level.getSquareAt(new Position(2, 4, 0));
+		lineOfSight.isVisible(new Position(1, 0, 0), new Position(3, 0, 0));
+		lineOfSight.isVisible(new Position(1, 4, 0), new Position(3, 4, 0));
+		lineOfSight.isVisible(new Position(3, 0, 0), new Position(1, 0, 0));
+		lineOfSight.areVisible(new Position[] {new Position(7, 2, 0)}, new Position[] {new Position(9, 2, 0)});
+		assertEquals(2, lineOfSight.getNbCachedSightlines());
+		assertTrue(south.hasAsSquareListener(lineOfSight));
+		assertFalse(north.hasAsSquareListener(lineOfSight));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_IllegalMaxNbCachedSightlines() {
+		new LineOfSight(level, 0);
+	}
+
+	@Test
+	public void squareAdded_ClearsCache() {
+		assertFalse(lineOfSight.isVisible(new Position(1, 2, 0), new Position(9, 2, 0)));
+		level.setSquareAt(new Position(5, 2, 0), new SquareImpl(Direction.FLOOR, Direction.CEILING));
+		assertEquals(0, lineOfSight.getNbCachedSightlines());
+		assertTrue(lineOfSight.isVisible(new Position(1, 2, 0), new Position(9, 2, 0)));
+	}
+
+	@Test
+	public void areVisible_MatchesIsVisible() {
+		Position[] sources = new Position[45];
+		Position[] targets = new Position[45];
+		for (int x = 1; x <= 9; x++) {
+			for (int y = 0; y <= 4; y++) {
+				sources[5 * (x - 1) + y] = new Position(9 - x + 1, 4 - y, 0);
+				targets[5 * (x - 1) + y] = new Position(x, y, 0);
+			}
+		}
+		lineOfSight.isVisible(sources[0], targets[0]);
+		boolean[] result = lineOfSight.areVisible(sources, targets);
+		LineOfSight other = new LineOfSight(level);
+		for (int i = 0; i < sources.length; i++)
+			assertEquals(other.isVisible(sources[i], targets[i]), result[i]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void areVisible_DifferentLengths() {
+		lineOfSight.areVisible(new Position[1], new Position[2]);
+	}
+
+	@Test
+	public void detach_LegalCase() {
+		lineOfSight.isVisible(new Position(1, 0, 0), new Position(9, 0, 0));
+		lineOfSight.detach();
+		assertFalse(level.hasAsDungeonListener(lineOfSight));
+		assertEquals(0, lineOfSight.getNbCachedSightlines());
+	}
+}
@@ -0,0 +1,123 @@
+package project.dungeons;
+import java.util.List;
+import project.squares.Square;
+
+/**
+ * A class of bounded collections of squares, keeping the given number of squares that are nearest to some point.
+ * The collection is used to gather the result of a nearest square query, while the dungeons that take part
+ * in the query use its bound to skip the squares and regions that can no longer be part of the result.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The number of squares in this collection is never greater than its capacity.
+ * 			| getNbSquares() <= getCapacity()
+ */
+class NearestSquares<SquareT extends Square> {
+
+	/**
+	 * Initialise a new empty collection of nearest squares with a given capacity.
+	 *
+	 * @param	capacity
+	 * 				The maximum number of squares of the new collection.
+	 * @throws	IllegalArgumentException
+	 * 				The given capacity is negative.
+	 * 				| capacity < 0
+	 */
+	NearestSquares(int capacity) throws IllegalArgumentException {
+		this.ranked = new RankedSquares<SquareT>(capacity);
+	}
+
+	/**
+	 * Return the maximum number of squares of this collection.
+	 */
+	int getCapacity() {
+		return ranked.getCapacity();
+	}
+
+	/**
+	 * Return the number of squares of this collection.
+	 */
+	int getNbSquares() {
+		return ranked.getNbSquares();
+	}
+
+	/**
+	 * Return the squared distance a square must be below to be added to this collection.
+	 *
+	 * @return	If this collection is full, the greatest squared distance of its squares.
+	 * 			| ...
+	 * @return	Otherwise, positive infinity.
+	 * 			| ...
+	 */
+	double getBound() {
+		return -ranked.getThreshold();
+	}
+
+	/**
+	 * Return whether a region at the given squared distance can hold a square of the result.
+	 *
+	 * @param	distanceSquared
+	 * 				The squared distance of the region.
+	 * @return	...
+	 * 			| result == (distanceSquared < getBound())
+	 */
+	boolean canReach(double distanceSquared) {
+		return distanceSquared < getBound();
+	}
+
+	/**
+	 * Offer a square at the given squared distance to this collection.
+	 *
+	 * @param	square
+	 * 				The square to offer.
+	 * @param	distanceSquared
+	 * 				The squared distance of the square.
+	 * @post	If the square is nearer than the bound of this collection, it is added, and if this collection
+	 * 			was full, the farthest square is removed.
+	 * 			| ...
+	 */
+	void offer(SquareT square, double distanceSquared) {
+		ranked.offer(square, -distanceSquared);
+	}
+
+	/**
+	 * Return the squares of this collection, ordered from nearest to farthest.
+	 */
+	List<SquareT> getSquares() {
+		return ranked.getSquares();
+	}
+
+	/**
+	 * Return the squared distance between the given point and the given box (inclusive bounds).
+	 * The distance is zero if the point lies in the box.
+	 *
+	 * @param	x, y, z
+	 * 				The coordinates of the point.
+	 * @param	minX, minY, minZ, maxX, maxY, maxZ
+	 * 				The coordinates bounding the box.
+	 */
+	static double getDistanceSquared(long x, long y, long z, long minX, long minY, long minZ,
+			long maxX, long maxY, long maxZ)
+	{
+		double dx = getDistance(x, minX, maxX);
+		double dy = getDistance(y, minY, maxY);
+		double dz = getDistance(z, minZ, maxZ);
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Return the distance between the given coordinate and the given interval (inclusive bounds).
+	 */
+	private static double getDistance(long coordinate, long minimum, long maximum) {
+		if (coordinate < minimum)
+			return (double)minimum - coordinate;
+		if (coordinate > maximum)
+			return (double)coordinate - maximum;
+		return 0;
+	}
+
+	/**
+	 * A variable registering the squares of this collection, ranked by their negated squared distance.
+	 */
+	private final RankedSquares<SquareT> ranked;
+}
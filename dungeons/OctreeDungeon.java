@@ -0,0 +1,781 @@
+package project.dungeons;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import project.squares.Square;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Raw;
+
+/**
+ * An octree dungeon, that is, a dungeon that stores its squares in a sparse voxel octree.
+ * Looking up, adding and removing a square takes a time that is logarithmic in the extent of
+ * this dungeon, and regions without squares are skipped as a whole when iterating or querying.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The extent of the octree covers the maximum position of this dungeon, if this dungeon is not terminated.
+ * 			| if (!isTerminated())
+ * 			|	(getExtent() > getMaximumPosition().getX()) && (getExtent() > getMaximumPosition().getY()) &&
+ * 			|	(getExtent() > getMaximumPosition().getZ())
+ * @Invar	Each node of the octree registers the number of squares beneath it, and contains no empty child nodes.
+ * 			| ...
+ */
+public class OctreeDungeon<SquareT extends Square> extends Dungeon<SquareT> {
+
+	/**
+	 * Initialise a new octree dungeon with a given maximum position.
+	 *
+	 * @param	maximumPosition
+	 * 				The maximum position of this octree dungeon.
+	 * @Post	...
+	 * 			| new.getNbSquares() == 0
+	 * @Post	The extent of this octree dungeon is the smallest power of two that is greater than each coordinate
+	 * 			of the given maximum position.
+	 * 			| ...
+	 * @effect	...
+	 * 			| super(maximumPosition)
+	 */
+	@Raw
+	public OctreeDungeon(Position maximumPosition) {
+		super(maximumPosition);
+		this.depth = getDepthFor(maximumPosition);
+		this.root = null;
+		this.nbSquares = 0;
+	}
+
+	/**
+	 * Initialise a new octree dungeon.
+	 *
+	 * @effect	...
+	 * 			| this(new Position(100,100,100));
+	 */
+	@Raw
+	public OctreeDungeon() {
+		this(new Position(100,100,100));
+	}
+
+	/**
+	 * Return the number of levels an octree needs to cover the given maximum position.
+	 *
+	 * @param	maximumPosition
+	 * 				The position to cover.
+	 * @return	The smallest strictly positive number of levels for which two to the power of that number is
+	 * 			greater than each coordinate of the given position.
+	 * 			| ...
+	 */
+	private static int getDepthFor(Position maximumPosition) {
+		long maximum = Math.max(maximumPosition.getX(), Math.max(maximumPosition.getY(), maximumPosition.getZ()));
+		return Math.max(1, 64 - Long.numberOfLeadingZeros(maximum));
+	}
+
+	/**
+	 * Return the depth of the octree of this dungeon.
+	 */
+	@Basic
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Return the extent of this octree dungeon, that is, the length of an edge of the cube covered by the root of its octree.
+	 */
+	public long getExtent() {
+		return 1L << depth;
+	}
+
+	/**
+	 * Set the maximum position to the given position, growing the octree if it no longer covers the new maximum position.
+	 *
+	 * @Post	The extent of this octree dungeon covers the given position.
+	 * 			| ...
+	 */
+	@Override
+	public void setMaximumPosition(Position position)
+		throws IllegalArgumentException, IllegalStateException
+	{
+		super.setMaximumPosition(position);
+		int newDepth = getDepthFor(position);
+		while (depth < newDepth) {
+			// The origin never moves, so the old root becomes the first child of the new root.
+			if (root != null) {
+				Node newRoot = new Node();
+				newRoot.children[0] = root;
+				newRoot.nbSquares = root.nbSquares;
+				root = newRoot;
+			}
+			depth++;
+		}
+	}
+
+	/**
+	 * Return the index of the child in which the given coordinates lay, for a node at the given level.
+	 *
+	 * @param	x
+	 * 				The x coordinate.
+	 * @param	y
+	 * 				The y coordinate.
+	 * @param	z
+	 * 				The z coordinate.
+	 * @param	level
+	 * 				The level of the node, that is, the base two logarithm of its size.
+	 */
+	private static int getChildIndex(long x, long y, long z, int level) {
+		int bit = level - 1;
+		return (int)(((x >>> bit) & 1) | (((y >>> bit) & 1) << 1) | (((z >>> bit) & 1) << 2));
+	}
+
+	/**
+	 * Return whether the given position lies in the cube covered by this octree.
+	 *
+	 * @param	position
+	 * 				The position to check.
+	 */
+	private boolean isCovered(Position position) {
+		long extent = getExtent();
+		return (position.getX() < extent) && (position.getY() < extent) && (position.getZ() < extent);
+	}
+
+	/**
+	 * Add a square to the octree.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void putSquareAt(Position position, SquareT square) throws IllegalStateException, NullPointerException {
+		if (isTerminated())
+			throw new IllegalStateException();
+		if ((position == null) || (square == null))
+			throw new NullPointerException();
+		assert isCovered(position);
+		boolean isNew = !hasSquareAt(position);
+		SquareT oldSquare = null;
+		long x = position.getX(), y = position.getY(), z = position.getZ();
+		if (root == null)
+			root = new Node();
+		Node node = root;
+		for (int level = depth; level > 1; level--) {
+			if (isNew)
+				node.nbSquares++;
+			int index = getChildIndex(x, y, z, level);
+			if (node.children[index] == null)
+				node.children[index] = new Node();
+			node = (Node)node.children[index];
+		}
+		if (isNew) {
+			node.nbSquares++;
+			nbSquares++;
+		}
+		else {
+			oldSquare = (SquareT)node.children[getChildIndex(x, y, z, 1)];
+			index.remove(oldSquare);
+		}
+		node.children[getChildIndex(x, y, z, 1)] = square;
+		index.add(square);
+		if (oldSquare != null)
+			notifySquareRemoved(oldSquare);
+		notifySquareAdded(square);
+	}
+
+	/**
+	 * Return the aggregate values over the squares of this dungeon, as maintained by its square index.
+	 */
+	@Override
+	public DungeonAggregates getAggregates() throws IllegalStateException {
+		if (isTerminated())
+			throw new IllegalStateException();
+		return index.getAggregates();
+	}
+
+	/**
+	 * Return the number of squares that this dungeon has.
+	 */
+	@Override
+	public int getNbSquares() throws IllegalStateException {
+		if (isTerminated())
+			throw new IllegalStateException();
+		return nbSquares;
+	}
+
+	/**
+	 * Return the map of squares that this dungeon has, each square with its key position.
+	 */
+	@Override
+	public Map<Position, SquareT> getSquares() {
+		if (isTerminated())
+			return null;
+		Map<Position, SquareT> result = new HashMap<Position, SquareT>();
+		if (root != null)
+			collectSquares(root, depth, 0, 0, 0, 0, 0, 0, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, result);
+		return result;
+	}
+
+	/**
+	 * Return the map of squares of this dungeon that lie in the given region, each square with its key position.
+	 * Nodes of the octree that do not intersect with the given region are skipped as a whole.
+	 */
+	@Override
+	public Map<Position, SquareT> getSquaresIn(Position minimum, Position maximum)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if (isTerminated())
+			throw new IllegalStateException();
+		if (!isValidRegion(minimum, maximum))
+			throw new IllegalArgumentException();
+		Map<Position, SquareT> result = new HashMap<Position, SquareT>();
+		if (root != null)
+			collectSquares(root, depth, 0, 0, 0,
+					minimum.getX(), minimum.getY(), minimum.getZ(), maximum.getX(), maximum.getY(), maximum.getZ(), result);
+		return result;
+	}
+
+	/**
+	 * Add all the squares beneath the given node that lie in the given region to the given map.
+	 *
+	 * @param	node
+	 * 				The node to collect the squares of.
+	 * @param	level
+	 * 				The level of the given node.
+	 * @param	originX, originY, originZ
+	 * 				The coordinates of the corner of the cube covered by the given node.
+	 * @param	minX, minY, minZ, maxX, maxY, maxZ
+	 * 				The coordinates bounding the region (inclusive).
+	 * @param	result
+	 * 				The map to add the squares to.
+	 */
+	@SuppressWarnings("unchecked")
+	private void collectSquares(Node node, int level, long originX, long originY, long originZ,
+			long minX, long minY, long minZ, long maxX, long maxY, long maxZ, Map<Position, SquareT> result)
+	{
+		long half = 1L << (level - 1);
+		for (int index = 0; index < 8; index++) {
+			Object child = node.children[index];
+			if (child == null)
+				continue;
+			long childX = originX + (((index & 1) != 0) ? half : 0);
+			long childY = originY + (((index & 2) != 0) ? half : 0);
+			long childZ = originZ + (((index & 4) != 0) ? half : 0);
+			if ((childX > maxX) || (childY > maxY) || (childZ > maxZ) ||
+					(childX + half - 1 < minX) || (childY + half - 1 < minY) || (childZ + half - 1 < minZ))
+				continue;
+			if (level == 1)
+				result.put(new Position(childX, childY, childZ), (SquareT)child);
+			else
+				collectSquares((Node)child, level - 1, childX, childY, childZ, minX, minY, minZ, maxX, maxY, maxZ, result);
+		}
+	}
+
+	/**
+	 * Offer the nearest squares of this dungeon, visiting the nodes of the octree from nearest to farthest and
+	 * stopping as soon as the nearest remaining node lies farther away than the squares found so far.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void collectNearest(long x, long y, long z, SquarePredicate<? super SquareT> predicate,
+			NearestSquares<SquareT> nearest)
+	{
+		if (root == null)
+			return;
+		PriorityQueue<NodeDistance> queue = new PriorityQueue<NodeDistance>();
+		long extent = getExtent();
+		queue.add(new NodeDistance(root, depth, 0, 0, 0,
+				NearestSquares.getDistanceSquared(x, y, z, 0, 0, 0, extent - 1, extent - 1, extent - 1)));
+		while (!queue.isEmpty()) {
+			NodeDistance current = queue.poll();
+			if (!nearest.canReach(current.distanceSquared))
+				return;
+			long half = 1L << (current.level - 1);
+			for (int index = 0; index < 8; index++) {
+				Object child = current.node.children[index];
+				if (child == null)
+					continue;
+				long childX = current.originX + (((index & 1) != 0) ? half : 0);
+				long childY = current.originY + (((index & 2) != 0) ? half : 0);
+				long childZ = current.originZ + (((index & 4) != 0) ? half : 0);
+				double distanceSquared = NearestSquares.getDistanceSquared(x, y, z, childX, childY, childZ,
+						childX + half - 1, childY + half - 1, childZ + half - 1);
+				if (!nearest.canReach(distanceSquared))
+					continue;
+				if (current.level == 1) {
+					SquareT square = (SquareT)child;
+					if ((predicate == null) || predicate.satisfies(square, this))
+						nearest.offer(square, distanceSquared);
+				}
+				else
+					queue.add(new NodeDistance((Node)child, current.level - 1, childX, childY, childZ, distanceSquared));
+			}
+		}
+	}
+
+	/**
+	 * A node of the octree registered together with its level, its origin and its squared distance
+	 * to the position of a nearest square query, if any.
+	 */
+	private static final class NodeDistance implements Comparable<NodeDistance> {
+
+		private NodeDistance(Node node, int level, long originX, long originY, long originZ, double distanceSquared) {
+			this.node = node;
+			this.level = level;
+			this.originX = originX;
+			this.originY = originY;
+			this.originZ = originZ;
+			this.distanceSquared = distanceSquared;
+		}
+
+		@Override
+		public int compareTo(NodeDistance other) {
+			return Double.compare(distanceSquared, other.distanceSquared);
+		}
+
+		private final Node node;
+		private final int level;
+		private final long originX, originY, originZ;
+		private final double distanceSquared;
+	}
+
+	/**
+	 * Return the square at the given position.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public SquareT getSquareAt(Position position)
+		throws IllegalArgumentException, NullPointerException, IllegalStateException
+	{
+		Object result = lookup(position);
+		if (result == null)
+			throw new IllegalArgumentException();
+		return (SquareT)result;
+	}
+
+	/**
+	 * Return whether this dungeon has a square at this position.
+	 */
+	@Override
+	public boolean hasSquareAt(Position position)
+		throws NullPointerException, IllegalStateException
+	{
+		return lookup(position) != null;
+	}
+
+	/**
+	 * Return the square at the given position, or null if there is none.
+	 *
+	 * @param	position
+	 * 				The position to look up.
+	 * @throws	NullPointerException
+	 * 				The given position is not effective.
+	 * 				| position == null
+	 * @throws	IllegalStateException
+	 * 				...
+	 * 				| isTerminated()
+	 */
+	private Object lookup(Position position) throws NullPointerException, IllegalStateException {
+		if (isTerminated())
+			throw new IllegalStateException();
+		if (position == null)
+			throw new NullPointerException();
+		if ((root == null) || !isCovered(position))
+			return null;
+		long x = position.getX(), y = position.getY(), z = position.getZ();
+		Node node = root;
+		for (int level = depth; level > 1; level--) {
+			node = (Node)node.children[getChildIndex(x, y, z, level)];
+			if (node == null)
+				return null;
+		}
+		return node.children[getChildIndex(x, y, z, 1)];
+	}
+
+	/**
+	 * Remove a square at the given position.
+	 */
+	@Override
+	public void removeSquareAt(Position position)
+		throws NullPointerException, IllegalStateException
+	{
+		if (!hasSquareAt(position))
+			return;
+		SquareT square = getSquareAt(position);
+		square.disconnect();
+		square.detachTeleportationSources();
+		index.remove(square);
+		long x = position.getX(), y = position.getY(), z = position.getZ();
+		Node[] path = new Node[depth];
+		Node node = root;
+		for (int level = depth; level > 1; level--) {
+			path[level - 1] = node;
+			node = (Node)node.children[getChildIndex(x, y, z, level)];
+		}
+		node.children[getChildIndex(x, y, z, 1)] = null;
+		node.nbSquares--;
+		for (int level = 2; level <= depth; level++) {
+			Node parent = path[level - 1];
+			parent.nbSquares--;
+			if (node.nbSquares == 0)
+				parent.children[getChildIndex(x, y, z, level)] = null;
+			node = parent;
+		}
+		if (root.nbSquares == 0)
+			root = null;
+		nbSquares--;
+		notifySquareRemoved(square);
+	}
+
+	/**
+	 * Get an iterator that iterates over all the squares of this dungeon that satisfy a given predicate.
+	 * Indexed predicates are answered from the square index of this dungeon.
+	 */
+	@Override
+	public Iterator<SquareT> iterator(SquarePredicate<? super SquareT> predicate) throws IllegalStateException {
+		if (isTerminated())
+			throw new IllegalStateException();
+		Collection<SquareT> selected = index.select(predicate, this);
+		if (selected != null)
+			return Collections.unmodifiableCollection(selected).iterator();
+		return new SquareIterator(predicate, new Walk(0, 0, 0, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE));
+	}
+
+	/**
+	 * Get an iterator that iterates over all the squares of this dungeon in the given region.
+	 * Nodes of the octree that do not intersect with the given region are skipped as a whole.
+	 */
+	@Override
+	public Iterator<SquareT> iterator(Position minimum, Position maximum)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if (isTerminated())
+			throw new IllegalStateException();
+		if (!isValidRegion(minimum, maximum))
+			throw new IllegalArgumentException();
+		return new SquareIterator(null, new Walk(minimum.getX(), minimum.getY(), minimum.getZ(),
+				maximum.getX(), maximum.getY(), maximum.getZ()));
+	}
+
+	/**
+	 * Get a cursor over all the squares of this dungeon, taking the coordinates from a walk over the octree.
+	 */
+	@Override
+	public SquareCursor<SquareT> cursor() throws IllegalStateException {
+		if (isTerminated())
+			throw new IllegalStateException();
+		final Walk walk = new Walk(0, 0, 0, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+		return new SquareCursor<SquareT>() {
+			@Override
+			public boolean next() {
+				if (!walk.advance())
+					return setCurrent(null, 0, 0, 0);
+				return setCurrent(walk.square, walk.x, walk.y, walk.z);
+			}
+		};
+	}
+
+	/**
+	 * Get a spliterator over all the squares of this dungeon that satisfy a given predicate,
+	 * splitting along the child nodes of the octree. Indexed predicates are answered from the square index
+	 * of this dungeon.
+	 */
+	@Override
+	public Spliterator<SquareT> spliterator(SquarePredicate<? super SquareT> predicate) throws IllegalStateException {
+		if (isTerminated())
+			throw new IllegalStateException();
+		Collection<SquareT> selected = index.select(predicate, this);
+		if (selected != null)
+			return selected.spliterator();
+		List<NodeDistance> nodes = new ArrayList<NodeDistance>();
+		if (root != null)
+			nodes.add(new NodeDistance(root, depth, 0, 0, 0, 0));
+		Spliterator<SquareT> result = new NodeSpliterator(nodes);
+		return (predicate == null) ? result : new FilteringSpliterator<SquareT>(result, predicate, this);
+	}
+
+	/**
+	 * A spliterator over the squares beneath a list of nodes of the octree.
+	 */
+	private class NodeSpliterator implements Spliterator<SquareT> {
+
+		/**
+		 * Initialise a new spliterator over the squares beneath the given nodes.
+		 */
+		private NodeSpliterator(List<NodeDistance> nodes) {
+			this.nodes = nodes;
+			for (NodeDistance node : nodes)
+				size += node.node.nbSquares;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super SquareT> action) {
+			while ((walk == null) || !walk.advance()) {
+				if (nodes.isEmpty())
+					return false;
+				NodeDistance node = nodes.remove(nodes.size() - 1);
+				walk = new Walk(node.node, node.level, node.originX, node.originY, node.originZ,
+						0, 0, 0, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+			}
+			size--;
+			action.accept(walk.square);
+			return true;
+		}
+
+		@Override
+		public Spliterator<SquareT> trySplit() {
+			// Descend through chains of nodes with a single child, as long as nothing can be split off.
+			while ((nodes.size() == 1) && (walk == null) && (nodes.get(0).level > 1))
+				expand(nodes.remove(0));
+			if (nodes.size() < 2)
+				return null;
+			List<NodeDistance> prefix = new ArrayList<NodeDistance>(nodes.subList(0, nodes.size() / 2));
+			nodes.subList(0, nodes.size() / 2).clear();
+			NodeSpliterator result = new NodeSpliterator(prefix);
+			size -= result.size;
+			return result;
+		}
+
+		/**
+		 * Replace the given node in the list of nodes of this spliterator by its child nodes, if it has any.
+		 */
+		private void expand(NodeDistance node) {
+			if (node.level == 1) {
+				nodes.add(node);
+				return;
+			}
+			long half = 1L << (node.level - 1);
+			for (int index = 0; index < 8; index++) {
+				Node child = (Node)node.node.children[index];
+				if (child != null)
+					nodes.add(new NodeDistance(child, node.level - 1, node.originX + (((index & 1) != 0) ? half : 0),
+							node.originY + (((index & 2) != 0) ? half : 0), node.originZ + (((index & 4) != 0) ? half : 0), 0));
+			}
+		}
+
+		@Override
+		public long estimateSize() {
+			return size;
+		}
+
+		@Override
+		public int characteristics() {
+			return NONNULL | DISTINCT | SIZED | SUBSIZED;
+		}
+
+		/**
+		 * The nodes of which the walk has not started yet.
+		 */
+		private final List<NodeDistance> nodes;
+
+		/**
+		 * The walk over the current node.
+		 */
+		private Walk walk;
+
+		/**
+		 * The number of remaining squares.
+		 */
+		private long size;
+	}
+
+	/**
+	 * An iterator over the squares visited by a walk over the octree that satisfy a given predicate.
+	 */
+	private class SquareIterator implements Iterator<SquareT> {
+
+		/**
+		 * Initialise a new iterator with a given predicate and a given walk.
+		 *
+		 * @param	predicate
+		 * 				The predicate the squares have to satisfy, or null if all squares are to be returned.
+		 * @param	walk
+		 * 				The walk to take the squares from.
+		 */
+		private SquareIterator(SquarePredicate<? super SquareT> predicate, Walk walk) {
+			this.predicate = predicate;
+			this.walk = walk;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (currentSquare == null) {
+				if (!walk.advance())
+					return false;
+				if ((predicate == null) || predicate.satisfies(walk.square, OctreeDungeon.this))
+					currentSquare = walk.square;
+			}
+			return true;
+		}
+
+		@Override
+		public SquareT next() throws NoSuchElementException {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			SquareT result = currentSquare;
+			currentSquare = null;
+			return result;
+		}
+
+		@Override
+		public void remove() throws UnsupportedOperationException {
+			throw new UnsupportedOperationException();
+		}
+
+		private final SquarePredicate<? super SquareT> predicate;
+		private final Walk walk;
+		private SquareT currentSquare = null;
+	}
+
+	/**
+	 * A depth-first walk over the squares of the octree that lie in a given region, registering the
+	 * coordinates of the square it is at. Nodes that do not intersect with the region are skipped.
+	 */
+	private class Walk {
+
+		/**
+		 * Initialise a new walk over the given region (inclusive bounds).
+		 */
+		private Walk(long minX, long minY, long minZ, long maxX, long maxY, long maxZ) {
+			this(root, depth, 0, 0, 0, minX, minY, minZ, maxX, maxY, maxZ);
+		}
+
+		/**
+		 * Initialise a new walk over the squares beneath the given node that lie in the given region (inclusive bounds).
+		 *
+		 * @param	node
+		 * 				The node to walk over, or null if there are no squares to walk over.
+		 * @param	level
+		 * 				The level of the given node.
+		 * @param	originX, originY, originZ
+		 * 				The coordinates of the corner of the cube covered by the given node.
+		 */
+		private Walk(Node node, int level, long originX, long originY, long originZ,
+				long minX, long minY, long minZ, long maxX, long maxY, long maxZ)
+		{
+			this.minX = minX; this.minY = minY; this.minZ = minZ;
+			this.maxX = maxX; this.maxY = maxY; this.maxZ = maxZ;
+			this.nodes = new Node[depth];
+			this.nextIndices = new int[depth];
+			this.originsX = new long[depth];
+			this.originsY = new long[depth];
+			this.originsZ = new long[depth];
+			this.bottom = depth - level;
+			if (node != null) {
+				nodes[bottom] = node;
+				originsX[bottom] = originX;
+				originsY[bottom] = originY;
+				originsZ[bottom] = originZ;
+				top = bottom;
+			}
+			else
+				top = bottom - 1;
+		}
+
+		/**
+		 * Move this walk to the next square in its region.
+		 *
+		 * @return	True if there was a next square, false if the walk is finished.
+		 */
+		@SuppressWarnings("unchecked")
+		private boolean advance() {
+			while (top >= bottom) {
+				Node node = nodes[top];
+				int index = nextIndices[top];
+				if (index == 8) {
+					nodes[top] = null;
+					top--;
+					continue;
+				}
+				nextIndices[top] = index + 1;
+				Object child = node.children[index];
+				if (child == null)
+					continue;
+				long half = 1L << (depth - top - 1);
+				long childX = originsX[top] + (((index & 1) != 0) ? half : 0);
+				long childY = originsY[top] + (((index & 2) != 0) ? half : 0);
+				long childZ = originsZ[top] + (((index & 4) != 0) ? half : 0);
+				if ((childX > maxX) || (childY > maxY) || (childZ > maxZ) ||
+						(childX + half - 1 < minX) || (childY + half - 1 < minY) || (childZ + half - 1 < minZ))
+					continue;
+				if (top == depth - 1) {
+					square = (SquareT)child;
+					x = childX;
+					y = childY;
+					z = childZ;
+					return true;
+				}
+				top++;
+				nodes[top] = (Node)child;
+				nextIndices[top] = 0;
+				originsX[top] = childX;
+				originsY[top] = childY;
+				originsZ[top] = childZ;
+			}
+			square = null;
+			return false;
+		}
+
+		/**
+		 * The square this walk is at, and its coordinates.
+		 */
+		private SquareT square;
+		private long x, y, z;
+
+		private final long minX, minY, minZ, maxX, maxY, maxZ;
+		private final Node[] nodes;
+		private final int[] nextIndices;
+		private final long[] originsX, originsY, originsZ;
+		private final int bottom;
+		private int top;
+	}
+
+	/**
+	 * Terminate this dungeon.
+	 *
+	 * @Post	The octree of this dungeon is no longer effective.
+	 * 			| ...
+	 */
+	@Override
+	public void terminate() {
+		super.terminate();
+		this.root = null;
+	}
+
+	/**
+	 * A node of the octree, covering a cube with an edge length that is a power of two.
+	 * The children of a node at the lowest level are squares, the children of other nodes are nodes.
+	 */
+	private static final class Node {
+
+		/**
+		 * The children of this node, indexed by their octant.
+		 */
+		private final Object[] children = new Object[8];
+
+		/**
+		 * The number of squares beneath this node.
+		 */
+		private int nbSquares;
+	}
+
+	/**
+	 * A variable registering the root node of the octree, null if this dungeon has no squares.
+	 */
+	private Node root;
+
+	/**
+	 * A variable registering the number of levels of the octree.
+	 */
+	private int depth;
+
+	/**
+	 * A variable registering the number of squares of this dungeon.
+	 */
+	private int nbSquares;
+
+	/**
+	 * A variable registering the secondary index over the squares of this dungeon.
+	 */
+	private final SquareIndex<SquareT> index = new SquareIndex<SquareT>(this);
+}
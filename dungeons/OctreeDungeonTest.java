@@ -0,0 +1,186 @@
+package project.dungeons;
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import project.squares.RockSquare;
+import project.squares.Square;
+import project.squares.SquareImpl;
+/**
+ * A test class for the octree dungeon class.
+ *
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class OctreeDungeonTest {
+	private OctreeDungeon<Square> octreeDungeon;
+	private Set<Square> squareSet;
+
+	@Before
+	public void setUpMutableTextFixture() {
+		octreeDungeon = new OctreeDungeon<Square>(new Position(1000, 1000, 1000));
+		squareSet = new HashSet<Square>();
+		for (int i = 1; i < 21; i++) {
+			octreeDungeon.setSquareAt(new Position(i, 0, 0), new SquareImpl());
+			squareSet.add(octreeDungeon.getSquareAt(new Position(i, 0, 0)));
+			octreeDungeon.setSquareAt(new Position(900, i, 500), new RockSquare());
+			squareSet.add(octreeDungeon.getSquareAt(new Position(900, i, 500)));
+		}
+	}
+
+	@Test
+	public void Constructor_Extent() {
+		assertEquals(1024, octreeDungeon.getExtent());
+		assertEquals(10, octreeDungeon.getDepth());
+		assertEquals(2, new OctreeDungeon<Square>(new Position(1, 0, 0)).getExtent());
+	}
+
+	@Test
+	public void setSquareAt_LegalCase() {
+		assertEquals(40, octreeDungeon.getNbSquares());
+		assertTrue(octreeDungeon.hasSquareAt(new Position(900, 7, 500)));
+		assertFalse(octreeDungeon.hasSquareAt(new Position(900, 7, 501)));
+		assertTrue(octreeDungeon.areAdjacentSquaresConnected());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getSquareAt_IllegalArgument() {
+		octreeDungeon.getSquareAt(new Position(999, 999, 0));
+	}
+
+	@Test
+	public void removeSquareAt_LegalCase() {
+		Square square = octreeDungeon.getSquareAt(new Position(5, 0, 0));
+		octreeDungeon.removeSquareAt(new Position(5, 0, 0));
+		assertFalse(octreeDungeon.hasSquareAt(new Position(5, 0, 0)));
+		assertFalse(square.hasNeighbours());
+		assertEquals(39, octreeDungeon.getNbSquares());
+		assertEquals(39, octreeDungeon.getSquares().size());
+	}
+
+	@Test
+	public void getSquaresIn_LegalCase() {
+		Map<Position, Square> squares = octreeDungeon.getSquaresIn(new Position(3, 0, 0), new Position(899, 10, 10));
+		assertEquals(18, squares.size());
+		for (int i = 3; i < 21; i++)
+			assertSame(octreeDungeon.getSquareAt(new Position(i, 0, 0)), squares.get(new Position(i, 0, 0)));
+		assertEquals(5, octreeDungeon.getSquaresIn(new Position(900, 16, 0), new Position(1000, 1000, 1000)).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getSquaresIn_IllegalArgument() {
+		octreeDungeon.getSquaresIn(new Position(5, 5, 5), new Position(4, 5, 5));
+	}
+
+	@Test
+	public void findNearest_LegalCase() {
+		List<Square> nearest = octreeDungeon.findNearest(new Position(7, 3, 0), null, 3);
+		assertEquals(3, nearest.size());
+		assertSame(octreeDungeon.getSquareAt(new Position(7, 0, 0)), nearest.get(0));
+		assertTrue(nearest.contains(octreeDungeon.getSquareAt(new Position(6, 0, 0))));
+		assertTrue(nearest.contains(octreeDungeon.getSquareAt(new Position(8, 0, 0))));
+		SquarePredicate<Square> isRockPredicate = new SquarePredicate<Square>() {
+			@Override
+			public boolean satisfies(Square square, Dungeon<? extends Square> parentDungeon) {
+				return square instanceof RockSquare;
+			}
+		};
+		nearest = octreeDungeon.findNearest(new Position(0, 0, 0), isRockPredicate, 2);
+		assertSame(octreeDungeon.getSquareAt(new Position(900, 1, 500)), nearest.get(0));
+		assertSame(octreeDungeon.getSquareAt(new Position(900, 2, 500)), nearest.get(1));
+		assertEquals(40, octreeDungeon.findNearest(new Position(2000, 2000, 2000), null, 100).size());
+	}
+
+	@Test
+	public void findWithin_LegalCase() {
+		Map<Position, Square> squares = octreeDungeon.findWithin(new Position(10, 3, 0), 5);
+		assertEquals(9, squares.size());
+		assertTrue(squares.containsKey(new Position(6, 0, 0)));
+		assertFalse(squares.containsKey(new Position(5, 0, 0)));
+		assertEquals(0, octreeDungeon.findWithin(new Position(500, 500, 500), 100).size());
+	}
+
+	@Test
+	public void setMaximumPosition_GrowsOctree() {
+		octreeDungeon.setMaximumPosition(new Position(5000, 1000, 1000));
+		assertEquals(8192, octreeDungeon.getExtent());
+		assertEquals(40, octreeDungeon.getNbSquares());
+		assertTrue(octreeDungeon.hasSquareAt(new Position(900, 20, 500)));
+		octreeDungeon.setSquareAt(new Position(4096, 0, 0), new SquareImpl());
+		assertEquals(41, octreeDungeon.getSquares().size());
+	}
+
+	@Test
+	public void Iterator_LegalCase() {
+		Iterator<Square> iterator = octreeDungeon.iterator();
+		for (int i = 0; i < 40; i++) {
+			assertTrue(iterator.hasNext());
+			assertTrue(squareSet.remove(iterator.next()));
+		}
+		assertFalse(iterator.hasNext());
+		assertEquals(0, squareSet.size());
+	}
+
+	@Test
+	public void spliterator_LegalCase() {
+		Spliterator<Square> spliterator = octreeDungeon.spliterator();
+		assertEquals(40, spliterator.getExactSizeIfKnown());
+		Spliterator<Square> prefix = spliterator.trySplit();
+		assertNotNull(prefix);
+		assertEquals(40, prefix.getExactSizeIfKnown() + spliterator.getExactSizeIfKnown());
+		assertEquals(40, octreeDungeon.parallelStream().count());
+		assertEquals(squareSet, octreeDungeon.parallelStream().collect(Collectors.<Square>toSet()));
+	}
+
+	@Test
+	public void spliterator_ClusteredSquares() {
+		OctreeDungeon<Square> clusteredDungeon = new OctreeDungeon<Square>(new Position(1000, 1000, 1000));
+		for (int i = 1; i < 5; i++)
+			clusteredDungeon.setSquareAt(new Position(700 + i, 700, 700), new SquareImpl());
+		Spliterator<Square> spliterator = clusteredDungeon.spliterator();
+		Spliterator<Square> prefix = spliterator.trySplit();
+		assertNotNull(prefix);
+		assertTrue(prefix.getExactSizeIfKnown() > 0);
+		assertTrue(spliterator.getExactSizeIfKnown() > 0);
+		assertEquals(4, prefix.getExactSizeIfKnown() + spliterator.getExactSizeIfKnown());
+	}
+
+	@Test
+	public void iteratorWithPredicate_LegalCase() {
+		SquarePredicate<Square> isRockPredicate = new SquarePredicate<Square>() {
+			@Override
+			public boolean satisfies(Square square, Dungeon<? extends Square> parentDungeon) {
+				return square instanceof RockSquare;
+			}
+		};
+		assertEquals(20, octreeDungeon.getAllSquaresSatisfying(isRockPredicate).size());
+	}
+
+	@Test
+	public void terminate_LegalCase() {
+		Square square = octreeDungeon.getSquareAt(new Position(5, 0, 0));
+		octreeDungeon.terminate();
+		assertTrue(octreeDungeon.isTerminated());
+		assertNull(octreeDungeon.getSquares());
+		assertFalse(square.hasNeighbours());
+	}
+
+	@Test
+	public void subDungeon_LegalCase() {
+		CompositeDungeon<Square> compositeDungeon = new CompositeDungeon<Square>();
+		OctreeDungeon<Square> subDungeon = new OctreeDungeon<Square>(new Position(10, 10, 10));
+		compositeDungeon.setSubDungeonAt(subDungeon, new Position(20, 20, 20));
+		compositeDungeon.setSquareAt(new Position(25, 20, 20), new SquareImpl());
+		assertTrue(subDungeon.hasSquareAt(new Position(5, 0, 0)));
+		assertEquals(1, compositeDungeon.getNbSquares());
+	}
+}
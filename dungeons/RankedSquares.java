@@ -0,0 +1,143 @@
+package project.dungeons;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import project.squares.Square;
+
+/**
+ * A class of bounded collections of squares, keeping the given number of squares with the highest score.
+ * Collections filled from different parts of a dungeon can be merged into one of them. A collection keeping the
+ * squares with the lowest value of some measure, such as a distance, ranks its squares by the negated measure.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The number of squares in this collection is never greater than its capacity.
+ * 			| getNbSquares() <= getCapacity()
+ */
+class RankedSquares<SquareT extends Square> {
+
+	/**
+	 * Initialise a new empty collection of ranked squares with a given capacity.
+	 *
+	 * @param	capacity
+	 * 				The maximum number of squares of the new collection.
+	 * @throws	IllegalArgumentException
+	 * 				The given capacity is negative.
+	 * 				| capacity < 0
+	 */
+	RankedSquares(int capacity) throws IllegalArgumentException {
+		if (capacity < 0)
+			throw new IllegalArgumentException();
+		this.capacity = capacity;
+		this.entries = new PriorityQueue<Entry<SquareT>>(Math.max(1, capacity), new Comparator<Entry<SquareT>>() {
+			@Override
+			public int compare(Entry<SquareT> first, Entry<SquareT> second) {
+				return Double.compare(first.score, second.score);
+			}
+		});
+	}
+
+	/**
+	 * Return the maximum number of squares of this collection.
+	 */
+	int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Return the number of squares of this collection.
+	 */
+	int getNbSquares() {
+		return entries.size();
+	}
+
+	/**
+	 * Return the score a square must exceed to be added to this collection.
+	 *
+	 * @return	If the capacity of this collection is zero, positive infinity.
+	 * 			| ...
+	 * @return	If this collection is not full, negative infinity.
+	 * 			| ...
+	 * @return	Otherwise, the lowest score of its squares.
+	 * 			| ...
+	 */
+	double getThreshold() {
+		if (capacity == 0)
+			return Double.POSITIVE_INFINITY;
+		if (entries.size() < capacity)
+			return Double.NEGATIVE_INFINITY;
+		return entries.peek().score;
+	}
+
+	/**
+	 * Offer a square with the given score to this collection.
+	 *
+	 * @param	square
+	 * 				The square to offer.
+	 * @param	score
+	 * 				The score of the square.
+	 * @post	If this collection is not full, or the given score is higher than the lowest score of this collection,
+	 * 			the square is added, and if this collection was full, the square with the lowest score is removed.
+	 * 			Squares with a score that is not a number are ignored.
+	 * 			| ...
+	 */
+	void offer(SquareT square, double score) {
+		if ((capacity == 0) || Double.isNaN(score))
+			return;
+		if (entries.size() == capacity) {
+			if (!(score > entries.peek().score))
+				return;
+			entries.poll();
+		}
+		entries.add(new Entry<SquareT>(square, score));
+	}
+
+	/**
+	 * Offer each square of the given collection to this collection.
+	 *
+	 * @param	other
+	 * 				The collection to merge into this collection.
+	 */
+	void addAll(RankedSquares<SquareT> other) {
+		for (Entry<SquareT> entry : other.entries)
+			offer(entry.square, entry.score);
+	}
+
+	/**
+	 * Return the squares of this collection, ordered from highest to lowest score.
+	 */
+	List<SquareT> getSquares() {
+		List<Entry<SquareT>> sorted = new ArrayList<Entry<SquareT>>(entries);
+		Collections.sort(sorted, Collections.reverseOrder(entries.comparator()));
+		List<SquareT> result = new ArrayList<SquareT>(sorted.size());
+		for (Entry<SquareT> entry : sorted)
+			result.add(entry.square);
+		return result;
+	}
+
+	/**
+	 * A square registered together with its score.
+	 */
+	private static final class Entry<SquareT> {
+
+		private Entry(SquareT square, double score) {
+			this.square = square;
+			this.score = score;
+		}
+
+		private final SquareT square;
+		private final double score;
+	}
+
+	/**
+	 * A variable registering the maximum number of squares of this collection.
+	 */
+	private final int capacity;
+
+	/**
+	 * A variable registering the entries of this collection, the one with the lowest score first.
+	 */
+	private final PriorityQueue<Entry<SquareT>> entries;
+}
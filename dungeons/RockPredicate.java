@@ -0,0 +1,48 @@
+package project.dungeons;
+import java.util.Collection;
+import project.squares.RockSquare;
+import project.squares.Square;
+
+/**
+ * A predicate that is satisfied by rock squares.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ */
+public class RockPredicate extends ComposableSquarePredicate<Square> implements IndexedSquarePredicate {
+
+	/**
+	 * Check whether the given square is a rock square.
+	 *
+	 * @return	...
+	 * 			| result == (square instanceof RockSquare)
+	 */
+	@Override
+	protected boolean evaluate(Square square, Dungeon<? extends Square> parentDungeon) {
+		return square instanceof RockSquare;
+	}
+
+	/**
+	 * Return the relative cost of testing a square against this predicate.
+	 */
+	@Override
+	public double getCost() {
+		return 0.5;
+	}
+
+	/**
+	 * Return the estimated fraction of squares that satisfy this predicate before any square has been tested.
+	 */
+	@Override
+	public double getSelectivityHint() {
+		return 0.1;
+	}
+
+	/**
+	 * Return the rock squares of the given index.
+	 */
+	@Override
+	public <SquareT extends Square> Collection<SquareT> selectFrom(SquareIndex<SquareT> index, Dungeon<SquareT> dungeon) {
+		return index.getRockSquares();
+	}
+}
@@ -1,8 +1,11 @@
 package project.dungeons;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 import project.squares.Square;
 import be.kuleuven.cs.som.annotate.Basic;
 import be.kuleuven.cs.som.annotate.Raw;
@@ -38,7 +41,23 @@ public abstract class SingularDungeon<SquareT extends Square> extends Dungeon<Sq
 			throw new IllegalStateException();
 		if ((position == null) || (square == null))
 			throw new NullPointerException();
-		this.squares.put(position, square);
+		SquareT oldSquare = this.squares.put(position, square);
+		if (oldSquare != null)
+			this.index.remove(oldSquare);
+		this.index.add(square);
+		if (oldSquare != null)
+			notifySquareRemoved(oldSquare);
+		notifySquareAdded(square);
+	}
+
+	/**
+	 * Return the aggregate values over the squares of this dungeon, as maintained by its square index.
+	 */
+	@Override
+	public DungeonAggregates getAggregates() throws IllegalStateException {
+		if (isTerminated())
+			throw new IllegalStateException();
+		return index.getAggregates();
 	}
 
 	/**
@@ -59,6 +78,130 @@ public abstract class SingularDungeon<SquareT extends Square> extends Dungeon<Sq
 		return (this.squares == null) ? null : new HashMap<Position, SquareT>(this.squares);
 	}
 	
+	/**
+	 * Return the map of squares of this dungeon that lie in the given region, each square with its key position.
+	 * If the region holds fewer positions than this dungeon has squares, each position of the region is looked up;
+	 * otherwise, the squares of this dungeon are filtered.
+	 */
+	@Override
+	public Map<Position, SquareT> getSquaresIn(Position minimum, Position maximum)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if (isTerminated())
+			throw new IllegalStateException();
+		if (!isValidRegion(minimum, maximum))
+			throw new IllegalArgumentException();
+		Map<Position, SquareT> result = new HashMap<Position, SquareT>();
+		if (getNbPositionsIn(minimum, maximum) < squares.size()) {
+			for (long x = minimum.getX(); x <= maximum.getX(); x++)
+				for (long y = minimum.getY(); y <= maximum.getY(); y++)
+					for (long z = minimum.getZ(); z <= maximum.getZ(); z++) {
+						Position position = new Position(x, y, z);
+						SquareT square = squares.get(position);
+						if (square != null)
+							result.put(position, square);
+					}
+		}
+		else {
+			for (Map.Entry<Position, SquareT> entry : squares.entrySet())
+				if (entry.getKey().isBetween(minimum, maximum))
+					result.put(entry.getKey(), entry.getValue());
+		}
+		return result;
+	}
+
+	/**
+	 * Return the number of positions in the given region, or Long.MAX_VALUE if that number does not fit in a long.
+	 *
+	 * @param	minimum
+	 * 				The minimum position of the region.
+	 * @param	maximum
+	 * 				The maximum position of the region.
+	 */
+	private static long getNbPositionsIn(Position minimum, Position maximum) {
+		long result = 1;
+		long[] lengths = {maximum.getX() - minimum.getX() + 1, maximum.getY() - minimum.getY() + 1,
+				maximum.getZ() - minimum.getZ() + 1};
+		for (long length : lengths) {
+			if ((length <= 0) || (result > Long.MAX_VALUE / length))
+				return Long.MAX_VALUE;
+			result *= length;
+		}
+		return result;
+	}
+
+	/**
+	 * Offer the nearest squares of this dungeon. The positions around the given coordinates are looked up in
+	 * cubic shells of growing size, until the shells lie farther away than the squares found so far; as soon as
+	 * the looked up positions would outnumber the squares of this dungeon, the remaining squares are filtered instead.
+	 */
+	@Override
+	protected void collectNearest(long x, long y, long z, SquarePredicate<? super SquareT> predicate,
+			NearestSquares<SquareT> nearest)
+	{
+		Position maximum = getMaximumPosition();
+		long radius = Math.max(getDistance(x, maximum.getX()), Math.max(getDistance(y, maximum.getY()),
+				getDistance(z, maximum.getZ())));
+		long lastRadius = Math.max(getFarthestDistance(x, maximum.getX()), Math.max(getFarthestDistance(y,
+				maximum.getY()), getFarthestDistance(z, maximum.getZ())));
+		for (; radius <= lastRadius; radius++) {
+			if (!nearest.canReach((double)radius * radius))
+				return;
+			long minX = Math.max(0, x - radius), minY = Math.max(0, y - radius), minZ = Math.max(0, z - radius);
+			long maxX = Math.min(maximum.getX(), x + radius), maxY = Math.min(maximum.getY(), y + radius),
+				maxZ = Math.min(maximum.getZ(), z + radius);
+			if (getNbPositionsIn(new Position(minX, minY, minZ), new Position(maxX, maxY, maxZ)) > squares.size())
+				break;
+			for (long shellX = minX; shellX <= maxX; shellX++)
+				for (long shellY = minY; shellY <= maxY; shellY++) {
+					boolean isInner = (Math.abs(shellX - x) < radius) && (Math.abs(shellY - y) < radius);
+					for (long shellZ = minZ; shellZ <= maxZ; shellZ++) {
+						if (isInner && (Math.abs(shellZ - z) < radius))
+							shellZ = z + radius;
+						if (shellZ > maxZ)
+							break;
+						offerSquareAt(new Position(shellX, shellY, shellZ), x, y, z, predicate, nearest);
+					}
+				}
+		}
+		if (radius > lastRadius)
+			return;
+		for (Position position : squares.keySet())
+			if (Math.max(Math.abs(position.getX() - x), Math.max(Math.abs(position.getY() - y),
+					Math.abs(position.getZ() - z))) >= radius)
+				offerSquareAt(position, x, y, z, predicate, nearest);
+	}
+
+	/**
+	 * Offer the square at the given position to the given collection of nearest squares, if there is one and it
+	 * satisfies the given predicate.
+	 */
+	private void offerSquareAt(Position position, long x, long y, long z, SquarePredicate<? super SquareT> predicate,
+			NearestSquares<SquareT> nearest)
+	{
+		SquareT square = squares.get(position);
+		if ((square == null) || ((predicate != null) && !predicate.satisfies(square, this)))
+			return;
+		nearest.offer(square, NearestSquares.getDistanceSquared(x, y, z, position.getX(), position.getY(),
+				position.getZ(), position.getX(), position.getY(), position.getZ()));
+	}
+
+	/**
+	 * Return the distance between the given coordinate and the interval from zero to the given maximum.
+	 */
+	private static long getDistance(long coordinate, long maximum) {
+		if (coordinate < 0)
+			return -coordinate;
+		return Math.max(0, coordinate - maximum);
+	}
+
+	/**
+	 * Return the greatest distance between the given coordinate and a coordinate from zero to the given maximum.
+	 */
+	private static long getFarthestDistance(long coordinate, long maximum) {
+		return Math.max(Math.abs(coordinate), Math.abs(maximum - coordinate));
+	}
+
 	/**
 	 * Return the square at the given position.
 	 */
@@ -79,7 +222,10 @@ public abstract class SingularDungeon<SquareT extends Square> extends Dungeon<Sq
 	{
 		if (hasSquareAt(position)) {
 			getSquareAt(position).disconnect();
-			this.squares.remove(position);
+			SquareT square = this.squares.remove(position);
+			square.detachTeleportationSources();
+			this.index.remove(square);
+			notifySquareRemoved(square);
 		}
 	}
 
@@ -97,6 +243,16 @@ public abstract class SingularDungeon<SquareT extends Square> extends Dungeon<Sq
 		return this.squares.containsKey(position);
 	}
 
+	/**
+	 * Check whether the given square is one of the squares of this dungeon, as registered by its square index.
+	 */
+	@Override
+	public boolean hasAsSquare(SquareT square) throws IllegalStateException {
+		if (isTerminated())
+			throw new IllegalStateException();
+		return index.contains(square);
+	}
+
 	/**
 	 * Return whether this dungeon has a singular dungeon at the given position.
 	 * 
@@ -113,14 +269,23 @@ public abstract class SingularDungeon<SquareT extends Square> extends Dungeon<Sq
 	 * A variable registering all the squares of this dungeon by a unique position.
 	 */
 	private HashMap<Position, SquareT> squares;
+
+	/**
+	 * A variable registering the secondary index over the squares of this dungeon.
+	 */
+	private final SquareIndex<SquareT> index = new SquareIndex<SquareT>(this);
 	
 	/**
 	 * Get an iterator that iterates over all the squares of this dungeon that satisfy a given predicate.
+	 * Indexed predicates are answered from the square index of this dungeon.
 	 */
 	@Override
 	public Iterator<SquareT> iterator(final SquarePredicate<? super SquareT> predicate) throws IllegalStateException {
 		if (isTerminated())
 			throw new IllegalStateException();
+		Collection<SquareT> selected = index.select(predicate, this);
+		if (selected != null)
+			return Collections.unmodifiableCollection(selected).iterator();
 		return new Iterator<SquareT>() {
 			@Override
 			public boolean hasNext() {
@@ -156,6 +321,108 @@ public abstract class SingularDungeon<SquareT extends Square> extends Dungeon<Sq
 		};	
 	}
 	
+	/**
+	 * Get a cursor over all the squares of this dungeon, moving through the entries of the map of squares.
+	 */
+	@Override
+	public SquareCursor<SquareT> cursor() throws IllegalStateException {
+		if (isTerminated())
+			throw new IllegalStateException();
+		final Iterator<Map.Entry<Position, SquareT>> entryIterator = squares.entrySet().iterator();
+		return new SquareCursor<SquareT>() {
+			@Override
+			public boolean next() {
+				if (!entryIterator.hasNext())
+					return setCurrent(null, 0, 0, 0);
+				Map.Entry<Position, SquareT> entry = entryIterator.next();
+				Position position = entry.getKey();
+				return setCurrent(entry.getValue(), position.getX(), position.getY(), position.getZ());
+			}
+		};
+	}
+
+	/**
+	 * Get a spliterator over all the squares of this dungeon that satisfy a given predicate,
+	 * splitting along the buckets of the map of squares. Indexed predicates are answered from the square index
+	 * of this dungeon.
+	 */
+	@Override
+	public Spliterator<SquareT> spliterator(SquarePredicate<? super SquareT> predicate) throws IllegalStateException {
+		if (isTerminated())
+			throw new IllegalStateException();
+		Collection<SquareT> selected = index.select(predicate, this);
+		if (selected != null)
+			return selected.spliterator();
+		Spliterator<SquareT> result = squares.values().spliterator();
+		return (predicate == null) ? result : new FilteringSpliterator<SquareT>(result, predicate, this);
+	}
+
+	/**
+	 * Get an iterator that iterates over all the squares of this dungeon in the given region.
+	 * As for the region query, the positions of the region are looked up one by one if there are fewer of them
+	 * than squares, and the squares are filtered otherwise; either way the squares are found as they are needed.
+	 */
+	@Override
+	public Iterator<SquareT> iterator(final Position minimum, final Position maximum)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if (isTerminated())
+			throw new IllegalStateException();
+		if (!isValidRegion(minimum, maximum))
+			throw new IllegalArgumentException();
+		final boolean byPosition = getNbPositionsIn(minimum, maximum) < squares.size();
+		return new Iterator<SquareT>() {
+			@Override
+			public boolean hasNext() {
+				while (currentSquare == null) {
+					if (byPosition) {
+						if (x > maximum.getX())
+							return false;
+						currentSquare = squares.get(new Position(x, y, z));
+						if (z < maximum.getZ())
+							z++;
+						else if (y < maximum.getY()) {
+							z = minimum.getZ();
+							y++;
+						}
+						else {
+							z = minimum.getZ();
+							y = minimum.getY();
+							x++;
+						}
+					}
+					else {
+						if (!entryIterator.hasNext())
+							return false;
+						Map.Entry<Position, SquareT> entry = entryIterator.next();
+						if (entry.getKey().isBetween(minimum, maximum))
+							currentSquare = entry.getValue();
+					}
+				}
+				return true;
+			}
+
+			@Override
+			public SquareT next() throws NoSuchElementException {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				SquareT result = currentSquare;
+				currentSquare = null;
+				return result;
+			}
+
+			@Override
+			public void remove() throws UnsupportedOperationException {
+				throw new UnsupportedOperationException();
+			}
+
+			private SquareT currentSquare = null;
+			private long x = minimum.getX(), y = minimum.getY(), z = minimum.getZ();
+			private Iterator<Map.Entry<Position, SquareT>> entryIterator =
+					byPosition ? null : squares.entrySet().iterator();
+		};
+	}
+
 	/**
 	 * Terminate this dungeon.
 	 */
@@ -1,10 +1,12 @@
 package project.dungeons;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import org.junit.Before;
@@ -56,6 +58,59 @@ public class SingularDungeonTest {
 		assertFalse(singularDungeonIterator.hasNext());
 	}
 
+	@Test
+	public void getSquaresIn_LegalCase() {
+		assertEquals(10, singularDungeon.getSquaresIn(new Position(1, 1, 0), new Position(2, 5, 0)).size());
+		assertEquals(100, singularDungeon.getSquaresIn(new Position(0, 0, 0), new Position(100, 100, 0)).size());
+		assertEquals(0, singularDungeon.getSquaresIn(new Position(50, 50, 0), new Position(60, 60, 0)).size());
+	}
+
+	@Test
+	public void iteratorInRegion_LegalCase() {
+		Iterator<Square> iterator = singularDungeon.iterator(new Position(20, 0, 0), new Position(30, 30, 0));
+		for (int i = 0; i < 5; i++) {
+			assertTrue(iterator.hasNext());
+			assertTrue(squareSet.contains(iterator.next()));
+		}
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void iteratorInRegion_SmallRegion() {
+		Set<Square> expected = new HashSet<Square>(singularDungeon.getSquaresIn(new Position(1, 1, 0),
+				new Position(2, 5, 1)).values());
+		Iterator<Square> iterator = singularDungeon.iterator(new Position(1, 1, 0), new Position(2, 5, 1));
+		for (int i = 0; i < 10; i++) {
+			assertTrue(iterator.hasNext());
+			assertTrue(expected.remove(iterator.next()));
+		}
+		assertFalse(iterator.hasNext());
+		assertTrue(expected.isEmpty());
+	}
+
+	@Test
+	public void findNearest_LegalCase() {
+		List<Square> nearest = singularDungeon.findNearest(new Position(50, 3, 0), null, 5);
+		assertEquals(5, nearest.size());
+		assertSame(singularDungeon.getSquareAt(new Position(20, 3, 0)), nearest.get(0));
+		nearest = singularDungeon.findNearest(new Position(3, 3, 0), null, 1);
+		assertSame(singularDungeon.getSquareAt(new Position(3, 3, 0)), nearest.get(0));
+		assertEquals(100, singularDungeon.findNearest(new Position(3, 3, 0), null, 200).size());
+	}
+
+	@Test
+	public void cursor_LegalCase() {
+		SquareCursor<Square> cursor = singularDungeon.cursor();
+		for (int i = 0; i < 100; i++) {
+			assertTrue(cursor.next());
+			assertSame(singularDungeon.getSquareAt(new Position(cursor.getX(), cursor.getY(), cursor.getZ())),
+					cursor.getSquare());
+			assertTrue(squareSet.remove(cursor.getSquare()));
+		}
+		assertFalse(cursor.next());
+		assertEquals(0, squareSet.size());
+	}
+
 	@Test(expected = IllegalStateException.class)
 	public void Iterator_IllegalState() {
 		singularDungeon.terminate();
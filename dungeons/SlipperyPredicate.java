@@ -0,0 +1,48 @@
+package project.dungeons;
+import java.util.Collection;
+import project.squares.Square;
+
+/**
+ * A predicate that is satisfied by slippery squares.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ */
+public class SlipperyPredicate extends ComposableSquarePredicate<Square> implements IndexedSquarePredicate {
+
+	/**
+	 * Check whether the given square is slippery.
+	 *
+	 * @return	...
+	 * 			| result == square.isSlippery()
+	 */
+	@Override
+	protected boolean evaluate(Square square, Dungeon<? extends Square> parentDungeon) {
+		return square.isSlippery();
+	}
+
+	/**
+	 * Return the relative cost of testing a square against this predicate.
+	 * Testing slipperiness compares the humidity and temperature of a square and inspects its borders.
+	 */
+	@Override
+	public double getCost() {
+		return 2;
+	}
+
+	/**
+	 * Return the estimated fraction of squares that satisfy this predicate before any square has been tested.
+	 */
+	@Override
+	public double getSelectivityHint() {
+		return 0.1;
+	}
+
+	/**
+	 * Return the slippery squares of the given index.
+	 */
+	@Override
+	public <SquareT extends Square> Collection<SquareT> selectFrom(SquareIndex<SquareT> index, Dungeon<SquareT> dungeon) {
+		return index.getSlipperySquares();
+	}
+}
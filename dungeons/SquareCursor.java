@@ -0,0 +1,126 @@
+package project.dungeons;
+import java.util.NoSuchElementException;
+import project.squares.Square;
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of cursors over the squares of a dungeon, giving access to each square together with its coordinates.
+ * A cursor is moved from square to square and reuses itself for each of them, so that scans that need the
+ * coordinates of the squares do not have to copy the map of squares of a dungeon nor look up each square again.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The cursor is at a square if and only if its square is effective.
+ * 			| isAtSquare() == (getSquare() != null)
+ */
+public abstract class SquareCursor<SquareT extends Square> {
+
+	/**
+	 * Move this cursor to the next square.
+	 *
+	 * @return	True if and only if there was a next square.
+	 * 			| result == new.isAtSquare()
+	 */
+	public abstract boolean next();
+
+	/**
+	 * Return whether this cursor is at a square.
+	 */
+	public boolean isAtSquare() {
+		return square != null;
+	}
+
+	/**
+	 * Return the square this cursor is at.
+	 *
+	 * @throws	NoSuchElementException
+	 * 				This cursor is not at a square.
+	 * 				| !isAtSquare()
+	 */
+	@Basic
+	public SquareT getSquare() throws NoSuchElementException {
+		if (!isAtSquare())
+			throw new NoSuchElementException();
+		return square;
+	}
+
+	/**
+	 * Return the x coordinate of the square this cursor is at.
+	 *
+	 * @throws	NoSuchElementException
+	 * 				This cursor is not at a square.
+	 * 				| !isAtSquare()
+	 */
+	@Basic
+	public long getX() throws NoSuchElementException {
+		if (!isAtSquare())
+			throw new NoSuchElementException();
+		return x;
+	}
+
+	/**
+	 * Return the y coordinate of the square this cursor is at.
+	 *
+	 * @throws	NoSuchElementException
+	 * 				This cursor is not at a square.
+	 * 				| !isAtSquare()
+	 */
+	@Basic
+	public long getY() throws NoSuchElementException {
+		if (!isAtSquare())
+			throw new NoSuchElementException();
+		return y;
+	}
+
+	/**
+	 * Return the z coordinate of the square this cursor is at.
+	 *
+	 * @throws	NoSuchElementException
+	 * 				This cursor is not at a square.
+	 * 				| !isAtSquare()
+	 */
+	@Basic
+	public long getZ() throws NoSuchElementException {
+		if (!isAtSquare())
+			throw new NoSuchElementException();
+		return z;
+	}
+
+	/**
+	 * Return the position of the square this cursor is at. Unlike the coordinates, the position is created
+	 * on each call.
+	 *
+	 * @return	...
+	 * 			| result.equals(new Position(getX(), getY(), getZ()))
+	 * @throws	NoSuchElementException
+	 * 				This cursor is not at a square.
+	 * 				| !isAtSquare()
+	 */
+	public Position getPosition() throws NoSuchElementException {
+		return new Position(getX(), getY(), getZ());
+	}
+
+	/**
+	 * Set the square this cursor is at, and its coordinates.
+	 *
+	 * @param	square
+	 * 				The new square of this cursor, or null if this cursor is past the last square.
+	 * @param	x, y, z
+	 * 				The coordinates of the given square.
+	 * @return	...
+	 * 			| result == (square != null)
+	 */
+	protected boolean setCurrent(SquareT square, long x, long y, long z) {
+		this.square = square;
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		return square != null;
+	}
+
+	/**
+	 * Variables registering the square this cursor is at and its coordinates.
+	 */
+	private SquareT square;
+	private long x, y, z;
+}
@@ -0,0 +1,312 @@
+package project.dungeons;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import project.squares.RockSquare;
+import project.squares.Square;
+import project.squares.SquareListener;
+
+/**
+ * A class of secondary indexes over the squares of a singular dungeon, registering which squares are slippery,
+ * which squares are rock squares, and the squares ordered by temperature and by humidity.
+ * An index listens to its squares and updates itself whenever their temperature, humidity or borders change,
+ * so that selective queries take a time proportional to their result instead of to the number of squares.
+ * As the spaces of a dungeon may be updated concurrently, an index may be notified from several threads at once;
+ * all access to its registrations is synchronized on the index.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	Each square of this index is registered under its current temperature and humidity.
+ * 			| ...
+ */
+public class SquareIndex<SquareT extends Square> implements SquareListener {
+
+	/**
+	 * Initialise a new empty square index for the given dungeon.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon of which the squares are indexed.
+	 */
+	SquareIndex(Dungeon<SquareT> dungeon) {
+		this.dungeon = dungeon;
+	}
+
+	/**
+	 * A variable registering the dungeon of which the squares are indexed.
+	 */
+	private final Dungeon<SquareT> dungeon;
+
+	/**
+	 * Add the given square to this index and start listening to it.
+	 *
+	 * @param	square
+	 * 				The square to add.
+	 */
+	void add(SquareT square) {
+		square.addSquareListener(this);
+		synchronized (this) {
+			if (square instanceof RockSquare)
+				rockSquares.add(square);
+			register(square);
+		}
+		dungeon.invalidateAggregates();
+	}
+
+	/**
+	 * Remove the given square from this index and stop listening to it.
+	 *
+	 * @param	square
+	 * 				The square to remove.
+	 */
+	void remove(SquareT square) {
+		square.removeSquareListener(this);
+		synchronized (this) {
+			rockSquares.remove(square);
+			unregister(square);
+		}
+		dungeon.invalidateAggregates();
+	}
+
+	/**
+	 * Check whether the given square is registered in this index.
+	 */
+	public synchronized boolean contains(Square square) {
+		return temperatures.containsKey(square);
+	}
+
+	/**
+	 * Register the current temperature, humidity and slipperiness of the given square.
+	 */
+	private void register(SquareT square) {
+		// Adding zero turns negative zero into positive zero, which compare as equal to other temperatures.
+		double temperature = square.getTemperatureInCelcius() + 0.0;
+		BigDecimal humidity = square.getHumidity();
+		temperatures.put(square, temperature);
+		addToTemperatureSum(temperature);
+		nbTemperatureUpdates++;
+		getBucket(squaresByTemperature, temperature).add(square);
+		humidities.put(square, humidity);
+		getBucket(squaresByHumidity, humidity).add(square);
+		if (square.isSlippery())
+			slipperySquares.add(square);
+	}
+
+	/**
+	 * Remove the registered temperature, humidity and slipperiness of the given square.
+	 */
+	private void unregister(SquareT square) {
+		Double temperature = temperatures.remove(square);
+		if (temperature != null) {
+			removeFromBucket(squaresByTemperature, temperature, square);
+			if (temperatures.isEmpty())
+				resetTemperatureSum();
+			else {
+				addToTemperatureSum(-temperature);
+				nbTemperatureUpdates++;
+			}
+		}
+		BigDecimal humidity = humidities.remove(square);
+		if (humidity != null)
+			removeFromBucket(squaresByHumidity, humidity, square);
+		slipperySquares.remove(square);
+	}
+
+	/**
+	 * Add the given value to the sum of the temperatures of the squares of this index, compensating for the
+	 * rounding error of the addition as in Neumaier's variant of Kahan summation.
+	 */
+	private void addToTemperatureSum(double value) {
+		double sum = temperatureSum + value;
+		if (Math.abs(temperatureSum) >= Math.abs(value))
+			temperatureCompensation += (temperatureSum - sum) + value;
+		else
+			temperatureCompensation += (value - sum) + temperatureSum;
+		temperatureSum = sum;
+	}
+
+	/**
+	 * Recompute the sum of the temperatures of the squares of this index from their registered temperatures.
+	 */
+	private void resetTemperatureSum() {
+		temperatureSum = 0;
+		temperatureCompensation = 0;
+		for (double temperature : temperatures.values())
+			addToTemperatureSum(temperature);
+		nbTemperatureUpdates = 0;
+	}
+
+	/**
+	 * Return the set of squares registered under the given key in the given map, creating it if needed.
+	 */
+	private static <KeyT, SquareT> Set<SquareT> getBucket(Map<KeyT, Set<SquareT>> map, KeyT key) {
+		Set<SquareT> result = map.get(key);
+		if (result == null) {
+			result = new HashSet<SquareT>();
+			map.put(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Remove the given square from the set registered under the given key in the given map.
+	 */
+	private static <KeyT, SquareT> void removeFromBucket(Map<KeyT, Set<SquareT>> map, KeyT key, SquareT square) {
+		Set<SquareT> bucket = map.get(key);
+		if (bucket == null)
+			return;
+		bucket.remove(square);
+		if (bucket.isEmpty())
+			map.remove(key);
+	}
+
+	/**
+	 * Update the registration of the given square, as its temperature or humidity may have changed.
+	 * Only the registrations that actually changed are moved, as a simulation typically changes the temperature
+	 * of a square without changing its humidity.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void squareChanged(Square square) {
+		synchronized (this) {
+			Double oldTemperature = temperatures.get(square);
+			if (oldTemperature == null)
+				return;
+			double temperature = square.getTemperatureInCelcius() + 0.0;
+			if (oldTemperature != temperature) {
+				removeFromBucket(squaresByTemperature, oldTemperature, (SquareT)square);
+				temperatures.put((SquareT)square, temperature);
+				addToTemperatureSum(-oldTemperature);
+				addToTemperatureSum(temperature);
+				nbTemperatureUpdates++;
+				getBucket(squaresByTemperature, temperature).add((SquareT)square);
+			}
+			BigDecimal oldHumidity = humidities.get(square);
+			BigDecimal humidity = square.getHumidity();
+			if (oldHumidity.compareTo(humidity) != 0) {
+				removeFromBucket(squaresByHumidity, oldHumidity, (SquareT)square);
+				humidities.put((SquareT)square, humidity);
+				getBucket(squaresByHumidity, humidity).add((SquareT)square);
+			}
+			if (square.isSlippery())
+				slipperySquares.add((SquareT)square);
+			else
+				slipperySquares.remove(square);
+		}
+		dungeon.invalidateAggregates();
+	}
+
+	/**
+	 * Update the registration of the given square, as the temperature of a rock square depends on its neighbours.
+	 */
+	@Override
+	public void bordersChanged(Square square) {
+		squareChanged(square);
+	}
+
+	/**
+	 * Return the aggregate values over the squares of this index.
+	 * As the heat damage of a square only increases with its temperature, the maximum heat damage is
+	 * the heat damage of a square with the highest temperature.
+	 * The sum of the temperatures is recomputed once it has been updated as many times as there are squares, so
+	 * that the rounding errors left by the compensated updates can not accumulate, at a constant cost per update.
+	 */
+	synchronized DungeonAggregates getAggregates() {
+		if (nbTemperatureUpdates > temperatures.size())
+			resetTemperatureSum();
+		int maxHeatDamage = 0;
+		if (!squaresByTemperature.isEmpty())
+			maxHeatDamage = squaresByTemperature.lastEntry().getValue().iterator().next().getHeatDamage();
+		return new DungeonAggregates(temperatures.size(), temperatureSum + temperatureCompensation, maxHeatDamage,
+				slipperySquares.size());
+	}
+
+	/**
+	 * Return the squares of this index that are slippery.
+	 */
+	public synchronized Collection<SquareT> getSlipperySquares() {
+		return new ArrayList<SquareT>(slipperySquares);
+	}
+
+	/**
+	 * Return the rock squares of this index.
+	 */
+	public synchronized Collection<SquareT> getRockSquares() {
+		return new ArrayList<SquareT>(rockSquares);
+	}
+
+	/**
+	 * Return the squares of this index with a temperature strictly above the given temperature.
+	 *
+	 * @param	temperature
+	 * 				The temperature in degrees Celcius.
+	 */
+	public synchronized Collection<SquareT> getSquaresWithTemperatureAbove(double temperature) {
+		return flatten(squaresByTemperature.tailMap(temperature + 0.0, false));
+	}
+
+	/**
+	 * Return the squares of this index with a humidity between the given minimum and maximum (inclusive).
+	 *
+	 * @param	minimum
+	 * 				The minimum humidity.
+	 * @param	maximum
+	 * 				The maximum humidity.
+	 * @throws	NullPointerException
+	 * 				One of the given humidities is not effective.
+	 * 				| (minimum == null) || (maximum == null)
+	 */
+	public synchronized Collection<SquareT> getSquaresWithHumidityBetween(BigDecimal minimum, BigDecimal maximum)
+		throws NullPointerException
+	{
+		if ((minimum == null) || (maximum == null))
+			throw new NullPointerException();
+		if (minimum.compareTo(maximum) > 0)
+			return new ArrayList<SquareT>();
+		return flatten(squaresByHumidity.subMap(minimum, true, maximum, true));
+	}
+
+	/**
+	 * Return a list of all the squares in the sets of the given map.
+	 */
+	private static <KeyT, SquareT> List<SquareT> flatten(NavigableMap<KeyT, Set<SquareT>> map) {
+		List<SquareT> result = new ArrayList<SquareT>();
+		for (Set<SquareT> bucket : map.values())
+			result.addAll(bucket);
+		return result;
+	}
+
+	/**
+	 * Return the squares of this index that satisfy the given predicate, if this index can answer it.
+	 *
+	 * @param	predicate
+	 * 				The predicate to answer.
+	 * @param	dungeon
+	 * 				The dungeon to which the squares of this index belong.
+	 * @return	Null if the given predicate is not an indexed predicate or cannot be answered by this index.
+	 * 			| ...
+	 */
+	Collection<SquareT> select(SquarePredicate<? super SquareT> predicate, Dungeon<SquareT> dungeon) {
+		if (!(predicate instanceof IndexedSquarePredicate))
+			return null;
+		return ((IndexedSquarePredicate)predicate).selectFrom(this, dungeon);
+	}
+
+	/**
+	 * Variables registering the squares of this index by their attributes.
+	 */
+	private final Set<SquareT> slipperySquares = new HashSet<SquareT>();
+	private final Set<SquareT> rockSquares = new HashSet<SquareT>();
+	private final Map<SquareT, Double> temperatures = new HashMap<SquareT, Double>();
+	private double temperatureSum, temperatureCompensation;
+	private long nbTemperatureUpdates;
+	private final TreeMap<Double, Set<SquareT>> squaresByTemperature = new TreeMap<Double, Set<SquareT>>();
+	private final Map<SquareT, BigDecimal> humidities = new HashMap<SquareT, BigDecimal>();
+	private final TreeMap<BigDecimal, Set<SquareT>> squaresByHumidity = new TreeMap<BigDecimal, Set<SquareT>>();
+}
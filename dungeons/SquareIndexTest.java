@@ -0,0 +1,87 @@
+package project.dungeons;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import project.misc.Direction;
+import project.squares.RockSquare;
+import project.squares.Square;
+import project.squares.SquareImpl;
+import project.temperature.Temperature;
+/**
+ * A test class for the square index class and the indexed predicates.
+ *
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class SquareIndexTest {
+	private CompositeDungeon<Square> compositeDungeon;
+	private Level<Square> level;
+	private OctreeDungeon<Square> octreeDungeon;
+
+	@Before
+	public void setUpMutableTextFixture() {
+		compositeDungeon = new CompositeDungeon<Square>();
+		compositeDungeon.setSubDungeonAt(level = new Level<Square>(10, 10), new Position());
+		compositeDungeon.setSubDungeonAt(octreeDungeon = new OctreeDungeon<Square>(new Position(10, 10, 10)),
+				new Position(0, 0, 20));
+		for (int i = 0; i < 5; i++) {
+			compositeDungeon.setSquareAt(new Position(i + 1, 0, 0), new SquareImpl(new Temperature(10 * i),
+					new BigDecimal(20 * i), false, Direction.values()));
+			compositeDungeon.setSquareAt(new Position(i + 1, 0, 20), new SquareImpl(new Temperature(10 * i),
+					new BigDecimal(20 * i), false, Direction.values()));
+		}
+		compositeDungeon.setSquareAt(new Position(1, 1, 0), new RockSquare());
+	}
+
+	@Test
+	public void temperatureAbove_LegalCase() {
+		assertEquals(3, level.getAllSquaresSatisfying(new TemperatureAbovePredicate(new Temperature(15))).size());
+		assertEquals(6, compositeDungeon.getAllSquaresSatisfying(new TemperatureAbovePredicate(new Temperature(15))).size());
+	}
+
+	@Test
+	public void temperatureAbove_AfterChange() {
+		level.getSquareAt(new Position(1, 0, 0)).changeTemperature(new Temperature(50));
+		// The rock square next to the changed square takes over its temperature.
+		assertEquals(5, level.getAllSquaresSatisfying(new TemperatureAbovePredicate(new Temperature(15))).size());
+		assertTrue(level.getAllSquaresSatisfying(new TemperatureAbovePredicate(new Temperature(45)))
+				.contains(level.getSquareAt(new Position(1, 1, 0))));
+	}
+
+	@Test
+	public void humidityBetween_LegalCase() {
+		HumidityBetweenPredicate predicate = new HumidityBetweenPredicate(new BigDecimal(20), new BigDecimal(60));
+		assertEquals(6, compositeDungeon.getAllSquaresSatisfying(predicate).size());
+		octreeDungeon.getSquareAt(new Position(5, 0, 0)).changeHumidity(new BigDecimal(50));
+		assertEquals(7, compositeDungeon.getAllSquaresSatisfying(predicate).size());
+	}
+
+	@Test
+	public void slippery_AfterChange() {
+		assertEquals(0, compositeDungeon.getAllSquaresSatisfying(new SlipperyPredicate()).size());
+		Square square = octreeDungeon.getSquareAt(new Position(2, 0, 0));
+		square.changeHumidity(new BigDecimal(100));
+		assertTrue(compositeDungeon.getAllSquaresSatisfying(new SlipperyPredicate()).contains(square));
+		assertEquals(1, compositeDungeon.getAllSquaresSatisfying(new SlipperyPredicate()).size());
+	}
+
+	@Test
+	public void rock_LegalCase() {
+		assertEquals(1, compositeDungeon.getAllSquaresSatisfying(new RockPredicate()).size());
+		compositeDungeon.removeSquareAt(new Position(1, 1, 0));
+		assertEquals(0, compositeDungeon.getAllSquaresSatisfying(new RockPredicate()).size());
+	}
+
+	@Test
+	public void removeSquareAt_StopsListening() {
+		Square square = octreeDungeon.getSquareAt(new Position(5, 0, 0));
+		octreeDungeon.removeSquareAt(new Position(5, 0, 0));
+		assertEquals(2, octreeDungeon.getAllSquaresSatisfying(new TemperatureAbovePredicate(new Temperature(15))).size());
+		square.changeTemperature(new Temperature(100));
+		assertEquals(2, octreeDungeon.getAllSquaresSatisfying(new TemperatureAbovePredicate(new Temperature(15))).size());
+	}
+}
@@ -0,0 +1,236 @@
+package project.dungeons;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.ToDoubleFunction;
+import project.squares.Square;
+import project.squares.SquareListener;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of rankings of the squares of a dungeon by a given score, such as their inhabitability.
+ * A ranking listens to its dungeon and to the squares of its dungeon, and updates the score of a square
+ * whenever it is added, changes or is merged into a space, so that the best squares can be read without
+ * scanning the dungeon. Squares of which the score is not a number are not ranked.
+ * As the spaces of a dungeon may be updated concurrently, a ranking may be notified from several threads at
+ * once; all access to its registrations is synchronized on the ranking.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The dungeon and the key of this ranking are effective.
+ * 			| (getDungeon() != null) && (getKey() != null)
+ */
+public class SquareRanking<SquareT extends Square> implements SquareListener, DungeonListener {
+
+	/**
+	 * Initialise a new ranking of the squares of the given dungeon by the given key.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon of which the squares are to be ranked.
+	 * @param	key
+	 * 				The function computing the score of a square.
+	 * @post	...
+	 * 			| (new.getDungeon() == dungeon) && (new.getKey() == key)
+	 * @post	...
+	 * 			| dungeon.hasAsDungeonListener(new)
+	 * @throws	NullPointerException
+	 * 				The given dungeon or key is not effective.
+	 * 				| (dungeon == null) || (key == null)
+	 * @throws	IllegalStateException
+	 * 				The given dungeon is terminated.
+	 * 				| dungeon.isTerminated()
+	 */
+	public SquareRanking(Dungeon<SquareT> dungeon, ToDoubleFunction<? super SquareT> key)
+		throws NullPointerException, IllegalStateException
+	{
+		if ((dungeon == null) || (key == null))
+			throw new NullPointerException();
+		if (dungeon.isTerminated())
+			throw new IllegalStateException();
+		this.dungeon = dungeon;
+		this.key = key;
+		for (SquareT square : dungeon)
+			add(square);
+		dungeon.addDungeonListener(this);
+	}
+
+	/**
+	 * Return the dungeon of which the squares are ranked.
+	 */
+	@Basic @Immutable
+	public Dungeon<SquareT> getDungeon() {
+		return dungeon;
+	}
+
+	/**
+	 * Return the function computing the score of a square.
+	 */
+	@Basic @Immutable
+	public ToDoubleFunction<? super SquareT> getKey() {
+		return key;
+	}
+
+	/**
+	 * Return the given number of squares with the highest score, ordered from highest to lowest score.
+	 *
+	 * @param	k
+	 * 				The maximum number of squares to return.
+	 * @return	...
+	 * 			| result.size() == min(k, getNbRankedSquares())
+	 * @throws	IllegalArgumentException
+	 * 				The given number of squares is negative.
+	 * 				| k < 0
+	 */
+	public synchronized List<SquareT> getTopSquares(int k) throws IllegalArgumentException {
+		if (k < 0)
+			throw new IllegalArgumentException();
+		List<SquareT> result = new ArrayList<SquareT>(Math.min(k, scores.size()));
+		for (Set<SquareT> bucket : squaresByScore.descendingMap().values()) {
+			for (SquareT square : bucket) {
+				if (result.size() == k)
+					return result;
+				result.add(square);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the number of squares that are ranked.
+	 */
+	public synchronized int getNbRankedSquares() {
+		int result = 0;
+		for (Set<SquareT> bucket : squaresByScore.values())
+			result += bucket.size();
+		return result;
+	}
+
+	/**
+	 * Return the registered score of the given square.
+	 *
+	 * @return	Not a number if the given square is not ranked.
+	 * 			| ...
+	 */
+	public synchronized double getScore(Square square) {
+		Double result = scores.get(square);
+		return (result == null) ? Double.NaN : result;
+	}
+
+	/**
+	 * Stop ranking the squares of the dungeon of this ranking.
+	 *
+	 * @post	...
+	 * 			| !getDungeon().hasAsDungeonListener(new) && (new.getNbRankedSquares() == 0)
+	 */
+	public synchronized void detach() {
+		dungeon.removeDungeonListener(this);
+		for (SquareT square : new ArrayList<SquareT>(scores.keySet()))
+			remove(square);
+	}
+
+	/**
+	 * Start ranking the given square.
+	 */
+	private void add(SquareT square) {
+		square.addSquareListener(this);
+		register(square);
+	}
+
+	/**
+	 * Stop ranking the given square.
+	 */
+	private void remove(SquareT square) {
+		square.removeSquareListener(this);
+		unregister(square);
+	}
+
+	/**
+	 * Register the current score of the given square.
+	 */
+	private void register(SquareT square) {
+		double score = key.applyAsDouble(square);
+		scores.put(square, score);
+		if (Double.isNaN(score))
+			return;
+		Set<SquareT> bucket = squaresByScore.get(score);
+		if (bucket == null) {
+			bucket = new HashSet<SquareT>();
+			squaresByScore.put(score, bucket);
+		}
+		bucket.add(square);
+	}
+
+	/**
+	 * Remove the registered score of the given square.
+	 */
+	private void unregister(SquareT square) {
+		Double score = scores.remove(square);
+		if (score == null)
+			return;
+		Set<SquareT> bucket = squaresByScore.get(score);
+		if (bucket == null)
+			return;
+		bucket.remove(square);
+		if (bucket.isEmpty())
+			squaresByScore.remove(score);
+	}
+
+	/**
+	 * Start ranking the given square, as it has been added to the dungeon.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public synchronized void squareAdded(Square square) {
+		add((SquareT)square);
+	}
+
+	/**
+	 * Stop ranking the given square, as it has been removed from the dungeon.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public synchronized void squareRemoved(Square square) {
+		remove((SquareT)square);
+	}
+
+	/**
+	 * Update the score of the given square, as its temperature or humidity may have changed.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public synchronized void squareChanged(Square square) {
+		if (!scores.containsKey(square))
+			return;
+		unregister((SquareT)square);
+		register((SquareT)square);
+	}
+
+	/**
+	 * Update the score of the given square, as its score may depend on its borders and neighbours.
+	 */
+	@Override
+	public void bordersChanged(Square square) {
+		squareChanged(square);
+	}
+
+	/**
+	 * A variable registering the dungeon of which the squares are ranked.
+	 */
+	private final Dungeon<SquareT> dungeon;
+
+	/**
+	 * A variable registering the function computing the score of a square.
+	 */
+	private final ToDoubleFunction<? super SquareT> key;
+
+	/**
+	 * Variables registering the score of each ranked square and the ranked squares by score.
+	 */
+	private final Map<SquareT, Double> scores = new HashMap<SquareT, Double>();
+	private final TreeMap<Double, Set<SquareT>> squaresByScore = new TreeMap<Double, Set<SquareT>>();
+}
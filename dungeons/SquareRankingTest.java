@@ -0,0 +1,126 @@
+package project.dungeons;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import project.misc.Direction;
+import project.squares.Square;
+import project.squares.SquareImpl;
+import project.temperature.Temperature;
+/**
+ * A test class for the top squares query of dungeons and for square rankings.
+ *
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class SquareRankingTest {
+	private CompositeDungeon<Square> compositeDungeon;
+	private Level<Square> level;
+	private OctreeDungeon<Square> octreeDungeon;
+	private static final ToDoubleFunction<Square> TEMPERATURE = new ToDoubleFunction<Square>() {
+		@Override
+		public double applyAsDouble(Square square) {
+			return square.getTemperature().getValueInCelcius();
+		}
+	};
+
+	@Before
+	public void setUpMutableTextFixture() {
+		compositeDungeon = new CompositeDungeon<Square>();
+		compositeDungeon.setSubDungeonAt(level = new Level<Square>(10, 10), new Position());
+		compositeDungeon.setSubDungeonAt(octreeDungeon = new OctreeDungeon<Square>(new Position(10, 10, 10)),
+				new Position(0, 0, 20));
+		for (int i = 0; i < 5; i++) {
+			compositeDungeon.setSquareAt(new Position(i + 1, 0, 0), new SquareImpl(new Temperature(10 * i),
+					new BigDecimal(20 * i), false, Direction.values()));
+			compositeDungeon.setSquareAt(new Position(i + 1, 0, 20), new SquareImpl(new Temperature(10 * i + 5),
+					new BigDecimal(20 * i), false, Direction.values()));
+		}
+	}
+
+	@Test
+	public void topSquaresBy_LegalCase() {
+		List<Square> result = compositeDungeon.topSquaresBy(TEMPERATURE, 3);
+		assertEquals(3, result.size());
+		assertSame(octreeDungeon.getSquareAt(new Position(5, 0, 0)), result.get(0));
+		assertSame(level.getSquareAt(new Position(5, 0, 0)), result.get(1));
+		assertSame(octreeDungeon.getSquareAt(new Position(4, 0, 0)), result.get(2));
+		assertEquals(10, compositeDungeon.topSquaresBy(TEMPERATURE, 20).size());
+		assertEquals(0, compositeDungeon.topSquaresBy(TEMPERATURE, 0).size());
+	}
+
+	@Test
+	public void topSquaresBy_Inhabitability() {
+		List<Square> result = compositeDungeon.topSquaresBy(new ToDoubleFunction<Square>() {
+			@Override
+			public double applyAsDouble(Square square) {
+				return square.getInhabitability();
+			}
+		}, 10);
+		for (int i = 1; i < result.size(); i++)
+			assertTrue(result.get(i - 1).getInhabitability() >= result.get(i).getInhabitability());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void topSquaresBy_NegativeK() {
+		compositeDungeon.topSquaresBy(TEMPERATURE, -1);
+	}
+
+	@Test
+	public void ranking_FollowsEdits() {
+		SquareRanking<Square> ranking = new SquareRanking<Square>(compositeDungeon, TEMPERATURE);
+		assertEquals(10, ranking.getNbRankedSquares());
+		assertEquals(compositeDungeon.topSquaresBy(TEMPERATURE, 4), ranking.getTopSquares(4));
+		Square hot = new SquareImpl(new Temperature(100), new BigDecimal(0), false, Direction.values());
+		compositeDungeon.setSquareAt(new Position(1, 5, 20), hot);
+		assertSame(hot, ranking.getTopSquares(1).get(0));
+		level.getSquareAt(new Position(1, 0, 0)).changeTemperature(new Temperature(200));
+		assertSame(level.getSquareAt(new Position(1, 0, 0)), ranking.getTopSquares(1).get(0));
+		compositeDungeon.removeSquareAt(new Position(1, 0, 0));
+		assertSame(hot, ranking.getTopSquares(1).get(0));
+		assertEquals(10, ranking.getNbRankedSquares());
+	}
+
+	@Test
+	public void ranking_FollowsMerges() {
+		Level<Square> level = new Level<Square>(10, 10);
+		SquareRanking<Square> ranking = new SquareRanking<Square>(level, TEMPERATURE);
+		Square hot = new SquareImpl(new Temperature(100), new BigDecimal(0), false, Direction.FLOOR);
+		level.setSquareAt(new Position(1, 5, 0), hot);
+		level.setSquareAt(new Position(2, 5, 0), new SquareImpl(new Temperature(0), new BigDecimal(0), false, Direction.FLOOR));
+		assertTrue(hot.getTemperature().getValueInCelcius() < 100);
+		assertEquals(hot.getTemperature().getValueInCelcius(), ranking.getScore(hot), 0);
+	}
+
+	@Test
+	public void ranking_FollowsSubDungeons() {
+		SquareRanking<Square> ranking = new SquareRanking<Square>(compositeDungeon, TEMPERATURE);
+		Level<Square> other = new Level<Square>(10, 10);
+		compositeDungeon.setSubDungeonAt(other, new Position(0, 0, 10));
+		Square hot = new SquareImpl(new Temperature(100), new BigDecimal(0), false, Direction.values());
+		compositeDungeon.setSquareAt(new Position(1, 1, 10), hot);
+		assertEquals(11, ranking.getNbRankedSquares());
+		assertSame(hot, ranking.getTopSquares(1).get(0));
+		compositeDungeon.removeSquareAt(new Position(1, 1, 10));
+		compositeDungeon.removeSubDungeonAt(new Position(0, 0, 10));
+		assertEquals(10, ranking.getNbRankedSquares());
+		other.setSquareAt(new Position(1, 1, 0), hot);
+		assertEquals(10, ranking.getNbRankedSquares());
+		assertSame(octreeDungeon.getSquareAt(new Position(5, 0, 0)), ranking.getTopSquares(1).get(0));
+	}
+
+	@Test
+	public void detach_StopsRanking() {
+		SquareRanking<Square> ranking = new SquareRanking<Square>(compositeDungeon, TEMPERATURE);
+		ranking.detach();
+		assertFalse(compositeDungeon.hasAsDungeonListener(ranking));
+		assertEquals(0, ranking.getNbRankedSquares());
+		compositeDungeon.setSquareAt(new Position(1, 5, 20), new SquareImpl());
+		assertEquals(0, ranking.getNbRankedSquares());
+	}
+}
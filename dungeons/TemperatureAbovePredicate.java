@@ -0,0 +1,66 @@
+package project.dungeons;
+import java.util.Collection;
+import project.squares.Square;
+import project.temperature.Temperature;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A predicate that is satisfied by squares with a temperature strictly above a given temperature.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The temperature of this predicate is effective.
+ * 			| getTemperature() != null
+ */
+public class TemperatureAbovePredicate extends ComposableSquarePredicate<Square> implements IndexedSquarePredicate {
+
+	/**
+	 * Initialise a new predicate with a given temperature.
+	 *
+	 * @param	temperature
+	 * 				The temperature the squares have to be above.
+	 * @post	...
+	 * 			| new.getTemperature() == temperature
+	 * @throws	NullPointerException
+	 * 				The given temperature is not effective.
+	 * 				| temperature == null
+	 */
+	public TemperatureAbovePredicate(Temperature temperature) throws NullPointerException {
+		if (temperature == null)
+			throw new NullPointerException();
+		this.temperature = temperature;
+	}
+
+	/**
+	 * Return the temperature the squares have to be above.
+	 */
+	@Basic @Immutable
+	public Temperature getTemperature() {
+		return temperature;
+	}
+
+	/**
+	 * Check whether the temperature of the given square is above the temperature of this predicate.
+	 *
+	 * @return	...
+	 * 			| result == (square.getTemperature().getValueInCelcius() > getTemperature().getValueInCelcius())
+	 */
+	@Override
+	protected boolean evaluate(Square square, Dungeon<? extends Square> parentDungeon) {
+		return square.getTemperatureInCelcius() > temperature.getValueInCelcius();
+	}
+
+	/**
+	 * Return the squares of the given index with a temperature above the temperature of this predicate.
+	 */
+	@Override
+	public <SquareT extends Square> Collection<SquareT> selectFrom(SquareIndex<SquareT> index, Dungeon<SquareT> dungeon) {
+		return index.getSquaresWithTemperatureAbove(temperature.getValueInCelcius());
+	}
+
+	/**
+	 * A variable registering the temperature the squares have to be above.
+	 */
+	private final Temperature temperature;
+}
@@ -0,0 +1,103 @@
+package project.misc;
+
+import java.util.SplittableRandom;
+
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of seeded sources of random numbers, handing out independent splittable random generators.
+ * Every thread that asks a source for its current generator gets a generator of its own, split off the root
+ * generator of the source, so that threads never contend for a shared generator. Workers of a parallel
+ * computation that must be replayed exactly ask for a split generator each, in a fixed order, rather than
+ * relying on the order in which threads happen to ask for their current generator.
+ * Resetting a source starts all its generators over from its seed, so that a run can be replayed.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ */
+public class RandomSource {
+
+	/**
+	 * Initialise a new random source with the given seed.
+	 *
+	 * @param	seed
+	 * 				The seed of the new random source.
+	 * @post	...
+	 * 			| new.getSeed() == seed
+	 */
+	public RandomSource(long seed) {
+		this.seed = seed;
+		reset();
+	}
+
+	/**
+	 * Initialise a new random source with an arbitrary seed.
+	 *
+	 * @effect	...
+	 * 			| this(new SplittableRandom().nextLong())
+	 */
+	public RandomSource() {
+		this(new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Return the seed of this random source.
+	 */
+	@Basic
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * A variable registering the seed of this random source.
+	 */
+	private final long seed;
+
+	/**
+	 * Start this random source over from its seed.
+	 * Generators handed out before are not affected; every thread gets a new current generator.
+	 *
+	 * @post	The generators handed out from now on are the same as those handed out by a new random source
+	 * 			with the same seed.
+	 * 			| ...
+	 */
+	public synchronized void reset() {
+		root = new SplittableRandom(getSeed());
+		current = new ThreadLocal<SplittableRandom>() {
+			@Override
+			protected SplittableRandom initialValue() {
+				return split();
+			}
+		};
+	}
+
+	/**
+	 * Return a new generator split off the root generator of this random source.
+	 *
+	 * @return	The result is effective and is not shared with any other thread.
+	 * 			| result != null
+	 */
+	public synchronized SplittableRandom split() {
+		return root.split();
+	}
+
+	/**
+	 * Return the generator of this random source for the current thread.
+	 *
+	 * @return	The result is effective and is only handed out to the current thread.
+	 * 			| result != null
+	 */
+	public SplittableRandom current() {
+		return current.get();
+	}
+
+	/**
+	 * A variable referencing the root generator of this random source.
+	 */
+	private SplittableRandom root;
+
+	/**
+	 * A variable referencing the generator of this random source for each thread.
+	 */
+	private volatile ThreadLocal<SplittableRandom> current;
+}
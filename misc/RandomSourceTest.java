@@ -0,0 +1,68 @@
+package project.misc;
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A test class for random sources.
+ *
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class RandomSourceTest {
+	private RandomSource source;
+
+	@Before
+	public void setUpMutableTextFixture() {
+		source = new RandomSource(42);
+	}
+
+	@Test
+	public void constructor_LegalCase() {
+		assertEquals(42, source.getSeed());
+	}
+
+	@Test
+	public void split_SameSeedSameGenerators() {
+		RandomSource other = new RandomSource(42);
+		for (int i = 0; i < 3; i++)
+			assertEquals(source.split().nextLong(), other.split().nextLong());
+	}
+
+	@Test
+	public void split_IndependentGenerators() {
+		assertTrue(source.split().nextLong() != source.split().nextLong());
+	}
+
+	@Test
+	public void current_SameGeneratorPerThread() {
+		assertSame(source.current(), source.current());
+	}
+
+	@Test
+	public void current_OtherGeneratorPerThread() throws InterruptedException {
+		final SplittableRandom[] generators = new SplittableRandom[1];
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				generators[0] = source.current();
+			}
+		};
+		thread.start();
+		thread.join();
+		assertNotNull(generators[0]);
+		assertNotSame(generators[0], source.current());
+	}
+
+	@Test
+	public void reset_Replays() {
+		long first = source.current().nextLong();
+		long second = source.current().nextLong();
+		source.reset();
+		assertEquals(first, source.current().nextLong());
+		assertEquals(second, source.current().nextLong());
+	}
+}
@@ -0,0 +1,696 @@
+package project.simulation;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import project.dungeons.Dungeon;
+import project.dungeons.DungeonListener;
+import project.misc.RandomSource;
+import project.squares.Square;
+import project.squares.SquareListener;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of simulations moving agents through a root dungeon tick by tick.
+ * Each tick, every agent draws a move as a random walker does: through a non-isolating border to a neighbour
+ * that can be entered, or a jump from a teleportation square to one of its targets. An agent only makes its move
+ * if fewer agents than the maximum occupancy stand on the square it moves to; otherwise it is blocked and stays.
+ * After moving, every agent suffers the heat, cold and rust damage of the square it stands on, which is added to
+ * the damage it has accumulated.
+ * The state of the agents is stored in primitive arrays indexed by agent number, and the number of agents on each
+ * square in an occupancy array indexed by square number. A tick runs in two phases, as a simulation scheduler
+ * does: first, the agents are updated concurrently on a fork/join pool, one task per leaf dungeon, each task
+ * making the moves within its own leaf dungeon; then, the moves that lead to another leaf dungeon are made one
+ * after the other, in the order of the agents. Each agent draws its moves with its own generator, split off the
+ * random source of the simulation when the agent is added, so that a run only depends on the seed of that source
+ * and on the dungeon.
+ * The moves are registered again after a square has been added to or removed from the dungeon, or after a door
+ * has been opened or closed. An agent on a square that is removed from the dungeon leaves the simulation.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The maximum occupancy of this simulation is valid.
+ * 			| isValidMaxOccupancy(getMaxOccupancy())
+ * @Invar	No square holds more agents than the maximum occupancy, unless they were added before it was lowered.
+ * 			| ...
+ */
+public class AgentSimulation implements DungeonListener, SquareListener {
+
+	/**
+	 * Initialise a new agent simulation over the given root dungeon, drawing from the given random source and
+	 * running on the common fork/join pool.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon through which the agents move.
+	 * @param	randomSource
+	 * 				The source of the generators of the agents.
+	 * @effect	...
+	 * 			| this(dungeon, randomSource, ForkJoinPool.commonPool())
+	 */
+	public AgentSimulation(Dungeon<? extends Square> dungeon, RandomSource randomSource)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		this(dungeon, randomSource, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Initialise a new agent simulation over the given root dungeon, drawing from the given random source and
+	 * running on the given fork/join pool.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon through which the agents move.
+	 * @param	randomSource
+	 * 				The source of the generators of the agents.
+	 * @param	pool
+	 * 				The pool on which the agents are updated.
+	 * @post	...
+	 * 			| (new.getDungeon() == dungeon) && (new.getRandomSource() == randomSource) && (new.getPool() == pool)
+	 * @post	...
+	 * 			| (new.getNbAgents() == 0) && (new.getMaxOccupancy() == 1) && (new.getNbTicks() == 0)
+	 * @post	...
+	 * 			| dungeon.hasAsDungeonListener(new)
+	 * @throws	NullPointerException
+	 * 				...
+	 * 				| (dungeon == null) || (randomSource == null) || (pool == null)
+	 * @throws	IllegalArgumentException
+	 * 				The given dungeon is part of another dungeon.
+	 * 				| dungeon.getParentDungeon() != null
+	 * @throws	IllegalStateException
+	 * 				The given dungeon is terminated.
+	 * 				| dungeon.isTerminated()
+	 */
+	public AgentSimulation(Dungeon<? extends Square> dungeon, RandomSource randomSource, ForkJoinPool pool)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if ((randomSource == null) || (pool == null))
+			throw new NullPointerException();
+		if (dungeon.getParentDungeon() != null)
+			throw new IllegalArgumentException();
+		if (dungeon.isTerminated())
+			throw new IllegalStateException();
+		this.dungeon = dungeon;
+		this.randomSource = randomSource;
+		this.pool = pool;
+		dungeon.addDungeonListener(this);
+	}
+
+	/**
+	 * Return the dungeon of this simulation.
+	 */
+	@Basic @Immutable
+	public Dungeon<? extends Square> getDungeon() {
+		return dungeon;
+	}
+
+	/**
+	 * A variable referencing the dungeon of this simulation.
+	 */
+	private final Dungeon<? extends Square> dungeon;
+
+	/**
+	 * Return the source of the generators of the agents of this simulation.
+	 */
+	@Basic @Immutable
+	public RandomSource getRandomSource() {
+		return randomSource;
+	}
+
+	/**
+	 * A variable referencing the source of the generators of the agents of this simulation.
+	 */
+	private final RandomSource randomSource;
+
+	/**
+	 * Return the pool on which the agents of this simulation are updated.
+	 */
+	@Basic @Immutable
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * A variable referencing the pool on which the agents of this simulation are updated.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Return the maximum number of agents on a single square.
+	 */
+	@Basic
+	public int getMaxOccupancy() {
+		return maxOccupancy;
+	}
+
+	/**
+	 * Set the maximum number of agents on a single square to the given number.
+	 * Agents already on a square are not removed if there are more of them than the new maximum.
+	 *
+	 * @param	maxOccupancy
+	 * 				The new maximum number of agents on a single square.
+	 * @post	...
+	 * 			| new.getMaxOccupancy() == maxOccupancy
+	 * @throws	IllegalArgumentException
+	 * 				...
+	 * 				| !isValidMaxOccupancy(maxOccupancy)
+	 */
+	public void setMaxOccupancy(int maxOccupancy) throws IllegalArgumentException {
+		if (!isValidMaxOccupancy(maxOccupancy))
+			throw new IllegalArgumentException();
+		this.maxOccupancy = maxOccupancy;
+	}
+
+	/**
+	 * Check whether the given number is a valid maximum number of agents on a single square.
+	 *
+	 * @return	...
+	 * 			| result == (maxOccupancy >= 1)
+	 */
+	public static boolean isValidMaxOccupancy(int maxOccupancy) {
+		return maxOccupancy >= 1;
+	}
+
+	/**
+	 * A variable registering the maximum number of agents on a single square.
+	 */
+	private int maxOccupancy = 1;
+
+	/**
+	 * Add a new agent on the given square.
+	 *
+	 * @param	square
+	 * 				The square to put the new agent on.
+	 * @return	The number of the new agent, which is the number of agents before it was added.
+	 * 			| result == getNbAgents()
+	 * @post	...
+	 * 			| (new.getNbAgents() == getNbAgents() + 1) && (new.getPositionOf(result) == square)
+	 * @post	...
+	 * 			| (new.getHeatDamageOf(result) == 0) && (new.getColdDamageOf(result) == 0) &&
+	 * 			|	(new.getRustDamageOf(result) == 0)
+	 * @throws	IllegalArgumentException
+	 * 				The given square is not part of the dungeon of this simulation, can not be entered, or already
+	 * 				holds the maximum number of agents.
+	 * 				| ...
+	 * @throws	IllegalStateException
+	 * 				The dungeon of this simulation is terminated.
+	 * 				| getDungeon().isTerminated()
+	 */
+	public int addAgent(Square square) throws IllegalArgumentException, IllegalStateException {
+		NavigationGraph graph = getGraph();
+		int id = graph.getIdOf(square);
+		if ((id == -1) || !graph.canEnter(id) || (occupancies[id] >= getMaxOccupancy()))
+			throw new IllegalArgumentException();
+		int agent = nbAgents;
+		if (agent == positions.length) {
+			int capacity = Math.max(16, 2 * agent);
+			positions = Arrays.copyOf(positions, capacity);
+			generators = Arrays.copyOf(generators, capacity);
+			heatDamages = Arrays.copyOf(heatDamages, capacity);
+			coldDamages = Arrays.copyOf(coldDamages, capacity);
+			rustDamages = Arrays.copyOf(rustDamages, capacity);
+		}
+		positions[agent] = id;
+		generators[agent] = getRandomSource().split();
+		occupancies[id]++;
+		nbAgents++;
+		return agent;
+	}
+
+	/**
+	 * Return the number of agents of this simulation, including the agents that have left it.
+	 */
+	@Basic
+	public int getNbAgents() {
+		return nbAgents;
+	}
+
+	/**
+	 * Return the square the given agent stands on.
+	 *
+	 * @return	null if the agent has left the simulation, as its square has been removed from the dungeon.
+	 * 			| ...
+	 * @throws	IndexOutOfBoundsException
+	 * 				...
+	 * 				| (agent < 0) || (agent >= getNbAgents())
+	 */
+	public Square getPositionOf(int agent) throws IndexOutOfBoundsException {
+		checkAgent(agent);
+		NavigationGraph graph = getGraph();
+		return (positions[agent] == -1) ? null : graph.getSquare(positions[agent]);
+	}
+
+	/**
+	 * Return the heat damage the given agent has accumulated.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 				...
+	 * 				| (agent < 0) || (agent >= getNbAgents())
+	 */
+	public long getHeatDamageOf(int agent) throws IndexOutOfBoundsException {
+		checkAgent(agent);
+		return heatDamages[agent];
+	}
+
+	/**
+	 * Return the cold damage the given agent has accumulated.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 				...
+	 * 				| (agent < 0) || (agent >= getNbAgents())
+	 */
+	public long getColdDamageOf(int agent) throws IndexOutOfBoundsException {
+		checkAgent(agent);
+		return coldDamages[agent];
+	}
+
+	/**
+	 * Return the rust damage the given agent has accumulated.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 				...
+	 * 				| (agent < 0) || (agent >= getNbAgents())
+	 */
+	public long getRustDamageOf(int agent) throws IndexOutOfBoundsException {
+		checkAgent(agent);
+		return rustDamages[agent];
+	}
+
+	/**
+	 * Check whether the given number is the number of an agent of this simulation.
+	 */
+	private void checkAgent(int agent) throws IndexOutOfBoundsException {
+		if ((agent < 0) || (agent >= nbAgents))
+			throw new IndexOutOfBoundsException();
+	}
+
+	/**
+	 * Return the number of agents standing on the given square.
+	 */
+	public int getNbOccupants(Square square) {
+		NavigationGraph graph = getGraph();
+		int id = graph.getIdOf(square);
+		return (id == -1) ? 0 : occupancies[id];
+	}
+
+	/**
+	 * A variable registering the number of agents of this simulation.
+	 */
+	private int nbAgents;
+
+	/**
+	 * A variable registering the square of each agent, by number, -1 for agents that have left the simulation.
+	 */
+	private int[] positions = new int[0];
+
+	/**
+	 * A variable referencing the generator of each agent.
+	 */
+	private SplittableRandom[] generators = new SplittableRandom[0];
+
+	/**
+	 * A variable registering the heat damage each agent has accumulated.
+	 */
+	private long[] heatDamages = new long[0];
+
+	/**
+	 * A variable registering the cold damage each agent has accumulated.
+	 */
+	private long[] coldDamages = new long[0];
+
+	/**
+	 * A variable registering the rust damage each agent has accumulated.
+	 */
+	private long[] rustDamages = new long[0];
+
+	/**
+	 * A variable registering the number of agents on each square, by number.
+	 */
+	private int[] occupancies;
+
+	/**
+	 * Move every agent of this simulation and let it suffer the damage of its new square.
+	 *
+	 * @post	...
+	 * 			| new.getNbTicks() == getNbTicks() + 1
+	 * @post	The number of moves and the number of blocked moves of this tick are registered.
+	 * 			| ...
+	 * @throws	IllegalStateException
+	 * 				The dungeon of this simulation is terminated.
+	 * 				| getDungeon().isTerminated()
+	 */
+	public void tick() throws IllegalStateException {
+		if (getDungeon().isTerminated())
+			throw new IllegalStateException();
+		long start = System.nanoTime();
+		NavigationGraph graph = getGraph();
+		int nbUnits = graph.getNbUnits();
+
+		// Sort the agents by unit, keeping the order of their numbers within each unit.
+		int[] unitAgentStarts = new int[nbUnits + 1];
+		for (int agent = 0; agent < nbAgents; agent++) {
+			if (positions[agent] != -1)
+				unitAgentStarts[graph.getUnitOf(positions[agent]) + 1]++;
+		}
+		for (int unit = 0; unit < nbUnits; unit++)
+			unitAgentStarts[unit + 1] += unitAgentStarts[unit];
+		int[] unitAgents = new int[unitAgentStarts[nbUnits]];
+		int[] next = Arrays.copyOf(unitAgentStarts, nbUnits);
+		for (int agent = 0; agent < nbAgents; agent++) {
+			if (positions[agent] != -1)
+				unitAgents[next[graph.getUnitOf(positions[agent])]++] = agent;
+		}
+
+		int[] crossings = new int[nbAgents];
+		Arrays.fill(crossings, -1);
+		int[] unitMoves = new int[nbUnits];
+		int[] unitBlocked = new int[nbUnits];
+		if (nbUnits > 0)
+			getPool().invoke(new UnitPhase(this, graph, unitAgentStarts, unitAgents, crossings, unitMoves, unitBlocked,
+					0, nbUnits));
+		int nbMoves = 0, nbBlocked = 0;
+		for (int unit = 0; unit < nbUnits; unit++) {
+			nbMoves += unitMoves[unit];
+			nbBlocked += unitBlocked[unit];
+		}
+		for (int agent = 0; agent < nbAgents; agent++) {
+			int target = crossings[agent];
+			if (target == -1)
+				continue;
+			if (occupancies[target] < getMaxOccupancy()) {
+				occupancies[positions[agent]]--;
+				occupancies[target]++;
+				positions[agent] = target;
+				nbMoves++;
+			}
+			else
+				nbBlocked++;
+			suffer(graph, agent);
+		}
+		this.lastNbMoves = nbMoves;
+		this.lastNbBlocked = nbBlocked;
+		this.lastTickLatency = System.nanoTime() - start;
+		nbTicks++;
+	}
+
+	/**
+	 * Move the agents of the given unit, deferring the moves that lead to another unit to the given crossings, and
+	 * register the number of moves and of blocked moves within the unit.
+	 */
+	private void moveWithin(NavigationGraph graph, int unit, int[] unitAgentStarts, int[] unitAgents, int[] crossings,
+			int[] unitMoves, int[] unitBlocked) {
+		int nbMoves = 0, nbBlocked = 0;
+		int maxOccupancy = getMaxOccupancy();
+		for (int index = unitAgentStarts[unit]; index < unitAgentStarts[unit + 1]; index++) {
+			int agent = unitAgents[index];
+			int square = positions[agent];
+			int target = graph.step(square, generators[agent]);
+			if (target != square) {
+				if (graph.getUnitOf(target) != unit) {
+					crossings[agent] = target;
+					continue;
+				}
+				if (occupancies[target] < maxOccupancy) {
+					occupancies[square]--;
+					occupancies[target]++;
+					positions[agent] = target;
+					nbMoves++;
+				}
+				else
+					nbBlocked++;
+			}
+			suffer(graph, agent);
+		}
+		unitMoves[unit] = nbMoves;
+		unitBlocked[unit] = nbBlocked;
+	}
+
+	/**
+	 * Add the damage of the square of the given agent to the damage the agent has accumulated.
+	 * The damage of a square is looked up once per tick.
+	 */
+	private void suffer(NavigationGraph graph, int agent) {
+		int square = positions[agent];
+		if (damageTicks[square] != nbTicks + 1) {
+			Square current = graph.getSquare(square);
+			squareHeatDamages[square] = current.getHeatDamage();
+			squareColdDamages[square] = current.getColdDamage();
+			squareRustDamages[square] = current.getRustDamage();
+			damageTicks[square] = nbTicks + 1;
+		}
+		heatDamages[agent] += squareHeatDamages[square];
+		coldDamages[agent] += squareColdDamages[square];
+		rustDamages[agent] += squareRustDamages[square];
+	}
+
+	/**
+	 * A variable registering the heat damage of each square, by number, as looked up during the tick registered
+	 * for that square.
+	 */
+	private int[] squareHeatDamages;
+
+	/**
+	 * A variable registering the cold damage of each square, by number, as looked up during the tick registered
+	 * for that square.
+	 */
+	private int[] squareColdDamages;
+
+	/**
+	 * A variable registering the rust damage of each square, by number, as looked up during the tick registered
+	 * for that square.
+	 */
+	private int[] squareRustDamages;
+
+	/**
+	 * A variable registering, for each square, one more than the number of the tick during which its damage was
+	 * last looked up, 0 if it was never looked up.
+	 */
+	private long[] damageTicks;
+
+	/**
+	 * A class of tasks updating the agents within a range of units.
+	 * Each task over a single unit only changes the squares, occupancies and agents of its own unit.
+	 */
+	private static final class UnitPhase extends RecursiveAction {
+
+		/**
+		 * Initialise a new task over the units in the given range.
+		 */
+		UnitPhase(AgentSimulation simulation, NavigationGraph graph, int[] unitAgentStarts, int[] unitAgents,
+				int[] crossings, int[] unitMoves, int[] unitBlocked, int fromUnit, int toUnit) {
+			this.simulation = simulation;
+			this.graph = graph;
+			this.unitAgentStarts = unitAgentStarts;
+			this.unitAgents = unitAgents;
+			this.crossings = crossings;
+			this.unitMoves = unitMoves;
+			this.unitBlocked = unitBlocked;
+			this.fromUnit = fromUnit;
+			this.toUnit = toUnit;
+		}
+
+		@Override
+		protected void compute() {
+			if (toUnit - fromUnit > 1) {
+				int middle = (fromUnit + toUnit) >>> 1;
+				invokeAll(new UnitPhase(simulation, graph, unitAgentStarts, unitAgents, crossings, unitMoves,
+								unitBlocked, fromUnit, middle),
+						new UnitPhase(simulation, graph, unitAgentStarts, unitAgents, crossings, unitMoves,
+								unitBlocked, middle, toUnit));
+			}
+			else
+				simulation.moveWithin(graph, fromUnit, unitAgentStarts, unitAgents, crossings, unitMoves, unitBlocked);
+		}
+
+		/**
+		 * The simulation of which the agents are updated.
+		 */
+		private final AgentSimulation simulation;
+
+		/**
+		 * The graph of the moves of the agents.
+		 */
+		private final NavigationGraph graph;
+
+		/**
+		 * The index of the first agent of each unit in the agents sorted by unit, followed by the number of agents.
+		 */
+		private final int[] unitAgentStarts;
+
+		/**
+		 * The agents sorted by unit.
+		 */
+		private final int[] unitAgents;
+
+		/**
+		 * The square each agent moves to in another unit, -1 for agents that stay within their unit.
+		 */
+		private final int[] crossings;
+
+		/**
+		 * The number of moves and of blocked moves within each unit.
+		 */
+		private final int[] unitMoves, unitBlocked;
+
+		/**
+		 * The range of units of this task.
+		 */
+		private final int fromUnit, toUnit;
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Return the number of ticks this simulation has completed.
+	 */
+	@Basic
+	public long getNbTicks() {
+		return nbTicks;
+	}
+
+	/**
+	 * A variable registering the number of ticks this simulation has completed.
+	 */
+	private long nbTicks;
+
+	/**
+	 * Return the number of agents that moved during the last tick.
+	 */
+	@Basic
+	public int getLastNbMoves() {
+		return lastNbMoves;
+	}
+
+	/**
+	 * A variable registering the number of agents that moved during the last tick.
+	 */
+	private int lastNbMoves;
+
+	/**
+	 * Return the number of agents that were blocked by other agents during the last tick.
+	 */
+	@Basic
+	public int getLastNbBlocked() {
+		return lastNbBlocked;
+	}
+
+	/**
+	 * A variable registering the number of agents that were blocked by other agents during the last tick.
+	 */
+	private int lastNbBlocked;
+
+	/**
+	 * Return the time between the start and the end of the last tick, in nanoseconds.
+	 */
+	@Basic
+	public long getLastTickLatency() {
+		return lastTickLatency;
+	}
+
+	/**
+	 * A variable registering the time between the start and the end of the last tick, in nanoseconds.
+	 */
+	private long lastTickLatency;
+
+	/**
+	 * Do nothing, as changes to the temperature or humidity of a square do not change the moves.
+	 */
+	@Override
+	public void squareChanged(Square square) {
+	}
+
+	/**
+	 * Discard the registered moves, as a border of the given square has been replaced, opened or closed.
+	 */
+	@Override
+	public void bordersChanged(Square square) {
+		invalidate();
+	}
+
+	/**
+	 * Discard the registered moves, as a square has been added to the dungeon.
+	 */
+	@Override
+	public void squareAdded(Square square) {
+		invalidate();
+	}
+
+	/**
+	 * Discard the registered moves, as a square has been removed from the dungeon.
+	 */
+	@Override
+	public void squareRemoved(Square square) {
+		invalidate();
+	}
+
+	/**
+	 * Discard the registered moves of the dungeon, so that they are registered again when next needed.
+	 */
+	public void invalidate() {
+		isOutdated = true;
+	}
+
+	/**
+	 * Stop this simulation from listening to its dungeon and its squares.
+	 *
+	 * @post	...
+	 * 			| !getDungeon().hasAsDungeonListener(this)
+	 */
+	public void detach() {
+		if (graph != null) {
+			for (Square square : graph.getDoorSquares())
+				square.removeSquareListener(this);
+		}
+		isOutdated = true;
+		getDungeon().removeDungeonListener(this);
+	}
+
+	/**
+	 * Return the registered moves of the dungeon, registering them again if they are outdated.
+	 * The agents and occupancies are carried over to the new numbers of their squares.
+	 *
+	 * @throws	IllegalStateException
+	 * 				The dungeon of this simulation is terminated.
+	 * 				| getDungeon().isTerminated()
+	 */
+	NavigationGraph getGraph() throws IllegalStateException {
+		NavigationGraph result = graph;
+		if ((result == null) || isOutdated) {
+			result = new NavigationGraph(getDungeon());
+			int nbSquares = result.getNbSquares();
+			int[] occupancies = new int[nbSquares];
+			for (int agent = 0; agent < nbAgents; agent++) {
+				if (positions[agent] == -1)
+					continue;
+				int id = result.getIdOf(graph.getSquare(positions[agent]));
+				positions[agent] = id;
+				if (id != -1)
+					occupancies[id]++;
+			}
+			if (graph != null) {
+				for (Square square : graph.getDoorSquares())
+					square.removeSquareListener(this);
+			}
+			for (Square square : result.getDoorSquares())
+				square.addSquareListener(this);
+			this.occupancies = occupancies;
+			this.squareHeatDamages = new int[nbSquares];
+			this.squareColdDamages = new int[nbSquares];
+			this.squareRustDamages = new int[nbSquares];
+			this.damageTicks = new long[nbSquares];
+			this.graph = result;
+			this.isOutdated = false;
+		}
+		return result;
+	}
+
+	/**
+	 * A variable referencing the registered moves of the dungeon, null if they were never registered.
+	 */
+	private NavigationGraph graph;
+
+	/**
+	 * A variable registering whether the registered moves have to be registered again.
+	 */
+	private boolean isOutdated = true;
+}
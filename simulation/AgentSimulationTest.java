@@ -0,0 +1,158 @@
+package project.simulation;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import project.dungeons.CompositeDungeon;
+import project.dungeons.Level;
+import project.dungeons.Position;
+import project.misc.Direction;
+import project.misc.RandomSource;
+import project.squares.RockSquare;
+import project.squares.Square;
+import project.squares.SquareImpl;
+import project.squares.TeleportationSquareImpl;
+import project.temperature.Temperature;
+/**
+ * A test class for the agent simulation.
+ *
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class AgentSimulationTest {
+	private CompositeDungeon<Square> compositeDungeon;
+	private Level<Square> lowerLevel, upperLevel;
+	private Square lowerSquare, upperSquare;
+	private AgentSimulation simulation;
+
+	@Before
+	public void setUpMutableTextFixture() {
+		compositeDungeon = new CompositeDungeon<Square>();
+		compositeDungeon.setSubDungeonAt(lowerLevel = new Level<Square>(10, 10), new Position());
+		compositeDungeon.setSubDungeonAt(upperLevel = new Level<Square>(10, 10), new Position(0, 0, 1));
+		for (int x = 1; x <= 3; x++)
+			compositeDungeon.setSquareAt(new Position(x, 5, 0), new SquareImpl(Direction.FLOOR, Direction.CEILING,
+					Direction.NORTH, Direction.SOUTH));
+		compositeDungeon.setSquareAt(new Position(7, 7, 0), lowerSquare = new SquareImpl(Direction.FLOOR,
+				Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST));
+		compositeDungeon.setSquareAt(new Position(7, 7, 1), upperSquare = new SquareImpl(Direction.CEILING,
+				Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST));
+		simulation = new AgentSimulation(compositeDungeon, new RandomSource(23));
+	}
+
+	@Test
+	public void constructor_LegalCase() {
+		assertSame(compositeDungeon, simulation.getDungeon());
+		assertEquals(0, simulation.getNbAgents());
+		assertEquals(1, simulation.getMaxOccupancy());
+		assertTrue(compositeDungeon.hasAsDungeonListener(simulation));
+	}
+
+	@Test
+	public void addAgent_LegalCase() {
+		Square square = compositeDungeon.getSquareAt(new Position(2, 5, 0));
+		assertEquals(0, simulation.addAgent(square));
+		assertEquals(1, simulation.getNbAgents());
+		assertSame(square, simulation.getPositionOf(0));
+		assertEquals(1, simulation.getNbOccupants(square));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void addAgent_FullSquare() {
+		simulation.addAgent(lowerSquare);
+		simulation.addAgent(lowerSquare);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void addAgent_Rock() {
+		RockSquare rock = new RockSquare();
+		compositeDungeon.setSquareAt(new Position(9, 9, 0), rock);
+		simulation.addAgent(rock);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void addAgent_ForeignSquare() {
+		simulation.addAgent(new SquareImpl());
+	}
+
+	@Test
+	public void tick_Collisions() {
+		for (int x = 1; x <= 3; x++)
+			simulation.addAgent(compositeDungeon.getSquareAt(new Position(x, 5, 0)));
+		simulation.tick();
+		assertEquals(0, simulation.getLastNbMoves());
+		assertEquals(3, simulation.getLastNbBlocked());
+		for (int x = 1; x <= 3; x++)
+			assertSame(compositeDungeon.getSquareAt(new Position(x, 5, 0)), simulation.getPositionOf(x - 1));
+		assertEquals(1, simulation.getNbTicks());
+	}
+
+	@Test
+	public void tick_CrossesUnits() {
+		simulation.addAgent(lowerSquare);
+		simulation.tick();
+		assertSame(upperSquare, simulation.getPositionOf(0));
+		assertEquals(1, simulation.getLastNbMoves());
+		assertEquals(0, simulation.getNbOccupants(lowerSquare));
+		simulation.tick();
+		assertSame(lowerSquare, simulation.getPositionOf(0));
+	}
+
+	@Test
+	public void tick_Teleports() {
+		List<Square> targets = new ArrayList<Square>();
+		targets.add(compositeDungeon.getSquareAt(new Position(1, 5, 0)));
+		Square teleporter = new TeleportationSquareImpl(targets, Direction.values());
+		compositeDungeon.setSquareAt(new Position(5, 2, 1), teleporter);
+		simulation.addAgent(teleporter);
+		simulation.tick();
+		assertSame(targets.get(0), simulation.getPositionOf(0));
+	}
+
+	@Test
+	public void tick_AccumulatesDamage() {
+		Square hotSquare = new SquareImpl(new Temperature(120), new BigDecimal(80), false, Direction.values());
+		compositeDungeon.setSquareAt(new Position(5, 2, 0), hotSquare);
+		simulation.addAgent(hotSquare);
+		for (int i = 0; i < 3; i++)
+			simulation.tick();
+		assertEquals(3L * hotSquare.getHeatDamage(), simulation.getHeatDamageOf(0));
+		assertEquals(3L * hotSquare.getRustDamage(), simulation.getRustDamageOf(0));
+		assertEquals(0, simulation.getColdDamageOf(0));
+		assertTrue(simulation.getHeatDamageOf(0) > 0);
+	}
+
+	@Test
+	public void tick_ReplaysFromSeed() {
+		AgentSimulation other = new AgentSimulation(compositeDungeon, new RandomSource(23));
+		simulation.addAgent(compositeDungeon.getSquareAt(new Position(2, 5, 0)));
+		other.addAgent(compositeDungeon.getSquareAt(new Position(2, 5, 0)));
+		for (int i = 0; i < 20; i++) {
+			simulation.tick();
+			other.tick();
+			assertSame(simulation.getPositionOf(0), other.getPositionOf(0));
+		}
+	}
+
+	@Test
+	public void squareRemoved_AgentLeaves() {
+		simulation.addAgent(lowerSquare);
+		simulation.addAgent(compositeDungeon.getSquareAt(new Position(2, 5, 0)));
+		compositeDungeon.removeSquareAt(new Position(7, 7, 0));
+		assertNull(simulation.getPositionOf(0));
+		assertSame(compositeDungeon.getSquareAt(new Position(2, 5, 0)), simulation.getPositionOf(1));
+		simulation.tick();
+		assertNull(simulation.getPositionOf(0));
+	}
+
+	@Test
+	public void detach_LegalCase() {
+		simulation.detach();
+		assertFalse(compositeDungeon.hasAsDungeonListener(simulation));
+	}
+}
@@ -0,0 +1,443 @@
+package project.simulation;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import project.dungeons.Dungeon;
+import project.squares.Square;
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of schedulers that apply space updates to the dirty spaces of a root dungeon within a time budget
+ * per tick. A space becomes dirty when its temperature or humidity changes, or when it is marked dirty with a
+ * priority. Dirty spaces wait in a priority queue, highest priority first and, for equal priorities, in the order
+ * in which they became dirty. A tick takes spaces from the queue until the queue is empty or the budget is spent;
+ * the spaces that remain are carried over to the next tick. A tick always processes at least one dirty space, so
+ * that the backlog makes progress even if a single update takes longer than the budget; a tick that exceeds the
+ * budget is registered as an overrun.
+ * Changes made by the updates themselves do not mark spaces dirty; an update that affects other spaces marks
+ * them explicitly.
+ * The squares of a dungeon may be changed from several threads at once, such as by the write-back of a heat
+ * diffusion, so that the backlog of a scheduler is only accessed while synchronized on the scheduler.
+ * Dirty spaces are registered by their representative square, so that a space waits at most once however many
+ * of its squares change. A square of which the space is not known yet, because the spaces have to be registered
+ * again, waits by itself until the spaces are registered, at which point the entries of a space are merged.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The time budget of this scheduler is valid.
+ * 			| isValidTimeBudget(getTimeBudget())
+ */
+public class BudgetedScheduler extends SpaceSimulation {
+
+	/**
+	 * Initialise a new budgeted scheduler over the given root dungeon with the given time budget.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon of which the dirty spaces are to be updated.
+	 * @param	timeBudget
+	 * 				The time budget of a tick, in nanoseconds.
+	 * @effect	...
+	 * 			| super(dungeon)
+	 * @effect	...
+	 * 			| setTimeBudget(timeBudget)
+	 * @post	...
+	 * 			| (new.getBacklogSize() == 0) && (new.getNbOverruns() == 0)
+	 */
+	public BudgetedScheduler(Dungeon<? extends Square> dungeon, long timeBudget)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		super(dungeon);
+		if (!isValidTimeBudget(timeBudget)) {
+			detach();
+			throw new IllegalArgumentException();
+		}
+		this.timeBudget = timeBudget;
+		getGraph();
+	}
+
+	/**
+	 * Return the time budget of a tick of this scheduler, in nanoseconds.
+	 */
+	@Basic
+	public long getTimeBudget() {
+		return timeBudget;
+	}
+
+	/**
+	 * Set the time budget of a tick of this scheduler to the given number of nanoseconds.
+	 *
+	 * @param	timeBudget
+	 * 				The new time budget, in nanoseconds.
+	 * @post	...
+	 * 			| new.getTimeBudget() == timeBudget
+	 * @throws	IllegalArgumentException
+	 * 				...
+	 * 				| !isValidTimeBudget(timeBudget)
+	 */
+	public void setTimeBudget(long timeBudget) throws IllegalArgumentException {
+		if (!isValidTimeBudget(timeBudget))
+			throw new IllegalArgumentException();
+		this.timeBudget = timeBudget;
+	}
+
+	/**
+	 * Check whether the given number of nanoseconds is a valid time budget for a scheduler.
+	 *
+	 * @return	...
+	 * 			| result == (timeBudget > 0)
+	 */
+	public static boolean isValidTimeBudget(long timeBudget) {
+		return timeBudget > 0;
+	}
+
+	/**
+	 * A variable registering the time budget of a tick of this scheduler, in nanoseconds.
+	 */
+	private long timeBudget;
+
+	/**
+	 * Register the given update to be applied to each dirty space, after the updates registered before.
+	 *
+	 * @param	update
+	 * 				The update to register.
+	 * @post	...
+	 * 			| new.hasAsSpaceUpdate(update)
+	 * @throws	NullPointerException
+	 * 				The given update is not effective.
+	 * 				| update == null
+	 */
+	public void addSpaceUpdate(SpaceUpdate update) throws NullPointerException {
+		if (update == null)
+			throw new NullPointerException();
+		if (!updates.contains(update))
+			updates.add(update);
+	}
+
+	/**
+	 * Unregister the given update.
+	 *
+	 * @post	...
+	 * 			| !new.hasAsSpaceUpdate(update)
+	 */
+	public void removeSpaceUpdate(SpaceUpdate update) {
+		updates.remove(update);
+	}
+
+	/**
+	 * Check whether the given update is applied to each dirty space.
+	 */
+	public boolean hasAsSpaceUpdate(SpaceUpdate update) {
+		return updates.contains(update);
+	}
+
+	/**
+	 * Return the number of updates applied to each dirty space.
+	 */
+	public int getNbSpaceUpdates() {
+		return updates.size();
+	}
+
+	/**
+	 * A variable referencing the updates applied to each dirty space, in the order of their registration.
+	 */
+	private final List<SpaceUpdate> updates = new ArrayList<SpaceUpdate>();
+
+	/**
+	 * Mark the space of the given square dirty with the given priority.
+	 * If the space is already waiting with a lower priority, its priority is raised; its place among the spaces
+	 * with the same priority is kept.
+	 *
+	 * @param	square
+	 * 				The square of which the space is to be updated.
+	 * @param	priority
+	 * 				The priority of the update, higher priorities being processed first.
+	 * @post	...
+	 * 			| new.isDirty(square)
+	 * @throws	NullPointerException
+	 * 				The given square is not effective.
+	 * 				| square == null
+	 * @throws	IllegalArgumentException
+	 * 				The given priority is not a number.
+	 * 				| Double.isNaN(priority)
+	 */
+	public synchronized void markDirty(Square square, double priority) throws NullPointerException, IllegalArgumentException {
+		if (square == null)
+			throw new NullPointerException();
+		if (Double.isNaN(priority))
+			throw new IllegalArgumentException();
+		enqueue(getKey(square, getRegisteredGraph()), priority, nextSequence++);
+	}
+
+	/**
+	 * Register the given square as waiting with the given priority and sequence number, unless it is already
+	 * waiting with a priority that is at least as high. An entry that is replaced keeps the lowest of both
+	 * sequence numbers.
+	 */
+	private void enqueue(Square square, double priority, long sequence) {
+		DirtySpace entry = dirtySpaces.get(square);
+		if (entry != null) {
+			if ((entry.priority >= priority) && (entry.sequence <= sequence))
+				return;
+			entry.cancelled = true;
+			priority = Math.max(priority, entry.priority);
+			sequence = Math.min(sequence, entry.sequence);
+		}
+		entry = new DirtySpace(square, priority, sequence);
+		dirtySpaces.put(square, entry);
+		queue.add(entry);
+	}
+
+	/**
+	 * Return the square by which the space of the given square waits, according to the given registered spaces.
+	 *
+	 * @return	The given square itself if no spaces are given or the given square is not registered in them.
+	 * 			| ...
+	 */
+	private static Square getKey(Square square, SpaceGraph graph) {
+		if (graph == null)
+			return square;
+		int space = graph.getSpaceOf(square);
+		return (space == -1) ? square : graph.getRepresentative(space);
+	}
+
+	/**
+	 * Check whether the space of the given square is waiting to be updated.
+	 */
+	public synchronized boolean isDirty(Square square) {
+		return dirtySpaces.containsKey(getKey(square, getGraph()));
+	}
+
+	/**
+	 * Return the number of spaces waiting to be updated.
+	 */
+	public synchronized int getBacklogSize() {
+		getGraph();
+		return dirtySpaces.size();
+	}
+
+	/**
+	 * Return the number of spaces of the dungeon of this scheduler, while synchronized on this scheduler, as
+	 * registering the spaces again merges the entries of the backlog.
+	 */
+	@Override
+	public synchronized int getNbSpaces() {
+		return super.getNbSpaces();
+	}
+
+	/**
+	 * Register the waiting squares by the representatives of their spaces in the given newly registered spaces,
+	 * merging the entries of squares in the same space and dropping those of squares that are no longer part of
+	 * the dungeon.
+	 */
+	@Override
+	void spacesRegistered(SpaceGraph graph) {
+		List<DirtySpace> entries = new ArrayList<DirtySpace>(dirtySpaces.values());
+		for (DirtySpace entry : entries) {
+			if (graph.getSpaceOf(entry.square) == -1) {
+				entry.cancelled = true;
+				dirtySpaces.remove(entry.square);
+			}
+			else {
+				Square key = getKey(entry.square, graph);
+				if (key != entry.square) {
+					entry.cancelled = true;
+					dirtySpaces.remove(entry.square);
+					enqueue(key, entry.priority, entry.sequence);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Mark the space of the given square dirty with priority zero, unless the change was made by an update of
+	 * this scheduler.
+	 */
+	@Override
+	public synchronized void squareChanged(Square square) {
+		if (!isUpdating)
+			markDirty(square, 0);
+	}
+
+	/**
+	 * Mark the space of the given square dirty with priority zero, as it has been added to the dungeon, and
+	 * discard the registered spaces.
+	 */
+	@Override
+	public synchronized void squareAdded(Square square) {
+		markDirty(square, 0);
+		super.squareAdded(square);
+	}
+
+	/**
+	 * Stop waiting to update the space that waits by the given square, as that square has been removed from the
+	 * dungeon, and discard the registered spaces.
+	 */
+	@Override
+	public synchronized void squareRemoved(Square square) {
+		DirtySpace entry = dirtySpaces.remove(square);
+		if (entry != null)
+			entry.cancelled = true;
+		super.squareRemoved(square);
+	}
+
+	/**
+	 * Apply each registered update to the dirty spaces with the highest priorities, until no space is dirty or
+	 * the time budget is spent.
+	 *
+	 * @post	At least one dirty space is processed, if there is one.
+	 * 			| new.getLastNbProcessed() >= Math.min(1, getBacklogSize())
+	 * @post	If the tick took longer than the time budget, the number of overruns is incremented.
+	 * 			| ...
+	 */
+	@Override
+	public synchronized void tick() throws IllegalStateException {
+		if (getDungeon().isTerminated())
+			throw new IllegalStateException();
+		long start = System.nanoTime();
+		long deadline = start + getTimeBudget();
+		// Registering the spaces again merges the entries of squares that turned out to share a space.
+		getGraph();
+		SpaceUpdate[] updates = this.updates.toArray(new SpaceUpdate[this.updates.size()]);
+		int nbProcessed = 0;
+		while (!queue.isEmpty() && ((nbProcessed == 0) || (System.nanoTime() - deadline < 0))) {
+			DirtySpace entry = queue.poll();
+			if (entry.cancelled)
+				continue;
+			dirtySpaces.remove(entry.square);
+			isUpdating = true;
+			try {
+				for (SpaceUpdate update : updates)
+					update.updateSpace(entry.square, nbTicks);
+			}
+			finally {
+				isUpdating = false;
+			}
+			nbProcessed++;
+		}
+		long end = System.nanoTime();
+		this.lastTickLatency = end - start;
+		this.lastNbProcessed = nbProcessed;
+		if (end - deadline > 0)
+			nbOverruns++;
+		nbTicks++;
+	}
+
+	/**
+	 * A class of entries in the queue of dirty spaces.
+	 */
+	private static final class DirtySpace implements Comparable<DirtySpace> {
+
+		/**
+		 * Initialise a new entry for the given square with the given priority and sequence number.
+		 */
+		DirtySpace(Square square, double priority, long sequence) {
+			this.square = square;
+			this.priority = priority;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Compare this entry with the given entry, ordering higher priorities and then lower sequence numbers first.
+		 */
+		@Override
+		public int compareTo(DirtySpace other) {
+			int result = Double.compare(other.priority, this.priority);
+			return (result != 0) ? result : Long.compare(this.sequence, other.sequence);
+		}
+
+		/**
+		 * The square by which the dirty space waits.
+		 */
+		private final Square square;
+
+		/**
+		 * The priority of this entry.
+		 */
+		private final double priority;
+
+		/**
+		 * The number registering the order in which squares became dirty.
+		 */
+		private final long sequence;
+
+		/**
+		 * A flag registering whether this entry has been replaced or withdrawn.
+		 */
+		private boolean cancelled;
+	}
+
+	/**
+	 * A variable referencing the queue of dirty spaces, possibly including cancelled entries.
+	 */
+	private final PriorityQueue<DirtySpace> queue = new PriorityQueue<DirtySpace>();
+
+	/**
+	 * A variable referencing the current entry of each space waiting to be updated, by the square it waits by.
+	 */
+	private final Map<Square, DirtySpace> dirtySpaces = new IdentityHashMap<Square, DirtySpace>();
+
+	/**
+	 * A variable registering the sequence number of the next space to become dirty.
+	 */
+	private long nextSequence;
+
+	/**
+	 * A variable registering whether the updates of this scheduler are being applied.
+	 */
+	private boolean isUpdating;
+
+	/**
+	 * Return the number of ticks this scheduler has completed.
+	 */
+	@Basic
+	public long getNbTicks() {
+		return nbTicks;
+	}
+
+	/**
+	 * A variable registering the number of ticks this scheduler has completed.
+	 */
+	private long nbTicks;
+
+	/**
+	 * Return the number of ticks that took longer than the time budget.
+	 */
+	@Basic
+	public long getNbOverruns() {
+		return nbOverruns;
+	}
+
+	/**
+	 * A variable registering the number of ticks that took longer than the time budget.
+	 */
+	private long nbOverruns;
+
+	/**
+	 * Return the number of dirty spaces processed during the last tick.
+	 */
+	@Basic
+	public int getLastNbProcessed() {
+		return lastNbProcessed;
+	}
+
+	/**
+	 * A variable registering the number of dirty spaces processed during the last tick.
+	 */
+	private int lastNbProcessed;
+
+	/**
+	 * Return the time between the start and the end of the last tick, in nanoseconds.
+	 */
+	@Basic
+	public long getLastTickLatency() {
+		return lastTickLatency;
+	}
+
+	/**
+	 * A variable registering the time between the start and the end of the last tick, in nanoseconds.
+	 */
+	private long lastTickLatency;
+}
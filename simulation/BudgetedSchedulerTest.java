@@ -0,0 +1,141 @@
+package project.simulation;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import project.dungeons.Level;
+import project.dungeons.Position;
+import project.misc.Direction;
+import project.squares.Square;
+import project.squares.SquareImpl;
+import project.squares.borders.Wall;
+import project.temperature.Temperature;
+/**
+ * A test class for the budgeted scheduler.
+ *
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class BudgetedSchedulerTest {
+	private Level<Square> level;
+	private Square square1, square2, square3;
+	private BudgetedScheduler scheduler;
+	private List<Square> updatedSquares;
+
+	@Before
+	public void setUpMutableTextFixture() {
+		level = new Level<Square>(10, 10);
+		level.setSquareAt(new Position(1, 0, 0), square1 = new SquareImpl(new Temperature(10), BigDecimal.ZERO, false,
+				Direction.values()));
+		level.setSquareAt(new Position(3, 0, 0), square2 = new SquareImpl(new Temperature(10), BigDecimal.ZERO, false,
+				Direction.values()));
+		level.setSquareAt(new Position(5, 0, 0), square3 = new SquareImpl(new Temperature(10), BigDecimal.ZERO, false,
+				Direction.values()));
+		scheduler = new BudgetedScheduler(level, 1000000000L);
+		updatedSquares = new ArrayList<Square>();
+		scheduler.addSpaceUpdate(new SpaceUpdate() {
+			@Override
+			public void updateSpace(Square square, long tick) {
+				square.changeSpaceConditions(square.getTemperatureInCelcius() + 1, square.getHumidityInHundredths());
+				updatedSquares.add(square);
+			}
+		});
+	}
+
+	@Test
+	public void constructor_LegalCase() {
+		assertEquals(1000000000L, scheduler.getTimeBudget());
+		assertEquals(0, scheduler.getBacklogSize());
+		assertEquals(0, scheduler.getNbOverruns());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_IllegalBudget() {
+		new BudgetedScheduler(level, 0);
+	}
+
+	@Test
+	public void tick_OnlyDirtySpaces() {
+		square2.changeTemperature(new Temperature(20));
+		assertEquals(1, scheduler.getBacklogSize());
+		scheduler.tick();
+		assertEquals(1, scheduler.getLastNbProcessed());
+		assertEquals(21, square2.getTemperatureInCelcius(), 0);
+		assertEquals(10, square1.getTemperatureInCelcius(), 0);
+		assertEquals(0, scheduler.getBacklogSize());
+		scheduler.tick();
+		assertEquals(0, scheduler.getLastNbProcessed());
+	}
+
+	@Test
+	public void tick_OncePerSpace() {
+		Square doorSquare = new SquareImpl(new Temperature(10), BigDecimal.ZERO, false, Direction.FLOOR,
+				Direction.CEILING, Direction.NORTH, Direction.SOUTH);
+		new Wall(true, false).build(doorSquare, Direction.EAST);
+		level.setSquareAt(new Position(8, 0, 0), doorSquare);
+		Square joined = new SquareImpl(new Temperature(10), BigDecimal.ZERO, false, Direction.FLOOR,
+				Direction.CEILING, Direction.NORTH, Direction.SOUTH, Direction.WEST);
+		level.setSquareAt(new Position(7, 0, 0), joined);
+		scheduler.tick();
+		updatedSquares.clear();
+		joined.changeTemperature(new Temperature(30));
+		assertEquals(1, scheduler.getBacklogSize());
+		assertTrue(scheduler.isDirty(doorSquare));
+		assertTrue(scheduler.isDirty(joined));
+		scheduler.tick();
+		assertEquals(1, scheduler.getLastNbProcessed());
+		assertEquals(1, updatedSquares.size());
+		assertEquals(0, scheduler.getBacklogSize());
+	}
+
+	@Test
+	public void tick_PriorityOrder() {
+		scheduler.markDirty(square1, 1);
+		scheduler.markDirty(square2, 5);
+		scheduler.markDirty(square3, 1);
+		scheduler.markDirty(square3, 3);
+		scheduler.tick();
+		assertEquals(3, updatedSquares.size());
+		assertSame(square2, updatedSquares.get(0));
+		assertSame(square3, updatedSquares.get(1));
+		assertSame(square1, updatedSquares.get(2));
+	}
+
+	@Test
+	public void tick_CarriesOverBacklog() {
+		scheduler.setTimeBudget(1);
+		scheduler.addSpaceUpdate(new SpaceUpdate() {
+			@Override
+			public void updateSpace(Square square, long tick) {
+				long start = System.nanoTime();
+				while (System.nanoTime() - start < 1000000);
+			}
+		});
+		scheduler.markDirty(square1, 0);
+		scheduler.markDirty(square2, 0);
+		scheduler.markDirty(square3, 0);
+		scheduler.tick();
+		assertEquals(1, scheduler.getLastNbProcessed());
+		assertEquals(2, scheduler.getBacklogSize());
+		assertEquals(1, scheduler.getNbOverruns());
+		scheduler.tick();
+		scheduler.tick();
+		assertEquals(0, scheduler.getBacklogSize());
+		assertEquals(3, scheduler.getNbOverruns());
+		assertSame(square3, updatedSquares.get(2));
+	}
+
+	@Test
+	public void squareRemoved_LeavesBacklog() {
+		scheduler.markDirty(square1, 0);
+		level.removeSquareAt(new Position(1, 0, 0));
+		assertFalse(scheduler.isDirty(square1));
+		scheduler.tick();
+		assertTrue(updatedSquares.isEmpty());
+	}
+}
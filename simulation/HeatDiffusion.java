@@ -0,0 +1,394 @@
+package project.simulation;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import project.dungeons.Dungeon;
+import project.squares.Square;
+import project.squares.SquareImpl;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of time-stepped simulations of the conduction of heat between the spaces of a root dungeon.
+ * Within a space temperature is equalised instantly by merging; between two adjacent spaces heat flows through each
+ * isolating border that separates them, at a rate of the wall conductance per degree Celcius of difference.
+ * The heat capacity of a space is the heat capacity of a square times the number of squares in the space, so that
+ * large spaces warm up and cool down more slowly than small ones, while the total heat of the dungeon is conserved.
+ * Each tick the temperatures of the spaces are read into primitive arrays, the heat flows are integrated over the
+ * tick length in parallel over the leaf dungeons, and only the spaces of which the temperature changed are written
+ * back. The spaces within a single leaf dungeon are written back in parallel as well, as their squares are not
+ * shared with any other space; the spaces on a seam between leaf dungeons are written back afterwards, one after
+ * the other, as in a simulation scheduler. A tick that would make temperatures overshoot is divided into smaller
+ * steps.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The tick length of this simulation is valid.
+ * 			| isValidTickLength(getTickLength())
+ * @Invar	The wall conductance of this simulation is valid.
+ * 			| isValidWallConductance(getWallConductance())
+ */
+public class HeatDiffusion extends SpaceSimulation {
+
+	/**
+	 * Initialise a new heat diffusion over the given root dungeon, running on the common fork/join pool.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon over which heat is to be diffused.
+	 * @effect	...
+	 * 			| this(dungeon, ForkJoinPool.commonPool())
+	 */
+	public HeatDiffusion(Dungeon<? extends Square> dungeon)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		this(dungeon, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Initialise a new heat diffusion over the given root dungeon, running on the given fork/join pool.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon over which heat is to be diffused.
+	 * @param	pool
+	 * 				The pool on which the heat flows are computed.
+	 * @effect	...
+	 * 			| super(dungeon)
+	 * @post	...
+	 * 			| new.getPool() == pool
+	 * @post	...
+	 * 			| (new.getTickLength() == 1) && (new.getWallConductance() == 0.01)
+	 * @throws	NullPointerException
+	 * 				The given pool is not effective.
+	 * 				| pool == null
+	 */
+	public HeatDiffusion(Dungeon<? extends Square> dungeon, ForkJoinPool pool)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		super(dungeon);
+		if (pool == null) {
+			detach();
+			throw new NullPointerException();
+		}
+		this.pool = pool;
+	}
+
+	/**
+	 * Return the pool on which the heat flows are computed.
+	 */
+	@Basic @Immutable
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * A variable referencing the pool on which the heat flows are computed.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Return the length of a tick of this simulation, in seconds.
+	 */
+	@Basic
+	public double getTickLength() {
+		return tickLength;
+	}
+
+	/**
+	 * Set the length of a tick of this simulation to the given number of seconds.
+	 *
+	 * @param	tickLength
+	 * 				The new tick length, in seconds.
+	 * @post	...
+	 * 			| new.getTickLength() == tickLength
+	 * @throws	IllegalArgumentException
+	 * 				...
+	 * 				| !isValidTickLength(tickLength)
+	 */
+	public void setTickLength(double tickLength) throws IllegalArgumentException {
+		if (!isValidTickLength(tickLength))
+			throw new IllegalArgumentException();
+		this.tickLength = tickLength;
+	}
+
+	/**
+	 * Check whether the given tick length is a valid tick length for a simulation.
+	 *
+	 * @return	...
+	 * 			| result == (tickLength > 0) && (tickLength < Double.POSITIVE_INFINITY)
+	 */
+	public static boolean isValidTickLength(double tickLength) {
+		return (tickLength > 0) && (tickLength < Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * A variable registering the length of a tick of this simulation, in seconds.
+	 */
+	private double tickLength = 1;
+
+	/**
+	 * Return the heat that flows each second through a single isolating border, per degree Celcius of difference
+	 * between the spaces at both sides.
+	 */
+	@Basic
+	public double getWallConductance() {
+		return wallConductance;
+	}
+
+	/**
+	 * Set the wall conductance of this simulation to the given value.
+	 *
+	 * @param	wallConductance
+	 * 				The new wall conductance.
+	 * @post	...
+	 * 			| new.getWallConductance() == wallConductance
+	 * @throws	IllegalArgumentException
+	 * 				...
+	 * 				| !isValidWallConductance(wallConductance)
+	 */
+	public void setWallConductance(double wallConductance) throws IllegalArgumentException {
+		if (!isValidWallConductance(wallConductance))
+			throw new IllegalArgumentException();
+		this.wallConductance = wallConductance;
+	}
+
+	/**
+	 * Check whether the given value is a valid wall conductance for a simulation.
+	 *
+	 * @return	...
+	 * 			| result == (wallConductance >= 0) && (wallConductance < Double.POSITIVE_INFINITY)
+	 */
+	public static boolean isValidWallConductance(double wallConductance) {
+		return (wallConductance >= 0) && (wallConductance < Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * A variable registering the wall conductance of this simulation.
+	 */
+	private double wallConductance = 0.01;
+
+	/**
+	 * Advance this simulation by one tick: let heat flow between the spaces of the dungeon during the tick length,
+	 * and update the temperatures of the spaces accordingly.
+	 *
+	 * @post	The total heat of the dungeon, being the sum over all spaces of their temperature times their number
+	 * 			of squares, is unchanged, unless a temperature had to be limited to the boundaries of its space.
+	 * 			| ...
+	 * @throws	IllegalStateException
+	 * 				The dungeon of this simulation is terminated.
+	 * 				| getDungeon().isTerminated()
+	 */
+	@Override
+	public void tick() throws IllegalStateException {
+		if (getDungeon().isTerminated())
+			throw new IllegalStateException();
+		SpaceGraph graph = getGraph();
+		int nbSpaces = graph.getNbSpaces();
+		double[] temperatures = new double[nbSpaces];
+		for (int space = 0; space < nbSpaces; space++)
+			temperatures[space] = graph.getRepresentative(space).getTemperatureInCelcius();
+		double[] result = diffuse(graph, temperatures);
+		if (graph.getNbUnits() > 0)
+			getPool().invoke(new WriteBack(graph, temperatures, result, 0, graph.getNbUnits()));
+		for (int space = 0; space < nbSpaces; space++) {
+			if (graph.isOnSeam(space))
+				writeBack(graph, space, temperatures, result);
+		}
+	}
+
+	/**
+	 * Set the temperature of the given space to its temperature in the given result, if it differs from its
+	 * temperature in the given original temperatures.
+	 */
+	private static void writeBack(SpaceGraph graph, int space, double[] temperatures, double[] result) {
+		if (Double.compare(result[space], temperatures[space]) != 0) {
+			Square square = graph.getRepresentative(space);
+			square.changeSpaceConditions(result[space], square.getHumidityInHundredths());
+		}
+	}
+
+	/**
+	 * A class of tasks writing back the temperatures of the spaces of a range of units that do not lie on a seam.
+	 * A task over several units splits at the middle unit; a task over a single unit with many spaces splits
+	 * its range of spaces in halves.
+	 */
+	private static final class WriteBack extends RecursiveAction {
+
+		/**
+		 * Initialise a new task over the spaces of the units in the given range.
+		 */
+		WriteBack(SpaceGraph graph, double[] temperatures, double[] result, int fromUnit, int toUnit) {
+			this(graph, temperatures, result, fromUnit, toUnit, graph.getUnitStart(fromUnit),
+					graph.getUnitEnd(toUnit - 1));
+		}
+
+		/**
+		 * Initialise a new task over the given range of spaces of the units in the given range.
+		 */
+		private WriteBack(SpaceGraph graph, double[] temperatures, double[] result, int fromUnit, int toUnit,
+				int fromSpace, int toSpace)
+		{
+			this.graph = graph;
+			this.temperatures = temperatures;
+			this.result = result;
+			this.fromUnit = fromUnit;
+			this.toUnit = toUnit;
+			this.fromSpace = fromSpace;
+			this.toSpace = toSpace;
+		}
+
+		@Override
+		protected void compute() {
+			if (toUnit - fromUnit > 1) {
+				int middle = (fromUnit + toUnit) >>> 1;
+				invokeAll(new WriteBack(graph, temperatures, result, fromUnit, middle),
+						new WriteBack(graph, temperatures, result, middle, toUnit));
+			}
+			else if (toSpace - fromSpace > GRAIN) {
+				int middle = (fromSpace + toSpace) >>> 1;
+				invokeAll(new WriteBack(graph, temperatures, result, fromUnit, toUnit, fromSpace, middle),
+						new WriteBack(graph, temperatures, result, fromUnit, toUnit, middle, toSpace));
+			}
+			else {
+				for (int space = fromSpace; space < toSpace; space++) {
+					if (!graph.isOnSeam(space))
+						writeBack(graph, space, temperatures, result);
+				}
+			}
+		}
+
+		/**
+		 * The number of spaces below which a task is not split any further. Writing back a space costs far more
+		 * than computing its flows, so that the grain is smaller than that of a diffusion step.
+		 */
+		private static final int GRAIN = 256;
+
+		/**
+		 * The graph of the spaces of which the temperatures are written back.
+		 */
+		private final SpaceGraph graph;
+
+		/**
+		 * The temperatures of the spaces at the start of the tick, and the temperatures at its end.
+		 */
+		private final double[] temperatures, result;
+
+		/**
+		 * The range of units, and the range of spaces within those units, of this task.
+		 */
+		private final int fromUnit, toUnit, fromSpace, toSpace;
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Return the temperatures of the spaces of the given graph after heat has flowed between them during one tick,
+	 * starting from the given temperatures.
+	 */
+	double[] diffuse(SpaceGraph graph, double[] temperatures) {
+		// The explicit steps are stable as long as no space exchanges more than half of its difference per step.
+		double heatCapacity = SquareImpl.getHeatCapacity();
+		double maxRate = 0;
+		for (int space = 0; space < graph.getNbSpaces(); space++) {
+			int nbWalls = 0;
+			for (int edge = graph.getEdgeStart(space); edge < graph.getEdgeEnd(space); edge++)
+				nbWalls += graph.getNbWalls(edge);
+			maxRate = Math.max(maxRate, nbWalls * getWallConductance() / (heatCapacity * graph.getSize(space)));
+		}
+		int nbSteps = (int)Math.max(1, Math.ceil(2 * maxRate * getTickLength()));
+		double stepLength = getTickLength() / nbSteps;
+		double[] current = temperatures.clone();
+		double[] next = new double[current.length];
+		for (int step = 0; step < nbSteps; step++) {
+			getPool().invoke(new DiffusionStep(graph, current, next, 0, graph.getNbUnits(),
+					stepLength * getWallConductance() / heatCapacity));
+			double[] swap = current;
+			current = next;
+			next = swap;
+		}
+		return current;
+	}
+
+	/**
+	 * A class of tasks computing one step of the heat flows for the spaces of a range of units.
+	 * A task over several units splits at the middle unit; a task over a single unit with many spaces splits
+	 * its range of spaces in halves.
+	 */
+	private static final class DiffusionStep extends RecursiveAction {
+
+		/**
+		 * Initialise a new step over the spaces of the units in the given range.
+		 */
+		DiffusionStep(SpaceGraph graph, double[] current, double[] next, int fromUnit, int toUnit, double factor) {
+			this(graph, current, next, fromUnit, toUnit, graph.getUnitStart(fromUnit),
+					(toUnit > fromUnit) ? graph.getUnitEnd(toUnit - 1) : graph.getUnitStart(fromUnit), factor);
+		}
+
+		/**
+		 * Initialise a new step over the given range of spaces of the units in the given range.
+		 */
+		private DiffusionStep(SpaceGraph graph, double[] current, double[] next, int fromUnit, int toUnit,
+				int fromSpace, int toSpace, double factor)
+		{
+			this.graph = graph;
+			this.current = current;
+			this.next = next;
+			this.fromUnit = fromUnit;
+			this.toUnit = toUnit;
+			this.fromSpace = fromSpace;
+			this.toSpace = toSpace;
+			this.factor = factor;
+		}
+
+		@Override
+		protected void compute() {
+			if (toUnit - fromUnit > 1) {
+				int middle = (fromUnit + toUnit) >>> 1;
+				invokeAll(new DiffusionStep(graph, current, next, fromUnit, middle, factor),
+						new DiffusionStep(graph, current, next, middle, toUnit, factor));
+			}
+			else if (toSpace - fromSpace > GRAIN) {
+				int middle = (fromSpace + toSpace) >>> 1;
+				invokeAll(new DiffusionStep(graph, current, next, fromUnit, toUnit, fromSpace, middle, factor),
+						new DiffusionStep(graph, current, next, fromUnit, toUnit, middle, toSpace, factor));
+			}
+			else {
+				for (int space = fromSpace; space < toSpace; space++) {
+					double temperature = current[space];
+					double flow = 0;
+					for (int edge = graph.getEdgeStart(space); edge < graph.getEdgeEnd(space); edge++)
+						flow += graph.getNbWalls(edge) * (current[graph.getEdgeTarget(edge)] - temperature);
+					temperature += factor * flow / graph.getSize(space);
+					next[space] = Math.min(Math.max(temperature, graph.getMinTemperature(space)),
+							graph.getMaxTemperature(space));
+				}
+			}
+		}
+
+		/**
+		 * The number of spaces below which a task is not split any further.
+		 */
+		private static final int GRAIN = 4096;
+
+		/**
+		 * The graph of the spaces of which the temperatures are computed.
+		 */
+		private final SpaceGraph graph;
+
+		/**
+		 * The temperatures of the spaces at the start of the step, and the temperatures at its end.
+		 */
+		private final double[] current, next;
+
+		/**
+		 * The range of units, and the range of spaces within those units, of this task.
+		 */
+		private final int fromUnit, toUnit, fromSpace, toSpace;
+
+		/**
+		 * The step length times the wall conductance, divided by the heat capacity of a square.
+		 */
+		private final double factor;
+
+		private static final long serialVersionUID = 1L;
+	}
+}
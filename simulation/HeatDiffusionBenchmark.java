@@ -0,0 +1,87 @@
+package project.simulation;
+import java.math.BigDecimal;
+import java.util.concurrent.ForkJoinPool;
+
+import project.dungeons.CompositeDungeon;
+import project.dungeons.Level;
+import project.dungeons.Position;
+import project.misc.Direction;
+import project.squares.Square;
+import project.squares.SquareImpl;
+import project.temperature.Temperature;
+
+/**
+ * A benchmark measuring the number of ticks per second a heat diffusion sustains over a large dungeon.
+ * The dungeon is a stack of levels, each level filled with walled squares of varying temperatures, so that every
+ * square is a space of its own and every tick writes back every square. The levels are separated by an empty
+ * layer, so that no space lies on a seam and all spaces are written back in parallel.
+ * The default dungeon has 16 levels of 250 by 250 squares, that is, about a million squares, for which the
+ * target is 20 ticks per second; the benchmark reports the latency of a tick and the number of ticks per second
+ * reached on the given number of threads, so that the target can be checked on the machine at hand.
+ *
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class HeatDiffusionBenchmark {
+
+	/**
+	 * Run the benchmark.
+	 *
+	 * @param	args
+	 * 				The number of levels, the size of a level, the number of measured ticks and the number of
+	 * 				threads, each of them optional.
+	 */
+	public static void main(String[] args) {
+		int nbLevels = (args.length > 0) ? Integer.parseInt(args[0]) : 16;
+		int size = (args.length > 1) ? Integer.parseInt(args[1]) : 250;
+		int nbTicks = (args.length > 2) ? Integer.parseInt(args[2]) : 100;
+		int nbThreads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+		long start = System.nanoTime();
+		CompositeDungeon<Square> dungeon = getDungeon(nbLevels, size);
+		System.out.println("Built " + dungeon.getNbSquares() + " squares in " + toMillis(System.nanoTime() - start)
+				+ " ms");
+
+		ForkJoinPool pool = new ForkJoinPool(nbThreads);
+		HeatDiffusion diffusion = new HeatDiffusion(dungeon, pool);
+		diffusion.setWallConductance(0.05);
+		// Register the spaces and let the compiler warm up before measuring.
+		for (int tick = 0; tick < Math.max(10, nbTicks / 10); tick++)
+			diffusion.tick();
+
+		start = System.nanoTime();
+		for (int tick = 0; tick < nbTicks; tick++)
+			diffusion.tick();
+		long time = System.nanoTime() - start;
+		pool.shutdown();
+		System.out.println("Ran " + nbTicks + " ticks on " + nbThreads + " threads in " + toMillis(time) + " ms: "
+				+ toMillis(time / nbTicks) + " ms per tick, " + (nbTicks * 1e9 / time) + " ticks per second");
+	}
+
+	/**
+	 * Return a dungeon of the given number of levels of the given size, separated by empty layers.
+	 */
+	private static CompositeDungeon<Square> getDungeon(int nbLevels, int size) {
+		CompositeDungeon<Square> result = new CompositeDungeon<Square>(new Position(size, size, 2 * nbLevels));
+		for (int level = 0; level < nbLevels; level++) {
+			result.setSubDungeonAt(new Level<Square>(size - 1, size - 1), new Position(0, 0, 2 * level));
+			for (int x = 0; x < size; x++) {
+				for (int y = 0; y < size; y++) {
+					if ((x == y) && (y == 2 * level))
+						continue;
+					Temperature temperature = new Temperature((7 * x + 13 * y + level) % 50);
+					result.setSquareAt(new Position(x, y, 2 * level), new SquareImpl(temperature, BigDecimal.ZERO,
+							false, Direction.values()));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the given number of nanoseconds in milliseconds.
+	 */
+	private static double toMillis(long nanoseconds) {
+		return nanoseconds / 1e6;
+	}
+}
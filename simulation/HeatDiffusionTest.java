@@ -0,0 +1,182 @@
+package project.simulation;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import project.dungeons.CompositeDungeon;
+import project.dungeons.Level;
+import project.dungeons.Position;
+import project.misc.Direction;
+import project.squares.RockSquare;
+import project.squares.Square;
+import project.squares.SquareImpl;
+import project.temperature.Temperature;
+/**
+ * A test class for the heat diffusion simulation.
+ *
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class HeatDiffusionTest {
+	private Level<Square> level;
+	private Square cold, hot, wide1, wide2;
+	private HeatDiffusion diffusion;
+
+	@Before
+	public void setUpMutableTextFixture() {
+		SquareImpl.setHeatCapacity(0.2);
+		level = new Level<Square>(10, 10);
+		level.setSquareAt(new Position(1, 0, 0), cold = new SquareImpl(new Temperature(0), new BigDecimal(10), false,
+				Direction.values()));
+		level.setSquareAt(new Position(2, 0, 0), hot = new SquareImpl(new Temperature(100), new BigDecimal(10), false,
+				Direction.values()));
+		level.setSquareAt(new Position(3, 0, 0), wide1 = new SquareImpl(new Temperature(40), new BigDecimal(10), false,
+				Direction.FLOOR));
+		level.setSquareAt(new Position(4, 0, 0), wide2 = new SquareImpl(new Temperature(40), new BigDecimal(10), false,
+				Direction.FLOOR));
+		diffusion = new HeatDiffusion(level);
+	}
+
+	private double getTotalHeat() {
+		double result = 0;
+		for (Square square : level)
+			result += square.getTemperatureInCelcius();
+		return result;
+	}
+
+	@Test
+	public void constructor_LegalCase() {
+		assertSame(level, diffusion.getDungeon());
+		assertEquals(3, diffusion.getNbSpaces());
+		assertTrue(level.hasAsDungeonListener(diffusion));
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void constructor_NullPool() {
+		new HeatDiffusion(level, null);
+	}
+
+	@Test
+	public void tick_SingleWall() {
+		// One wall conducts 0.01 per second per degree into a square with heat capacity 0.2.
+		diffusion.tick();
+		assertEquals(5, cold.getTemperatureInCelcius(), 1e-9);
+		assertEquals(92, hot.getTemperatureInCelcius(), 1e-9);
+		assertEquals(41.5, wide1.getTemperatureInCelcius(), 1e-9);
+		assertTrue(wide1.isMerged());
+	}
+
+	@Test
+	public void tick_ConservesHeat() {
+		double totalHeat = getTotalHeat();
+		for (int i = 0; i < 50; i++)
+			diffusion.tick();
+		assertEquals(totalHeat, getTotalHeat(), 1e-9);
+	}
+
+	@Test
+	public void tick_Converges() {
+		diffusion.setTickLength(10);
+		for (int i = 0; i < 200; i++)
+			diffusion.tick();
+		assertEquals(45, cold.getTemperatureInCelcius(), 1e-6);
+		assertEquals(45, hot.getTemperatureInCelcius(), 1e-6);
+		assertEquals(45, wide2.getTemperatureInCelcius(), 1e-6);
+	}
+
+	@Test
+	public void tick_LongTickDoesNotOvershoot() {
+		diffusion.setTickLength(1000);
+		diffusion.tick();
+		assertTrue(cold.getTemperatureInCelcius() <= hot.getTemperatureInCelcius());
+		assertEquals(45, cold.getTemperatureInCelcius(), 1e-6);
+	}
+
+	@Test
+	public void tick_AfterSquareAdded() {
+		level.setSquareAt(new Position(1, 1, 0), new RockSquare());
+		level.setSquareAt(new Position(5, 0, 0), new SquareImpl(new Temperature(60), new BigDecimal(10), false,
+				Direction.values()));
+		assertEquals(4, diffusion.getNbSpaces());
+		diffusion.tick();
+		assertEquals(59, level.getSquareAt(new Position(5, 0, 0)).getTemperatureInCelcius(), 1e-9);
+	}
+
+	@Test
+	public void tick_AcrossSubDungeons() {
+		CompositeDungeon<Square> composite = new CompositeDungeon<Square>();
+		composite.setSubDungeonAt(new Level<Square>(10, 10), new Position());
+		composite.setSubDungeonAt(new Level<Square>(10, 10), new Position(0, 0, 1));
+		composite.setSquareAt(new Position(1, 0, 0), new SquareImpl(new Temperature(0), new BigDecimal(10), false,
+				Direction.values()));
+		composite.setSquareAt(new Position(1, 0, 1), new SquareImpl(new Temperature(100), new BigDecimal(10), false,
+				Direction.values()));
+		HeatDiffusion compositeDiffusion = new HeatDiffusion(composite);
+		assertEquals(2, compositeDiffusion.getNbSpaces());
+		compositeDiffusion.tick();
+		assertEquals(5, composite.getSquareAt(new Position(1, 0, 0)).getTemperatureInCelcius(), 1e-9);
+		assertEquals(95, composite.getSquareAt(new Position(1, 0, 1)).getTemperatureInCelcius(), 1e-9);
+	}
+
+	@Test
+	public void tick_ManySpacesWrittenBackInParallel() {
+		Level<Square> sequential = getWalledLevel(40), parallel = getWalledLevel(40);
+		ForkJoinPool sequentialPool = new ForkJoinPool(1), parallelPool = new ForkJoinPool(4);
+		HeatDiffusion sequentialDiffusion = new HeatDiffusion(sequential, sequentialPool);
+		HeatDiffusion parallelDiffusion = new HeatDiffusion(parallel, parallelPool);
+		for (int i = 0; i < 5; i++) {
+			sequentialDiffusion.tick();
+			parallelDiffusion.tick();
+		}
+		sequentialPool.shutdown();
+		parallelPool.shutdown();
+		double total = 0;
+		for (int x = 0; x < 40; x++) {
+			for (int y = 0; y < 40; y++) {
+				if ((x != 0) || (y != 0)) {
+					Position position = new Position(x, y, 0);
+					double temperature = parallel.getSquareAt(position).getTemperatureInCelcius();
+					assertEquals(sequential.getSquareAt(position).getTemperatureInCelcius(), temperature, 1e-9);
+					total += temperature;
+				}
+			}
+		}
+		assertEquals(total / parallel.getNbSquares(),
+				parallel.getAggregates().getMeanTemperature().getValueInCelcius(), 1e-9);
+	}
+
+	private static Level<Square> getWalledLevel(int size) {
+		Level<Square> result = new Level<Square>(size, size);
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if ((x != 0) || (y != 0))
+					result.setSquareAt(new Position(x, y, 0), new SquareImpl(new Temperature((7 * x + 13 * y) % 50),
+							BigDecimal.ZERO, false, Direction.values()));
+			}
+		}
+		return result;
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_NonRootDungeon() {
+		CompositeDungeon<Square> composite = new CompositeDungeon<Square>();
+		Level<Square> subLevel = new Level<Square>(10, 10);
+		composite.setSubDungeonAt(subLevel, new Position());
+		new HeatDiffusion(subLevel);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setTickLength_IllegalCase() {
+		diffusion.setTickLength(0);
+	}
+
+	@Test
+	public void detach_LegalCase() {
+		diffusion.detach();
+		assertFalse(level.hasAsDungeonListener(diffusion));
+	}
+}
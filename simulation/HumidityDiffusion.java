@@ -0,0 +1,341 @@
+package project.simulation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import project.dungeons.Dungeon;
+import project.squares.DamageBatch;
+import project.squares.Square;
+import project.squares.SquareImpl;
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class of incremental simulations of the transport of humidity between the spaces of a root dungeon.
+ * An open door joins the spaces at both sides into one space, which is merged instantly. Through each closed door
+ * between two spaces, humidity seeps at a rate of the door permeability per percent of difference, weighted by the
+ * number of squares of both spaces, so that the total moisture of the dungeon is conserved up to the rounding of
+ * humidities to hundredths of a percent. The fraction of a hundredth lost by that rounding is registered for each
+ * space and carried over to the next tick, so that small flows accumulate instead of being rounded away.
+ * Only the spaces of which the humidity changed since the previous tick, and the spaces of which the humidity
+ * still differs from that of a space behind one of their doors, are dirty, and a tick only evaluates the doors of
+ * dirty spaces: once the humidities around a door have settled, that door costs nothing until one of its spaces
+ * changes again. As side outputs, each tick registers the spaces that became or stopped being slippery by
+ * water or ice, and the spaces of which the rust damage changed.
+ * All spaces are dirty after the spaces of the dungeon have been registered.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The tick length of this simulation is valid.
+ * 			| HeatDiffusion.isValidTickLength(getTickLength())
+ * @Invar	The door permeability of this simulation is valid.
+ * 			| isValidDoorPermeability(getDoorPermeability())
+ */
+public class HumidityDiffusion extends SpaceSimulation {
+
+	/**
+	 * Initialise a new humidity diffusion over the given root dungeon.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon over which humidity is to be transported.
+	 * @effect	...
+	 * 			| super(dungeon)
+	 * @post	...
+	 * 			| (new.getTickLength() == 1) && (new.getDoorPermeability() == 0.05)
+	 */
+	public HumidityDiffusion(Dungeon<? extends Square> dungeon)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		super(dungeon);
+	}
+
+	/**
+	 * Return the length of a tick of this simulation, in seconds.
+	 */
+	@Basic
+	public double getTickLength() {
+		return tickLength;
+	}
+
+	/**
+	 * Set the length of a tick of this simulation to the given number of seconds.
+	 *
+	 * @param	tickLength
+	 * 				The new tick length, in seconds.
+	 * @post	...
+	 * 			| new.getTickLength() == tickLength
+	 * @throws	IllegalArgumentException
+	 * 				...
+	 * 				| !HeatDiffusion.isValidTickLength(tickLength)
+	 */
+	public void setTickLength(double tickLength) throws IllegalArgumentException {
+		if (!HeatDiffusion.isValidTickLength(tickLength))
+			throw new IllegalArgumentException();
+		this.tickLength = tickLength;
+	}
+
+	/**
+	 * A variable registering the length of a tick of this simulation, in seconds.
+	 */
+	private double tickLength = 1;
+
+	/**
+	 * Return the moisture that seeps each second through a single closed door, per percent of difference in
+	 * humidity between the spaces at both sides, expressed in percent of a single square.
+	 */
+	@Basic
+	public double getDoorPermeability() {
+		return doorPermeability;
+	}
+
+	/**
+	 * Set the door permeability of this simulation to the given value.
+	 *
+	 * @param	doorPermeability
+	 * 				The new door permeability.
+	 * @post	...
+	 * 			| new.getDoorPermeability() == doorPermeability
+	 * @throws	IllegalArgumentException
+	 * 				...
+	 * 				| !isValidDoorPermeability(doorPermeability)
+	 */
+	public void setDoorPermeability(double doorPermeability) throws IllegalArgumentException {
+		if (!isValidDoorPermeability(doorPermeability))
+			throw new IllegalArgumentException();
+		this.doorPermeability = doorPermeability;
+	}
+
+	/**
+	 * Check whether the given value is a valid door permeability for a simulation.
+	 *
+	 * @return	...
+	 * 			| result == (doorPermeability >= 0) && (doorPermeability < Double.POSITIVE_INFINITY)
+	 */
+	public static boolean isValidDoorPermeability(double doorPermeability) {
+		return (doorPermeability >= 0) && (doorPermeability < Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * A variable registering the door permeability of this simulation.
+	 */
+	private double doorPermeability = 0.05;
+
+	/**
+	 * Return the number of spaces of which the humidity changed since the previous tick, or has not yet settled.
+	 */
+	public synchronized int getNbDirtySpaces() {
+		getGraph();
+		return dirtySpaces.cardinality();
+	}
+
+	/**
+	 * Return the number of spaces of which the humidity was computed during the previous tick.
+	 */
+	@Basic
+	public int getNbProcessedSpaces() {
+		return nbProcessedSpaces;
+	}
+
+	/**
+	 * A variable registering the number of spaces of which the humidity was computed during the previous tick.
+	 */
+	private int nbProcessedSpaces;
+
+	/**
+	 * Return a square of each space that became slippery or stopped being slippery by water or ice during the
+	 * previous tick.
+	 */
+	@Basic
+	public List<Square> getSlipperinessChanges() {
+		return Collections.unmodifiableList(slipperinessChanges);
+	}
+
+	/**
+	 * Return a square of each space of which the rust damage changed during the previous tick.
+	 */
+	@Basic
+	public List<Square> getRustDamageChanges() {
+		return Collections.unmodifiableList(rustDamageChanges);
+	}
+
+	/**
+	 * Variables referencing the side outputs of the previous tick.
+	 */
+	private List<Square> slipperinessChanges = new ArrayList<Square>(), rustDamageChanges = new ArrayList<Square>();
+
+	/**
+	 * Advance this simulation by one tick: let humidity seep through the closed doors of the dirty spaces during
+	 * the tick length, and update the humidities of the spaces accordingly.
+	 *
+	 * @post	Only the spaces that were dirty, and the spaces separated from them by a closed door, are processed.
+	 * 			| new.getNbProcessedSpaces() <= ...
+	 * @post	The side outputs register the changes of slipperiness and rust damage during this tick.
+	 * 			| ...
+	 * @throws	IllegalStateException
+	 * 				The dungeon of this simulation is terminated.
+	 * 				| getDungeon().isTerminated()
+	 */
+	@Override
+	public void tick() throws IllegalStateException {
+		if (getDungeon().isTerminated())
+			throw new IllegalStateException();
+		SpaceGraph graph = getGraph();
+		slipperinessChanges = new ArrayList<Square>();
+		rustDamageChanges = new ArrayList<Square>();
+		BitSet dirty;
+		synchronized (this) {
+			dirty = dirtySpaces;
+			dirtySpaces = new BitSet(graph.getNbSpaces());
+		}
+
+		// Collect the doors of the dirty spaces, each pair of spaces once, and the spaces at both sides.
+		int nbEdges = 0;
+		int[] edgeSpaces = new int[16], edgeTargets = new int[16], edgeDoors = new int[16];
+		BitSet touched = new BitSet(graph.getNbSpaces());
+		for (int space = dirty.nextSetBit(0); space >= 0; space = dirty.nextSetBit(space + 1)) {
+			for (int edge = graph.getEdgeStart(space); edge < graph.getEdgeEnd(space); edge++) {
+				int target = graph.getEdgeTarget(edge);
+				if ((graph.getNbDoors(edge) == 0) || (dirty.get(target) && (target < space)))
+					continue;
+				if (nbEdges == edgeSpaces.length) {
+					edgeSpaces = Arrays.copyOf(edgeSpaces, 2 * nbEdges);
+					edgeTargets = Arrays.copyOf(edgeTargets, 2 * nbEdges);
+					edgeDoors = Arrays.copyOf(edgeDoors, 2 * nbEdges);
+				}
+				edgeSpaces[nbEdges] = space;
+				edgeTargets[nbEdges] = target;
+				edgeDoors[nbEdges] = graph.getNbDoors(edge);
+				nbEdges++;
+				touched.set(space);
+				touched.set(target);
+			}
+		}
+		nbProcessedSpaces = touched.cardinality();
+
+		// Integrate the flows through the collected doors in steps that never overshoot.
+		int nbSteps = (int)Math.max(1, Math.ceil(2 * maxRate * getDoorPermeability() * getTickLength()));
+		double factor = getDoorPermeability() * getTickLength() / nbSteps;
+		for (int space = touched.nextSetBit(0); space >= 0; space = touched.nextSetBit(space + 1))
+			current[space] = humidities[space] + residues[space];
+		for (int step = 0; step < nbSteps; step++) {
+			for (int space = touched.nextSetBit(0); space >= 0; space = touched.nextSetBit(space + 1))
+				changes[space] = 0;
+			for (int edge = 0; edge < nbEdges; edge++) {
+				int space = edgeSpaces[edge], target = edgeTargets[edge];
+				double flow = factor * edgeDoors[edge] * (current[target] - current[space]);
+				changes[space] += flow / graph.getSize(space);
+				changes[target] -= flow / graph.getSize(target);
+			}
+			for (int space = touched.nextSetBit(0); space >= 0; space = touched.nextSetBit(space + 1))
+				current[space] += changes[space];
+		}
+
+		// Keep the spaces at both sides of a door dirty as long as their humidities have not settled.
+		BitSet unsettled = new BitSet(graph.getNbSpaces());
+		for (int edge = 0; edge < nbEdges; edge++) {
+			int space = edgeSpaces[edge], target = edgeTargets[edge];
+			if (Math.abs(current[target] - current[space]) > SETTLED_DIFFERENCE) {
+				unsettled.set(space);
+				unsettled.set(target);
+			}
+		}
+		synchronized (this) {
+			dirtySpaces.or(unsettled);
+		}
+
+		// Write back the spaces of which the rounded humidity changed, registering the side outputs.
+		for (int space = touched.nextSetBit(0); space >= 0; space = touched.nextSetBit(space + 1)) {
+			double exact = Math.min(Math.max(current[space], 0), MAX_HUMIDITY);
+			long humidity = Math.round(exact);
+			long oldHumidity = humidities[space];
+			residues[space] = exact - humidity;
+			if (humidity == oldHumidity)
+				continue;
+			humidities[space] = humidity;
+			Square square = graph.getRepresentative(space);
+			double temperature = square.getTemperatureInCelcius();
+			if (SquareImpl.isSlippery(temperature, humidity) != SquareImpl.isSlippery(temperature, oldHumidity))
+				slipperinessChanges.add(square);
+			if (DamageBatch.getRustDamage(humidity) != DamageBatch.getRustDamage(oldHumidity))
+				rustDamageChanges.add(square);
+			square.changeSpaceConditions(temperature, humidity);
+		}
+	}
+
+	/**
+	 * The highest humidity, in hundredths of a percent.
+	 */
+	private static final long MAX_HUMIDITY = 10000;
+
+	/**
+	 * The difference in humidity across a door, in hundredths of a percent, below which the spaces at both sides
+	 * are considered settled.
+	 */
+	private static final double SETTLED_DIFFERENCE = 0.01;
+
+	/**
+	 * Register the humidity of the space of the given square, and mark that space dirty if its humidity changed.
+	 * The fraction carried over for that space is discarded, as its humidity has been set from outside.
+	 */
+	@Override
+	public synchronized void squareChanged(Square square) {
+		SpaceGraph graph = getRegisteredGraph();
+		if (graph == null)
+			return;
+		int space = graph.getSpaceOf(square);
+		if ((space != -1) && (square.getHumidityInHundredths() != humidities[space])) {
+			humidities[space] = square.getHumidityInHundredths();
+			residues[space] = 0;
+			dirtySpaces.set(space);
+		}
+	}
+
+	/**
+	 * Register the humidities of the given newly registered spaces, and mark all spaces dirty.
+	 */
+	@Override
+	void spacesRegistered(SpaceGraph graph) {
+		int nbSpaces = graph.getNbSpaces();
+		humidities = new long[nbSpaces];
+		residues = new double[nbSpaces];
+		current = new double[nbSpaces];
+		changes = new double[nbSpaces];
+		maxRate = 0;
+		for (int space = 0; space < nbSpaces; space++) {
+			humidities[space] = graph.getRepresentative(space).getHumidityInHundredths();
+			int nbDoors = 0;
+			for (int edge = graph.getEdgeStart(space); edge < graph.getEdgeEnd(space); edge++)
+				nbDoors += graph.getNbDoors(edge);
+			maxRate = Math.max(maxRate, (double)nbDoors / graph.getSize(space));
+		}
+		dirtySpaces = new BitSet(nbSpaces);
+		dirtySpaces.set(0, nbSpaces);
+	}
+
+	/**
+	 * A variable registering the last known humidity of each space, in hundredths of a percent.
+	 */
+	private long[] humidities;
+
+	/**
+	 * A variable registering the fraction of a hundredth of a percent by which the humidity of each space differs
+	 * from its last known humidity, carried over from the previous tick.
+	 */
+	private double[] residues;
+
+	/**
+	 * Variables referencing the humidities of the spaces during a tick and their changes during a step.
+	 */
+	private double[] current, changes;
+
+	/**
+	 * A variable registering the highest number of doors per square of a space.
+	 */
+	private double maxRate;
+
+	/**
+	 * A variable registering the spaces of which the humidity changed since the previous tick.
+	 */
+	private BitSet dirtySpaces;
+}
@@ -0,0 +1,121 @@
+package project.simulation;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import project.dungeons.Level;
+import project.dungeons.Position;
+import project.misc.Direction;
+import project.squares.Square;
+import project.squares.SquareImpl;
+import project.squares.borders.Wall;
+import project.temperature.Temperature;
+/**
+ * A test class for the humidity diffusion simulation.
+ *
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class HumidityDiffusionTest {
+	private Level<Square> level;
+	private Square wet, dry, isolated;
+	private Wall door;
+	private HumidityDiffusion diffusion;
+
+	@Before
+	public void setUpMutableTextFixture() {
+		level = new Level<Square>(10, 10);
+		wet = new SquareImpl(new Temperature(-5), new BigDecimal(80), false, Direction.FLOOR, Direction.CEILING,
+				Direction.NORTH, Direction.SOUTH, Direction.WEST);
+		dry = new SquareImpl(new Temperature(-5), new BigDecimal(5), false, Direction.values());
+		new Wall(true, false).build(dry, Direction.WEST);
+		level.setSquareAt(new Position(1, 0, 0), wet);
+		level.setSquareAt(new Position(2, 0, 0), dry);
+		level.setSquareAt(new Position(5, 0, 0), isolated = new SquareImpl(new Temperature(20), new BigDecimal(50),
+				false, Direction.values()));
+		door = (Wall)wet.getBorderAt(Direction.EAST);
+		diffusion = new HumidityDiffusion(level);
+	}
+
+	@Test
+	public void constructor_LegalCase() {
+		assertSame(level, diffusion.getDungeon());
+		assertEquals(3, diffusion.getNbSpaces());
+		assertEquals(3, diffusion.getNbDirtySpaces());
+	}
+
+	@Test
+	public void tick_ThroughClosedDoor() {
+		diffusion.tick();
+		assertEquals(2, diffusion.getNbProcessedSpaces());
+		assertEquals(7625, wet.getHumidityInHundredths());
+		assertEquals(875, dry.getHumidityInHundredths());
+		assertEquals(5000, isolated.getHumidityInHundredths());
+		assertEquals(2, diffusion.getNbDirtySpaces());
+	}
+
+	@Test
+	public void tick_SideOutputs() {
+		diffusion.tick();
+		assertTrue(diffusion.getRustDamageChanges().contains(wet));
+		assertTrue(diffusion.getSlipperinessChanges().isEmpty());
+		diffusion.tick();
+		assertEquals(1213, dry.getHumidityInHundredths());
+		assertTrue(dry.isSlippery());
+		assertEquals(1, diffusion.getSlipperinessChanges().size());
+		assertTrue(diffusion.getSlipperinessChanges().contains(dry));
+	}
+
+	@Test
+	public void tick_IdleAfterSettling() {
+		diffusion.setTickLength(5);
+		for (int i = 0; i < 100; i++)
+			diffusion.tick();
+		assertTrue(Math.abs(wet.getHumidityInHundredths() - dry.getHumidityInHundredths()) < 20);
+		assertEquals(0, diffusion.getNbDirtySpaces());
+		diffusion.tick();
+		assertEquals(0, diffusion.getNbProcessedSpaces());
+		isolated.changeHumidity(new BigDecimal(60));
+		assertEquals(1, diffusion.getNbDirtySpaces());
+		wet.changeHumidity(new BigDecimal(90));
+		diffusion.tick();
+		assertEquals(2, diffusion.getNbProcessedSpaces());
+	}
+
+	@Test
+	public void tick_SettlesAtShortTickLength() {
+		dry.changeHumidity(new BigDecimal(70));
+		diffusion.setTickLength(0.05);
+		for (int i = 0; (i < 10000) && (diffusion.getNbDirtySpaces() > 0); i++)
+			diffusion.tick();
+		assertEquals(0, diffusion.getNbDirtySpaces());
+		assertTrue(Math.abs(wet.getHumidityInHundredths() - dry.getHumidityInHundredths()) <= 1);
+		assertTrue(Math.abs(wet.getHumidityInHundredths() + dry.getHumidityInHundredths() - 15000) <= 1);
+	}
+
+	@Test
+	public void tick_AfterDoorOpened() {
+		diffusion.tick();
+		door.openDoor();
+		assertEquals(2, diffusion.getNbSpaces());
+		assertEquals(2, diffusion.getNbDirtySpaces());
+		diffusion.tick();
+		assertEquals(0, diffusion.getNbProcessedSpaces());
+		assertEquals(wet.getHumidityInHundredths(), dry.getHumidityInHundredths());
+	}
+
+	@Test
+	public void detach_LegalCase() {
+		diffusion.detach();
+		assertFalse(level.hasAsDungeonListener(diffusion));
+		assertFalse(wet.hasAsSquareListener(diffusion));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setDoorPermeability_IllegalCase() {
+		diffusion.setDoorPermeability(-1);
+	}
+}
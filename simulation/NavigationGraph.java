@@ -0,0 +1,337 @@
+package project.simulation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import project.dungeons.Dungeon;
+import project.misc.Direction;
+import project.squares.Square;
+import project.squares.TeleportationSquare;
+import project.squares.borders.Border;
+import project.squares.borders.Wall;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of snapshots of the ways to move between the squares of a root dungeon, stored in primitive arrays so
+ * that walkers and agents can move through the dungeon without walking the squares.
+ * Squares are numbered unit by unit, the units being the leaf dungeons of the dungeon in the order of their
+ * positions, so that the squares of each unit form one contiguous range of numbers.
+ * A square can be entered if its canEnter method says so. The moves from a square that can be entered lead
+ * through its non-isolating borders to the neighbours that can be entered, and are stored in compressed rows.
+ * A teleportation square has one more move, a jump to one of its target squares, which is drawn when it is made.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ */
+final class NavigationGraph {
+
+	/**
+	 * Initialise a new graph of the moves between the squares of the given root dungeon, as they are at this moment.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon of which the moves are to be registered.
+	 * @throws	NullPointerException
+	 * 				The given dungeon is not effective.
+	 * 				| dungeon == null
+	 * @throws	IllegalArgumentException
+	 * 				The given dungeon is part of another dungeon.
+	 * 				| dungeon.getParentDungeon() != null
+	 * @throws	IllegalStateException
+	 * 				The given dungeon is terminated.
+	 * 				| dungeon.isTerminated()
+	 */
+	NavigationGraph(Dungeon<? extends Square> dungeon)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if (dungeon.getParentDungeon() != null)
+			throw new IllegalArgumentException();
+		if (dungeon.isTerminated())
+			throw new IllegalStateException();
+		List<Dungeon<? extends Square>> units = new ArrayList<Dungeon<? extends Square>>();
+		SpaceGraph.collectUnits(dungeon, units);
+		this.units = units.toArray(new Dungeon<?>[units.size()]);
+
+		// Number the squares unit by unit.
+		List<Square> squares = new ArrayList<Square>();
+		this.unitStarts = new int[this.units.length + 1];
+		for (int unit = 0; unit < this.units.length; unit++) {
+			for (Square square : this.units[unit]) {
+				squareIds.put(square, squares.size());
+				squares.add(square);
+			}
+			unitStarts[unit + 1] = squares.size();
+		}
+		int nbSquares = squares.size();
+		this.squares = squares.toArray(new Square[nbSquares]);
+		this.squareUnits = new int[nbSquares];
+		for (int unit = 0; unit < this.units.length; unit++) {
+			for (int square = unitStarts[unit]; square < unitStarts[unit + 1]; square++)
+				squareUnits[square] = unit;
+		}
+		this.enterable = new boolean[nbSquares];
+		int nbEnterable = 0;
+		for (int square = 0; square < nbSquares; square++) {
+			if (this.squares[square].canEnter()) {
+				enterable[square] = true;
+				nbEnterable++;
+			}
+		}
+		this.enterableSquares = new int[nbEnterable];
+		for (int square = 0, next = 0; square < nbSquares; square++) {
+			if (enterable[square])
+				enterableSquares[next++] = square;
+		}
+
+		// Store the moves through the borders in compressed rows, in the order of the directions.
+		this.moveStarts = new int[nbSquares + 1];
+		int[] targets = new int[Direction.values().length * nbSquares];
+		int nbMoves = 0;
+		this.teleporters = new TeleportationSquare[nbSquares];
+		List<Square> doorSquares = new ArrayList<Square>();
+		for (int square = 0; square < nbSquares; square++) {
+			moveStarts[square] = nbMoves;
+			if (!enterable[square])
+				continue;
+			Square current = this.squares[square];
+			for (Direction direction : Direction.values()) {
+				Border border = current.getBorderAt(direction);
+				if ((border instanceof Wall) && ((Wall)border).hasDoor()) {
+					doorSquares.add(current);
+					break;
+				}
+			}
+			for (Direction direction : Direction.values()) {
+				if (current.getBorderAt(direction).isIsolating())
+					continue;
+				Integer neighbour = squareIds.get(current.getNeighbour(direction));
+				if ((neighbour != null) && enterable[neighbour])
+					targets[nbMoves++] = neighbour;
+			}
+			if (current instanceof TeleportationSquare)
+				teleporters[square] = (TeleportationSquare)current;
+		}
+		moveStarts[nbSquares] = nbMoves;
+		this.moveTargets = Arrays.copyOf(targets, nbMoves);
+		this.doorSquares = doorSquares.toArray(new Square[doorSquares.size()]);
+	}
+
+	/**
+	 * Return the number of units of this graph.
+	 */
+	@Basic @Immutable
+	int getNbUnits() {
+		return units.length;
+	}
+
+	/**
+	 * Return the unit with the given number.
+	 */
+	@Basic @Immutable
+	Dungeon<? extends Square> getUnit(int unit) throws IndexOutOfBoundsException {
+		return units[unit];
+	}
+
+	/**
+	 * Return the number of the first square of the given unit.
+	 */
+	@Basic @Immutable
+	int getUnitStart(int unit) throws IndexOutOfBoundsException {
+		return unitStarts[unit];
+	}
+
+	/**
+	 * Return the number following the number of the last square of the given unit.
+	 */
+	@Basic @Immutable
+	int getUnitEnd(int unit) throws IndexOutOfBoundsException {
+		return unitStarts[unit + 1];
+	}
+
+	/**
+	 * Return the unit of the square with the given number.
+	 */
+	@Basic @Immutable
+	int getUnitOf(int square) throws IndexOutOfBoundsException {
+		return squareUnits[square];
+	}
+
+	/**
+	 * A variable referencing the leaf dungeons of this graph, in the order of their positions.
+	 */
+	private final Dungeon<?>[] units;
+
+	/**
+	 * A variable registering the number of the first square of each unit, followed by the number of squares.
+	 */
+	private final int[] unitStarts;
+
+	/**
+	 * A variable registering the unit of each square, by number.
+	 */
+	private final int[] squareUnits;
+
+	/**
+	 * Return the number of squares of this graph.
+	 */
+	@Basic @Immutable
+	int getNbSquares() {
+		return squares.length;
+	}
+
+	/**
+	 * Return the square with the given number.
+	 */
+	@Basic @Immutable
+	Square getSquare(int square) throws IndexOutOfBoundsException {
+		return squares[square];
+	}
+
+	/**
+	 * Return the number of the given square.
+	 *
+	 * @return	-1 if the given square is not part of this graph.
+	 * 			| ...
+	 */
+	int getIdOf(Square square) {
+		Integer id = squareIds.get(square);
+		return (id == null) ? -1 : id;
+	}
+
+	/**
+	 * Check whether the square with the given number can be entered.
+	 */
+	@Basic @Immutable
+	boolean canEnter(int square) throws IndexOutOfBoundsException {
+		return enterable[square];
+	}
+
+	/**
+	 * Return the number of squares of this graph that can be entered.
+	 */
+	@Basic @Immutable
+	int getNbEnterableSquares() {
+		return enterableSquares.length;
+	}
+
+	/**
+	 * Return the number of the square that can be entered with the given rank among those squares.
+	 */
+	@Basic @Immutable
+	int getEnterableSquare(int rank) throws IndexOutOfBoundsException {
+		return enterableSquares[rank];
+	}
+
+	/**
+	 * A variable referencing the squares of this graph, by number.
+	 */
+	private final Square[] squares;
+
+	/**
+	 * A variable registering the number of each square of this graph.
+	 */
+	private final Map<Square, Integer> squareIds = new IdentityHashMap<Square, Integer>();
+
+	/**
+	 * A variable registering whether each square can be entered.
+	 */
+	private final boolean[] enterable;
+
+	/**
+	 * A variable registering the numbers of the squares that can be entered, in increasing order.
+	 */
+	private final int[] enterableSquares;
+
+	/**
+	 * Return the squares of this graph that can be entered and have a wall with a door, in the order of their
+	 * numbers. Opening or closing one of those doors adds or removes moves, and makes this graph outdated.
+	 */
+	Square[] getDoorSquares() {
+		return doorSquares.clone();
+	}
+
+	/**
+	 * A variable referencing the squares of this graph that can be entered and have a wall with a door.
+	 */
+	private final Square[] doorSquares;
+
+	/**
+	 * Return the index of the first move through a border from the given square.
+	 */
+	@Basic @Immutable
+	int getMoveStart(int square) throws IndexOutOfBoundsException {
+		return moveStarts[square];
+	}
+
+	/**
+	 * Return the index following the index of the last move through a border from the given square.
+	 */
+	@Basic @Immutable
+	int getMoveEnd(int square) throws IndexOutOfBoundsException {
+		return moveStarts[square + 1];
+	}
+
+	/**
+	 * Return the square at the other end of the given move.
+	 */
+	@Basic @Immutable
+	int getMoveTarget(int move) throws IndexOutOfBoundsException {
+		return moveTargets[move];
+	}
+
+	/**
+	 * Return the teleportation square with the given number, null if that square is not a teleportation square.
+	 */
+	@Basic @Immutable
+	TeleportationSquare getTeleporter(int square) throws IndexOutOfBoundsException {
+		return teleporters[square];
+	}
+
+	/**
+	 * Return the number of the square reached by jumping from the given teleportation square, drawn with the given
+	 * generator.
+	 *
+	 * @return	-1 if the drawn target square is not part of this graph or can not be entered.
+	 * 			| ...
+	 */
+	int jump(int square, SplittableRandom random) {
+		int target = getIdOf(teleporters[square].getNewTeleportationTarget(random));
+		return ((target != -1) && enterable[target]) ? target : -1;
+	}
+
+	/**
+	 * Return the number of the square reached by a random move from the given square, drawn with the given
+	 * generator. Every move through a border and the jump of a teleportation square are equally likely; the
+	 * given square is returned if it has no moves, or if the jump leads to a square that can not be entered.
+	 */
+	int step(int square, SplittableRandom random) {
+		int start = moveStarts[square];
+		int nbMoves = moveStarts[square + 1] - start;
+		int nbChoices = (teleporters[square] != null) ? nbMoves + 1 : nbMoves;
+		if (nbChoices == 0)
+			return square;
+		int choice = random.nextInt(nbChoices);
+		if (choice < nbMoves)
+			return moveTargets[start + choice];
+		int target = jump(square, random);
+		return (target == -1) ? square : target;
+	}
+
+	/**
+	 * A variable registering the index of the first move from each square, followed by the number of moves.
+	 */
+	private final int[] moveStarts;
+
+	/**
+	 * A variable registering the square at the other end of each move.
+	 */
+	private final int[] moveTargets;
+
+	/**
+	 * A variable referencing each square that is a teleportation square, by number, null for other squares.
+	 */
+	private final TeleportationSquare[] teleporters;
+}
@@ -0,0 +1,433 @@
+package project.simulation;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import project.dungeons.Dungeon;
+import project.misc.RandomSource;
+import project.squares.Square;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of Monte Carlo engines estimating how often a wanderer ends up in each square of a root dungeon.
+ * A run releases a number of walkers on squares that can be entered, drawn at random, and moves each of them a
+ * number of steps. Each step goes through a non-isolating border to a neighbour that can be entered, or jumps
+ * from a teleportation square to one of its targets, all of those moves being equally likely. The squares
+ * reached after the burn-in steps are counted as visits; the fraction of the visits of a square estimates the
+ * chance to find a wanderer there in the long run, and the fraction of the visits of the squares of a
+ * sub-dungeon estimates the chance to find it in that sub-dungeon.
+ * Walkers move concurrently on a fork/join pool. Each walker draws its moves with its own generator, split off
+ * the random source of the engine in the order of the walkers, so that a run only depends on the seed of that
+ * source and on the dungeon, and not on the scheduling of the walkers. The visits are counted in one array per
+ * thread of the pool, so that the memory of a run grows with the number of threads and not with the number of
+ * chunks of walkers.
+ * The moves are registered anew at the start of each run, so that a run sees the dungeon as it is at that moment.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The burn-in of this engine is valid.
+ * 			| isValidBurnIn(getBurnIn())
+ */
+public class RandomWalk {
+
+	/**
+	 * Initialise a new random walk engine over the given root dungeon, drawing from the given random source and
+	 * running on the common fork/join pool.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon to walk through.
+	 * @param	randomSource
+	 * 				The source of the generators of the walkers.
+	 * @effect	...
+	 * 			| this(dungeon, randomSource, ForkJoinPool.commonPool())
+	 */
+	public RandomWalk(Dungeon<? extends Square> dungeon, RandomSource randomSource)
+		throws NullPointerException, IllegalArgumentException
+	{
+		this(dungeon, randomSource, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Initialise a new random walk engine over the given root dungeon, drawing from the given random source and
+	 * running on the given fork/join pool.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon to walk through.
+	 * @param	randomSource
+	 * 				The source of the generators of the walkers.
+	 * @param	pool
+	 * 				The pool on which the walkers move.
+	 * @post	...
+	 * 			| (new.getDungeon() == dungeon) && (new.getRandomSource() == randomSource) && (new.getPool() == pool)
+	 * @post	...
+	 * 			| (new.getBurnIn() == 0) && (new.getTotalNbVisits() == 0)
+	 * @throws	NullPointerException
+	 * 				...
+	 * 				| (dungeon == null) || (randomSource == null) || (pool == null)
+	 * @throws	IllegalArgumentException
+	 * 				The given dungeon is part of another dungeon.
+	 * 				| dungeon.getParentDungeon() != null
+	 */
+	public RandomWalk(Dungeon<? extends Square> dungeon, RandomSource randomSource, ForkJoinPool pool)
+		throws NullPointerException, IllegalArgumentException
+	{
+		if ((randomSource == null) || (pool == null))
+			throw new NullPointerException();
+		if (dungeon.getParentDungeon() != null)
+			throw new IllegalArgumentException();
+		this.dungeon = dungeon;
+		this.randomSource = randomSource;
+		this.pool = pool;
+	}
+
+	/**
+	 * Return the dungeon of this engine.
+	 */
+	@Basic @Immutable
+	public Dungeon<? extends Square> getDungeon() {
+		return dungeon;
+	}
+
+	/**
+	 * A variable referencing the dungeon of this engine.
+	 */
+	private final Dungeon<? extends Square> dungeon;
+
+	/**
+	 * Return the source of the generators of the walkers of this engine.
+	 */
+	@Basic @Immutable
+	public RandomSource getRandomSource() {
+		return randomSource;
+	}
+
+	/**
+	 * A variable referencing the source of the generators of the walkers of this engine.
+	 */
+	private final RandomSource randomSource;
+
+	/**
+	 * Return the pool on which the walkers of this engine move.
+	 */
+	@Basic @Immutable
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * A variable referencing the pool on which the walkers of this engine move.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Return the number of steps each walker takes before its visits are counted.
+	 */
+	@Basic
+	public long getBurnIn() {
+		return burnIn;
+	}
+
+	/**
+	 * Set the number of steps each walker takes before its visits are counted to the given number.
+	 *
+	 * @param	burnIn
+	 * 				The new number of steps.
+	 * @post	...
+	 * 			| new.getBurnIn() == burnIn
+	 * @throws	IllegalArgumentException
+	 * 				...
+	 * 				| !isValidBurnIn(burnIn)
+	 */
+	public void setBurnIn(long burnIn) throws IllegalArgumentException {
+		if (!isValidBurnIn(burnIn))
+			throw new IllegalArgumentException();
+		this.burnIn = burnIn;
+	}
+
+	/**
+	 * Check whether the given number of steps is a valid burn-in for an engine.
+	 *
+	 * @return	...
+	 * 			| result == (burnIn >= 0)
+	 */
+	public static boolean isValidBurnIn(long burnIn) {
+		return burnIn >= 0;
+	}
+
+	/**
+	 * A variable registering the number of steps each walker takes before its visits are counted.
+	 */
+	private long burnIn;
+
+	/**
+	 * Release the given number of walkers and move each of them the given number of steps, replacing the visits
+	 * of the previous run by the visits of this run.
+	 *
+	 * @param	nbWalkers
+	 * 				The number of walkers.
+	 * @param	nbSteps
+	 * 				The number of steps of each walker, including the burn-in.
+	 * @post	Each walker has visited one square for each step after the burn-in, unless no square of the dungeon
+	 * 			can be entered.
+	 * 			| new.getTotalNbVisits() == nbWalkers * Math.max(0, nbSteps - getBurnIn())
+	 * @throws	IllegalArgumentException
+	 * 				...
+	 * 				| (nbWalkers <= 0) || (nbSteps <= 0)
+	 * @throws	IllegalStateException
+	 * 				The dungeon of this engine is terminated.
+	 * 				| getDungeon().isTerminated()
+	 */
+	public void run(int nbWalkers, long nbSteps) throws IllegalArgumentException, IllegalStateException {
+		if ((nbWalkers <= 0) || (nbSteps <= 0))
+			throw new IllegalArgumentException();
+		long start = System.nanoTime();
+		NavigationGraph graph = new NavigationGraph(getDungeon());
+		long[] visits;
+		if (graph.getNbEnterableSquares() == 0)
+			visits = new long[graph.getNbSquares()];
+		else {
+			SplittableRandom[] generators = new SplittableRandom[nbWalkers];
+			int[] positions = new int[nbWalkers];
+			for (int walker = 0; walker < nbWalkers; walker++) {
+				generators[walker] = getRandomSource().split();
+				positions[walker] = graph.getEnterableSquare(generators[walker].nextInt(graph.getNbEnterableSquares()));
+			}
+			int nbChunks = Math.min(nbWalkers, 4 * getPool().getParallelism());
+			Map<Thread, long[]> threadVisits = new ConcurrentHashMap<Thread, long[]>();
+			getPool().invoke(new Walk(graph, generators, positions, nbSteps, getBurnIn(), threadVisits, nbChunks, 0,
+					nbChunks));
+			visits = null;
+			for (long[] counts : threadVisits.values()) {
+				if (visits == null)
+					visits = counts;
+				else {
+					for (int square = 0; square < visits.length; square++)
+						visits[square] += counts[square];
+				}
+			}
+		}
+		long[] unitVisits = new long[graph.getNbUnits()];
+		long totalNbVisits = 0;
+		for (int unit = 0; unit < graph.getNbUnits(); unit++) {
+			for (int square = graph.getUnitStart(unit); square < graph.getUnitEnd(unit); square++)
+				unitVisits[unit] += visits[square];
+			totalNbVisits += unitVisits[unit];
+		}
+		this.graph = graph;
+		this.visits = visits;
+		this.unitVisits = unitVisits;
+		this.totalNbVisits = totalNbVisits;
+		this.lastRunTime = System.nanoTime() - start;
+		this.lastNbSteps = nbWalkers * nbSteps;
+	}
+
+	/**
+	 * A class of tasks moving the walkers in a range of chunks and counting their visits.
+	 * The walkers are divided over the chunks as evenly as possible; a task over several chunks splits at the
+	 * middle chunk, a task over a single chunk counts in the array of the thread that runs it. As each array is
+	 * only written by its own thread, the chunks need no synchronisation, and the arrays are added only once, at
+	 * the end of the run.
+	 */
+	private static final class Walk extends RecursiveAction {
+
+		/**
+		 * Initialise a new task over the walkers of the chunks in the given range.
+		 */
+		Walk(NavigationGraph graph, SplittableRandom[] generators, int[] positions, long nbSteps, long burnIn,
+				Map<Thread, long[]> threadVisits, int nbChunks, int fromChunk, int toChunk) {
+			this.graph = graph;
+			this.generators = generators;
+			this.positions = positions;
+			this.nbSteps = nbSteps;
+			this.burnIn = burnIn;
+			this.threadVisits = threadVisits;
+			this.nbChunks = nbChunks;
+			this.fromChunk = fromChunk;
+			this.toChunk = toChunk;
+		}
+
+		@Override
+		protected void compute() {
+			if (toChunk - fromChunk > 1) {
+				int middle = (fromChunk + toChunk) >>> 1;
+				invokeAll(new Walk(graph, generators, positions, nbSteps, burnIn, threadVisits, nbChunks, fromChunk,
+						middle), new Walk(graph, generators, positions, nbSteps, burnIn, threadVisits, nbChunks, middle,
+						toChunk));
+				return;
+			}
+			long[] result = threadVisits.get(Thread.currentThread());
+			if (result == null) {
+				result = new long[graph.getNbSquares()];
+				threadVisits.put(Thread.currentThread(), result);
+			}
+			int nbWalkers = generators.length;
+			int fromWalker = (int)((long)nbWalkers * fromChunk / nbChunks);
+			int toWalker = (int)((long)nbWalkers * toChunk / nbChunks);
+			for (int walker = fromWalker; walker < toWalker; walker++) {
+				SplittableRandom random = generators[walker];
+				int square = positions[walker];
+				for (long step = 0; step < nbSteps; step++) {
+					square = graph.step(square, random);
+					if (step >= burnIn)
+						result[square]++;
+				}
+				positions[walker] = square;
+			}
+		}
+
+		/**
+		 * The graph of the moves of the walkers.
+		 */
+		private final NavigationGraph graph;
+
+		/**
+		 * The generator of each walker.
+		 */
+		private final SplittableRandom[] generators;
+
+		/**
+		 * The square of each walker, by number.
+		 */
+		private final int[] positions;
+
+		/**
+		 * The number of steps of each walker and the number of steps before visits are counted.
+		 */
+		private final long nbSteps, burnIn;
+
+		/**
+		 * The visits counted by each thread that ran a chunk, by number of the square.
+		 */
+		private final Map<Thread, long[]> threadVisits;
+
+		/**
+		 * The number of chunks over which the walkers are divided.
+		 */
+		private final int nbChunks;
+
+		/**
+		 * The range of chunks of this task.
+		 */
+		private final int fromChunk, toChunk;
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Return the number of visits to the given square during the last run.
+	 *
+	 * @return	0 if the given square was not part of the dungeon during the last run.
+	 * 			| ...
+	 */
+	public long getNbVisits(Square square) {
+		if (graph == null)
+			return 0;
+		int id = graph.getIdOf(square);
+		return (id == -1) ? 0 : visits[id];
+	}
+
+	/**
+	 * Return the number of visits to all squares during the last run.
+	 */
+	@Basic
+	public long getTotalNbVisits() {
+		return totalNbVisits;
+	}
+
+	/**
+	 * Return the estimated chance to find a wanderer in the given square in the long run.
+	 *
+	 * @return	...
+	 * 			| if (getTotalNbVisits() == 0)
+	 * 			|	then result == 0
+	 * 			| else result == (double)getNbVisits(square) / getTotalNbVisits()
+	 */
+	public double getStationaryEstimate(Square square) {
+		if (totalNbVisits == 0)
+			return 0;
+		return (double)getNbVisits(square) / totalNbVisits;
+	}
+
+	/**
+	 * Return the estimated chance to find a wanderer in the given sub-dungeon in the long run.
+	 *
+	 * @param	subDungeon
+	 * 				The dungeon, the dungeon of this engine or one of its sub-dungeons, of which the chance is to be
+	 * 				returned.
+	 * @return	The fraction of the visits during the last run to the squares of leaf dungeons that are the given
+	 * 			dungeon or lie within it.
+	 * 			| ...
+	 * @throws	NullPointerException
+	 * 				The given dungeon is not effective.
+	 * 				| subDungeon == null
+	 */
+	public double getStationaryEstimate(Dungeon<?> subDungeon) throws NullPointerException {
+		if (subDungeon == null)
+			throw new NullPointerException();
+		if (totalNbVisits == 0)
+			return 0;
+		long result = 0;
+		for (int unit = 0; unit < graph.getNbUnits(); unit++) {
+			for (Dungeon<?> dungeon = graph.getUnit(unit); dungeon != null; dungeon = dungeon.getParentDungeon()) {
+				if (dungeon == subDungeon) {
+					result += unitVisits[unit];
+					break;
+				}
+			}
+		}
+		return (double)result / totalNbVisits;
+	}
+
+	/**
+	 * A variable referencing the graph of the moves of the last run, null if there was no run yet.
+	 */
+	private NavigationGraph graph;
+
+	/**
+	 * A variable registering the number of visits to each square during the last run, by number.
+	 */
+	private long[] visits;
+
+	/**
+	 * A variable registering the number of visits to the squares of each unit during the last run.
+	 */
+	private long[] unitVisits;
+
+	/**
+	 * A variable registering the number of visits to all squares during the last run.
+	 */
+	private long totalNbVisits;
+
+	/**
+	 * Return the time taken by the last run, in nanoseconds.
+	 */
+	@Basic
+	public long getLastRunTime() {
+		return lastRunTime;
+	}
+
+	/**
+	 * A variable registering the time taken by the last run, in nanoseconds.
+	 */
+	private long lastRunTime;
+
+	/**
+	 * Return the number of steps per second of all walkers of the last run together.
+	 *
+	 * @return	...
+	 * 			| result == lastNbSteps * 1e9 / getLastRunTime()
+	 */
+	public double getLastStepsPerSecond() {
+		if (lastRunTime == 0)
+			return 0;
+		return lastNbSteps * 1e9 / lastRunTime;
+	}
+
+	/**
+	 * A variable registering the number of steps of all walkers of the last run together.
+	 */
+	private long lastNbSteps;
+}
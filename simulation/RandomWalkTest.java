@@ -0,0 +1,149 @@
+package project.simulation;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import project.dungeons.CompositeDungeon;
+import project.dungeons.Level;
+import project.dungeons.Position;
+import project.misc.Direction;
+import project.misc.RandomSource;
+import project.squares.Square;
+import project.squares.SquareImpl;
+import project.squares.TeleportationSquareImpl;
+/**
+ * A test class for the random walk engine.
+ *
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class RandomWalkTest {
+	private CompositeDungeon<Square> compositeDungeon;
+	private Level<Square> lowerLevel, upperLevel;
+	private RandomWalk walk;
+
+	@Before
+	public void setUpMutableTextFixture() {
+		compositeDungeon = new CompositeDungeon<Square>();
+		compositeDungeon.setSubDungeonAt(lowerLevel = new Level<Square>(10, 10), new Position());
+		compositeDungeon.setSubDungeonAt(upperLevel = new Level<Square>(10, 10), new Position(0, 0, 1));
+		for (int x = 1; x <= 3; x++) {
+			for (int y = 1; y <= 3; y++)
+				compositeDungeon.setSquareAt(new Position(x, y, 0), new SquareImpl(Direction.FLOOR, Direction.CEILING));
+		}
+		walk = new RandomWalk(compositeDungeon, new RandomSource(17));
+	}
+
+	@Test
+	public void constructor_LegalCase() {
+		assertSame(compositeDungeon, walk.getDungeon());
+		assertEquals(17, walk.getRandomSource().getSeed());
+		assertEquals(0, walk.getBurnIn());
+		assertEquals(0, walk.getTotalNbVisits());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_SubDungeon() {
+		new RandomWalk(lowerLevel, new RandomSource(17));
+	}
+
+	@Test
+	public void run_CountsEveryStep() {
+		walk.setBurnIn(10);
+		walk.run(8, 1000);
+		assertEquals(8 * 990, walk.getTotalNbVisits());
+		assertTrue(walk.getLastRunTime() > 0);
+		assertTrue(walk.getLastStepsPerSecond() > 0);
+	}
+
+	@Test
+	public void run_ReplaysFromSeed() {
+		walk.run(4, 500);
+		long[] visits = new long[9];
+		for (int x = 1; x <= 3; x++) {
+			for (int y = 1; y <= 3; y++)
+				visits[3 * (x - 1) + y - 1] = walk.getNbVisits(compositeDungeon.getSquareAt(new Position(x, y, 0)));
+		}
+		walk.getRandomSource().reset();
+		walk.run(4, 500);
+		for (int x = 1; x <= 3; x++) {
+			for (int y = 1; y <= 3; y++)
+				assertEquals(visits[3 * (x - 1) + y - 1],
+						walk.getNbVisits(compositeDungeon.getSquareAt(new Position(x, y, 0))));
+		}
+	}
+
+	@Test
+	public void run_IndependentOfNbThreads() {
+		ForkJoinPool sequentialPool = new ForkJoinPool(1), parallelPool = new ForkJoinPool(4);
+		RandomWalk sequential = new RandomWalk(compositeDungeon, new RandomSource(5), sequentialPool);
+		RandomWalk parallel = new RandomWalk(compositeDungeon, new RandomSource(5), parallelPool);
+		sequential.run(100, 200);
+		parallel.run(100, 200);
+		sequentialPool.shutdown();
+		parallelPool.shutdown();
+		assertEquals(100 * 200, parallel.getTotalNbVisits());
+		for (Square square : compositeDungeon)
+			assertEquals(sequential.getNbVisits(square), parallel.getNbVisits(square));
+	}
+
+	@Test
+	public void run_StationaryEstimates() {
+		walk.run(16, 50000);
+		// On a grid, the chance to be in a square is proportional to its number of neighbours.
+		assertEquals(2.0 / 24, walk.getStationaryEstimate(compositeDungeon.getSquareAt(new Position(1, 1, 0))), 0.01);
+		assertEquals(3.0 / 24, walk.getStationaryEstimate(compositeDungeon.getSquareAt(new Position(2, 1, 0))), 0.01);
+		assertEquals(4.0 / 24, walk.getStationaryEstimate(compositeDungeon.getSquareAt(new Position(2, 2, 0))), 0.01);
+		assertEquals(1, walk.getStationaryEstimate(lowerLevel), 0);
+		assertEquals(0, walk.getStationaryEstimate(upperLevel), 0);
+		assertEquals(1, walk.getStationaryEstimate(compositeDungeon), 0);
+	}
+
+	@Test
+	public void run_FollowsTeleports() {
+		Level<Square> level = new Level<Square>(10, 10);
+		Square sink = new SquareImpl(Direction.values());
+		List<Square> targets = new ArrayList<Square>();
+		targets.add(sink);
+		Square teleporter = new TeleportationSquareImpl(targets, Direction.values());
+		level.setSquareAt(new Position(1, 0, 0), teleporter);
+		level.setSquareAt(new Position(2, 0, 0), sink);
+		walk = new RandomWalk(level, new RandomSource(3));
+		walk.setBurnIn(1);
+		walk.run(10, 20);
+		assertEquals(1, walk.getStationaryEstimate(sink), 0);
+		assertEquals(0, walk.getStationaryEstimate(teleporter), 0);
+	}
+
+	@Test
+	public void run_IgnoresTeleportsOutOfDungeon() {
+		Level<Square> level = new Level<Square>(10, 10);
+		List<Square> targets = new ArrayList<Square>();
+		targets.add(new SquareImpl());
+		Square teleporter = new TeleportationSquareImpl(targets, Direction.values());
+		level.setSquareAt(new Position(1, 0, 0), teleporter);
+		walk = new RandomWalk(level, new RandomSource(3));
+		walk.run(2, 20);
+		assertEquals(1, walk.getStationaryEstimate(teleporter), 0);
+	}
+
+	@Test
+	public void run_TeleportsBetweenLevels() {
+		List<Square> targets = new ArrayList<Square>();
+		targets.add(compositeDungeon.getSquareAt(new Position(2, 2, 0)));
+		compositeDungeon.setSquareAt(new Position(7, 7, 1), new TeleportationSquareImpl(targets, Direction.values()));
+		walk.setBurnIn(1);
+		walk.run(20, 100);
+		assertEquals(0, walk.getStationaryEstimate(upperLevel), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void run_IllegalNbSteps() {
+		walk.run(1, 0);
+	}
+}
@@ -0,0 +1,368 @@
+package project.simulation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import project.dungeons.Dungeon;
+import project.squares.Square;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of schedulers that apply space updates to every space of a root dungeon each tick, in parallel.
+ * The leaf dungeons of the dungeon are the work units of the scheduler. A tick runs in two phases:
+ * first, the spaces that lie within a single unit are updated concurrently on a fork/join pool, each unit as
+ * its own task and large units split further into ranges of spaces, as spaces are independent for merging;
+ * then, the spaces that lie on a seam between units are updated one after the other, in the order of their
+ * numbers, so that the squares of different units are never changed concurrently and the outcome of that phase
+ * does not depend on the scheduling of the first one. The listeners of the changed squares, such as the
+ * indexes and rankings of the dungeon, are thus notified from the threads of the pool, and synchronize themselves.
+ * The latency of the last tick, the time spent on each unit and the time of the seam phase are registered.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ */
+public class SimulationScheduler extends SpaceSimulation {
+
+	/**
+	 * Initialise a new scheduler over the given root dungeon, running on the common fork/join pool.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon of which the spaces are to be updated.
+	 * @effect	...
+	 * 			| this(dungeon, ForkJoinPool.commonPool())
+	 */
+	public SimulationScheduler(Dungeon<? extends Square> dungeon)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		this(dungeon, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Initialise a new scheduler over the given root dungeon, running on the given fork/join pool.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon of which the spaces are to be updated.
+	 * @param	pool
+	 * 				The pool on which the spaces within a unit are updated.
+	 * @effect	...
+	 * 			| super(dungeon)
+	 * @post	...
+	 * 			| (new.getPool() == pool) && (new.getNbSpaceUpdates() == 0) && (new.getNbTicks() == 0)
+	 * @throws	NullPointerException
+	 * 				The given pool is not effective.
+	 * 				| pool == null
+	 */
+	public SimulationScheduler(Dungeon<? extends Square> dungeon, ForkJoinPool pool)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		super(dungeon);
+		if (pool == null) {
+			detach();
+			throw new NullPointerException();
+		}
+		this.pool = pool;
+	}
+
+	/**
+	 * Return the pool on which the spaces within a unit are updated.
+	 */
+	@Basic @Immutable
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * A variable referencing the pool on which the spaces within a unit are updated.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Register the given update to be applied to every space each tick, after the updates registered before.
+	 *
+	 * @param	update
+	 * 				The update to register.
+	 * @post	...
+	 * 			| new.hasAsSpaceUpdate(update)
+	 * @throws	NullPointerException
+	 * 				The given update is not effective.
+	 * 				| update == null
+	 */
+	public void addSpaceUpdate(SpaceUpdate update) throws NullPointerException {
+		if (update == null)
+			throw new NullPointerException();
+		if (!updates.contains(update))
+			updates.add(update);
+	}
+
+	/**
+	 * Unregister the given update.
+	 *
+	 * @post	...
+	 * 			| !new.hasAsSpaceUpdate(update)
+	 */
+	public void removeSpaceUpdate(SpaceUpdate update) {
+		updates.remove(update);
+	}
+
+	/**
+	 * Check whether the given update is applied to every space each tick.
+	 */
+	public boolean hasAsSpaceUpdate(SpaceUpdate update) {
+		return updates.contains(update);
+	}
+
+	/**
+	 * Return the number of updates applied to every space each tick.
+	 */
+	public int getNbSpaceUpdates() {
+		return updates.size();
+	}
+
+	/**
+	 * A variable referencing the updates applied to every space each tick, in the order of their registration.
+	 */
+	private final List<SpaceUpdate> updates = new ArrayList<SpaceUpdate>();
+
+	/**
+	 * Return the number of ticks this scheduler has completed.
+	 */
+	@Basic
+	public long getNbTicks() {
+		return nbTicks;
+	}
+
+	/**
+	 * A variable registering the number of ticks this scheduler has completed.
+	 */
+	private long nbTicks;
+
+	/**
+	 * Return the number of work units of the dungeon, that is, the number of its leaf dungeons.
+	 */
+	public int getNbUnits() {
+		return getGraph().getNbUnits();
+	}
+
+	/**
+	 * Return the work unit with the given number.
+	 *
+	 * @throws	IndexOutOfBoundsException
+	 * 				...
+	 * 				| (unit < 0) || (unit >= getNbUnits())
+	 */
+	public Dungeon<? extends Square> getUnit(int unit) throws IndexOutOfBoundsException {
+		return getGraph().getUnit(unit);
+	}
+
+	/**
+	 * Return the number of spaces that lie on a seam between units.
+	 */
+	public int getNbSeamSpaces() {
+		SpaceGraph graph = getGraph();
+		int result = 0;
+		for (int space = 0; space < graph.getNbSpaces(); space++) {
+			if (graph.isOnSeam(space))
+				result++;
+		}
+		return result;
+	}
+
+	/**
+	 * Apply each registered update to each space of the dungeon, first to the spaces within a unit in parallel,
+	 * then to the spaces on seams in order.
+	 *
+	 * @post	...
+	 * 			| new.getNbTicks() == getNbTicks() + 1
+	 * @post	The timings of this tick are registered.
+	 * 			| ...
+	 */
+	@Override
+	public void tick() throws IllegalStateException {
+		if (getDungeon().isTerminated())
+			throw new IllegalStateException();
+		long start = System.nanoTime();
+		SpaceGraph graph = getGraph();
+		SpaceUpdate[] updates = this.updates.toArray(new SpaceUpdate[this.updates.size()]);
+		long[] unitTimes = new long[graph.getNbUnits()];
+		if (graph.getNbUnits() > 0)
+			getPool().invoke(new UnitPhase(graph, updates, nbTicks, unitTimes, 0, graph.getNbUnits()));
+		long seamStart = System.nanoTime();
+		for (int space = 0; space < graph.getNbSpaces(); space++) {
+			if (graph.isOnSeam(space))
+				update(graph.getRepresentative(space), updates, nbTicks);
+		}
+		long end = System.nanoTime();
+		this.lastUnitTimes = unitTimes;
+		this.lastSeamPhaseTime = end - seamStart;
+		this.lastTickLatency = end - start;
+		nbTicks++;
+	}
+
+	/**
+	 * Apply the given updates to the space of the given square for the given tick.
+	 */
+	private static void update(Square square, SpaceUpdate[] updates, long tick) {
+		for (SpaceUpdate update : updates)
+			update.updateSpace(square, tick);
+	}
+
+	/**
+	 * A class of tasks updating the spaces within a range of units.
+	 * A task over several units splits at the middle unit; a task over a single unit measures the time spent
+	 * on that unit.
+	 */
+	private static final class UnitPhase extends RecursiveAction {
+
+		/**
+		 * Initialise a new task over the units in the given range.
+		 */
+		UnitPhase(SpaceGraph graph, SpaceUpdate[] updates, long tick, long[] unitTimes, int fromUnit, int toUnit) {
+			this.graph = graph;
+			this.updates = updates;
+			this.tick = tick;
+			this.unitTimes = unitTimes;
+			this.fromUnit = fromUnit;
+			this.toUnit = toUnit;
+		}
+
+		@Override
+		protected void compute() {
+			if (toUnit - fromUnit > 1) {
+				int middle = (fromUnit + toUnit) >>> 1;
+				invokeAll(new UnitPhase(graph, updates, tick, unitTimes, fromUnit, middle),
+						new UnitPhase(graph, updates, tick, unitTimes, middle, toUnit));
+			}
+			else {
+				long start = System.nanoTime();
+				new SpacePhase(graph, updates, tick, graph.getUnitStart(fromUnit), graph.getUnitEnd(fromUnit)).compute();
+				unitTimes[fromUnit] = System.nanoTime() - start;
+			}
+		}
+
+		/**
+		 * The graph of the spaces to update.
+		 */
+		private final SpaceGraph graph;
+
+		/**
+		 * The updates to apply.
+		 */
+		private final SpaceUpdate[] updates;
+
+		/**
+		 * The number of the tick.
+		 */
+		private final long tick;
+
+		/**
+		 * The time spent on each unit, in nanoseconds.
+		 */
+		private final long[] unitTimes;
+
+		/**
+		 * The range of units of this task.
+		 */
+		private final int fromUnit, toUnit;
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * A class of tasks updating the spaces in a range of a single unit that do not lie on a seam.
+	 */
+	private static final class SpacePhase extends RecursiveAction {
+
+		/**
+		 * Initialise a new task over the spaces in the given range.
+		 */
+		SpacePhase(SpaceGraph graph, SpaceUpdate[] updates, long tick, int fromSpace, int toSpace) {
+			this.graph = graph;
+			this.updates = updates;
+			this.tick = tick;
+			this.fromSpace = fromSpace;
+			this.toSpace = toSpace;
+		}
+
+		@Override
+		protected void compute() {
+			if (toSpace - fromSpace > GRAIN) {
+				int middle = (fromSpace + toSpace) >>> 1;
+				invokeAll(new SpacePhase(graph, updates, tick, fromSpace, middle),
+						new SpacePhase(graph, updates, tick, middle, toSpace));
+			}
+			else {
+				for (int space = fromSpace; space < toSpace; space++) {
+					if (!graph.isOnSeam(space))
+						update(graph.getRepresentative(space), updates, tick);
+				}
+			}
+		}
+
+		/**
+		 * The number of spaces below which a task is not split any further.
+		 */
+		private static final int GRAIN = 256;
+
+		/**
+		 * The graph of the spaces to update.
+		 */
+		private final SpaceGraph graph;
+
+		/**
+		 * The updates to apply.
+		 */
+		private final SpaceUpdate[] updates;
+
+		/**
+		 * The number of the tick.
+		 */
+		private final long tick;
+
+		/**
+		 * The range of spaces of this task.
+		 */
+		private final int fromSpace, toSpace;
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Return the time between the start and the end of the last tick, in nanoseconds.
+	 */
+	@Basic
+	public long getLastTickLatency() {
+		return lastTickLatency;
+	}
+
+	/**
+	 * A variable registering the time between the start and the end of the last tick, in nanoseconds.
+	 */
+	private long lastTickLatency;
+
+	/**
+	 * Return the time spent on each unit during the last tick, in nanoseconds, in the order of the units.
+	 */
+	public long[] getLastUnitTimes() {
+		return lastUnitTimes.clone();
+	}
+
+	/**
+	 * A variable registering the time spent on each unit during the last tick, in nanoseconds.
+	 */
+	private long[] lastUnitTimes = new long[0];
+
+	/**
+	 * Return the time spent on the spaces on seams during the last tick, in nanoseconds.
+	 */
+	@Basic
+	public long getLastSeamPhaseTime() {
+		return lastSeamPhaseTime;
+	}
+
+	/**
+	 * A variable registering the time spent on the spaces on seams during the last tick, in nanoseconds.
+	 */
+	private long lastSeamPhaseTime;
+}
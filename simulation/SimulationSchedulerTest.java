@@ -0,0 +1,142 @@
+package project.simulation;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToDoubleFunction;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import project.dungeons.CompositeDungeon;
+import project.dungeons.DungeonAggregates;
+import project.dungeons.Level;
+import project.dungeons.Position;
+import project.dungeons.SquareRanking;
+import project.misc.Direction;
+import project.squares.Square;
+import project.squares.SquareImpl;
+import project.temperature.Temperature;
+/**
+ * A test class for the simulation scheduler.
+ *
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class SimulationSchedulerTest {
+	private CompositeDungeon<Square> compositeDungeon;
+	private Level<Square> lowerLevel, upperLevel;
+	private SimulationScheduler scheduler;
+	private List<Square> updatedSquares;
+	private SpaceUpdate warming;
+
+	@Before
+	public void setUpMutableTextFixture() {
+		compositeDungeon = new CompositeDungeon<Square>();
+		compositeDungeon.setSubDungeonAt(lowerLevel = new Level<Square>(10, 10), new Position());
+		compositeDungeon.setSubDungeonAt(upperLevel = new Level<Square>(10, 10), new Position(0, 0, 1));
+		for (int i = 1; i < 6; i++) {
+			compositeDungeon.setSquareAt(new Position(i, 0, 0), new SquareImpl(new Temperature(10), BigDecimal.ZERO,
+					false, Direction.values()));
+			compositeDungeon.setSquareAt(new Position(i, 5, 1), new SquareImpl(new Temperature(20), BigDecimal.ZERO,
+					false, Direction.values()));
+		}
+		compositeDungeon.setSquareAt(new Position(1, 0, 1), new SquareImpl(new Temperature(30), BigDecimal.ZERO,
+				false, Direction.values()));
+		scheduler = new SimulationScheduler(compositeDungeon);
+		updatedSquares = Collections.synchronizedList(new ArrayList<Square>());
+		warming = new SpaceUpdate() {
+			@Override
+			public void updateSpace(Square square, long tick) {
+				square.changeSpaceConditions(square.getTemperatureInCelcius() + 1, square.getHumidityInHundredths());
+				updatedSquares.add(square);
+			}
+		};
+		scheduler.addSpaceUpdate(warming);
+	}
+
+	@Test
+	public void constructor_LegalCase() {
+		assertSame(compositeDungeon, scheduler.getDungeon());
+		assertEquals(2, scheduler.getNbUnits());
+		assertSame(lowerLevel, scheduler.getUnit(0));
+		assertSame(upperLevel, scheduler.getUnit(1));
+		assertEquals(11, scheduler.getNbSpaces());
+		assertEquals(2, scheduler.getNbSeamSpaces());
+		assertEquals(0, scheduler.getNbTicks());
+	}
+
+	@Test
+	public void tick_UpdatesEachSpaceOnce() {
+		scheduler.tick();
+		assertEquals(11, updatedSquares.size());
+		assertEquals(11, new HashSet<Square>(updatedSquares).size());
+		assertEquals(11, compositeDungeon.getSquareAt(new Position(1, 0, 0)).getTemperatureInCelcius(), 0);
+		assertEquals(21, compositeDungeon.getSquareAt(new Position(3, 5, 1)).getTemperatureInCelcius(), 0);
+		assertEquals(1, scheduler.getNbTicks());
+	}
+
+	@Test
+	public void tick_SeamsLast() {
+		scheduler.tick();
+		assertSame(compositeDungeon.getSquareAt(new Position(1, 0, 0)), updatedSquares.get(9));
+		assertSame(compositeDungeon.getSquareAt(new Position(1, 0, 1)), updatedSquares.get(10));
+	}
+
+	@Test
+	public void tick_Timings() {
+		scheduler.tick();
+		long[] unitTimes = scheduler.getLastUnitTimes();
+		assertEquals(2, unitTimes.length);
+		assertTrue(unitTimes[0] > 0);
+		assertTrue(unitTimes[1] > 0);
+		assertTrue(scheduler.getLastSeamPhaseTime() > 0);
+		assertTrue(scheduler.getLastTickLatency() >= scheduler.getLastSeamPhaseTime());
+	}
+
+	@Test
+	public void removeSpaceUpdate_LegalCase() {
+		scheduler.removeSpaceUpdate(warming);
+		assertFalse(scheduler.hasAsSpaceUpdate(warming));
+		scheduler.tick();
+		assertTrue(updatedSquares.isEmpty());
+	}
+
+	@Test
+	public void tick_ManySpacesInOneUnit() {
+		Level<Square> level = new Level<Square>(120, 120);
+		for (int x = 0; x < 120; x++) {
+			for (int y = 0; y < 120; y++) {
+				if ((x != 0) || (y != 0))
+					level.setSquareAt(new Position(x, y, 0), new SquareImpl(new Temperature(10), BigDecimal.ZERO,
+							false, Direction.values()));
+			}
+		}
+		SquareRanking<Square> ranking = new SquareRanking<Square>(level, new ToDoubleFunction<Square>() {
+			@Override
+			public double applyAsDouble(Square square) {
+				return square.getTemperatureInCelcius();
+			}
+		});
+		ForkJoinPool pool = new ForkJoinPool(8);
+		SimulationScheduler scheduler = new SimulationScheduler(level, pool);
+		scheduler.addSpaceUpdate(warming);
+		for (int tick = 0; tick < 30; tick++)
+			scheduler.tick();
+		pool.shutdown();
+		DungeonAggregates aggregates = level.getAggregates();
+		assertEquals(14399, aggregates.getNbSquares());
+		assertEquals(40, aggregates.getMeanTemperature().getValueInCelcius(), 1e-6);
+		assertEquals(14399, ranking.getNbRankedSquares());
+		assertEquals(40, ranking.getScore(level.getSquareAt(new Position(119, 119, 0))), 0);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void addSpaceUpdate_NullCase() {
+		scheduler.addSpaceUpdate(null);
+	}
+}
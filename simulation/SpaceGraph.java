@@ -0,0 +1,428 @@
+package project.simulation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import project.dungeons.CompositeDungeon;
+import project.dungeons.Dungeon;
+import project.dungeons.Position;
+import project.misc.Direction;
+import project.squares.Square;
+import project.squares.borders.Border;
+import project.squares.borders.Wall;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of snapshots of the spaces of a root dungeon and of the isolating borders between them, stored in
+ * primitive arrays so that simulations can run over the spaces without walking the squares.
+ * The leaf dungeons of the dungeon are its units. Units are numbered in the order of their positions, and spaces
+ * are numbered unit by unit, so that the spaces of each unit form one contiguous range of numbers. A space belongs
+ * to the unit of its first square. Squares that can not change their temperature, such as rock, are not part of
+ * any space, and no edges run through them.
+ * Two spaces are adjacent if a square of the one is separated from a square of the other by an isolating border.
+ * The adjacency is stored in compressed rows: the edges of a space run from its edge start to its edge end, and
+ * each edge registers the adjacent space, the number of isolating borders and the number of walls with a door
+ * between both spaces. A space lies on a seam if one of its squares borders a square of another unit.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The adjacency of this graph is symmetric.
+ * 			| ...
+ */
+final class SpaceGraph {
+
+	/**
+	 * Initialise a new graph of the spaces of the given root dungeon, as they are at this moment.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon of which the spaces are to be registered.
+	 * @throws	NullPointerException
+	 * 				The given dungeon is not effective.
+	 * 				| dungeon == null
+	 * @throws	IllegalArgumentException
+	 * 				The given dungeon is part of another dungeon.
+	 * 				| dungeon.getParentDungeon() != null
+	 * @throws	IllegalStateException
+	 * 				The given dungeon is terminated.
+	 * 				| dungeon.isTerminated()
+	 */
+	SpaceGraph(Dungeon<? extends Square> dungeon)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if (dungeon.getParentDungeon() != null)
+			throw new IllegalArgumentException();
+		if (dungeon.isTerminated())
+			throw new IllegalStateException();
+		List<Dungeon<? extends Square>> units = new ArrayList<Dungeon<? extends Square>>();
+		collectUnits(dungeon, units);
+		this.units = units.toArray(new Dungeon<?>[units.size()]);
+
+		// Number the squares unit by unit.
+		List<Square> squares = new ArrayList<Square>();
+		List<Integer> squareUnits = new ArrayList<Integer>();
+		for (int unit = 0; unit < this.units.length; unit++) {
+			for (Square square : this.units[unit]) {
+				squareIds.put(square, squares.size());
+				squares.add(square);
+				squareUnits.add(unit);
+			}
+		}
+
+		// Label the spaces with a search over the non-isolating borders, seeded in the order of the squares.
+		int nbSquares = squares.size();
+		int[] squareSpaces = new int[nbSquares];
+		Arrays.fill(squareSpaces, -1);
+		List<Square> representatives = new ArrayList<Square>();
+		List<Integer> sizes = new ArrayList<Integer>();
+		this.unitStarts = new int[this.units.length + 1];
+		int[] stack = new int[nbSquares];
+		for (int seed = 0; seed < nbSquares; seed++) {
+			if ((squareSpaces[seed] != -1) || !squares.get(seed).canChangeTemperature())
+				continue;
+			int space = representatives.size();
+			unitStarts[squareUnits.get(seed) + 1]++;
+			representatives.add(squares.get(seed));
+			int size = 0;
+			int top = 0;
+			stack[top++] = seed;
+			squareSpaces[seed] = space;
+			while (top > 0) {
+				Square square = squares.get(stack[--top]);
+				size++;
+				for (Direction direction : Direction.values()) {
+					if (square.getBorderAt(direction).isIsolating())
+						continue;
+					Integer neighbour = squareIds.get(square.getNeighbour(direction));
+					if ((neighbour != null) && (squareSpaces[neighbour] == -1) &&
+							squares.get(neighbour).canChangeTemperature()) {
+						squareSpaces[neighbour] = space;
+						stack[top++] = neighbour;
+					}
+				}
+			}
+			sizes.add(size);
+		}
+		for (int unit = 0; unit < this.units.length; unit++)
+			unitStarts[unit + 1] += unitStarts[unit];
+		int nbSpaces = representatives.size();
+		this.representatives = representatives.toArray(new Square[nbSpaces]);
+		this.sizes = new int[nbSpaces];
+		for (int space = 0; space < nbSpaces; space++)
+			this.sizes[space] = sizes.get(space);
+		this.minTemperatures = new double[nbSpaces];
+		this.maxTemperatures = new double[nbSpaces];
+		Arrays.fill(minTemperatures, Double.NEGATIVE_INFINITY);
+		Arrays.fill(maxTemperatures, Double.POSITIVE_INFINITY);
+		this.onSeam = new boolean[nbSpaces];
+
+		// Count the isolating borders between each pair of spaces, each border once from its lowest space.
+		Map<Long, int[]> counts = new HashMap<Long, int[]>();
+		List<Square> doorSquares = new ArrayList<Square>();
+		for (int index = 0; index < nbSquares; index++) {
+			int space = squareSpaces[index];
+			if (space == -1)
+				continue;
+			Square square = squares.get(index);
+			minTemperatures[space] = Math.max(minTemperatures[space], square.getMinTemperature().getValueInCelcius());
+			maxTemperatures[space] = Math.min(maxTemperatures[space], square.getMaxTemperature().getValueInCelcius());
+			for (Direction direction : Direction.values()) {
+				Border border = square.getBorderAt(direction);
+				if ((border instanceof Wall) && ((Wall)border).hasDoor()) {
+					doorSquares.add(square);
+					break;
+				}
+			}
+			for (Direction direction : Direction.values()) {
+				Integer neighbour = squareIds.get(square.getNeighbour(direction));
+				if (neighbour == null)
+					continue;
+				if (squareUnits.get(neighbour).intValue() != squareUnits.get(index).intValue())
+					onSeam[space] = true;
+				int otherSpace = squareSpaces[neighbour];
+				if (otherSpace <= space)
+					continue;
+				Long key = ((long)space * nbSpaces) + otherSpace;
+				int[] count = counts.get(key);
+				if (count == null)
+					counts.put(key, count = new int[2]);
+				count[0]++;
+				Border border = square.getBorderAt(direction);
+				if ((border instanceof Wall) && ((Wall)border).hasDoor())
+					count[1]++;
+			}
+		}
+
+		// Store the counts in compressed rows, in increasing order of adjacent space.
+		List<Long> keys = new ArrayList<Long>(counts.keySet());
+		Collections.sort(keys);
+		this.edgeStarts = new int[nbSpaces + 1];
+		for (Long key : keys) {
+			edgeStarts[(int)(key / nbSpaces) + 1]++;
+			edgeStarts[(int)(key % nbSpaces) + 1]++;
+		}
+		for (int space = 0; space < nbSpaces; space++)
+			edgeStarts[space + 1] += edgeStarts[space];
+		int nbEdges = edgeStarts[nbSpaces];
+		this.edgeTargets = new int[nbEdges];
+		this.edgeWalls = new int[nbEdges];
+		this.edgeDoors = new int[nbEdges];
+		int[] next = Arrays.copyOf(edgeStarts, nbSpaces);
+		for (Long key : keys) {
+			int space = (int)(key / nbSpaces);
+			int otherSpace = (int)(key % nbSpaces);
+			int[] count = counts.get(key);
+			addEdge(next[space]++, otherSpace, count);
+			addEdge(next[otherSpace]++, space, count);
+		}
+		this.squareSpaces = squareSpaces;
+		this.doorSquares = doorSquares.toArray(new Square[doorSquares.size()]);
+	}
+
+	/**
+	 * Add the leaf dungeons of the given dungeon to the given list, in the order of their positions.
+	 */
+	static void collectUnits(Dungeon<? extends Square> dungeon, List<Dungeon<? extends Square>> units) {
+		if (!(dungeon instanceof CompositeDungeon<?>)) {
+			units.add(dungeon);
+			return;
+		}
+		Map<Position, ? extends Dungeon<? extends Square>> subDungeons = ((CompositeDungeon<?>)dungeon).getSubDungeons();
+		List<Position> positions = new ArrayList<Position>(subDungeons.keySet());
+		Collections.sort(positions, new Comparator<Position>() {
+			@Override
+			public int compare(Position position1, Position position2) {
+				if (position1.getZ() != position2.getZ())
+					return Long.compare(position1.getZ(), position2.getZ());
+				if (position1.getY() != position2.getY())
+					return Long.compare(position1.getY(), position2.getY());
+				return Long.compare(position1.getX(), position2.getX());
+			}
+		});
+		for (Position position : positions)
+			collectUnits(subDungeons.get(position), units);
+	}
+
+	/**
+	 * Register an edge at the given index to the given space with the given counts of borders and doors.
+	 */
+	private void addEdge(int edge, int target, int[] count) {
+		edgeTargets[edge] = target;
+		edgeWalls[edge] = count[0];
+		edgeDoors[edge] = count[1];
+	}
+
+	/**
+	 * Return the number of units of this graph.
+	 */
+	@Basic @Immutable
+	int getNbUnits() {
+		return units.length;
+	}
+
+	/**
+	 * Return the unit with the given number.
+	 */
+	@Basic @Immutable
+	Dungeon<? extends Square> getUnit(int unit) throws IndexOutOfBoundsException {
+		return units[unit];
+	}
+
+	/**
+	 * Return the number of the first space of the given unit.
+	 */
+	@Basic @Immutable
+	int getUnitStart(int unit) throws IndexOutOfBoundsException {
+		return unitStarts[unit];
+	}
+
+	/**
+	 * Return the number following the number of the last space of the given unit.
+	 */
+	@Basic @Immutable
+	int getUnitEnd(int unit) throws IndexOutOfBoundsException {
+		return unitStarts[unit + 1];
+	}
+
+	/**
+	 * A variable referencing the leaf dungeons of this graph, in the order of their positions.
+	 */
+	private final Dungeon<?>[] units;
+
+	/**
+	 * A variable registering the number of the first space of each unit, followed by the number of spaces.
+	 */
+	private final int[] unitStarts;
+
+	/**
+	 * Return the number of spaces of this graph.
+	 */
+	@Basic @Immutable
+	int getNbSpaces() {
+		return representatives.length;
+	}
+
+	/**
+	 * Return the first square of the given space.
+	 */
+	@Basic @Immutable
+	Square getRepresentative(int space) throws IndexOutOfBoundsException {
+		return representatives[space];
+	}
+
+	/**
+	 * Return the number of squares in the given space.
+	 */
+	@Basic @Immutable
+	int getSize(int space) throws IndexOutOfBoundsException {
+		return sizes[space];
+	}
+
+	/**
+	 * Return the highest minimum temperature of the squares in the given space, in degrees Celcius.
+	 */
+	@Basic @Immutable
+	double getMinTemperature(int space) throws IndexOutOfBoundsException {
+		return minTemperatures[space];
+	}
+
+	/**
+	 * Return the lowest maximum temperature of the squares in the given space, in degrees Celcius.
+	 */
+	@Basic @Immutable
+	double getMaxTemperature(int space) throws IndexOutOfBoundsException {
+		return maxTemperatures[space];
+	}
+
+	/**
+	 * Check whether the given space borders a square of another unit.
+	 */
+	@Basic @Immutable
+	boolean isOnSeam(int space) throws IndexOutOfBoundsException {
+		return onSeam[space];
+	}
+
+	/**
+	 * Return the number of the space of the given square.
+	 *
+	 * @return	-1 if the given square is not part of a space of this graph.
+	 * 			| ...
+	 */
+	int getSpaceOf(Square square) {
+		Integer index = squareIds.get(square);
+		return (index == null) ? -1 : squareSpaces[index];
+	}
+
+	/**
+	 * A variable referencing the first square of each space.
+	 */
+	private final Square[] representatives;
+
+	/**
+	 * A variable registering the number of squares in each space.
+	 */
+	private final int[] sizes;
+
+	/**
+	 * A variable registering the highest minimum temperature of the squares in each space.
+	 */
+	private final double[] minTemperatures;
+
+	/**
+	 * A variable registering the lowest maximum temperature of the squares in each space.
+	 */
+	private final double[] maxTemperatures;
+
+	/**
+	 * A variable registering whether each space lies on a seam between units.
+	 */
+	private final boolean[] onSeam;
+
+	/**
+	 * A variable registering the number of each square of this graph.
+	 */
+	private final Map<Square, Integer> squareIds = new IdentityHashMap<Square, Integer>();
+
+	/**
+	 * A variable registering the space of each square, by number.
+	 */
+	private final int[] squareSpaces;
+
+	/**
+	 * Return the squares of the spaces of this graph that have a wall with a door, in the order of their numbers.
+	 * Opening or closing one of those doors joins or splits spaces, and makes this graph outdated.
+	 */
+	Square[] getDoorSquares() {
+		return doorSquares.clone();
+	}
+
+	/**
+	 * A variable referencing the squares of the spaces of this graph that have a wall with a door.
+	 */
+	private final Square[] doorSquares;
+
+	/**
+	 * Return the index of the first edge of the given space.
+	 */
+	@Basic @Immutable
+	int getEdgeStart(int space) throws IndexOutOfBoundsException {
+		return edgeStarts[space];
+	}
+
+	/**
+	 * Return the index following the index of the last edge of the given space.
+	 */
+	@Basic @Immutable
+	int getEdgeEnd(int space) throws IndexOutOfBoundsException {
+		return edgeStarts[space + 1];
+	}
+
+	/**
+	 * Return the space at the other end of the given edge.
+	 */
+	@Basic @Immutable
+	int getEdgeTarget(int edge) throws IndexOutOfBoundsException {
+		return edgeTargets[edge];
+	}
+
+	/**
+	 * Return the number of isolating borders along the given edge.
+	 */
+	@Basic @Immutable
+	int getNbWalls(int edge) throws IndexOutOfBoundsException {
+		return edgeWalls[edge];
+	}
+
+	/**
+	 * Return the number of walls with a door along the given edge.
+	 */
+	@Basic @Immutable
+	int getNbDoors(int edge) throws IndexOutOfBoundsException {
+		return edgeDoors[edge];
+	}
+
+	/**
+	 * A variable registering the index of the first edge of each space, followed by the number of edges.
+	 */
+	private final int[] edgeStarts;
+
+	/**
+	 * A variable registering the space at the other end of each edge.
+	 */
+	private final int[] edgeTargets;
+
+	/**
+	 * A variable registering the number of isolating borders along each edge.
+	 */
+	private final int[] edgeWalls;
+
+	/**
+	 * A variable registering the number of walls with a door along each edge.
+	 */
+	private final int[] edgeDoors;
+}
@@ -0,0 +1,352 @@
+package project.simulation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import project.dungeons.Dungeon;
+import project.misc.Direction;
+import project.squares.Square;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of labellings of all the spaces of a root dungeon at once, as they are at the moment of labelling.
+ * A space is a maximal set of squares connected through non-isolating borders, as returned by the method
+ * getSquaresInSpace of each of its squares. Squares that can not change their temperature, such as rock, are
+ * labelled as well, unlike in the snapshots of simulations.
+ * The spaces are found with a union-find pass over the non-isolating borders. The leaf dungeons of the dungeon
+ * are its units; the borders within each unit are joined concurrently on a fork/join pool, after which the
+ * borders between squares of different units, its seams, are joined in the order of the units. Labelling takes
+ * near-linear time in the number of squares, where asking each square for its space takes quadratic time.
+ * Squares are numbered unit by unit, in the order of the positions of the units, and spaces are numbered in the
+ * order of their first square.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The sizes of the spaces of this labelling add up to its number of squares.
+ * 			| ...
+ */
+public class SpaceLabelling {
+
+	/**
+	 * Initialise a new labelling of the spaces of the given root dungeon, joining the borders within its units
+	 * on the common fork/join pool.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon of which the spaces are to be labelled.
+	 * @effect	...
+	 * 			| this(dungeon, ForkJoinPool.commonPool())
+	 */
+	public SpaceLabelling(Dungeon<? extends Square> dungeon)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		this(dungeon, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Initialise a new labelling of the spaces of the given root dungeon, joining the borders within its units
+	 * on the given fork/join pool.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon of which the spaces are to be labelled.
+	 * @param	pool
+	 * 				The pool on which the borders within the units are joined.
+	 * @post	...
+	 * 			| new.getDungeon() == dungeon
+	 * @post	...
+	 * 			| for each square in dungeon
+	 * 			|	for each other in dungeon
+	 * 			|		(new.getSpaceOf(square) == new.getSpaceOf(other)) == square.getSquaresInSpace().contains(other)
+	 * @throws	NullPointerException
+	 * 				...
+	 * 				| (dungeon == null) || (pool == null)
+	 * @throws	IllegalArgumentException
+	 * 				The given dungeon is part of another dungeon.
+	 * 				| dungeon.getParentDungeon() != null
+	 * @throws	IllegalStateException
+	 * 				The given dungeon is terminated.
+	 * 				| dungeon.isTerminated()
+	 */
+	public SpaceLabelling(Dungeon<? extends Square> dungeon, ForkJoinPool pool)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if (pool == null)
+			throw new NullPointerException();
+		if (dungeon.getParentDungeon() != null)
+			throw new IllegalArgumentException();
+		if (dungeon.isTerminated())
+			throw new IllegalStateException();
+		this.dungeon = dungeon;
+		List<Dungeon<? extends Square>> units = new ArrayList<Dungeon<? extends Square>>();
+		SpaceGraph.collectUnits(dungeon, units);
+
+		// Number the squares unit by unit.
+		List<Square> squares = new ArrayList<Square>();
+		int[] unitStarts = new int[units.size() + 1];
+		for (int unit = 0; unit < units.size(); unit++) {
+			for (Square square : units.get(unit)) {
+				squareIds.put(square, squares.size());
+				squares.add(square);
+			}
+			unitStarts[unit + 1] = squares.size();
+		}
+		this.squares = squares.toArray(new Square[squares.size()]);
+		int nbSquares = this.squares.length;
+
+		// Join the borders within each unit concurrently, and collect the borders on the seams.
+		int[] parents = new int[nbSquares];
+		int[] ranks = new int[nbSquares];
+		for (int index = 0; index < nbSquares; index++)
+			parents[index] = index;
+		int[][] seams = new int[units.size()][];
+		if (units.size() > 0)
+			pool.invoke(new UnitPhase(this, unitStarts, parents, ranks, seams, 0, units.size()));
+
+		// Join the borders on the seams, in the order of the units.
+		for (int[] unitSeams : seams) {
+			for (int index = 1; index < unitSeams[0]; index += 2)
+				union(parents, ranks, unitSeams[index], unitSeams[index + 1]);
+		}
+
+		// Number the spaces in the order of their first square.
+		int[] rootSpaces = new int[nbSquares];
+		Arrays.fill(rootSpaces, -1);
+		this.squareSpaces = new int[nbSquares];
+		int[] sizes = new int[nbSquares];
+		int nbSpaces = 0;
+		for (int index = 0; index < nbSquares; index++) {
+			int root = find(parents, index);
+			if (rootSpaces[root] == -1)
+				rootSpaces[root] = nbSpaces++;
+			squareSpaces[index] = rootSpaces[root];
+			sizes[rootSpaces[root]]++;
+		}
+		this.sizes = Arrays.copyOf(sizes, nbSpaces);
+		this.representatives = new int[nbSpaces];
+		for (int index = nbSquares - 1; index >= 0; index--)
+			representatives[squareSpaces[index]] = index;
+	}
+
+	/**
+	 * A class of tasks joining the borders within the units in a range, and collecting the non-isolating borders
+	 * between their squares and squares of later units.
+	 */
+	private static final class UnitPhase extends RecursiveAction {
+
+		/**
+		 * Initialise a new task over the units in the given range.
+		 */
+		UnitPhase(SpaceLabelling labelling, int[] unitStarts, int[] parents, int[] ranks, int[][] seams,
+				int fromUnit, int toUnit)
+		{
+			this.labelling = labelling;
+			this.unitStarts = unitStarts;
+			this.parents = parents;
+			this.ranks = ranks;
+			this.seams = seams;
+			this.fromUnit = fromUnit;
+			this.toUnit = toUnit;
+		}
+
+		@Override
+		protected void compute() {
+			if (toUnit - fromUnit > 1) {
+				int middle = (fromUnit + toUnit) >>> 1;
+				invokeAll(new UnitPhase(labelling, unitStarts, parents, ranks, seams, fromUnit, middle),
+						new UnitPhase(labelling, unitStarts, parents, ranks, seams, middle, toUnit));
+			}
+			else {
+				int start = unitStarts[fromUnit], end = unitStarts[fromUnit + 1];
+				// The seams of the unit are stored as pairs of squares, following the number of used entries.
+				int[] unitSeams = new int[9];
+				unitSeams[0] = 1;
+				for (int index = start; index < end; index++) {
+					Square square = labelling.squares[index];
+					for (Direction direction : Direction.values()) {
+						if (square.getBorderAt(direction).isIsolating())
+							continue;
+						Integer neighbour = labelling.squareIds.get(square.getNeighbour(direction));
+						if (neighbour == null)
+							continue;
+						if ((neighbour >= start) && (neighbour < end))
+							union(parents, ranks, index, neighbour);
+						else if (neighbour > index) {
+							if (unitSeams[0] + 2 > unitSeams.length)
+								unitSeams = Arrays.copyOf(unitSeams, 2 * unitSeams.length);
+							unitSeams[unitSeams[0]++] = index;
+							unitSeams[unitSeams[0]++] = neighbour;
+						}
+					}
+				}
+				seams[fromUnit] = unitSeams;
+			}
+		}
+
+		/**
+		 * The labelling of which the squares are joined.
+		 */
+		private final SpaceLabelling labelling;
+
+		/**
+		 * The number of the first square of each unit, followed by the number of squares.
+		 */
+		private final int[] unitStarts;
+
+		/**
+		 * The parent and the rank of each square in the union-find forest.
+		 */
+		private final int[] parents, ranks;
+
+		/**
+		 * The seams collected for each unit.
+		 */
+		private final int[][] seams;
+
+		/**
+		 * The range of units of this task.
+		 */
+		private final int fromUnit, toUnit;
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Return the root of the tree of the given square in the given union-find forest, halving its path.
+	 */
+	private static int find(int[] parents, int index) {
+		while (parents[index] != index) {
+			parents[index] = parents[parents[index]];
+			index = parents[index];
+		}
+		return index;
+	}
+
+	/**
+	 * Join the trees of the given squares in the given union-find forest, by rank.
+	 */
+	private static void union(int[] parents, int[] ranks, int index1, int index2) {
+		int root1 = find(parents, index1), root2 = find(parents, index2);
+		if (root1 == root2)
+			return;
+		if (ranks[root1] < ranks[root2])
+			parents[root1] = root2;
+		else if (ranks[root1] > ranks[root2])
+			parents[root2] = root1;
+		else {
+			parents[root2] = root1;
+			ranks[root1]++;
+		}
+	}
+
+	/**
+	 * Return the dungeon of this labelling.
+	 */
+	@Basic @Immutable
+	public Dungeon<? extends Square> getDungeon() {
+		return dungeon;
+	}
+
+	/**
+	 * A variable referencing the dungeon of this labelling.
+	 */
+	private final Dungeon<? extends Square> dungeon;
+
+	/**
+	 * Return the number of squares of this labelling.
+	 */
+	@Basic @Immutable
+	public int getNbSquares() {
+		return squares.length;
+	}
+
+	/**
+	 * Return the number of spaces of this labelling.
+	 */
+	@Basic @Immutable
+	public int getNbSpaces() {
+		return sizes.length;
+	}
+
+	/**
+	 * Return the number of the space of the given square.
+	 *
+	 * @return	-1 if the given square was not part of the dungeon of this labelling when it was labelled.
+	 * 			| ...
+	 */
+	public int getSpaceOf(Square square) {
+		Integer index = squareIds.get(square);
+		return (index == null) ? -1 : squareSpaces[index];
+	}
+
+	/**
+	 * Return the number of squares in the given space.
+	 */
+	@Basic @Immutable
+	public int getSize(int space) throws IndexOutOfBoundsException {
+		return sizes[space];
+	}
+
+	/**
+	 * Return the first square of the given space.
+	 */
+	@Basic @Immutable
+	public Square getRepresentative(int space) throws IndexOutOfBoundsException {
+		return squares[representatives[space]];
+	}
+
+	/**
+	 * Return a map from each square of this labelling to the number of its space.
+	 *
+	 * @return	...
+	 * 			| (result.size() == getNbSquares()) &&
+	 * 			| for each square in result.keySet()
+	 * 			|	result.get(square) == getSpaceOf(square)
+	 */
+	public Map<Square, Integer> getSpaceIds() {
+		Map<Square, Integer> result = new IdentityHashMap<Square, Integer>();
+		for (int index = 0; index < squares.length; index++)
+			result.put(squares[index], squareSpaces[index]);
+		return result;
+	}
+
+	/**
+	 * Return the number of squares in each space of this labelling, indexed by the number of the space.
+	 *
+	 * @return	...
+	 * 			| (result.length == getNbSpaces()) &&
+	 * 			| for each space in 0..getNbSpaces()-1
+	 * 			|	result[space] == getSize(space)
+	 */
+	public int[] getSizes() {
+		return sizes.clone();
+	}
+
+	/**
+	 * A variable referencing the squares of this labelling, in the order of their numbers.
+	 */
+	private final Square[] squares;
+
+	/**
+	 * A variable registering the number of each square of this labelling.
+	 */
+	private final Map<Square, Integer> squareIds = new IdentityHashMap<Square, Integer>();
+
+	/**
+	 * A variable registering the space of each square, by number.
+	 */
+	private final int[] squareSpaces;
+
+	/**
+	 * A variable registering the number of squares in each space.
+	 */
+	private final int[] sizes;
+
+	/**
+	 * A variable registering the number of the first square of each space.
+	 */
+	private final int[] representatives;
+}
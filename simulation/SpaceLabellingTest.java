@@ -0,0 +1,120 @@
+package project.simulation;
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import project.dungeons.CompositeDungeon;
+import project.dungeons.Level;
+import project.dungeons.Position;
+import project.misc.Direction;
+import project.squares.RockSquare;
+import project.squares.Square;
+import project.squares.SquareImpl;
+import project.squares.borders.Wall;
+/**
+ * A test class for the labelling of spaces.
+ *
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class SpaceLabellingTest {
+	private CompositeDungeon<Square> compositeDungeon;
+	private Level<Square> lowerLevel, upperLevel;
+	private Square doorSquare, rock;
+	private Wall door;
+
+	@Before
+	public void setUpMutableTextFixture() {
+		compositeDungeon = new CompositeDungeon<Square>();
+		compositeDungeon.setSubDungeonAt(lowerLevel = new Level<Square>(10, 10), new Position());
+		compositeDungeon.setSubDungeonAt(upperLevel = new Level<Square>(10, 10), new Position(0, 0, 1));
+		doorSquare = new SquareImpl(Direction.FLOOR, Direction.CEILING, Direction.NORTH, Direction.SOUTH,
+				Direction.EAST);
+		new Wall(true, false).build(doorSquare, Direction.WEST);
+		compositeDungeon.setSquareAt(new Position(4, 2, 0), doorSquare);
+		// A shaft of three squares on each level, open between both levels.
+		for (int x = 1; x <= 3; x++) {
+			compositeDungeon.setSquareAt(new Position(x, 2, 0), new SquareImpl(Direction.FLOOR, Direction.NORTH,
+					Direction.SOUTH));
+			compositeDungeon.setSquareAt(new Position(x, 2, 1), new SquareImpl(Direction.CEILING, Direction.NORTH,
+					Direction.SOUTH));
+		}
+		door = (Wall)doorSquare.getBorderAt(Direction.WEST);
+		compositeDungeon.setSquareAt(new Position(7, 7, 0), new SquareImpl(Direction.values()));
+		compositeDungeon.setSquareAt(new Position(8, 8, 0), rock = new RockSquare());
+		for (int x = 5; x <= 8; x++)
+			compositeDungeon.setSquareAt(new Position(x, 5, 1), new SquareImpl(Direction.FLOOR, Direction.CEILING));
+	}
+
+	@Test
+	public void constructor_LegalCase() {
+		SpaceLabelling labelling = new SpaceLabelling(compositeDungeon);
+		assertSame(compositeDungeon, labelling.getDungeon());
+		assertEquals(13, labelling.getNbSquares());
+		assertEquals(5, labelling.getNbSpaces());
+		int total = 0;
+		for (int size : labelling.getSizes())
+			total += size;
+		assertEquals(13, total);
+	}
+
+	@Test
+	public void constructor_MatchesSquaresInSpace() {
+		SpaceLabelling labelling = new SpaceLabelling(compositeDungeon, new ForkJoinPool(2));
+		Map<Square, Integer> spaceIds = labelling.getSpaceIds();
+		assertEquals(13, spaceIds.size());
+		for (Square square : spaceIds.keySet()) {
+			Set<Square> space = square.getSquaresInSpace();
+			assertEquals(space.size(), labelling.getSize(labelling.getSpaceOf(square)));
+			for (Square other : spaceIds.keySet())
+				assertEquals(space.contains(other), spaceIds.get(square).intValue() == spaceIds.get(other).intValue());
+		}
+	}
+
+	@Test
+	public void constructor_JoinsSeams() {
+		SpaceLabelling labelling = new SpaceLabelling(compositeDungeon);
+		Square lower = compositeDungeon.getSquareAt(new Position(1, 2, 0));
+		Square upper = compositeDungeon.getSquareAt(new Position(3, 2, 1));
+		assertEquals(labelling.getSpaceOf(lower), labelling.getSpaceOf(upper));
+		assertEquals(6, labelling.getSize(labelling.getSpaceOf(lower)));
+		assertSame(lower, labelling.getRepresentative(labelling.getSpaceOf(upper)));
+	}
+
+	@Test
+	public void constructor_Doors() {
+		SpaceLabelling labelling = new SpaceLabelling(compositeDungeon);
+		Square lower = compositeDungeon.getSquareAt(new Position(3, 2, 0));
+		assertTrue(labelling.getSpaceOf(lower) != labelling.getSpaceOf(doorSquare));
+		door.openDoor();
+		labelling = new SpaceLabelling(compositeDungeon);
+		assertEquals(labelling.getSpaceOf(lower), labelling.getSpaceOf(doorSquare));
+		assertEquals(7, labelling.getSize(labelling.getSpaceOf(doorSquare)));
+		assertEquals(4, labelling.getNbSpaces());
+	}
+
+	@Test
+	public void constructor_SpacesInOrderOfFirstSquare() {
+		SpaceLabelling labelling = new SpaceLabelling(compositeDungeon);
+		assertEquals(0, labelling.getSpaceOf(lowerLevel.iterator().next()));
+		assertEquals(1, labelling.getSize(labelling.getSpaceOf(rock)));
+		assertEquals(-1, labelling.getSpaceOf(new SquareImpl()));
+	}
+
+	@Test
+	public void constructor_EmptyDungeon() {
+		SpaceLabelling labelling = new SpaceLabelling(new Level<Square>(10, 10));
+		assertEquals(0, labelling.getNbSquares());
+		assertEquals(0, labelling.getNbSpaces());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_SubDungeon() {
+		new SpaceLabelling(upperLevel);
+	}
+}
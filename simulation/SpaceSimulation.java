@@ -0,0 +1,195 @@
+package project.simulation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import project.dungeons.Dungeon;
+import project.dungeons.DungeonListener;
+import project.squares.Square;
+import project.squares.SquareListener;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of simulations that advance the spaces of a root dungeon tick by tick.
+ * A simulation registers the spaces of its dungeon in primitive arrays when they are first needed, and registers
+ * them again after a square has been added to or removed from the dungeon, or after a border has been replaced
+ * or a door has been opened or closed. To notice those changes, a simulation listens to its dungeon, to one
+ * square of each space and to each square with a door. It keeps listening to those squares until the spaces
+ * are registered again, so that no change to a square is missed in between.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The dungeon of this simulation is effective and is not part of another dungeon.
+ * 			| (getDungeon() != null) && (getDungeon().getParentDungeon() == null)
+ */
+public abstract class SpaceSimulation implements DungeonListener, SquareListener {
+
+	/**
+	 * Initialise a new simulation over the given root dungeon.
+	 *
+	 * @param	dungeon
+	 * 				The dungeon to be simulated.
+	 * @post	...
+	 * 			| new.getDungeon() == dungeon
+	 * @post	...
+	 * 			| dungeon.hasAsDungeonListener(new)
+	 * @throws	NullPointerException
+	 * 				The given dungeon is not effective.
+	 * 				| dungeon == null
+	 * @throws	IllegalArgumentException
+	 * 				The given dungeon is part of another dungeon.
+	 * 				| dungeon.getParentDungeon() != null
+	 * @throws	IllegalStateException
+	 * 				The given dungeon is terminated.
+	 * 				| dungeon.isTerminated()
+	 */
+	protected SpaceSimulation(Dungeon<? extends Square> dungeon)
+		throws NullPointerException, IllegalArgumentException, IllegalStateException
+	{
+		if (dungeon.getParentDungeon() != null)
+			throw new IllegalArgumentException();
+		if (dungeon.isTerminated())
+			throw new IllegalStateException();
+		this.dungeon = dungeon;
+		dungeon.addDungeonListener(this);
+	}
+
+	/**
+	 * Return the dungeon of this simulation.
+	 */
+	@Basic @Immutable
+	public Dungeon<? extends Square> getDungeon() {
+		return dungeon;
+	}
+
+	/**
+	 * A variable referencing the dungeon of this simulation.
+	 */
+	private final Dungeon<? extends Square> dungeon;
+
+	/**
+	 * Return the number of spaces of the dungeon of this simulation.
+	 */
+	public int getNbSpaces() {
+		return getGraph().getNbSpaces();
+	}
+
+	/**
+	 * Advance this simulation by one tick.
+	 *
+	 * @throws	IllegalStateException
+	 * 				The dungeon of this simulation is terminated.
+	 * 				| getDungeon().isTerminated()
+	 */
+	public abstract void tick() throws IllegalStateException;
+
+	/**
+	 * Do nothing, as changes to the temperature or humidity of a square do not change the spaces.
+	 */
+	@Override
+	public void squareChanged(Square square) {
+	}
+
+	/**
+	 * Discard the registered spaces, as a border of the given square has been replaced, opened or closed.
+	 */
+	@Override
+	public void bordersChanged(Square square) {
+		invalidate();
+	}
+
+	/**
+	 * Discard the registered spaces, as a square has been added to the dungeon.
+	 */
+	@Override
+	public void squareAdded(Square square) {
+		invalidate();
+	}
+
+	/**
+	 * Discard the registered spaces, as a square has been removed from the dungeon.
+	 */
+	@Override
+	public void squareRemoved(Square square) {
+		invalidate();
+	}
+
+	/**
+	 * Discard the registered spaces of the dungeon, so that they are registered again when next needed.
+	 */
+	public void invalidate() {
+		graph = null;
+	}
+
+	/**
+	 * Stop this simulation from listening to its dungeon and its squares.
+	 *
+	 * @post	...
+	 * 			| !getDungeon().hasAsDungeonListener(this)
+	 */
+	public void detach() {
+		stopListening();
+		graph = null;
+		getDungeon().removeDungeonListener(this);
+	}
+
+	/**
+	 * Stop listening to the squares this simulation listens to.
+	 */
+	private void stopListening() {
+		if (listenedSquares != null) {
+			for (Square square : listenedSquares)
+				square.removeSquareListener(this);
+			listenedSquares = null;
+		}
+	}
+
+	/**
+	 * Return the registered spaces of the dungeon, registering them first if they have been discarded.
+	 *
+	 * @throws	IllegalStateException
+	 * 				The dungeon of this simulation is terminated.
+	 * 				| getDungeon().isTerminated()
+	 */
+	SpaceGraph getGraph() throws IllegalStateException {
+		SpaceGraph result = graph;
+		if (result == null) {
+			result = new SpaceGraph(getDungeon());
+			stopListening();
+			List<Square> listenedSquares = new ArrayList<Square>();
+			for (int space = 0; space < result.getNbSpaces(); space++)
+				listenedSquares.add(result.getRepresentative(space));
+			Collections.addAll(listenedSquares, result.getDoorSquares());
+			for (Square square : listenedSquares)
+				square.addSquareListener(this);
+			this.listenedSquares = listenedSquares;
+			this.graph = result;
+			spacesRegistered(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Prepare this simulation for the given newly registered spaces.
+	 */
+	void spacesRegistered(SpaceGraph graph) {
+	}
+
+	/**
+	 * Return the registered spaces of the dungeon, null if they have been discarded.
+	 */
+	SpaceGraph getRegisteredGraph() {
+		return graph;
+	}
+
+	/**
+	 * A variable referencing the registered spaces of the dungeon, null if they have to be registered again.
+	 */
+	private SpaceGraph graph;
+
+	/**
+	 * A variable referencing the squares this simulation listens to, null if it does not listen to any square.
+	 */
+	private List<Square> listenedSquares;
+}
@@ -0,0 +1,23 @@
+package project.simulation;
+import project.squares.Square;
+
+/**
+ * An interface for updates that a simulation scheduler applies to each space of its dungeon every tick.
+ * The updates of spaces that do not lie on a seam between units may run concurrently, so that an update
+ * may only change the squares of the space it is given, and must tolerate being called from several threads.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ */
+public interface SpaceUpdate {
+
+	/**
+	 * Update the space of the given square for the given tick.
+	 *
+	 * @param	square
+	 * 				A square of the space to update.
+	 * @param	tick
+	 * 				The number of the tick, starting from zero.
+	 */
+	public void updateSpace(Square square, long tick);
+}
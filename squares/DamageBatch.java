@@ -0,0 +1,239 @@
+package project.squares;
+
+import java.util.Collection;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A batch of squares of which the cold, heat and rust damage is computed at once.
+ * The temperatures and humidities of the squares are exported into primitive arrays, so that the damages
+ * of all the squares are computed in one loop over those arrays, without calls on the squares and
+ * without allocating temperatures or big decimals. The computed damages equal those of the squares themselves.
+ * 
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ * @Invar	The arrays of this batch all have the same length as the number of squares of this batch.
+ * 			| ...
+ */
+public class DamageBatch {
+
+	/**
+	 * Initialise a new batch for the given squares, exporting their current temperatures and humidities.
+	 * 
+	 * @param	squares
+	 * 				The squares of the new batch.
+	 * @post	...
+	 * 			| new.getNbSquares() == squares.size()
+	 * @post	The temperatures and humidities of the new batch are those of the given squares, in iteration order.
+	 * 			| ...
+	 * @throws	NullPointerException
+	 * 				The given collection is not effective or contains a non-effective square.
+	 * 				| (squares == null) || squares.contains(null)
+	 */
+	public DamageBatch(Collection<? extends Square> squares) throws NullPointerException {
+		this(squares.size());
+		int index = 0;
+		for (Square square : squares) {
+			temperatures[index] = square.getTemperatureInCelcius();
+			humidities[index] = square.getHumidityInHundredths();
+			index++;
+		}
+	}
+
+	/**
+	 * Initialise a new batch with the given temperatures and humidities.
+	 * 
+	 * @param	temperatures
+	 * 				The temperatures of the squares, in degrees Celcius.
+	 * @param	humidities
+	 * 				The humidities of the squares, in hundredths of a percent.
+	 * @throws	NullPointerException
+	 * 				One of the given arrays is not effective.
+	 * 				| (temperatures == null) || (humidities == null)
+	 * @throws	IllegalArgumentException
+	 * 				The given arrays do not have the same length.
+	 * 				| temperatures.length != humidities.length
+	 */
+	public DamageBatch(double[] temperatures, long[] humidities)
+		throws NullPointerException, IllegalArgumentException
+	{
+		this(temperatures.length);
+		if (humidities.length != temperatures.length)
+			throw new IllegalArgumentException();
+		System.arraycopy(temperatures, 0, this.temperatures, 0, temperatures.length);
+		System.arraycopy(humidities, 0, this.humidities, 0, humidities.length);
+	}
+
+	/**
+	 * Initialise a new batch for the given number of squares.
+	 */
+	private DamageBatch(int nbSquares) {
+		this.temperatures = new double[nbSquares];
+		this.humidities = new long[nbSquares];
+		this.coldDamages = new int[nbSquares];
+		this.heatDamages = new int[nbSquares];
+		this.rustDamages = new int[nbSquares];
+	}
+
+	/**
+	 * Return the number of squares of this batch.
+	 */
+	@Basic
+	public int getNbSquares() {
+		return temperatures.length;
+	}
+
+	/**
+	 * Return the temperature of the square at the given index, in degrees Celcius.
+	 */
+	@Basic
+	public double getTemperatureAt(int index) throws IndexOutOfBoundsException {
+		return temperatures[index];
+	}
+
+	/**
+	 * Return the humidity of the square at the given index, in hundredths of a percent.
+	 */
+	@Basic
+	public long getHumidityAt(int index) throws IndexOutOfBoundsException {
+		return humidities[index];
+	}
+
+	/**
+	 * Compute the cold, heat and rust damage of each square of this batch.
+	 * 
+	 * @post	...
+	 * 			| for each index in 0..getNbSquares()-1
+	 * 			|	(new.getColdDamageAt(index) == getColdDamage(getTemperatureAt(index))) &&
+	 * 			|	(new.getHeatDamageAt(index) == getHeatDamage(getTemperatureAt(index))) &&
+	 * 			|	(new.getRustDamageAt(index) == getRustDamage(getHumidityAt(index)))
+	 */
+	public void computeDamages() {
+		computeDamages(temperatures, humidities, coldDamages, heatDamages, rustDamages, temperatures.length,
+				SquareImpl.getHeatDamageBoundaryTemperature().getValueInCelcius(),
+				SquareImpl.getHeatDamagePerDegreeCelcius());
+	}
+
+	/**
+	 * Compute the damages for the given number of temperatures and humidities into the given arrays.
+	 * The loop only reads and writes primitive arrays and only calls static methods that can be inlined.
+	 */
+	private static void computeDamages(double[] temperatures, long[] humidities, int[] coldDamages,
+			int[] heatDamages, int[] rustDamages, int length, double heatDamageBoundary, double heatDamagePerDegree)
+	{
+		for (int index = 0; index < length; index++) {
+			double temperature = temperatures[index];
+			coldDamages[index] = getColdDamage(temperature);
+			heatDamages[index] = getHeatDamage(temperature, heatDamageBoundary, heatDamagePerDegree);
+			rustDamages[index] = getRustDamage(humidities[index]);
+		}
+	}
+
+	/**
+	 * Return the cold damage of a square with the given temperature.
+	 * 
+	 * @param	temperature
+	 * 				The temperature in degrees Celcius.
+	 * @return	...
+	 * 			| if (temperature >= -5)
+	 * 			|	then result == 0
+	 * 			| else result == (int)Math.floor(-temperature / 10 - 0.5)
+	 */
+	public static int getColdDamage(double temperature) {
+		if (temperature >= COLD_DAMAGE_BOUNDARY)
+			return 0;
+		return (int)Math.floor(-temperature / 10 - 0.5);
+	}
+
+	/**
+	 * Return the heat damage of a square with the given temperature.
+	 * 
+	 * @param	temperature
+	 * 				The temperature in degrees Celcius.
+	 * @return	...
+	 * 			| result == getHeatDamage(temperature, SquareImpl.getHeatDamageBoundaryTemperature().getValueInCelcius(),
+	 * 			|	SquareImpl.getHeatDamagePerDegreeCelcius())
+	 */
+	public static int getHeatDamage(double temperature) {
+		return getHeatDamage(temperature, SquareImpl.getHeatDamageBoundaryTemperature().getValueInCelcius(),
+				SquareImpl.getHeatDamagePerDegreeCelcius());
+	}
+
+	/**
+	 * Return the heat damage of a square with the given temperature, for the given boundary temperature and
+	 * damage per degree.
+	 */
+	private static int getHeatDamage(double temperature, double boundary, double damagePerDegree) {
+		if (temperature <= boundary)
+			return 0;
+		return (int)Math.min((double)Integer.MAX_VALUE, Math.floor((temperature - boundary) * damagePerDegree));
+	}
+
+	/**
+	 * Return the rust damage of a square with the given humidity.
+	 * 
+	 * @param	humidity
+	 * 				The humidity in hundredths of a percent.
+	 * @return	...
+	 * 			| if (humidity <= 3000)
+	 * 			|	then result == 0
+	 * 			| else result == (humidity - 3000) / 700
+	 */
+	public static int getRustDamage(long humidity) {
+		if (humidity <= RUST_DAMAGE_BOUNDARY)
+			return 0;
+		return (int)((humidity - RUST_DAMAGE_BOUNDARY) / HUMIDITY_PER_RUST_DAMAGE_POINT);
+	}
+
+	/**
+	 * Return the computed cold damage of the square at the given index.
+	 */
+	@Basic
+	public int getColdDamageAt(int index) throws IndexOutOfBoundsException {
+		return coldDamages[index];
+	}
+
+	/**
+	 * Return the computed heat damage of the square at the given index.
+	 */
+	@Basic
+	public int getHeatDamageAt(int index) throws IndexOutOfBoundsException {
+		return heatDamages[index];
+	}
+
+	/**
+	 * Return the computed rust damage of the square at the given index.
+	 */
+	@Basic
+	public int getRustDamageAt(int index) throws IndexOutOfBoundsException {
+		return rustDamages[index];
+	}
+
+	/**
+	 * The temperature in degrees Celcius below which cold damage occurs.
+	 */
+	private static final double COLD_DAMAGE_BOUNDARY = -5;
+
+	/**
+	 * The humidity in hundredths of a percent above which rust damage occurs.
+	 */
+	private static final long RUST_DAMAGE_BOUNDARY = 3000;
+
+	/**
+	 * The humidity in hundredths of a percent per point of rust damage.
+	 */
+	private static final long HUMIDITY_PER_RUST_DAMAGE_POINT = 700;
+
+	/**
+	 * Variables registering the temperatures and humidities of the squares of this batch.
+	 */
+	private final double[] temperatures;
+	private final long[] humidities;
+
+	/**
+	 * Variables registering the computed damages of the squares of this batch.
+	 */
+	private final int[] coldDamages;
+	private final int[] heatDamages;
+	private final int[] rustDamages;
+}
@@ -0,0 +1,75 @@
+package project.squares;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import project.dungeons.Level;
+import project.dungeons.Position;
+import project.misc.Direction;
+import project.temperature.Temperature;
+
+/**
+ * A test class for the damage batch class.
+ * 
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class DamageBatchTest {
+
+	@Test
+	public void computeDamages_SameAsSquares() {
+		List<Square> squares = new ArrayList<Square>();
+		for (int temperature = -200; temperature <= 500; temperature += 7)
+			for (int humidity = 0; humidity <= 10000; humidity += 373)
+				squares.add(new SquareImpl(new Temperature(temperature + 0.25), 
+						new BigDecimal(humidity).movePointLeft(2), false, Direction.FLOOR));
+		squares.add(new SquareImpl(new Temperature(-5), new BigDecimal("30.005"), false, Direction.FLOOR));
+		squares.add(new SquareImpl(new Temperature(35), new BigDecimal("37.00"), false, Direction.FLOOR));
+		DamageBatch batch = new DamageBatch(squares);
+		batch.computeDamages();
+		assertEquals(squares.size(), batch.getNbSquares());
+		for (int index = 0; index < squares.size(); index++) {
+			Square square = squares.get(index);
+			assertEquals(square.getColdDamage(), batch.getColdDamageAt(index));
+			assertEquals(square.getHeatDamage(), batch.getHeatDamageAt(index));
+			assertEquals(square.getRustDamage(), batch.getRustDamageAt(index));
+		}
+	}
+
+	@Test
+	public void computeDamages_RockSquare() {
+		Level<Square> level = new Level<Square>(10, 10);
+		level.setSquareAt(new Position(1, 2, 0), new SquareImpl(new Temperature(80), new BigDecimal(50), false,
+				Direction.values()));
+		RockSquare rock = new RockSquare();
+		level.setSquareAt(new Position(1, 3, 0), rock);
+		List<Square> squares = new ArrayList<Square>();
+		squares.add(rock);
+		DamageBatch batch = new DamageBatch(squares);
+		batch.computeDamages();
+		assertEquals(rock.getHeatDamage(), batch.getHeatDamageAt(0));
+		assertTrue(batch.getHeatDamageAt(0) > 0);
+	}
+
+	@Test
+	public void computeDamages_Arrays() {
+		DamageBatch batch = new DamageBatch(new double[] {-30, 20, 95}, new long[] {3000, 3700, 10000});
+		batch.computeDamages();
+		assertEquals(2, batch.getColdDamageAt(0));
+		assertEquals(0, batch.getRustDamageAt(0));
+		assertEquals(1, batch.getRustDamageAt(1));
+		// The heat damage depends on the heat damage settings shared by all squares.
+		Square hot = new SquareImpl(new Temperature(95), new BigDecimal("100.00"), false, Direction.FLOOR);
+		assertEquals(hot.getHeatDamage(), batch.getHeatDamageAt(2));
+		assertEquals(10, batch.getRustDamageAt(2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_DifferentLengths() {
+		new DamageBatch(new double[2], new long[3]);
+	}
+}
@@ -2,6 +2,7 @@ package project.squares;
 
 import java.math.BigDecimal;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 import project.misc.*;
 import project.squares.borders.*;
@@ -43,6 +44,45 @@ public class RockSquare extends SquareImpl {
 	 */
 	@Override
 	public Temperature getTemperature() {
+		return getCachedTemperature().temperature;
+	}
+
+	/**
+	 * Return the temperature of this rock square in degrees Celcius, that is, the mean of the temperatures
+	 * of the neighbouring squares.
+	 * The temperature is cached until a neighbouring space merges or a border of this square is replaced.
+	 * 
+	 * @result	...
+	 * 			| result == getTemperature().getValueInCelcius()
+	 */
+	@Override
+	public double getTemperatureInCelcius() {
+		return getCachedTemperature().celcius;
+	}
+
+	/**
+	 * Return the cached temperature of this rock square, calculating it anew if it has been invalidated.
+	 * The version of the cache is read before calculating, and a calculated temperature is only used while the
+	 * version has not changed since, so that a temperature calculated from neighbours that change concurrently is
+	 * never used after the change.
+	 */
+	@Model
+	private CachedTemperature getCachedTemperature() {
+		long version = temperatureVersion;
+		CachedTemperature result = cachedTemperature;
+		if ((result != null) && (result.version == version))
+			return result;
+		double celcius = calculateTemperatureInCelcius();
+		result = new CachedTemperature(version, celcius, new Temperature(celcius));
+		cachedTemperature = result;
+		return result;
+	}
+
+	/**
+	 * Calculate the mean of the temperatures of the non-rock neighbours of this rock square, in degrees Celcius.
+	 */
+	@Model
+	private double calculateTemperatureInCelcius() {
 		double result = 0;
 		int nbNeighbours = 0;
 		for (Direction direction : Direction.values()) {
@@ -54,12 +94,73 @@ public class RockSquare extends SquareImpl {
 			for (Direction direction : Direction.values()) {
 				Square neighbour = getNeighbour(direction);
 				if ((neighbour != null) && ! (neighbour instanceof RockSquare))
-					result += neighbour.getTemperature().getValueInCelcius() / nbNeighbours; 
+					result += neighbour.getTemperatureInCelcius() / nbNeighbours; 
 			}
 		}
-		return new Temperature(result);
+		return result;
 	}
 
+	/**
+	 * Discard the cached temperature of this rock square and notify its listeners that it may have changed.
+	 */
+	@Override
+	protected void notifySquareChanged() {
+		invalidateTemperature();
+		super.notifySquareChanged();
+	}
+
+	/**
+	 * Discard the cached temperature of this rock square, as its neighbours may have changed, and notify its listeners.
+	 */
+	@Override
+	public void notifyBordersChanged() {
+		invalidateTemperature();
+		super.notifyBordersChanged();
+	}
+
+	/**
+	 * Discard the cached temperature of this rock square.
+	 */
+	private void invalidateTemperature() {
+		VERSION_UPDATER.incrementAndGet(this);
+		cachedTemperature = null;
+	}
+
+	/**
+	 * A class of cached temperatures of a rock square, registering the version of the cache for which they were
+	 * calculated, and the temperature both in degrees Celcius and as a temperature object.
+	 */
+	private static final class CachedTemperature {
+
+		private CachedTemperature(long version, double celcius, Temperature temperature) {
+			this.version = version;
+			this.celcius = celcius;
+			this.temperature = temperature;
+		}
+
+		private final long version;
+		private final double celcius;
+		private final Temperature temperature;
+	}
+
+	/**
+	 * A variable registering the version of the cached temperature of this rock square, incremented each time
+	 * the cache is invalidated. It is updated through a field updater rather than held in an atomic object, as
+	 * the cache may already be used while the superclass constructor runs.
+	 */
+	private volatile long temperatureVersion;
+
+	/**
+	 * The updater incrementing the version of the cached temperature of rock squares atomically.
+	 */
+	private static final AtomicLongFieldUpdater<RockSquare> VERSION_UPDATER =
+			AtomicLongFieldUpdater.newUpdater(RockSquare.class, "temperatureVersion");
+
+	/**
+	 * A variable caching the temperature of this rock square, null if it has to be recalculated.
+	 */
+	private volatile CachedTemperature cachedTemperature;
+
 	
 	/**
 	 * Check whether it is possible to change the temperature of this square.
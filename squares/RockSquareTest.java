@@ -2,11 +2,14 @@ package project.squares;
 
 import static org.junit.Assert.*;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.junit.Test;
 
 import project.dungeons.Dungeon;
 import project.dungeons.Level;
 import project.dungeons.Position;
+import project.misc.Direction;
 import project.temperature.Temperature;
 
 public class RockSquareTest {
@@ -34,4 +37,78 @@ public class RockSquareTest {
 		dungeon.setSquareAt(new Position(3, 2, 0), sq3);
 		assertEquals(new Temperature(60), square.getTemperature());
 	}
+
+	private static double recalculateTemperature(Square rock) {
+		double result = 0;
+		int nbNeighbours = 0;
+		for (Direction direction : Direction.values()) {
+			Square neighbour = rock.getNeighbour(direction);
+			if ((neighbour != null) && !(neighbour instanceof RockSquare))
+				nbNeighbours++;
+		}
+		for (Direction direction : Direction.values()) {
+			Square neighbour = rock.getNeighbour(direction);
+			if ((neighbour != null) && !(neighbour instanceof RockSquare))
+				result += neighbour.getTemperatureInCelcius() / nbNeighbours;
+		}
+		return result;
+	}
+
+	@Test
+	public void getTemperature_CachedFollowsChanges() {
+		Dungeon<Square> dungeon = new Level<Square>();
+		Square rock = new RockSquare();
+		dungeon.setSquareAt(new Position(3, 1, 0), rock);
+		Square west = new SquareImpl();
+		dungeon.setSquareAt(new Position(2, 1, 0), west);
+		Square farWest = new SquareImpl();
+		dungeon.setSquareAt(new Position(1, 1, 0), farWest);
+		assertEquals(recalculateTemperature(rock), rock.getTemperatureInCelcius(), 0);
+		assertSame(rock.getTemperature(), rock.getTemperature());
+
+		// Changing a square in the space of a neighbour merges the neighbour as well.
+		farWest.changeTemperature(new Temperature(85));
+		assertEquals(recalculateTemperature(rock), rock.getTemperatureInCelcius(), 0);
+		assertEquals(rock.getTemperatureInCelcius(), rock.getTemperature().getValueInCelcius(), 0);
+
+		Square east = new SquareImpl();
+		east.changeTemperature(new Temperature(-40));
+		dungeon.setSquareAt(new Position(4, 1, 0), east);
+		assertEquals(recalculateTemperature(rock), rock.getTemperatureInCelcius(), 0);
+
+		dungeon.removeSquareAt(new Position(2, 1, 0));
+		assertEquals(-40, rock.getTemperatureInCelcius(), 0);
+		assertEquals(recalculateTemperature(rock), rock.getTemperatureInCelcius(), 0);
+
+		dungeon.removeSquareAt(new Position(4, 1, 0));
+		assertEquals(0, rock.getTemperatureInCelcius(), 0);
+	}
+
+	@Test
+	public void getTemperature_ConcurrentReadersSeeLastChange() throws InterruptedException {
+		Dungeon<Square> dungeon = new Level<Square>();
+		final Square rock = new RockSquare();
+		dungeon.setSquareAt(new Position(3, 1, 0), rock);
+		final Square west = new SquareImpl();
+		dungeon.setSquareAt(new Position(2, 1, 0), west);
+		final AtomicBoolean done = new AtomicBoolean();
+		Thread[] readers = new Thread[2];
+		for (int i = 0; i < readers.length; i++) {
+			readers[i] = new Thread() {
+				@Override
+				public void run() {
+					while (!done.get())
+						rock.getTemperature();
+				}
+			};
+			readers[i].start();
+		}
+		for (int i = 0; i < 2000; i++)
+			west.changeTemperature(new Temperature(i % 100));
+		done.set(true);
+		for (Thread reader : readers)
+			reader.join();
+		assertEquals(recalculateTemperature(rock), rock.getTemperatureInCelcius(), 0);
+		assertEquals(rock.getTemperatureInCelcius(), rock.getTemperature().getValueInCelcius(), 0);
+	}
 }
@@ -44,6 +44,14 @@ public interface Square {
 	 */
 	public Temperature getTemperature();
 
+	/**
+	 * Return the temperature of this square in degrees Celcius.
+	 * 
+	 * @return	...
+	 * 			| result == getTemperature().getValueInCelcius()
+	 */
+	public double getTemperatureInCelcius();
+
 	/**
 	 * Set the temperature of this square.
 	 * 
@@ -60,6 +68,18 @@ public interface Square {
 	public void changeTemperature(Temperature temperature)
 			throws NullPointerException, TemperatureOutOfRangeException;
 
+	/**
+	 * Set the temperature of this square to the given temperature in degrees Celcius.
+	 * 
+	 * @param 	temperature
+	 *				The new temperature of this square, in degrees Celcius.
+	 * @effect	...
+	 * 			| changeTemperature(new Temperature(temperature))
+	 */
+	@Raw
+	public void changeTemperatureInCelcius(double temperature)
+			throws TemperatureOutOfRangeException;
+
 	/**
 	 * Check whether it is possible to change the temperature of this square.
 	 */
@@ -81,6 +101,18 @@ public interface Square {
 	public boolean canHaveAsTemperature(Temperature temperature)
 			throws NullPointerException;
 
+	/**
+	 * Return whether a given temperature in degrees Celcius is valid for this square.
+	 * 
+	 * @param 	temperature
+	 *				The temperature to check, in degrees Celcius.
+	 * @return	...
+	 * 			| result == (temperature >= getMinTemperature().getValueInCelcius()) &&
+	 * 			|	(temperature <= getMaxTemperature().getValueInCelcius())
+	 */
+	@Raw
+	public boolean canHaveAsTemperatureInCelcius(double temperature);
+
 	/**
 	 * Return the minimum temperature of this square.
 	 */
@@ -184,6 +216,14 @@ public interface Square {
 	@Basic
 	public BigDecimal getHumidity();
 
+	/**
+	 * Return the humidity of this square in hundredths of a percent.
+	 * 
+	 * @return	...
+	 * 			| result == getHumidity().movePointRight(2).longValue()
+	 */
+	public long getHumidityInHundredths();
+
 	/**
 	 * Set the humidity of the square to the given humidity.
 	 * 
@@ -586,6 +626,29 @@ public interface Square {
 	public void merge(Temperature mergedTemperature, BigDecimal mergedHumidity, @Raw Square mergeOrigin) 
 	 	throws TemperatureOutOfRangeException, NullPointerException;
 
+	/**
+	 * Set the temperature and the humidity of all the squares in the space of this square to the given values,
+	 * so that the space stays merged.
+	 * 
+	 * @param	temperature
+	 * 				The new temperature of the space, in degrees Celcius.
+	 * @param	humidity
+	 * 				The new humidity of the space, in hundredths of a percent.
+	 * @post	...
+	 * 			| for each Square square in getSquaresInSpace()
+	 * 			|	(new square).getTemperatureInCelcius() == temperature &&
+	 * 			|	(new square).getHumidityInHundredths() == humidity
+	 * @throws	TemperatureOutOfRangeException
+	 * 				The given temperature is invalid for at least one of the squares in the space of this square.
+	 * 				| for some Square square in getSquaresInSpace()
+	 * 				| 	!square.canHaveAsTemperatureInCelcius(temperature)
+	 * @throws	IllegalArgumentException
+	 * 				The given humidity is not a valid humidity.
+	 * 				| !isValidHumidity(BigDecimal.valueOf(humidity, 2))
+	 */
+	public void changeSpaceConditions(double temperature, long humidity)
+		throws TemperatureOutOfRangeException, IllegalArgumentException;
+
 	/**
 	 * Check whether all the squares in the space of this square are merged, that is, if they all have the same temperature and humidity.
 	 * 
@@ -687,6 +750,106 @@ public interface Square {
 	 */
 	public Set<Square> getNewCheckedNavigationSquares(Square navigationTarget, Set<Square> checkedSquares);
 		
+	/**
+	 * Register the given listener to be notified of the changes to this square.
+	 *
+	 * @param	listener
+	 * 				The listener to register.
+	 * @post	...
+	 * 			| new.hasAsSquareListener(listener)
+	 * @throws	NullPointerException
+	 * 				The given listener is not effective.
+	 * 				| listener == null
+	 */
+	public void addSquareListener(SquareListener listener) throws NullPointerException;
+
+	/**
+	 * Unregister the given listener.
+	 *
+	 * @param	listener
+	 * 				The listener to unregister.
+	 * @post	...
+	 * 			| !new.hasAsSquareListener(listener)
+	 */
+	public void removeSquareListener(SquareListener listener);
+
+	/**
+	 * Check whether the given listener is registered to be notified of the changes to this square.
+	 *
+	 * @param	listener
+	 * 				The listener to check.
+	 */
+	public boolean hasAsSquareListener(SquareListener listener);
+
+	/**
+	 * Notify the listeners of this square that one of its borders has been replaced, or that a door in one of
+	 * its borders has been opened or closed.
+	 */
+	public void notifyBordersChanged();
+
+	/**
+	 * Return the teleportation squares that have this square as a target square.
+	 *
+	 * @return	...
+	 * 			| for each teleporter in result
+	 * 			|	teleporter.hasTargetSquare(this)
+	 */
+	public Set<TeleportationSquare> getTeleportationSources();
+
+	/**
+	 * Return the number of teleportation squares that have this square as a target square.
+	 *
+	 * @return	...
+	 * 			| result == getTeleportationSources().size()
+	 */
+	public int getNbTeleportationSources();
+
+	/**
+	 * Check whether the given teleportation square has this square as a target square.
+	 *
+	 * @param	teleporter
+	 * 				The teleportation square to check.
+	 * @return	...
+	 * 			| result == getTeleportationSources().contains(teleporter)
+	 */
+	public boolean hasAsTeleportationSource(TeleportationSquare teleporter);
+
+	/**
+	 * Register the given teleportation square as a teleportation square that has this square as a target square.
+	 *
+	 * @param	teleporter
+	 * 				The teleportation square to register.
+	 * @Pre		...
+	 * 			| (teleporter != null) && teleporter.hasTargetSquare(this)
+	 * @Post	...
+	 * 			| new.hasAsTeleportationSource(teleporter)
+	 */
+	public void addTeleportationSource(@Raw TeleportationSquare teleporter);
+
+	/**
+	 * Unregister the given teleportation square as a teleportation square that has this square as a target square.
+	 *
+	 * @param	teleporter
+	 * 				The teleportation square to unregister.
+	 * @Pre		...
+	 * 			| !teleporter.hasTargetSquare(this)
+	 * @Post	...
+	 * 			| !new.hasAsTeleportationSource(teleporter)
+	 */
+	public void removeTeleportationSource(TeleportationSquare teleporter);
+
+	/**
+	 * Remove this square from the target squares of every teleportation square that has another target square.
+	 * A teleportation square of which this square is the only target square keeps it, as a teleportation square
+	 * must have at least one target square.
+	 *
+	 * @effect	...
+	 * 			| for each teleporter in getTeleportationSources()
+	 * 			|	if (teleporter.getNbTargetSquares() >= 2)
+	 * 			|		then teleporter.removeTargetSquare(this)
+	 */
+	public void detachTeleportationSources();
+
 	/**
 	 * Disconnect this square from its neighbours and split every border so that
 	 * this square and every former neighbour end up with neighbourless copies of it.
@@ -1,8 +1,10 @@
 package project.squares;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -67,8 +69,8 @@ public class SquareImpl implements Square {
 	public SquareImpl(Temperature temperature, BigDecimal humidity, Boolean hasSlipperyMaterial, Direction... wallDirections)
 		throws NullPointerException, TemperatureOutOfRangeException, IllegalArgumentException
 	{
-		this.minTemperature = new Temperature(-200);
-		this.maxTemperature = new Temperature(5000);
+		this.minTemperature = DEFAULT_MIN_TEMPERATURE;
+		this.maxTemperature = DEFAULT_MAX_TEMPERATURE;
 		setTemperature(temperature);
 		
 		setHumidity(humidity);
@@ -111,6 +113,19 @@ public class SquareImpl implements Square {
 	 */
 	@Override
 	public Temperature getTemperature() {
+		Temperature result = this.temperatureObject;
+		if (result == null) {
+			result = new Temperature(this.temperature);
+			this.temperatureObject = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Return the temperature of this square in degrees Celcius.
+	 */
+	@Override
+	public double getTemperatureInCelcius() {
 		return this.temperature;
 	}
 	
@@ -124,6 +139,17 @@ public class SquareImpl implements Square {
 		setTemperature(temperature);
 		merge();
 	}
+
+	/**
+	 * Set the temperature of this square to the given temperature in degrees Celcius.
+	 */
+	@Override
+	public void changeTemperatureInCelcius(double temperature) 
+		throws TemperatureOutOfRangeException
+	{
+		setTemperatureInCelcius(temperature);
+		merge();
+	}
 	
 	/**
 	 * Check whether it is possible to change the temperature of this square.
@@ -153,7 +179,31 @@ public class SquareImpl implements Square {
 	{
 		if (!canHaveAsTemperature(temperature))
 			throw new TemperatureOutOfRangeException(temperature, getMinTemperature(), getMaxTemperature());
-		this.temperature = temperature;
+		this.temperature = temperature.getValueInCelcius();
+		this.temperatureObject = temperature;
+	}
+
+	/**
+	 * Set the temperature of this square to the given temperature in degrees Celcius.
+	 * 
+	 * @param 	temperature
+	 *				The new temperature of this square, in degrees Celcius.
+	 * @post	...
+	 * 			| new.getTemperatureInCelcius() == temperature
+	 * @throws 	TemperatureOutOfRangeException(new Temperature(temperature), getMinTemperature(), getMaxTemperature())
+	 *				The given temperature is not valid for this square.
+	 *				| !canHaveAsTemperatureInCelcius(temperature)
+	 */
+	@Model @Raw
+	private void setTemperatureInCelcius(double temperature) 
+		throws TemperatureOutOfRangeException
+	{
+		if (!canHaveAsTemperatureInCelcius(temperature))
+			throw new TemperatureOutOfRangeException(new Temperature(temperature), getMinTemperature(), getMaxTemperature());
+		if (Double.compare(temperature, this.temperature) != 0) {
+			this.temperature = temperature;
+			this.temperatureObject = null;
+		}
 	}
 	
 	/**
@@ -165,6 +215,15 @@ public class SquareImpl implements Square {
 	{
 		return matchesTemperatureBoundaries(temperature, getMinTemperature(), getMaxTemperature());
 	}
+
+	/**
+	 * Return whether a given temperature in degrees Celcius is valid for this square.
+	 */
+	@Raw @Override
+	public boolean canHaveAsTemperatureInCelcius(double temperature) {
+		return matchesTemperatureBoundaries(temperature, getMinTemperature().getValueInCelcius(),
+				getMaxTemperature().getValueInCelcius());
+	}
 	
 	/**
 	 * Return whether a given temperature is valid for a given minimum and maximum temperature. 
@@ -191,11 +250,34 @@ public class SquareImpl implements Square {
 		return ((temperature.compareTo(minTemperature) >= 0) && 
 				(temperature.compareTo(maxTemperature) <= 0));
 	}
+
+	/**
+	 * Return whether a given temperature is valid for a given minimum and maximum temperature, all in degrees Celcius.
+	 * 
+	 * @param 	temperature
+	 *         		The temperature to check.
+	 * @param 	minTemperature
+	 * 				The minimum temperature.
+	 * @param 	maxTemperature
+	 * 				The maximum temperature.
+	 * @return 	...
+	 * 			| result == matchesTemperatureBoundaries(new Temperature(temperature), new Temperature(minTemperature),
+	 * 			|	new Temperature(maxTemperature))
+	 */
+	public static boolean matchesTemperatureBoundaries(double temperature, double minTemperature, double maxTemperature) {
+		return (Double.compare(temperature, minTemperature) >= 0) && (Double.compare(temperature, maxTemperature) <= 0);
+	}
 	
 	/**
-	 * A variable registering the temperature for this square.
+	 * A variable registering the temperature for this square, in degrees Celcius.
+	 */
+	private double temperature;
+
+	/**
+	 * A variable caching the temperature for this square as a temperature object, null if it has not been
+	 * requested since the temperature last changed.
 	 */
-	private Temperature temperature;
+	private Temperature temperatureObject;
 	
 	/**
 	 * Return the minimum temperature of this square.
@@ -221,6 +303,16 @@ public class SquareImpl implements Square {
 	 * A variable registering the minimum temperature of this square.
 	 */
 	private Temperature minTemperature;
+
+	/**
+	 * The minimum temperature of a new square, shared by all squares as temperatures are immutable.
+	 */
+	private static final Temperature DEFAULT_MIN_TEMPERATURE = new Temperature(-200);
+
+	/**
+	 * The maximum temperature of a new square, shared by all squares as temperatures are immutable.
+	 */
+	private static final Temperature DEFAULT_MAX_TEMPERATURE = new Temperature(5000);
 	
 	/**
 	 * Return the maximum temperature of this square.
@@ -252,7 +344,7 @@ public class SquareImpl implements Square {
 	 */
 	@Override
 	public int getColdDamage() {
-		double tempInCelcius = getTemperature().getValueInCelcius();
+		double tempInCelcius = getTemperatureInCelcius();
 		if (tempInCelcius >= -5)
 			return 0;
 		// The following statements can never give problems
@@ -267,12 +359,13 @@ public class SquareImpl implements Square {
 	 */
 	@Override
 	public int getHeatDamage() {
-		if (getTemperature().compareTo(getHeatDamageBoundaryTemperature()) <= 0)
+		double tempInCelcius = getTemperatureInCelcius();
+		if (Double.compare(tempInCelcius, getHeatDamageBoundaryTemperature().getValueInCelcius()) <= 0)
 			return 0;
 		
 		// The following statements can never give problems
 		// because getTemperature() is bigger than getHeatDamageBoundaryTemperature()
-		double damage = (getTemperature().getValueInCelcius() - 
+		double damage = (tempInCelcius - 
 				getHeatDamageBoundaryTemperature().getValueInCelcius()) * getHeatDamagePerDegreeCelcius();
 		return (int)Math.min((double)Integer.MAX_VALUE, Math.floor(damage));
 	}
@@ -361,15 +454,7 @@ public class SquareImpl implements Square {
 	 */
 	@Override
 	public int getRustDamage() {
-		BigDecimal humidity = getHumidity();
-		BigDecimal damageBoundary = new BigDecimal(30);		
-		if (humidity.compareTo(damageBoundary) <= 0)
-			return 0;
-		
-		BigDecimal percentPerDamagePoint = new BigDecimal(7);
-		BigDecimal damageBigDecimal = humidity.subtract(damageBoundary)
-			.divide(percentPerDamagePoint, 0, BigDecimal.ROUND_DOWN);
-		return damageBigDecimal.intValue();
+		return DamageBatch.getRustDamage(humidity);
 	}
 	
 	/**
@@ -377,6 +462,19 @@ public class SquareImpl implements Square {
 	 */
 	@Basic @Override
 	public BigDecimal getHumidity() {
+		BigDecimal result = humidityDecimal;
+		if (result == null) {
+			result = BigDecimal.valueOf(humidity, 2);
+			humidityDecimal = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Return the humidity of this square in hundredths of a percent.
+	 */
+	@Basic @Override
+	public long getHumidityInHundredths() {
 		return humidity;
 	}
 
@@ -402,7 +500,26 @@ public class SquareImpl implements Square {
 	@Model @Raw
 	private void setHumidity(BigDecimal humidity){
 		assert isValidHumidity(humidity);
-		this.humidity = humidity.setScale(2, RoundingMode.HALF_UP);
+		setHumidityInHundredths(humidity.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue());
+	}
+
+	/**
+	 * Set the humidity of the square to the given humidity in hundredths of a percent.
+	 * 
+	 * @param	humidity
+	 * 				The humidity to assign, expressed in hundredths of a percent.
+	 * @pre 	The humidity to assign is a valid humidity.
+	 * 			| (humidity >= 0) && (humidity <= 10000)
+	 * @post 	...
+	 *			| new.getHumidityInHundredths() == humidity
+	 */
+	@Model @Raw
+	private void setHumidityInHundredths(long humidity) {
+		assert (humidity >= 0) && (humidity <= MAX_HUMIDITY);
+		if (humidity != this.humidity) {
+			this.humidity = humidity;
+			this.humidityDecimal = null;
+		}
 	}
 	
 	/**
@@ -417,24 +534,55 @@ public class SquareImpl implements Square {
 	public static boolean isValidHumidity(BigDecimal humidity){
 		if (humidity == null)
 			return false;
-		return (humidity.compareTo(BigDecimal.ZERO) >= 0) && (humidity.compareTo(new BigDecimal(100)) <= 0); 
+		return (humidity.compareTo(BigDecimal.ZERO) >= 0) && (humidity.compareTo(HUNDRED) <= 0); 
 	}
+
+	/**
+	 * The humidity of one hundred percent.
+	 */
+	private static final BigDecimal HUNDRED = new BigDecimal(100);
+
+	/**
+	 * The humidity of one hundred percent, in hundredths of a percent.
+	 */
+	private static final long MAX_HUMIDITY = 10000;
 	
 	/**
-	 * A variable registering the humidity of this square.
+	 * A variable registering the humidity of this square, in hundredths of a percent.
 	 */
-	private BigDecimal humidity;
+	private long humidity;
+
+	/**
+	 * A variable caching the humidity of this square as a big decimal, null if it has not been requested
+	 * since the humidity last changed.
+	 */
+	private BigDecimal humidityDecimal;
 
 	/**
 	 * Return whether this square is slippery.
 	 */
 	@Override
 	public boolean isSlippery() {
+		return isSlippery(getTemperatureInCelcius(), humidity) || hasSlipperyMaterial();
+	}
+
+	/**
+	 * Check whether a square without slippery material is slippery at the given temperature and humidity,
+	 * that is, whether it is covered in water or in ice.
+	 * 
+	 * @param	temperature
+	 * 				The temperature of the square, in degrees Celcius.
+	 * @param	humidity
+	 * 				The humidity of the square, in hundredths of a percent.
+	 * @return	...
+	 * 			| result == ((humidity == 10000) && (temperature >= 0)) || ((humidity > 1000) && (temperature < 0))
+	 */
+	public static boolean isSlippery(double temperature, long humidity) {
 		boolean waterSlippery = 
-			((getHumidity().compareTo(new BigDecimal(100)) == 0) && (getTemperature().getValueInCelcius() >= 0));
+			((humidity == MAX_HUMIDITY) && (temperature >= 0));
 		boolean iceSlippery =
-			((getHumidity().compareTo(new BigDecimal(10)) > 0) && (getTemperature().getValueInCelcius() < 0));
-		return waterSlippery || iceSlippery || hasSlipperyMaterial();
+			((humidity > MAX_HUMIDITY / 10) && (temperature < 0));
+		return waterSlippery || iceSlippery;
 	}
 	
 	/**
@@ -457,7 +605,7 @@ public class SquareImpl implements Square {
 	public double getInhabitability(){
 		// The following statements can never overflow or give an error,
 		// because humidity satisfies the class invariant 
-		double heatInhabitability  = - Math.pow(getHeatDamage(),1.5)/Math.sqrt(101-getHumidity().doubleValue());
+		double heatInhabitability  = - Math.pow(getHeatDamage(),1.5)/Math.sqrt(101-humidity / 100.0);
 		double coldInhabitability = - Math.sqrt(getColdDamage());
 		return (double)(heatInhabitability + coldInhabitability);
 	}
@@ -512,7 +660,7 @@ public class SquareImpl implements Square {
 	public Border getBorderAt(Direction direction) throws NullPointerException {
 		if (direction == null)
 			throw new NullPointerException();
-		return getBorders().get(direction);
+		return borders.get(direction);
 	}
 	
 	/**
@@ -537,7 +685,7 @@ public class SquareImpl implements Square {
 		
 		borders.remove(direction);
 		borders.put(direction, border);
-		
+		notifyBordersChanged();
 	}
 	
 	/**
@@ -848,17 +996,22 @@ public class SquareImpl implements Square {
 	@Override @Raw
 	public void merge() {
 		Set<Square> squaresInSpace = getSquaresInSpace();
-		Temperature newTemperature = calculateMergedTemperature(squaresInSpace);
+		double newTemperature = calculateMergedTemperatureInCelcius(squaresInSpace);
 		for (Square square : squaresInSpace) {
-			if(!square.canHaveAsTemperature(newTemperature))
+			if(!square.canHaveAsTemperatureInCelcius(newTemperature))
 				throw new IllegalStateException();
 		}
 		
-		BigDecimal newHumidity = calculateMergedHumidity(squaresInSpace);
+		long newHumidity = calculateMergedHumidityInHundredths(squaresInSpace);
+		// Squares of this class are merged on primitive values, without allocating temperatures or big decimals.
 		
 		this.isMerging = true;
-		for (Square square : squaresInSpace)
-			square.merge(newTemperature, newHumidity, this);
+		for (Square square : squaresInSpace) {
+			if (square instanceof SquareImpl)
+				((SquareImpl)square).merge(newTemperature, newHumidity, this);
+			else
+				square.merge(new Temperature(newTemperature), BigDecimal.valueOf(newHumidity, 2), this);
+		}
 		this.isMerging = false;
 	}
 	
@@ -872,10 +1025,64 @@ public class SquareImpl implements Square {
 		
 		if ((mergedTemperature == null) || (mergedHumidity == null))
 			throw new NullPointerException();
-		if (!canHaveAsTemperature(mergedTemperature)) 
-			throw new TemperatureOutOfRangeException(mergedTemperature, getMinTemperature(), getMaxTemperature());
-		setTemperature(mergedTemperature);
-		setHumidity(mergedHumidity);
+		merge(mergedTemperature.getValueInCelcius(), 
+				mergedHumidity.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue(), mergeOrigin);
+	}
+
+	/**
+	 * Update this square to the merged conditions, with the merged temperature in degrees Celcius and
+	 * the merged humidity in hundredths of a percent.
+	 *
+	 * @param	mergedTemperature
+	 * 				The temperature to which this square's temperature is to be set, in degrees Celcius.
+	 * @param	mergedHumidity
+	 * 				The humidity to which this square's humidity is to be set, in hundredths of a percent.
+	 * @param	mergeOrigin
+	 * 				The square that initiated the merge.
+	 * @effect	...
+	 * 			| merge(new Temperature(mergedTemperature), BigDecimal.valueOf(mergedHumidity, 2), mergeOrigin)
+	 */
+	protected void merge(double mergedTemperature, long mergedHumidity, @Raw Square mergeOrigin) 
+		throws TemperatureOutOfRangeException
+	{
+		assert isInSpace(mergeOrigin) && mergeOrigin.isMerging();
+		
+		setTemperatureInCelcius(mergedTemperature);
+		setHumidityInHundredths(mergedHumidity);
+		notifySquareChanged();
+		// The temperature of a rock square is derived from the temperatures of its neighbours.
+		for (Direction direction : Direction.values()) {
+			Square neighbour = getNeighbour(direction);
+			if (neighbour instanceof RockSquare)
+				((RockSquare)neighbour).notifySquareChanged();
+		}
+	}
+	
+	/**
+	 * Set the temperature and the humidity of all the squares in the space of this square to the given values.
+	 * All the squares are checked before any of them is changed, so that a failing call leaves the space untouched.
+	 */
+	@Override
+	public void changeSpaceConditions(double temperature, long humidity)
+		throws TemperatureOutOfRangeException, IllegalArgumentException
+	{
+		if ((humidity < 0) || (humidity > MAX_HUMIDITY))
+			throw new IllegalArgumentException();
+		Set<Square> squaresInSpace = getSquaresInSpace();
+		for (Square square : squaresInSpace) {
+			if (!square.canHaveAsTemperatureInCelcius(temperature))
+				throw new TemperatureOutOfRangeException(new Temperature(temperature), square.getMinTemperature(),
+						square.getMaxTemperature());
+		}
+		
+		this.isMerging = true;
+		for (Square square : squaresInSpace) {
+			if (square instanceof SquareImpl)
+				((SquareImpl)square).merge(temperature, humidity, this);
+			else
+				square.merge(new Temperature(temperature), BigDecimal.valueOf(humidity, 2), this);
+		}
+		this.isMerging = false;
 	}
 	
 	/**
@@ -884,8 +1091,8 @@ public class SquareImpl implements Square {
 	@Override
 	public boolean isMerged() {
 		for (Square square : getSquaresInSpace()) {
-			if ((this.getTemperature().compareTo(square.getTemperature()) != 0) || 
-	  			(this.getHumidity().compareTo(square.getHumidity()) != 0))
+			if ((Double.compare(this.getTemperatureInCelcius(), square.getTemperatureInCelcius()) != 0) || 
+	  			(this.humidity != square.getHumidityInHundredths()))
 				return false;
 		}
 		return true;
@@ -914,10 +1121,52 @@ public class SquareImpl implements Square {
 	 */
 	@Model
 	protected BigDecimal calculateMergedHumidity(Set<Square> squaresToMerge) {
-		BigDecimal totalHumidity = BigDecimal.ZERO;
+		return BigDecimal.valueOf(calculateMergedHumidityInHundredths(squaresToMerge), 2);
+	}
+
+	/**
+	 * Calculate the humidity to set to merged squares, in hundredths of a percent.
+	 * 
+	 * @param 	squaresToMerge
+	 * 				The squares that are being merged.
+	 * @return	The sum of the humidities of the given squares, multiplied by the double closest to one divided by
+	 * 			their number, and rounded half up to hundredths of a percent.
+	 * 			| result == SUM(Square square in squaresToMerge : square.getHumidity())
+	 * 			|	.multiply(new BigDecimal(1.0 / squaresToMerge.size())).setScale(2, RoundingMode.HALF_UP)
+	 * 			|	.unscaledValue().longValue()
+	 */
+	@Model
+	protected long calculateMergedHumidityInHundredths(Set<Square> squaresToMerge) {
+		long totalHumidity = 0;
 		for (Square square : squaresToMerge)
-			totalHumidity = totalHumidity.add(square.getHumidity());
-		return totalHumidity.multiply(new BigDecimal(1.0 / squaresToMerge.size()));
+			totalHumidity += square.getHumidityInHundredths();
+		return multiplyByReciprocal(totalHumidity, squaresToMerge.size());
+	}
+
+	/**
+	 * Return the given value multiplied by the double closest to one divided by the given count, rounded half up.
+	 * The product is computed exactly, so that the result equals rounding the product of the value and
+	 * new BigDecimal(1.0 / count), without allocating big decimals.
+	 * 
+	 * @param	value
+	 * 				The value to multiply, not negative.
+	 * @param	count
+	 * 				The count of which the reciprocal is taken, positive.
+	 */
+	static long multiplyByReciprocal(long value, int count) {
+		assert (value >= 0) && (count > 0);
+		if (count == 1)
+			return value;
+		if (value >= (1L << 31))
+			return new BigDecimal(value).multiply(new BigDecimal(1.0 / count))
+				.setScale(0, RoundingMode.HALF_UP).longValue();
+		// The reciprocal is mantissa * 2^-shift exactly, with a mantissa of 53 bits and a shift of at least 53.
+		long bits = Double.doubleToLongBits(1.0 / count);
+		long mantissa = (bits & 0xFFFFFFFFFFFFFL) | 0x10000000000000L;
+		int shift = 1075 - (int)(bits >>> 52);
+		// The product is split as high * 2^32 + low, in which the low part cannot affect the rounded result.
+		long high = value * (mantissa >>> 32) + ((value * (mantissa & 0xFFFFFFFFL)) >>> 32);
+		return (high + (1L << (shift - 33))) >>> (shift - 32);
 	}
 	
 	/**
@@ -934,12 +1183,27 @@ public class SquareImpl implements Square {
 	 */
 	@Model
 	protected Temperature calculateMergedTemperature(Set<Square> squaresToMerge) {
+		return new Temperature(calculateMergedTemperatureInCelcius(squaresToMerge));
+	}
+
+	/**
+	 * Calculate the temperature to set to merged squares, in degrees Celcius.
+	 * 
+	 * @Pre		The given set is effective.
+	 * 			| squaresToMerge != null
+	 * @Pre		The given set has at least one square.
+	 * 			| squaresToMerge.size() >= 1
+	 * @return	...
+	 * 			| result == MEAN(Square square in squaresToMerge : square.getTemperatureInCelcius())
+	 */
+	@Model
+	protected double calculateMergedTemperatureInCelcius(Set<Square> squaresToMerge) {
 		assert (squaresToMerge != null) && (squaresToMerge.size() >= 1);
 		double factor = 1.0 / squaresToMerge.size();
 		double result = 0;
 		for (Square square : squaresToMerge)
-			result += square.getTemperature().getValueInCelcius() * factor;
-		return new Temperature(result);
+			result += square.getTemperatureInCelcius() * factor;
+		return result;
 	}
 	
 	/**
@@ -1006,6 +1270,127 @@ public class SquareImpl implements Square {
 		return checkedSquares;
 	}
 	
+	/**
+	 * Register the given listener to be notified of the changes to this square.
+	 */
+	@Override
+	public void addSquareListener(SquareListener listener) throws NullPointerException {
+		if (listener == null)
+			throw new NullPointerException();
+		if (squareListeners == null)
+			squareListeners = new ArrayList<SquareListener>(1);
+		if (!squareListeners.contains(listener))
+			squareListeners.add(listener);
+	}
+
+	/**
+	 * Unregister the given listener.
+	 */
+	@Override
+	public void removeSquareListener(SquareListener listener) {
+		if (squareListeners != null)
+			squareListeners.remove(listener);
+	}
+
+	/**
+	 * Check whether the given listener is registered to be notified of the changes to this square.
+	 */
+	@Override
+	public boolean hasAsSquareListener(SquareListener listener) {
+		return (squareListeners != null) && squareListeners.contains(listener);
+	}
+
+	/**
+	 * Notify the listeners of this square that its temperature or humidity may have changed.
+	 */
+	protected void notifySquareChanged() {
+		if (squareListeners == null)
+			return;
+		for (SquareListener listener : squareListeners.toArray(new SquareListener[squareListeners.size()]))
+			listener.squareChanged(this);
+	}
+
+	/**
+	 * Notify the listeners of this square that one of its borders has been replaced, opened or closed.
+	 */
+	@Override
+	public void notifyBordersChanged() {
+		if (squareListeners == null)
+			return;
+		for (SquareListener listener : squareListeners.toArray(new SquareListener[squareListeners.size()]))
+			listener.bordersChanged(this);
+	}
+
+	/**
+	 * A variable registering the listeners of this square, null if it has none.
+	 */
+	private List<SquareListener> squareListeners;
+
+	/**
+	 * Return the teleportation squares that have this square as a target square.
+	 */
+	@Override
+	public Set<TeleportationSquare> getTeleportationSources() {
+		if (teleportationSources == null)
+			return new HashSet<TeleportationSquare>();
+		return new HashSet<TeleportationSquare>(teleportationSources);
+	}
+
+	/**
+	 * Return the number of teleportation squares that have this square as a target square.
+	 */
+	@Override
+	public int getNbTeleportationSources() {
+		return (teleportationSources == null) ? 0 : teleportationSources.size();
+	}
+
+	/**
+	 * Check whether the given teleportation square has this square as a target square.
+	 */
+	@Override
+	public boolean hasAsTeleportationSource(TeleportationSquare teleporter) {
+		return (teleportationSources != null) && teleportationSources.contains(teleporter);
+	}
+
+	/**
+	 * Register the given teleportation square as a teleportation square that has this square as a target square.
+	 */
+	@Override
+	public void addTeleportationSource(@Raw TeleportationSquare teleporter) {
+		assert teleporter != null;
+		if (teleportationSources == null)
+			teleportationSources = new HashSet<TeleportationSquare>(2);
+		teleportationSources.add(teleporter);
+	}
+
+	/**
+	 * Unregister the given teleportation square as a teleportation square that has this square as a target square.
+	 */
+	@Override
+	public void removeTeleportationSource(TeleportationSquare teleporter) {
+		if (teleportationSources != null)
+			teleportationSources.remove(teleporter);
+	}
+
+	/**
+	 * Remove this square from the target squares of every teleportation square that has another target square.
+	 */
+	@Override
+	public void detachTeleportationSources() {
+		if (teleportationSources == null)
+			return;
+		for (TeleportationSquare teleporter : teleportationSources.toArray(new TeleportationSquare[teleportationSources.size()])) {
+			if (teleporter.getNbTargetSquares() >= 2)
+				teleporter.removeTargetSquare(this);
+		}
+	}
+
+	/**
+	 * A variable registering the teleportation squares that have this square as a target square, null if there
+	 * are none.
+	 */
+	private Set<TeleportationSquare> teleportationSources;
+
 	/**
 	 * Disconnect this square from its neighbours and split every border so that
 	 * this square and every former neighbour end up with neighbourless copies of it.
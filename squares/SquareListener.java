@@ -0,0 +1,27 @@
+package project.squares;
+
+/**
+ * An interface for listeners that are notified of changes to the state of a square.
+ *
+ * @author 	Stef Noten & Jasper Hilven
+ * @version	1.0
+ */
+public interface SquareListener {
+
+	/**
+	 * Notify this listener that the temperature or the humidity of the given square may have changed.
+	 *
+	 * @param	square
+	 * 				The square that changed.
+	 */
+	public void squareChanged(Square square);
+
+	/**
+	 * Notify this listener that a border of the given square has been replaced, or that a door in
+	 * one of its borders has been opened or closed.
+	 *
+	 * @param	square
+	 * 				The square of which a border has changed.
+	 */
+	public void bordersChanged(Square square);
+}
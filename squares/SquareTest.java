@@ -568,6 +568,62 @@ public class SquareTest {
 		assertTrue(square2.canNavigateTo(compDungeon.getSquareAt(new Position(20, 0, 0))));
 	}
 	
+
+	@Test
+	public void multiplyByReciprocal_SameAsBigDecimal() {
+		for (int count = 1; count <= 300; count++)
+			for (long value = 0; value <= 10000L * count; value += 1 + count * 13)
+				assertEquals(new BigDecimal(value).multiply(new BigDecimal(1.0 / count))
+						.setScale(0, RoundingMode.HALF_UP).longValue(), SquareImpl.multiplyByReciprocal(value, count));
+		assertEquals(new BigDecimal(Long.MAX_VALUE / 4).multiply(new BigDecimal(1.0 / 3))
+				.setScale(0, RoundingMode.HALF_UP).longValue(), SquareImpl.multiplyByReciprocal(Long.MAX_VALUE / 4, 3));
+	}
+
+	@Test
+	public void humidityInHundredths_LegalCase() {
+		Square square = new SquareImpl(new Temperature(20), new BigDecimal("45.675"), false, Direction.FLOOR);
+		assertEquals(4568, square.getHumidityInHundredths());
+		assertEquals(0, new BigDecimal("45.68").compareTo(square.getHumidity()));
+		assertSame(square.getHumidity(), square.getHumidity());
+		square.changeHumidity(new BigDecimal(30));
+		assertEquals(3000, square.getHumidityInHundredths());
+		assertEquals(0, new BigDecimal(30).compareTo(square.getHumidity()));
+	}
+
+	@Test
+	public void mergeHumidity_RoundsAsBigDecimal() {
+		Level<Square> level = new Level<Square>(10, 10);
+		level.setSquareAt(new Position(1, 0, 0), new SquareImpl(new Temperature(20), new BigDecimal("10.01"), false, Direction.FLOOR));
+		level.setSquareAt(new Position(2, 0, 0), new SquareImpl(new Temperature(20), new BigDecimal("20.00"), false, Direction.FLOOR));
+		level.setSquareAt(new Position(3, 0, 0), new SquareImpl(new Temperature(20), new BigDecimal("33.33"), false, Direction.FLOOR));
+		// The first two squares merge to 15.01 before the third one is added.
+		BigDecimal expected = new BigDecimal("63.35").multiply(new BigDecimal(1.0 / 3)).setScale(2, RoundingMode.HALF_UP);
+		for (int x = 1; x <= 3; x++)
+			assertEquals(0, expected.compareTo(level.getSquareAt(new Position(x, 0, 0)).getHumidity()));
+	}
+
+	@Test
+	public void temperatureInCelcius_LegalCase() {
+		Square square = new SquareImpl(new Temperature(20), new BigDecimal(50), false, Direction.FLOOR);
+		assertEquals(20, square.getTemperatureInCelcius(), 0);
+		square.changeTemperatureInCelcius(-12.5);
+		assertEquals(-12.5, square.getTemperatureInCelcius(), 0);
+		assertEquals(-12.5, square.getTemperature().getValueInCelcius(), 0);
+		assertSame(square.getTemperature(), square.getTemperature());
+		assertTrue(square.canHaveAsTemperatureInCelcius(5000));
+		assertFalse(square.canHaveAsTemperatureInCelcius(5000.5));
+	}
+
+	@Test(expected = TemperatureOutOfRangeException.class)
+	public void changeTemperatureInCelcius_OutOfRange() {
+		new SquareImpl().changeTemperatureInCelcius(-250);
+	}
+
+	@Test
+	public void temperatureBounds_Shared() {
+		assertSame(new SquareImpl().getMinTemperature(), new SquareImpl().getMinTemperature());
+		assertSame(new SquareImpl().getMaxTemperature(), new SquareImpl().getMaxTemperature());
+	}
 	@Test
 	public void canNavigateTo_FalseCase() {
 		constructSpacedDungeon();
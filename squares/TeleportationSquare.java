@@ -2,6 +2,7 @@ package project.squares;
 
 import java.util.List;
 import java.util.Set;
+import java.util.SplittableRandom;
 
 /**
  * A square that is enabled for teleportation, it can have one or more teleportation targets.
@@ -43,6 +44,61 @@ public interface TeleportationSquare extends Square {
 	 */
 	public void addTargetSquare(Square square);
 	
+	/**
+	 * Add a square with the given weight to the list of target squares of this teleportation square.
+	 * 
+	 * @param 	square
+	 * 				The square to add as a target square.
+	 * @param	weight
+	 * 				The weight of the square as a target square.
+	 * @Pre		...
+	 * 			| (square != null) && !hasTargetSquare(square)
+	 * @Pre		...
+	 * 			| canHaveAsTargetWeight(weight)
+	 * @Post	...
+	 * 			| new.hasTargetSquare(square) && (new.getTargetWeight(square) == weight)
+	 */
+	public void addTargetSquare(Square square, double weight);
+	
+	/**
+	 * Return the weight of the given target square of this teleportation square.
+	 * The chance to teleport to a target square is its weight divided by the sum of the weights of all target squares.
+	 * 
+	 * @param	square
+	 * 				The target square of which the weight is to be returned.
+	 * @Pre		...
+	 * 			| hasTargetSquare(square)
+	 * @return	...
+	 * 			| canHaveAsTargetWeight(result)
+	 */
+	public double getTargetWeight(Square square);
+	
+	/**
+	 * Set the weight of the given target square of this teleportation square to the given weight.
+	 * 
+	 * @param	square
+	 * 				The target square of which the weight is to be changed.
+	 * @param	weight
+	 * 				The new weight of the target square.
+	 * @Pre		...
+	 * 			| hasTargetSquare(square)
+	 * @Pre		...
+	 * 			| canHaveAsTargetWeight(weight)
+	 * @Post	...
+	 * 			| new.getTargetWeight(square) == weight
+	 */
+	public void setTargetWeight(Square square, double weight);
+	
+	/**
+	 * Check whether this teleportation square can have the given weight as the weight of a target square.
+	 * 
+	 * @param	weight
+	 * 				The weight to check.
+	 * @return	...
+	 * 			| result == (weight > 0) && !Double.isInfinite(weight)
+	 */
+	public boolean canHaveAsTargetWeight(double weight);
+	
 	/**
 	 * Remove a square from the list of target squares of this teleportation square.
 	 * 
@@ -70,10 +126,26 @@ public interface TeleportationSquare extends Square {
 	/**
 	 * Return a square to teleport to.
 	 * 
-	 * @return	A square that is member of the target squares of this teleportation square that is used to teleport to.
+	 * @return	A square that is member of the target squares of this teleportation square that is used to teleport to,
+	 * 			drawn with a chance proportional to its weight.
 	 * 			| hasTargetSquare(result)
 	 */
 	public Square getNewTeleportationTarget();
+
+	/**
+	 * Return a square to teleport to, drawn with the given generator.
+	 *
+	 * @param	random
+	 * 				The generator to draw the square with.
+	 * @return	A square that is member of the target squares of this teleportation square, drawn with a chance
+	 * 			proportional to its weight, that only depends on the target squares, their weights and the state of
+	 * 			the given generator.
+	 * 			| hasTargetSquare(result)
+	 * @throws	NullPointerException
+	 * 				The given generator is not effective.
+	 * 				| random == null
+	 */
+	public Square getNewTeleportationTarget(SplittableRandom random) throws NullPointerException;
 	
 	/**
 	 * Return all the accessible neighbours of this teleportation square.
@@ -2,10 +2,15 @@ package project.squares;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
 
 import project.misc.Direction;
+import project.misc.RandomSource;
 import project.temperature.*;
 import be.kuleuven.cs.som.annotate.*;
 
@@ -56,15 +61,17 @@ public class TeleportationSquareImpl extends SquareImpl implements Teleportation
 		super(temperature, humidity, hasSlipperyMaterial, wallDirections);
 		
 		assert (teleportationTargets != null) && (teleportationTargets.size() >= 1);
-		for (Square square : teleportationTargets)
-			assert square != null;
+		this.targetSquares = new ArrayList<Square>(teleportationTargets);
+		this.targetIndexes = new HashMap<Square, Integer>();
 		for (int i = 0; i < teleportationTargets.size(); i++) {
-			for (int j = i + 1; j < teleportationTargets.size(); j++) {
-				assert (teleportationTargets.get(i) != teleportationTargets.get(j));
-			}
+			Square square = teleportationTargets.get(i);
+			assert square != null;
+			Integer previous = this.targetIndexes.put(square, i);
+			assert previous == null;
+			square.addTeleportationSource(this);
 		}
-			
-		this.targetSquares = new ArrayList<Square>(teleportationTargets);
+		this.targetWeights = new double[Math.max(teleportationTargets.size(), 4)];
+		Arrays.fill(this.targetWeights, 1);
 	}
 
 	/**
@@ -116,45 +123,241 @@ public class TeleportationSquareImpl extends SquareImpl implements Teleportation
 	}
 
 	/**
-	 * Add a square to the list of target squares of this teleportation square.
+	 * Add a square to the list of target squares of this teleportation square, with weight 1.
+	 * 
+	 * @effect	...
+	 * 			| addTargetSquare(square, 1)
 	 */
 	@Override
 	public void addTargetSquare(Square square) {
+		addTargetSquare(square, 1);
+	}
+	
+	/**
+	 * Add a square with the given weight to the list of target squares of this teleportation square.
+	 */
+	@Override
+	public void addTargetSquare(Square square, double weight) {
 		assert (square != null) && !hasTargetSquare(square);
+		assert canHaveAsTargetWeight(weight);
+		int index = this.targetSquares.size();
+		if (index == this.targetWeights.length)
+			this.targetWeights = Arrays.copyOf(this.targetWeights, 2 * index);
+		this.targetWeights[index] = weight;
 		this.targetSquares.add(square);
+		this.targetIndexes.put(square, index);
+		square.addTeleportationSource(this);
+		this.aliasTable = null;
 	}
 	
 	/**
 	 * Remove a square from the list of target squares of this teleportation square.
+	 * The last target square takes the place of the removed square in the list of target squares.
 	 */
 	@Override
 	public void removeTargetSquare(Square square) {
 		assert (hasTargetSquare(square));
 		assert (getNbTargetSquares() >= 2);
-		this.targetSquares.remove(square);
+		int index = this.targetIndexes.remove(square);
+		int last = this.targetSquares.size() - 1;
+		Square lastSquare = this.targetSquares.remove(last);
+		if (index != last) {
+			this.targetSquares.set(index, lastSquare);
+			this.targetWeights[index] = this.targetWeights[last];
+			this.targetIndexes.put(lastSquare, index);
+		}
+		square.removeTeleportationSource(this);
+		this.aliasTable = null;
+	}
+
+	/**
+	 * Return the weight of the given target square of this teleportation square.
+	 */
+	@Override
+	public double getTargetWeight(Square square) {
+		assert hasTargetSquare(square);
+		return this.targetWeights[this.targetIndexes.get(square)];
 	}
 
+	/**
+	 * Set the weight of the given target square of this teleportation square to the given weight.
+	 */
+	@Override
+	public void setTargetWeight(Square square, double weight) {
+		assert hasTargetSquare(square);
+		assert canHaveAsTargetWeight(weight);
+		this.targetWeights[this.targetIndexes.get(square)] = weight;
+		this.aliasTable = null;
+	}
+
+	/**
+	 * Check whether this teleportation square can have the given weight as the weight of a target square.
+	 */
+	@Override
+	public boolean canHaveAsTargetWeight(double weight) {
+		return (weight > 0) && !Double.isInfinite(weight);
+	}
+
+	/**
+	 * A variable registering the weight of each target square of this teleportation square, in the order of the
+	 * list of target squares. Only the first getNbTargetSquares() elements are in use.
+	 */
+	private double[] targetWeights;
+
 	/**
 	 * Return whether a given square is member of the target squares of this teleportation square. 
 	 */
 	@Override
 	public boolean hasTargetSquare(Square square) {
-		return this.targetSquares.contains(square);
+		return this.targetIndexes.containsKey(square);
 	}
 
 	/**
-	 * Return a random square to teleport to.
+	 * Return a random square to teleport to, drawn with the generator of the random source of teleportation squares
+	 * for the current thread.
+	 *
+	 * @return	...
+	 * 			| result == getNewTeleportationTarget(getRandomSource().current())
 	 */
 	@Override
 	public Square getNewTeleportationTarget() {
+		return getNewTeleportationTarget(getRandomSource().current());
+	}
+
+	/**
+	 * Return a random square to teleport to, drawn with the given generator.
+	 * The square is drawn in constant time from an alias table over the weights of the target squares, which is
+	 * built again the first time a target square is drawn after the target squares or their weights have changed.
+	 */
+	@Override
+	public Square getNewTeleportationTarget(SplittableRandom random) throws NullPointerException {
 		assert getNbTargetSquares() >= 1;
-		return this.targetSquares.get((int)(Math.random() * getNbTargetSquares()));
+		AliasTable table = this.aliasTable;
+		if (table == null) {
+			table = new AliasTable(this.targetSquares.toArray(new Square[this.targetSquares.size()]), this.targetWeights);
+			this.aliasTable = table;
+		}
+		return table.draw(random);
+	}
+
+	/**
+	 * A class of alias tables, drawing target squares with chances proportional to their weights in constant time.
+	 * Each column of the table holds a target square, the chance to keep that square and the column of the target
+	 * square to draw otherwise.
+	 */
+	private static final class AliasTable {
+
+		/**
+		 * Initialise a new alias table over the given target squares with the first weights of the given weights.
+		 */
+		AliasTable(Square[] targets, double[] weights) {
+			int nbTargets = targets.length;
+			double total = 0;
+			for (int i = 0; i < nbTargets; i++)
+				total += weights[i];
+			this.targets = targets;
+			this.probabilities = new double[nbTargets];
+			this.aliases = new int[nbTargets];
+			double[] scaled = new double[nbTargets];
+			int[] small = new int[nbTargets];
+			int[] large = new int[nbTargets];
+			int nbSmall = 0, nbLarge = 0;
+			for (int i = 0; i < nbTargets; i++) {
+				scaled[i] = weights[i] * nbTargets / total;
+				if (scaled[i] < 1)
+					small[nbSmall++] = i;
+				else
+					large[nbLarge++] = i;
+			}
+			while ((nbSmall > 0) && (nbLarge > 0)) {
+				int lower = small[--nbSmall];
+				int higher = large[--nbLarge];
+				probabilities[lower] = scaled[lower];
+				aliases[lower] = higher;
+				scaled[higher] = (scaled[higher] + scaled[lower]) - 1;
+				if (scaled[higher] < 1)
+					small[nbSmall++] = higher;
+				else
+					large[nbLarge++] = higher;
+			}
+			while (nbLarge > 0)
+				probabilities[large[--nbLarge]] = 1;
+			while (nbSmall > 0)
+				probabilities[small[--nbSmall]] = 1;
+		}
+
+		/**
+		 * Draw a target square with the given generator.
+		 */
+		Square draw(SplittableRandom random) {
+			int column = random.nextInt(targets.length);
+			if (random.nextDouble() < probabilities[column])
+				return targets[column];
+			return targets[aliases[column]];
+		}
+
+		/**
+		 * The target square of each column.
+		 */
+		private final Square[] targets;
+
+		/**
+		 * The chance to keep the target square of each column.
+		 */
+		private final double[] probabilities;
+
+		/**
+		 * The column of the target square to draw otherwise, for each column.
+		 */
+		private final int[] aliases;
+	}
+
+	/**
+	 * A variable referencing the alias table over the target squares of this teleportation square, null if it has
+	 * to be built again.
+	 */
+	private volatile AliasTable aliasTable;
+
+	/**
+	 * Return the random source with which teleportation squares draw their targets, unless they are given a generator.
+	 */
+	@Basic
+	public static RandomSource getRandomSource() {
+		return randomSource;
 	}
 
+	/**
+	 * Set the random source with which teleportation squares draw their targets to the given source.
+	 *
+	 * @param	randomSource
+	 * 				The new random source.
+	 * @post	...
+	 * 			| getRandomSource() == randomSource
+	 * @throws	NullPointerException
+	 * 				The given random source is not effective.
+	 * 				| randomSource == null
+	 */
+	public static void setRandomSource(RandomSource randomSource) throws NullPointerException {
+		if (randomSource == null)
+			throw new NullPointerException();
+		TeleportationSquareImpl.randomSource = randomSource;
+	}
+
+	/**
+	 * A variable referencing the random source with which teleportation squares draw their targets.
+	 */
+	private static volatile RandomSource randomSource = new RandomSource();
+
 	/**
 	 * A variable representing the list of target squares of this teleportation square.
 	 */
 	private List<Square> targetSquares;
+
+	/**
+	 * A variable registering the index of each target square of this teleportation square in the list of target
+	 * squares.
+	 */
+	private Map<Square, Integer> targetIndexes;
 	
 	/**
 	 * Return all the accessible neighbours of this teleportation square.
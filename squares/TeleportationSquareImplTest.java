@@ -0,0 +1,128 @@
+package project.squares;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import project.dungeons.Level;
+import project.dungeons.Position;
+import project.misc.RandomSource;
+
+/**
+ * A test class for teleportation squares.
+ *
+ * @version	1.0
+ * @author 	Stef Noten & Jasper Hilven
+ */
+public class TeleportationSquareImplTest {
+	private List<Square> targets;
+	private TeleportationSquareImpl teleporter;
+
+	@Before
+	public void setUpMutableTextFixture() {
+		targets = new ArrayList<Square>();
+		for (int i = 0; i < 10; i++)
+			targets.add(new SquareImpl());
+		teleporter = new TeleportationSquareImpl(targets);
+	}
+
+	@Test
+	public void getNewTeleportationTarget_IsTarget() {
+		for (int i = 0; i < 100; i++)
+			assertTrue(teleporter.hasTargetSquare(teleporter.getNewTeleportationTarget()));
+	}
+
+	@Test
+	public void getNewTeleportationTarget_ReplaysFromSeed() {
+		TeleportationSquareImpl.setRandomSource(new RandomSource(7));
+		List<Square> jumps = new ArrayList<Square>();
+		for (int i = 0; i < 50; i++)
+			jumps.add(teleporter.getNewTeleportationTarget());
+		TeleportationSquareImpl.getRandomSource().reset();
+		for (int i = 0; i < 50; i++)
+			assertSame(jumps.get(i), teleporter.getNewTeleportationTarget());
+	}
+
+	@Test
+	public void getNewTeleportationTarget_GivenGenerator() {
+		SplittableRandom random1 = new SplittableRandom(3);
+		SplittableRandom random2 = new SplittableRandom(3);
+		for (int i = 0; i < 50; i++)
+			assertSame(teleporter.getNewTeleportationTarget(random1), teleporter.getNewTeleportationTarget(random2));
+	}
+
+	@Test
+	public void getNewTeleportationTarget_Weighted() {
+		Square favourite = targets.get(4);
+		teleporter.setTargetWeight(favourite, 91);
+		SplittableRandom random = new SplittableRandom(11);
+		int hits = 0;
+		for (int i = 0; i < 100000; i++) {
+			if (teleporter.getNewTeleportationTarget(random) == favourite)
+				hits++;
+		}
+		assertEquals(0.91, hits / 100000.0, 0.01);
+	}
+
+	@Test
+	public void getNewTeleportationTarget_AfterAddAndRemove() {
+		SplittableRandom random = new SplittableRandom(5);
+		teleporter.getNewTeleportationTarget(random);
+		Square added = new SquareImpl();
+		teleporter.addTargetSquare(added, 1e9);
+		assertEquals(1e9, teleporter.getTargetWeight(added), 0);
+		assertSame(added, teleporter.getNewTeleportationTarget(random));
+		teleporter.removeTargetSquare(added);
+		for (int i = 0; i < 1000; i++)
+			assertNotSame(added, teleporter.getNewTeleportationTarget(random));
+		assertEquals(1, teleporter.getTargetWeight(targets.get(9)), 0);
+	}
+
+	@Test
+	public void canHaveAsTargetWeight() {
+		assertTrue(teleporter.canHaveAsTargetWeight(0.5));
+		assertFalse(teleporter.canHaveAsTargetWeight(0));
+		assertFalse(teleporter.canHaveAsTargetWeight(-1));
+		assertFalse(teleporter.canHaveAsTargetWeight(Double.POSITIVE_INFINITY));
+		assertFalse(teleporter.canHaveAsTargetWeight(Double.NaN));
+	}
+
+	@Test
+	public void teleportationSources_Maintained() {
+		Square target = targets.get(2);
+		assertTrue(target.hasAsTeleportationSource(teleporter));
+		assertEquals(1, target.getNbTeleportationSources());
+		teleporter.removeTargetSquare(target);
+		assertFalse(teleporter.hasTargetSquare(target));
+		assertFalse(target.hasAsTeleportationSource(teleporter));
+		assertEquals(9, teleporter.getNbTargetSquares());
+		assertTrue(teleporter.hasTargetSquare(targets.get(9)));
+		teleporter.addTargetSquare(target);
+		assertTrue(target.hasAsTeleportationSource(teleporter));
+	}
+
+	@Test
+	public void removeSquareAt_DetachesTeleporters() {
+		Level<Square> level = new Level<Square>(10, 10);
+		Square target = targets.get(0);
+		level.setSquareAt(new Position(1, 0, 0), target);
+		List<Square> onlyTarget = new ArrayList<Square>();
+		onlyTarget.add(target);
+		TeleportationSquareImpl loyalTeleporter = new TeleportationSquareImpl(onlyTarget);
+		assertEquals(2, target.getNbTeleportationSources());
+		level.removeSquareAt(new Position(1, 0, 0));
+		assertFalse(teleporter.hasTargetSquare(target));
+		assertEquals(9, teleporter.getNbTargetSquares());
+		assertTrue(loyalTeleporter.hasTargetSquare(target));
+		assertEquals(1, target.getNbTeleportationSources());
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void setRandomSource_NullCase() {
+		TeleportationSquareImpl.setRandomSource(null);
+	}
+}
@@ -331,13 +331,23 @@ public abstract class Border {
 	 * @post	...
 	 * 			| if (!flag)
 	 * 			| 	getNeighbour1().isMerged() && ((getNeighbour2() == null) || getNeighbour2().isMerged())
+	 * @effect	If the isolating property changes, the neighbours of this border are notified of the change.
+	 * 			| if (canHaveAsIsolating(flag) && (flag != isIsolating()) && (getState() == BorderState.INITIALISED))
+	 * 			|	getNeighbour1().notifyBordersChanged() &&
+	 * 			|	((getNeighbour2() == null) || getNeighbour2().notifyBordersChanged())
 	 */
 	@Raw
 	protected void setIsolating(boolean flag) {
 		if (canHaveAsIsolating(flag)) {
+			boolean changed = (flag != this.isolating);
 			this.isolating = flag;
 			if (!flag && (getState() == BorderState.INITIALISED))
 				getNeighbour1().merge();
+			if (changed && (getState() == BorderState.INITIALISED)) {
+				getNeighbour1().notifyBordersChanged();
+				if (getNeighbour2() != null)
+					getNeighbour2().notifyBordersChanged();
+			}
 		}
 	}
 
@@ -1,4 +1,8 @@
 package project.squares.borders;
+import project.misc.Direction;
+import project.squares.Square;
+import project.squares.SquareImpl;
+import project.squares.SquareListener;
 import project.squares.borders.Wall;
 import static org.junit.Assert.*;
 
@@ -39,6 +43,29 @@ public class WallTest {
 		assertTrue(wall1.isDoorOpen());
 	}
 		 
+	@Test
+	public void openDoor_NotifiesNeighbours() {
+		SquareImpl square = new SquareImpl(Direction.FLOOR);
+		Wall wall1 = new Wall(true, false);
+		wall1.build(square, Direction.EAST);
+		final int[] nbNotifications = new int[1];
+		square.addSquareListener(new SquareListener() {
+			@Override
+			public void squareChanged(Square square) {
+			}
+
+			@Override
+			public void bordersChanged(Square square) {
+				nbNotifications[0]++;
+			}
+		});
+		wall1.openDoor();
+		wall1.openDoor();
+		assertEquals(1, nbNotifications[0]);
+		wall1.closeDoor();
+		assertEquals(2, nbNotifications[0]);
+	}
+
 	@Test
 	public void closeDoor_LegalCase() {
 		Wall wall1 = new Wall(true, false);